@@ -0,0 +1,112 @@
+package de.lmu.ifi.sep.abalone.benchmarks;
+
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+
+import java.util.Random;
+
+/**
+ * Reproducible positions the benchmarks run on.
+ * <p>
+ * {@code opening} is the starting layout with black to move, {@code midgame}
+ * follows after 30 plies in which both sides prefer pushes and
+ * {@code endgame} continues from there until both sides are one marble away
+ * from losing. Every board size gets its own fixed random seed.
+ */
+final class Positions {
+
+    /**
+     * Plies played from the starting layout to reach the midgame.
+     */
+    private static final int MIDGAME_PLIES = 30;
+
+    /**
+     * Not instantiable, only static methods.
+     */
+    private Positions() {
+    }
+
+    /**
+     * Creates a position on a map backed board, the backend the game uses.
+     *
+     * @param phase {@code opening}, {@code midgame} or {@code endgame}.
+     * @param size  Maximum rows and columns of the board.
+     * @return New board holding the position.
+     */
+    static AbaloneBoard create(final String phase, final int size) {
+        AbaloneBoard board = new AbaloneBoard(size);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        Random random = new Random(size);
+        int[] buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * board.getGeometry().getCellCount()];
+        switch (phase) {
+            case "opening":
+                break;
+            case "midgame":
+                play(board, random, buffer, MIDGAME_PLIES);
+                break;
+            case "endgame":
+                play(board, random, buffer, MIDGAME_PLIES);
+                int lost = 2 * size / 3 - 1;
+                int target = Math.min(count(board, Owner.PLAYER_BLACK), count(board, Owner.PLAYER_WHITE));
+                target = Math.min(target, count(new AbaloneBoard(size), Owner.PLAYER_BLACK) - lost);
+                remove(board, random, Owner.PLAYER_BLACK, target);
+                remove(board, random, Owner.PLAYER_WHITE, target);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown phase " + phase);
+        }
+        return board;
+    }
+
+    /**
+     * Plays random moves, taking a push whenever there is one.
+     */
+    private static void play(final AbaloneBoard board, final Random random,
+                             final int[] buffer, final int plies) {
+        UndoRecord undo = new UndoRecord();
+        for (int ply = 0; ply < plies; ply++) {
+            int moves = Context.generateMoves(board, board.getSideToMove(), buffer);
+            if (moves == 0) {
+                return;
+            }
+            int move = buffer[random.nextInt(moves)];
+            for (int i = 0; i < moves; i++) {
+                if (PackedMove.getPushed(buffer[i]) > 0 && random.nextBoolean()) {
+                    move = buffer[i];
+                    break;
+                }
+            }
+            Context.makeMove(board, move, undo);
+        }
+    }
+
+    /**
+     * Counts the marbles of a player.
+     */
+    private static int count(final AbaloneBoard board, final Owner owner) {
+        int count = 0;
+        for (int cell = 0; cell < board.getGeometry().getCellCount(); cell++) {
+            if (board.getOwner(cell) == owner) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes random marbles of a player until the given number is left.
+     */
+    private static void remove(final AbaloneBoard board, final Random random,
+                               final Owner owner, final int left) {
+        int cells = board.getGeometry().getCellCount();
+        while (count(board, owner) > left) {
+            int cell = random.nextInt(cells);
+            if (board.getOwner(cell) == owner) {
+                board.setOwner(cell, Owner.EMPTY);
+            }
+        }
+    }
+}
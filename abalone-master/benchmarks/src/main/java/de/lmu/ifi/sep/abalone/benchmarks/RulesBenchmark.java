@@ -0,0 +1,128 @@
+package de.lmu.ifi.sep.abalone.benchmarks;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of the rules: the questions the user interface asks on every
+ * click, the packed move generator and making and unmaking a move, which
+ * replaced {@code AbaloneGame.calculateNewPositions}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+
+    @Param({"9", "11", "13"})
+    public int size;
+
+    @Param({"opening", "midgame", "endgame"})
+    public String phase;
+
+    private AbaloneBoard board;
+    private Owner side;
+    private List<Vector> none;
+    private List<Vector> one;
+    private List<Vector> two;
+    private int strengthCell;
+    private int strengthDirection;
+    private int[] buffer;
+    private int move;
+    private UndoRecord undo;
+
+    @Setup
+    public void setup() {
+        board = Positions.create(phase, size);
+        side = board.getSideToMove();
+        none = Collections.emptyList();
+        one = new ArrayList<>();
+        two = new ArrayList<>();
+        List<Vector> clicks = Context.getValidClicks(board, none, side);
+        for (Vector first : clicks) {
+            List<Vector> selection = new ArrayList<>();
+            selection.add(first);
+            List<Vector> next = Context.getValidClicks(board, selection, side);
+            if (!next.isEmpty()) {
+                one.add(first);
+                two.add(first);
+                two.add(next.get(0));
+                break;
+            }
+        }
+        if (one.isEmpty()) {
+            throw new IllegalStateException("no pair to select in " + phase + " " + size);
+        }
+        BoardGeometry geometry = board.getGeometry();
+        strengthCell = geometry.getCellIndex(two.get(1));
+        strengthDirection = geometry.getCellIndex(two.get(0)) == geometry.getNeighbor(strengthCell, 0) ? 3 : 0;
+        buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * geometry.getCellCount()];
+        int moves = Context.generateMoves(board, side, buffer);
+        move = buffer[0];
+        for (int i = 0; i < moves; i++) {
+            if (PackedMove.getPushed(buffer[i]) > 0) {
+                move = buffer[i];
+                strengthCell = PackedMove.getCell(buffer[i], PackedMove.getCount(buffer[i]) - 1, geometry);
+                strengthDirection = PackedMove.getDirection(buffer[i]);
+                break;
+            }
+        }
+        undo = new UndoRecord();
+    }
+
+    @Benchmark
+    public List<Vector> validClicksEmpty() {
+        return Context.getValidClicks(board, none, side);
+    }
+
+    @Benchmark
+    public List<Vector> validClicksEmptyMap() {
+        return Context.getValidClicks(board.getBoard(), none, side);
+    }
+
+    @Benchmark
+    public List<Vector> validClicksOne() {
+        return Context.getValidClicks(board, one, side);
+    }
+
+    @Benchmark
+    public List<Vector> validClicksTwo() {
+        return Context.getValidClicks(board, two, side);
+    }
+
+    @Benchmark
+    public List<Vector.Direction> validMoves() {
+        return Context.getValidMoves(board, two, side);
+    }
+
+    @Benchmark
+    public int nextSpaceStrength() {
+        return Context.nextSpaceStrength(board, strengthCell, strengthDirection, side);
+    }
+
+    @Benchmark
+    public int generateMoves() {
+        return Context.generateMoves(board, side, buffer);
+    }
+
+    @Benchmark
+    public void makeUnmake(Blackhole blackhole) {
+        Context.makeMove(board, move, undo);
+        blackhole.consume(board.getHash());
+        Context.unmakeMove(board, undo);
+    }
+}
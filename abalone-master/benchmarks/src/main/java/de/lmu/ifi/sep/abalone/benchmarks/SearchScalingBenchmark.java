@@ -0,0 +1,92 @@
+package de.lmu.ifi.sep.abalone.benchmarks;
+
+import de.lmu.ifi.sep.abalone.engine.ParallelSearch;
+import de.lmu.ifi.sep.abalone.engine.TranspositionTable;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the parallel search with the number of threads on fixed
+ * positions: {@code timeToDepth} is the time to search a fixed depth,
+ * {@code nodesPerSecond} reports the positions visited per second by all
+ * threads together as the {@code nodes} counter. The transposition table is
+ * cleared before every search.
+ * <p>
+ * A thread count above the number of processors of the machine only shows
+ * the cost of oversubscription.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchScalingBenchmark {
+
+    /**
+     * Time budget that never ends a search before its depth.
+     */
+    private static final long NO_LIMIT = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    @Param({"opening", "midgame"})
+    public String phase;
+
+    @Param({"9"})
+    public int size;
+
+    @Param({"5"})
+    public int depth;
+
+    private AbaloneBoard board;
+    private ParallelSearch search;
+
+    /**
+     * Positions visited, reported per second by JMH.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        board = Positions.create(phase, size);
+        search = new ParallelSearch(threads, new TranspositionTable(64));
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        search.getTable().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        search.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 10)
+    public int timeToDepth() {
+        return search.search(board, depth, NO_LIMIT);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int nodesPerSecond(Nodes counter) {
+        int move = search.search(board, depth, NO_LIMIT);
+        counter.nodes += search.getNodes();
+        return move;
+    }
+}
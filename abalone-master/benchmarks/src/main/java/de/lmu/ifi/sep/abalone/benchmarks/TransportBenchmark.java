@@ -0,0 +1,212 @@
+package de.lmu.ifi.sep.abalone.benchmarks;
+
+import de.lmu.ifi.sep.abalone.network.Transport;
+import de.lmu.ifi.sep.abalone.network.message.Message;
+import de.lmu.ifi.sep.abalone.network.message.MessageHandler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogManager;
+
+/**
+ * Cost of the threads of many connections on each {@link Transport}.
+ * <p>
+ * A simulated connection has the two loops of a network game: a reader that
+ * blocks on its input, standing in for the socket, and puts what it reads
+ * into the message queue, like the client, and a {@link MessageHandler}
+ * that takes it from there. {@code sweep} sends one message through every
+ * connection and waits until all were handled, two thread hand-offs per
+ * connection; the {@code handoffs} counter reports the time per hand-off,
+ * which is mostly the cost of waking a thread. After
+ * the connections were started the {@code rssKib} and {@code heapKib}
+ * counters hold how much the resident memory of the process (Linux only, 0
+ * elsewhere) and the used heap grew for all connections, and
+ * {@code threads} the platform threads that were started for them.
+ * <p>
+ * Virtual threads need Java 21; on older runtimes both transports use
+ * platform threads. Tens of thousands of platform threads may need a higher
+ * limit of processes of the user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransportBenchmark {
+
+    /**
+     * Stops a reader.
+     */
+    private static final Message CLOSE = new Message(Message.MessageType.ERROR, null);
+
+    private static final Message MESSAGE = new Message(Message.MessageType.RDY, null);
+
+    @Param({"1000", "10000", "50000"})
+    public int connections;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public Transport transport;
+
+    private List<BlockingQueue<Message>> inputs;
+    private MessageHandler[] handlers;
+
+    private volatile CountDownLatch handled;
+
+    private long rssKib;
+    private long heapKib;
+    private int threads;
+
+    /**
+     * Growth of memory and threads after the connections were started.
+     * Events are summed over the iterations, so only the first measurement
+     * iteration reports them.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long rssKib;
+        public long heapKib;
+        public long threads;
+
+        private boolean reported;
+        private boolean report;
+
+        @Setup(Level.Iteration)
+        public void reset(IterationParams iteration) {
+            rssKib = 0;
+            heapKib = 0;
+            threads = 0;
+            report = !reported && iteration.getType() == IterationType.MEASUREMENT;
+            reported |= report;
+        }
+    }
+
+    /**
+     * Thread hand-offs.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Handoffs {
+        public long handoffs;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            handoffs = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        LogManager.getLogManager().reset();
+        long rss = residentKib();
+        long heap = usedHeapKib();
+        int platformThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        inputs = new ArrayList<>(connections);
+        handlers = new MessageHandler[connections];
+        CountDownLatch started = new CountDownLatch(connections);
+        for (int i = 0; i < connections; i++) {
+            BlockingQueue<Message> input = new LinkedBlockingQueue<>();
+            BlockingDeque<Message> messages = new LinkedBlockingDeque<>();
+            inputs.add(input);
+            transport.start("reader-" + i, () -> read(input, messages, started));
+            handlers[i] = new MessageHandler(messages, message -> handled.countDown());
+            transport.start(handlers[i]);
+        }
+        started.await();
+        sendThroughAll();
+
+        rssKib = residentKib() - rss;
+        heapKib = usedHeapKib() - heap;
+        threads = ManagementFactory.getThreadMXBean().getThreadCount() - platformThreads;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < connections; i++) {
+            inputs.get(i).add(CLOSE);
+            handlers[i].close();
+        }
+    }
+
+    /**
+     * Reader loop of a connection.
+     */
+    private static void read(final BlockingQueue<Message> input, final BlockingDeque<Message> messages,
+                             final CountDownLatch started) {
+        started.countDown();
+        try {
+            Message message;
+            while ((message = input.take()) != CLOSE) {
+                messages.putLast(message);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long residentKib() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // not Linux
+        }
+        return 0;
+    }
+
+    private static long usedHeapKib() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return (runtime.totalMemory() - runtime.freeMemory()) / 1024;
+    }
+
+    @Benchmark
+    public void sweep(Handoffs counter) throws InterruptedException {
+        sendThroughAll();
+        counter.handoffs += 2L * connections;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void footprint(Footprint counter) {
+        if (counter.report) {
+            counter.rssKib = rssKib;
+            counter.heapKib = heapKib;
+            counter.threads = threads;
+        }
+    }
+
+    /**
+     * Sends a message through every connection and waits until all were
+     * handled.
+     */
+    private void sendThroughAll() throws InterruptedException {
+        handled = new CountDownLatch(connections);
+        for (BlockingQueue<Message> input : inputs) {
+            input.add(MESSAGE);
+        }
+        handled.await();
+    }
+}
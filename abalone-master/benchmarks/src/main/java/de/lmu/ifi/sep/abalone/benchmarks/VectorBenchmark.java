@@ -0,0 +1,50 @@
+package de.lmu.ifi.sep.abalone.benchmarks;
+
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.components.VectorTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stepping from one position to the next, on the canonical positions of a
+ * board and on positions created with {@code new}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+
+    @Param({"9", "11", "13"})
+    public int size;
+
+    private Vector canonical;
+    private Vector created;
+
+    @Setup
+    public void setup() {
+        canonical = VectorTable.forSize(size).get(0, 0);
+        created = new Vector(0, 0);
+    }
+
+    @Benchmark
+    public Vector goCanonical() {
+        Vector v = canonical;
+        for (Vector.Direction d : Vector.Direction.values()) {
+            v = v.go(d);
+        }
+        return v;
+    }
+
+    @Benchmark
+    public Vector goCreated() {
+        Vector v = created;
+        for (Vector.Direction d : Vector.Direction.values()) {
+            v = v.go(d);
+        }
+        return v;
+    }
+}
@@ -2,6 +2,7 @@ package de.lmu.ifi.sep.abalone;
 
 import de.lmu.ifi.sep.abalone.components.GameObserver;
 import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.engine.ComputerOpponent;
 import de.lmu.ifi.sep.abalone.logic.AbaloneGame;
 import de.lmu.ifi.sep.abalone.logic.communication.EventBus;
 import de.lmu.ifi.sep.abalone.logic.communication.publishers.EventPublisher;
@@ -17,6 +18,7 @@ import de.lmu.ifi.sep.abalone.views.AbaloneView;
 import javax.swing.*;
 import javax.swing.UIManager.LookAndFeelInfo;
 import java.awt.*;
+import java.awt.event.InputEvent;
 import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.List;
@@ -197,10 +199,17 @@ public class Abalone {
         menu.add(game);
         menu.add(help);
         menu.add(exit);
-        JMenuItem aboutItem, helpItem, exitItem;
+        JMenuItem hintItem, aboutItem, helpItem, exitItem;
+        game.add(hintItem = new JMenuItem("Hint"));
         game.add(aboutItem = new JMenuItem("About"));
         help.add(helpItem = new JMenuItem("Help"));
         exit.add(exitItem = new JMenuItem("Exit"));
+        hintItem.setAccelerator(KeyStroke.getKeyStroke('H', menuShortcutMask()));
+        hintItem.addActionListener(event -> {
+            if (boardView != null) {
+                boardView.showHint();
+            }
+        });
         aboutItem.addActionListener(event -> aboutInfo());
         helpItem.addActionListener(event -> helpInfo());
         exitItem.addActionListener(event -> {
@@ -232,6 +241,7 @@ public class Abalone {
         /*create buttons "Start game" and "Join game"*/
         JButton startButton = createStartButton("Start game");
         JButton joinButton = createStartButton("Join game");
+        JButton computerButton = createStartButton("Play computer");
         /*Events after pressing "Start game" und "Join game"*/
         startButton.addActionListener(event -> {
             deactivatePanel(startPanel);
@@ -241,8 +251,13 @@ public class Abalone {
             deactivatePanel(startPanel);
             entryGuest();
         });
+        computerButton.addActionListener(event -> {
+            deactivatePanel(startPanel);
+            entryComputer();
+        });
         startPanel.add(startButton);
         startPanel.add(joinButton);
+        startPanel.add(computerButton);
         myFrame.add(startPanel, BorderLayout.SOUTH);
         myFrame.revalidate();
     }
@@ -304,6 +319,42 @@ public class Abalone {
         });
     }
 
+    /**
+     * Constructs a panel in which the player chooses the game size of a game
+     * against the computer.
+     */
+    private void entryComputer() {
+        hostPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 20, 350));
+        myFrame.add(hostPanel, BorderLayout.SOUTH);
+        myFrame.revalidate();
+
+        JLabel sizeLabel = new JLabel("Set size: ");
+        hostPanel.add(sizeLabel);
+        int[] sizes = {7, 9, 11, 13};
+        Dimension[] minimumSizes = {new Dimension(450, 500), new Dimension(550, 600),
+                new Dimension(600, 650), new Dimension(700, 750)};
+        for (int i = 0; i < sizes.length; i++) {
+            int size = sizes[i];
+            Dimension minimumSize = minimumSizes[i];
+            JButton sizeButton = new JButton((size < 10 ? "    " : "  ") + size
+                    + (size < 10 ? "   " : "  "));
+            sizeButton.addActionListener(event -> {
+                gameSize = size;
+                myFrame.setMinimumSize(minimumSize);
+                deactivatePanel(hostPanel);
+                startComputerOpponent();
+            });
+            hostPanel.add(sizeButton);
+        }
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(event -> {
+            deactivatePanel(hostPanel);
+            gameSize = 0;
+            createStartPanel();
+        });
+        hostPanel.add(cancelButton);
+    }
+
     /**
      * Constructs a panel in which the guest player fills in host address and port.
      */
@@ -424,6 +475,19 @@ public class Abalone {
         myFrame.add(connectPanel, BorderLayout.SOUTH);
     }
 
+    /**
+     * Modifier of menu shortcuts, the command key on macOS and control
+     * elsewhere. {@code Toolkit.getMenuShortcutKeyMask} is deprecated from
+     * Java 10 on and its replacement is missing from Java 8.
+     *
+     * @return Extended modifier mask of {@link InputEvent}.
+     */
+    private static int menuShortcutMask() {
+        return System.getProperty("os.name", "").toLowerCase().contains("mac")
+                ? InputEvent.META_DOWN_MASK
+                : InputEvent.CTRL_DOWN_MASK;
+    }
+
     /**
      * Shows an info screen.
      */
@@ -503,6 +567,7 @@ public class Abalone {
                         "(Sides will be switched)",
                 "We have a winner!", JOptionPane.YES_NO_OPTION);
         myFrame.dispose(); // close window
+        boardView.closeHints();
 
         if (restart == JOptionPane.YES_OPTION) {
             deactivatePanel(boardView);
@@ -580,6 +645,7 @@ public class Abalone {
         port = null;
         hostname = null;
         if (boardView != null) {
+            boardView.closeHints();
             deactivatePanel(boardView);
         }
         deactivatePanel(startPanel);
@@ -599,6 +665,14 @@ public class Abalone {
         network.connect(connectorObserver);
     }
 
+    /**
+     * Starts a computer opponent in place of the guest network.
+     */
+    private void startComputerOpponent() {
+        network = new ComputerOpponent();
+        network.connect(connectorObserver);
+    }
+
     /**
      * Starts guest network.
      */
@@ -0,0 +1,296 @@
+package de.lmu.ifi.sep.abalone.components;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed lookup tables of a board size.
+ * <p>
+ * Every space of the hexagon gets a dense cell index, counted row by row from
+ * the northern edge. For each cell index and each {@link Vector.Direction}
+ * the table holds the index of the neighbor and the ray of all indices up to
+ * the edge of the board, so walking the board needs no {@code Vector} and no
+ * lookup in a {@code Map}.
+ * <p>
+ * Geometries are immutable and shared between all boards of the same size.
+ * The arrays returned by the accessors are shared as well and must not be
+ * modified.
+ */
+public final class BoardGeometry {
+
+    /**
+     * Geometries already built, by board size.
+     */
+    private static final Map<Integer, BoardGeometry> GEOMETRIES = new ConcurrentHashMap<>();
+
+    /**
+     * Number of directions a marble can move in.
+     */
+    public static final int DIRECTIONS = Vector.Direction.values().length;
+
+    /**
+     * Smallest board size the command line tools accept.
+     */
+    public static final int MIN_SIZE = 5;
+
+    /**
+     * Largest board size the command line tools accept. Positions of larger
+     * boards no longer fit four bits per coordinate, and from size 19 on
+     * their cells no longer fit the tail of a packed move.
+     */
+    public static final int MAX_SIZE = 15;
+
+    /**
+     * Maximum rows and columns of the board.
+     */
+    private final int SIZE;
+
+    /**
+     * Distance from the center to the edge of the board.
+     */
+    private final int RADIUS;
+
+    /**
+     * Number of spaces of the board.
+     */
+    private final int CELLS;
+
+    /**
+     * Cell index of the first space of every row, row {@code y} is found at
+     * {@code y + RADIUS}.
+     */
+    private final int[] ROW_START;
+
+    /**
+     * Smallest x-position of every row.
+     */
+    private final int[] ROW_MIN_X;
+
+    /**
+     * Largest x-position of every row.
+     */
+    private final int[] ROW_MAX_X;
+
+    /**
+     * Canonical position of every cell index.
+     */
+    private final Vector[] POSITIONS;
+
+    /**
+     * Neighbor of every cell index by direction ordinal, {@code -1} where
+     * the step leaves the board.
+     */
+    private final int[][] NEIGHBORS;
+
+    /**
+     * All cell indices from the neighbor up to the edge of the board, by
+     * direction ordinal and cell index.
+     */
+    private final int[][][] RAYS;
+
+    /**
+     * Builds the tables of a board size.
+     *
+     * @param size Maximum rows and columns of the board.
+     */
+    private BoardGeometry(final int size) {
+        SIZE = size;
+        RADIUS = size / 2;
+        ROW_START = new int[2 * RADIUS + 1];
+        ROW_MIN_X = new int[2 * RADIUS + 1];
+        ROW_MAX_X = new int[2 * RADIUS + 1];
+        int cells = 0;
+        for (int y = -RADIUS; y <= RADIUS; y++) {
+            ROW_START[y + RADIUS] = cells;
+            ROW_MIN_X[y + RADIUS] = Math.max(-RADIUS, -y - RADIUS);
+            ROW_MAX_X[y + RADIUS] = Math.min(RADIUS, -y + RADIUS);
+            cells += ROW_MAX_X[y + RADIUS] - ROW_MIN_X[y + RADIUS] + 1;
+        }
+        CELLS = cells;
+
+        VectorTable table = VectorTable.forSize(size);
+        POSITIONS = new Vector[CELLS];
+        for (int y = -RADIUS; y <= RADIUS; y++) {
+            for (int x = ROW_MIN_X[y + RADIUS]; x <= ROW_MAX_X[y + RADIUS]; x++) {
+                POSITIONS[getCellIndex(x, y)] = table.get(x, y);
+            }
+        }
+
+        NEIGHBORS = new int[DIRECTIONS][CELLS];
+        RAYS = new int[DIRECTIONS][CELLS][];
+        for (Vector.Direction d : Vector.Direction.values()) {
+            int dx = d.getVector().getX();
+            int dy = d.getVector().getY();
+            for (int cell = 0; cell < CELLS; cell++) {
+                int x = POSITIONS[cell].getX() + dx;
+                int y = POSITIONS[cell].getY() + dy;
+                NEIGHBORS[d.ordinal()][cell] = getCellIndex(x, y);
+                int length = 0;
+                while (getCellIndex(x + length * dx, y + length * dy) >= 0) {
+                    length++;
+                }
+                int[] ray = new int[length];
+                for (int i = 0; i < length; i++) {
+                    ray[i] = getCellIndex(x + i * dx, y + i * dy);
+                }
+                RAYS[d.ordinal()][cell] = ray;
+            }
+        }
+    }
+
+    /**
+     * Returns the shared geometry of a board size, building it on first use.
+     *
+     * @param size Maximum rows and columns of the board.
+     * @return Geometry of the board size.
+     */
+    public static BoardGeometry forSize(final int size) {
+        return GEOMETRIES.computeIfAbsent(size, BoardGeometry::new);
+    }
+
+    /**
+     * @param size Maximum rows and columns of a board.
+     * @return {@code true} if the size is odd and from {@value #MIN_SIZE}
+     * to {@value #MAX_SIZE}.
+     */
+    public static boolean isSupportedSize(final int size) {
+        return size % 2 == 1 && size >= MIN_SIZE && size <= MAX_SIZE;
+    }
+
+    /**
+     * @param cells Number of cells of a board.
+     * @return Supported size of the board with that many cells, {@code -1}
+     * if there is none.
+     */
+    public static int sizeOf(final int cells) {
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size += 2) {
+            int radius = size / 2;
+            if (3 * radius * (radius + 1) + 1 == cells) {
+                return size;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Accessor for the maximum rows and columns of the board.
+     *
+     * @return board size as {@code int}.
+     */
+    public int getSize() {
+        return SIZE;
+    }
+
+    /**
+     * Accessor for the distance from the center to the edge of the board.
+     *
+     * @return radius as {@code int}.
+     */
+    public int getRadius() {
+        return RADIUS;
+    }
+
+    /**
+     * Accessor for the number of spaces of the board.
+     *
+     * @return Number of spaces as {@code int}.
+     */
+    public int getCellCount() {
+        return CELLS;
+    }
+
+    /**
+     * Returns the cell index of a position.
+     *
+     * @param x x-position of the space.
+     * @param y y-position of the space.
+     * @return Cell index, or {@code -1} if the position is not on the board.
+     */
+    public int getCellIndex(final int x, final int y) {
+        if (y < -RADIUS || y > RADIUS) {
+            return -1;
+        }
+        int row = y + RADIUS;
+        if (x < ROW_MIN_X[row] || x > ROW_MAX_X[row]) {
+            return -1;
+        }
+        return ROW_START[row] + x - ROW_MIN_X[row];
+    }
+
+    /**
+     * Returns the cell index of a position.
+     *
+     * @param c Position as {@code Vector}.
+     * @return Cell index, or {@code -1} if the position is not on the board.
+     */
+    public int getCellIndex(final Vector c) {
+        return c == null ? -1 : getCellIndex(c.getX(), c.getY());
+    }
+
+    /**
+     * Returns the canonical position of a cell index.
+     *
+     * @param cell Cell index on the board.
+     * @return Position as {@code Vector}.
+     */
+    public Vector getPosition(final int cell) {
+        return POSITIONS[cell];
+    }
+
+    /**
+     * Returns the neighbor of a cell index.
+     *
+     * @param cell      Cell index on the board.
+     * @param direction Ordinal of the {@code Direction} to step in.
+     * @return Cell index of the neighbor, {@code -1} if the step leaves the
+     * board.
+     */
+    public int getNeighbor(final int cell, final int direction) {
+        return NEIGHBORS[direction][cell];
+    }
+
+    /**
+     * Returns the neighbor of a cell index.
+     *
+     * @param cell      Cell index on the board.
+     * @param direction {@code Direction} to step in.
+     * @return Cell index of the neighbor, {@code -1} if the step leaves the
+     * board.
+     */
+    public int getNeighbor(final int cell, final Vector.Direction direction) {
+        return NEIGHBORS[direction.ordinal()][cell];
+    }
+
+    /**
+     * Returns the neighbor table of one direction, indexed by cell index.
+     *
+     * @param direction Ordinal of the {@code Direction}.
+     * @return Shared table of neighbors, {@code -1} where a step leaves the
+     * board.
+     */
+    public int[] getNeighbors(final int direction) {
+        return NEIGHBORS[direction];
+    }
+
+    /**
+     * Returns all cell indices from the neighbor of a cell up to the edge of
+     * the board, nearest first.
+     *
+     * @param cell      Cell index on the board.
+     * @param direction Ordinal of the {@code Direction} of the ray.
+     * @return Shared ray, empty if the cell is at the edge in that direction.
+     */
+    public int[] getRay(final int cell, final int direction) {
+        return RAYS[direction][cell];
+    }
+
+    /**
+     * Returns the ordinal of the direction pointing the other way.
+     *
+     * @param direction Ordinal of a {@code Direction}.
+     * @return Ordinal of the opposite {@code Direction}.
+     */
+    public static int opposite(final int direction) {
+        return (direction + DIRECTIONS / 2) % DIRECTIONS;
+    }
+}
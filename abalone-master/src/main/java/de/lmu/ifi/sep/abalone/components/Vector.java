@@ -2,6 +2,8 @@ package de.lmu.ifi.sep.abalone.components;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -9,6 +11,26 @@ import java.util.List;
  */
 public class Vector implements Serializable {
 
+    /**
+     * Computed value of the class before the neighbor tables were added, kept
+     * so that older peers still read the coordinates of a package.
+     */
+    private static final long serialVersionUID = 6679825385497602202L;
+
+    /**
+     * Shared sentinel returned by canonical {@code Vector}s of a
+     * {@link VectorTable} when a step leaves the board. Every step from the
+     * sentinel returns the sentinel again.
+     */
+    public static final Vector OFF_BOARD = new Vector(Integer.MIN_VALUE, Integer.MIN_VALUE);
+
+    static {
+        Vector[] self = new Vector[6];
+        Arrays.fill(self, OFF_BOARD);
+        OFF_BOARD.next = self;
+        OFF_BOARD.neighbors = Collections.unmodifiableList(Arrays.asList(self));
+    }
+
     /**
      * The x-position.
      */
@@ -19,6 +41,24 @@ public class Vector implements Serializable {
      */
     private final int y;
 
+    /**
+     * Table owning this instance if it is canonical, otherwise {@code null}.
+     */
+    transient VectorTable table;
+
+    /**
+     * Precomputed neighbors indexed by {@code Direction} ordinal. Only set
+     * on canonical instances owned by a {@link VectorTable}, otherwise
+     * {@code null}.
+     */
+    transient Vector[] next;
+
+    /**
+     * Precomputed unmodifiable view on {@link #next}, only set on canonical
+     * instances.
+     */
+    transient List<Vector> neighbors;
+
     /**
      * Axial Coordinate constructor.
      *
@@ -38,13 +78,7 @@ public class Vector implements Serializable {
      * @return Direction that the move will occur.
      */
     public static Direction getDirectionOfMove(Vector start, Vector target) {
-        Vector delta = new Vector(target.x - start.x, target.y - start.y);
-        for (Direction direction : Direction.values()) {
-            if (delta.equals(direction.getVector())) {
-                return direction;
-            }
-        }
-        return null;
+        return Direction.of(target.x - start.x, target.y - start.y);
     }
 
     /**
@@ -81,23 +115,22 @@ public class Vector implements Serializable {
      * @return The Direction if v is neighbor of this.Vector. Else: null.
      */
     public Direction getDirection(Vector v) {
-        Vector c = subtractFrom(v);
-        for (Direction d : Direction.values()) {
-            if (d.getVector().equals(c)) {
-                return d;
-            }
-        }
-        return null;
+        return Direction.of(v.getX() - getX(), v.getY() - getY());
     }
 
     /**
      * Moves this {@code Vector} in the {@code Direction} of passed parameter
-     * direction.
+     * direction. Canonical instances of a {@link VectorTable} look the
+     * neighbor up instead of allocating it and return {@link #OFF_BOARD}
+     * when the step leaves the board.
      *
      * @param direction {@code Direction} the {@code Vector} will move in.
      * @return Vector in the direction.
      */
     public Vector go(Direction direction) {
+        if (next != null) {
+            return direction == null ? this : next[direction.ordinal()];
+        }
         if (direction == null) {
             return new Vector(getX(), getY());
         }
@@ -108,12 +141,16 @@ public class Vector implements Serializable {
 
     /**
      * Moves this {@code Vector} in the opposite {@code Direction} of passed
-     * parameter direction.
+     * parameter direction. Behaves like {@link #go(Direction)} for canonical
+     * instances.
      *
      * @param direction {@code Direction} the {@code Vector} will move in.
      * @return Vector in the direction that was passed.
      */
     public Vector invertGo(Direction direction) {
+        if (next != null) {
+            return next[direction.getOpposite().ordinal()];
+        }
         int x = getX() - direction.getVector().getX();
         int y = getY() - direction.getVector().getY();
         return new Vector(x, y);
@@ -121,10 +158,14 @@ public class Vector implements Serializable {
 
     /**
      * Returns the {@code List} of neighbors to this {@code Vector}.
+     * Canonical instances return a shared unmodifiable list.
      *
      * @return All neighbors of this {@code Vector}.
      */
     public List<Vector> getNeighbors() {
+        if (this.neighbors != null) {
+            return this.neighbors;
+        }
         List<Vector> neighbors = new ArrayList<>();
         for (Direction dir : Direction.values()) {
             neighbors.add(go(dir));
@@ -139,7 +180,7 @@ public class Vector implements Serializable {
      * @return Result of vector subtraction as {@code Vector}.
      */
     public Vector subtractFrom(Vector v) {
-        return new Vector(v.getX() - getX(), v.getY() - getY());
+        return lookup(v.getX() - getX(), v.getY() - getY());
     }
 
     /**
@@ -151,7 +192,35 @@ public class Vector implements Serializable {
     public Vector addVector(Vector b) {
         int xNew = this.x + b.getX();
         int yNew = this.y + b.getY();
-        return new Vector(xNew, yNew);
+        return lookup(xNew, yNew);
+    }
+
+    /**
+     * Returns the canonical {@code Vector} of a position if this is a
+     * canonical instance and the position lies on the same board, otherwise
+     * a new {@code Vector}.
+     *
+     * @param posX The x-position.
+     * @param posY The y-position.
+     * @return {@code Vector} of the position.
+     */
+    private Vector lookup(final int posX, final int posY) {
+        if (table != null) {
+            Vector canonical = table.get(posX, posY);
+            if (canonical != null) {
+                return canonical;
+            }
+        }
+        return new Vector(posX, posY);
+    }
+
+    /**
+     * Keeps the sentinel unique when it is deserialized.
+     *
+     * @return {@link #OFF_BOARD} for the sentinel, otherwise this.
+     */
+    private Object readResolve() {
+        return equals(OFF_BOARD) ? OFF_BOARD : this;
     }
 
     /**
@@ -197,14 +266,44 @@ public class Vector implements Serializable {
         E(new Vector(1, 0)), SE(new Vector(0, 1)),
         SW(new Vector(-1, 1)), W(new Vector(-1, 0));
 
+        /**
+         * Cached result of {@code values()}, which copies on every call.
+         */
+        private static final Direction[] VALUES = values();
+
         private final Vector direction;
 
         Direction(Vector c) {
             direction = c;
         }
 
+        /**
+         * Returns the {@code Direction} of a unit step.
+         *
+         * @param deltaX Difference of the x-positions.
+         * @param deltaY Difference of the y-positions.
+         * @return Direction of the step, {@code null} if it is no unit step.
+         */
+        public static Direction of(final int deltaX, final int deltaY) {
+            for (Direction d : VALUES) {
+                if (d.direction.x == deltaX && d.direction.y == deltaY) {
+                    return d;
+                }
+            }
+            return null;
+        }
+
         public Vector getVector() {
             return direction;
         }
+
+        /**
+         * Returns the {@code Direction} pointing the other way.
+         *
+         * @return opposite Direction.
+         */
+        public Direction getOpposite() {
+            return VALUES[(ordinal() + 3) % 6];
+        }
     }
 }
@@ -0,0 +1,117 @@
+package de.lmu.ifi.sep.abalone.components;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flyweight table of canonical {@link Vector}s for all positions of a board
+ * size. Canonical instances know their neighbor in every
+ * {@link Vector.Direction}, so walking the board with {@code go} and
+ * {@code invertGo} never allocates. Steps leaving the board return the shared
+ * {@link Vector#OFF_BOARD} sentinel.
+ * <p>
+ * Tables are immutable after construction and shared between all boards of
+ * the same size.
+ */
+public final class VectorTable {
+
+    /**
+     * Tables already built, by board size.
+     */
+    private static final Map<Integer, VectorTable> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * Distance from the center to the edge of the board.
+     */
+    private final int RADIUS;
+
+    /**
+     * Width of the square grid enclosing the hexagon.
+     */
+    private final int WIDTH;
+
+    /**
+     * Canonical instances, {@code null} where the grid is not on the board.
+     */
+    private final Vector[] GRID;
+
+    /**
+     * Builds the table of a board size and links all neighbors.
+     *
+     * @param size Maximum rows and columns of the board.
+     */
+    private VectorTable(final int size) {
+        RADIUS = size / 2;
+        WIDTH = 2 * RADIUS + 1;
+        GRID = new Vector[WIDTH * WIDTH];
+        for (int y = -RADIUS; y <= RADIUS; y++) {
+            int x1 = Math.max(-RADIUS, -y - RADIUS);
+            int x2 = Math.min(RADIUS, -y + RADIUS);
+            for (int x = x1; x <= x2; x++) {
+                Vector v = new Vector(x, y);
+                v.table = this;
+                GRID[slot(x, y)] = v;
+            }
+        }
+        Vector.Direction[] directions = Vector.Direction.values();
+        for (Vector v : GRID) {
+            if (v == null) {
+                continue;
+            }
+            Vector[] next = new Vector[directions.length];
+            for (Vector.Direction d : directions) {
+                Vector n = get(v.getX() + d.getVector().getX(),
+                        v.getY() + d.getVector().getY());
+                next[d.ordinal()] = n == null ? Vector.OFF_BOARD : n;
+            }
+            v.neighbors = Collections.unmodifiableList(Arrays.asList(next));
+            v.next = next;
+        }
+    }
+
+    /**
+     * Returns the shared table of a board size, building it on first use.
+     *
+     * @param size Maximum rows and columns of the board.
+     * @return Table of canonical {@code Vector}s.
+     */
+    public static VectorTable forSize(final int size) {
+        return TABLES.computeIfAbsent(size, VectorTable::new);
+    }
+
+    /**
+     * Returns the canonical {@code Vector} of a position.
+     *
+     * @param x The x-position.
+     * @param y The y-position.
+     * @return Canonical instance, {@code null} if the position is not on the
+     * board.
+     */
+    public Vector get(final int x, final int y) {
+        if (x < -RADIUS || x > RADIUS || y < -RADIUS || y > RADIUS) {
+            return null;
+        }
+        return GRID[slot(x, y)];
+    }
+
+    /**
+     * Returns the canonical instance equal to the given {@code Vector}, e.g.
+     * for positions received over the network.
+     *
+     * @param v Position to look up.
+     * @return Canonical instance, or v itself if it is not on the board.
+     */
+    public Vector canonical(final Vector v) {
+        Vector canonical = get(v.getX(), v.getY());
+        return canonical == null ? v : canonical;
+    }
+
+    /**
+     * Index of a position in the square grid.
+     */
+    private int slot(final int x, final int y) {
+        return (y + RADIUS) * WIDTH + x + RADIUS;
+    }
+}
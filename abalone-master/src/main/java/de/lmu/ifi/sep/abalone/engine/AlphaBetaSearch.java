@@ -0,0 +1,385 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+
+import java.util.logging.Logger;
+
+/**
+ * Finds the best move of a position with an alpha-beta search.
+ * <p>
+ * The search deepens iteratively, one ply per iteration, until the time
+ * budget of the move is used up. An unfinished iteration is thrown away, the
+ * move of the deepest finished one is played, and every iteration starts
+ * with the best move of the one before. Moves are made and unmade in place
+ * on an {@link EvaluatedBoard} copy of the position, which keeps its
+ * evaluation up to date with every move, move lists share one preallocated
+ * buffer.
+ * Results are kept in a {@link TranspositionTable}, which cuts off positions
+ * reached again, and moves are tried in the order of a {@link MoveOrdering},
+ * starting with the best move the table knows.
+ * <p>
+ * A search is not thread-safe, every thread needs its own instance. The
+ * transposition table may be shared.
+ */
+public final class AlphaBetaSearch {
+
+    /**
+     * Deepest search, in plies.
+     */
+    public static final int MAX_DEPTH = 64;
+
+    /**
+     * Score of a won position. Wins found earlier score higher.
+     */
+    public static final int WIN = 1_000_000;
+
+    private static final int INFINITY = WIN + 1;
+
+    /**
+     * Number of nodes between two looks at the clock, minus one.
+     */
+    private static final int CHECK_INTERVAL = 1023;
+
+    /**
+     * Gets told about every finished iteration of a search.
+     */
+    public interface Progress {
+
+        /**
+         * Called by the searching thread after an iteration is finished.
+         *
+         * @param depth Depth of the iteration, in plies.
+         * @param move  Best packed move of the iteration.
+         * @param score Score of the move, from the view of the side to move.
+         */
+        void iteration(int depth, int move, int score);
+    }
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    private final TranspositionTable TABLE;
+
+    private Progress progress;
+
+    private final MoveOrdering ORDERING = new MoveOrdering();
+
+    private EvaluatedBoard board;
+    private int[] buffer;
+    private final UndoRecord[] undo = new UndoRecord[MAX_DEPTH + 1];
+
+    private long deadline;
+    private volatile boolean stopped;
+    private boolean aborted;
+    private long nodes;
+    private int depth;
+    private int score;
+    private int reply;
+
+    /**
+     * Constructs a search with its own transposition table of the
+     * configured size.
+     */
+    public AlphaBetaSearch() {
+        this(new TranspositionTable());
+    }
+
+    /**
+     * Constructs a search.
+     *
+     * @param table Transposition table to keep results in.
+     */
+    public AlphaBetaSearch(final TranspositionTable table) {
+        this.TABLE = table;
+        for (int i = 0; i < undo.length; i++) {
+            undo[i] = new UndoRecord();
+        }
+    }
+
+    /**
+     * Searches the best move of the side to move until the time is up.
+     * At least one ply is searched completely, however long it takes.
+     *
+     * @param position Position to search, not changed.
+     * @param millis   Time budget in milliseconds.
+     * @return Best packed move, {@link PackedMove#NONE} if there is none or
+     * the game is already decided.
+     */
+    public int search(final AbaloneBoard position, final long millis) {
+        return search(position, MAX_DEPTH, millis);
+    }
+
+    /**
+     * Searches the best move of the side to move until the time is up or the
+     * given depth has been searched completely.
+     *
+     * @param position Position to search, not changed.
+     * @param maxDepth Deepest iteration, in plies.
+     * @param millis   Time budget in milliseconds.
+     * @return Best packed move, {@link PackedMove#NONE} if there is none or
+     * the game is already decided.
+     * @throws IllegalArgumentException if the side to move of the position is
+     *                                  unknown.
+     */
+    public int search(final AbaloneBoard position, final int maxDepth, final long millis) {
+        if (position.getSideToMove() == Owner.EMPTY) {
+            throw new IllegalArgumentException("side to move is unknown");
+        }
+        TABLE.newSearch();
+        stopped = false;
+        return run(position, 1, maxDepth, millis);
+    }
+
+    /**
+     * Deepens iteratively from a given depth on, without starting a new
+     * generation of the transposition table. Stops early when
+     * {@link #stop()} is called, even before the first iteration is done.
+     *
+     * @param position   Position to search, not changed.
+     * @param firstDepth First iteration, in plies.
+     * @param maxDepth   Deepest iteration, in plies.
+     * @param millis     Time budget in milliseconds.
+     * @return Best packed move, {@link PackedMove#NONE} if there is none, the
+     * game is already decided or no iteration was finished.
+     */
+    int run(final AbaloneBoard position, final int firstDepth, final int maxDepth,
+            final long millis) {
+        deadline = System.nanoTime() + millis * 1_000_000L;
+        setUp(position);
+        aborted = false;
+        nodes = 0;
+        depth = 0;
+        score = 0;
+        reply = PackedMove.NONE;
+        ORDERING.newSearch();
+
+        Owner side = board.getSideToMove();
+        if (board.hasLost(side) || board.hasLost(opponent(side))) {
+            return PackedMove.NONE;
+        }
+        int count = Context.generateMoves(board, side, buffer, 0);
+        if (count == 0) {
+            return PackedMove.NONE;
+        }
+        ORDERING.score(buffer, 0, count, TranspositionTable.getMove(TABLE.probe(board.getHash())),
+                0, side);
+        for (int i = 0; i < count; i++) {
+            ORDERING.next(buffer, i, count);
+        }
+        for (int iteration = firstDepth; iteration <= Math.min(maxDepth, MAX_DEPTH); iteration++) {
+            int alpha = -INFINITY;
+            int best = 0;
+            for (int i = 0; i < count && !aborted; i++) {
+                int value = -negamax(iteration - 1, 1, -INFINITY, -alpha, count, buffer[i]);
+                if (!aborted && value > alpha) {
+                    alpha = value;
+                    best = i;
+                }
+            }
+            if (aborted) {
+                break;
+            }
+            int move = buffer[best];
+            System.arraycopy(buffer, 0, buffer, 1, best);
+            buffer[0] = move;
+            depth = iteration;
+            score = alpha;
+            TABLE.store(board.getHash(), move, toTable(score, 0), depth, TranspositionTable.EXACT);
+            logger.fine("Depth " + depth + ": " + PackedMove.toString(move, board.getGeometry())
+                    + " scores " + score + " after " + nodes + " nodes");
+            if (progress != null) {
+                progress.iteration(depth, move, score);
+            }
+            if (Math.abs(score) > WIN - MAX_DEPTH) {
+                break;
+            }
+        }
+        if (depth == 0) {
+            return PackedMove.NONE;
+        }
+        Context.makeMove(board, buffer[0], undo[0]);
+        reply = TranspositionTable.getMove(TABLE.probe(board.getHash()));
+        Context.unmakeMove(board, undo[0]);
+        return buffer[0];
+    }
+
+    /**
+     * Lets the search end as soon as possible, the deepest finished
+     * iteration stays the result. May be called from any thread.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Allows the next {@link #run(AbaloneBoard, int, int, long)} to search
+     * after a {@link #stop()}.
+     */
+    void resume() {
+        stopped = false;
+    }
+
+    /**
+     * @param progress Gets told about every finished iteration from now on,
+     *                 {@code null} for nobody.
+     */
+    public void setProgress(final Progress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * @return Transposition table the results are kept in.
+     */
+    public TranspositionTable getTable() {
+        return TABLE;
+    }
+
+    /**
+     * @return Depth of the deepest finished iteration of the last search.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return Score of the best move of the last search, from the view of
+     * the side to move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return Best reply to the move of the last search known to the
+     * transposition table, {@link PackedMove#NONE} if there is none. Comes
+     * from the table, so it may not even be legal.
+     */
+    public int getReply() {
+        return reply;
+    }
+
+    /**
+     * @return Move ordering of this search.
+     */
+    public MoveOrdering getOrdering() {
+        return ORDERING;
+    }
+
+    /**
+     * @return Number of positions visited by the last search.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    private void setUp(final AbaloneBoard position) {
+        if (board == null || board.getGeometry() != position.getGeometry()) {
+            int most = new BitboardAbaloneBoard(position.getSize()).countPieces(Owner.PLAYER_BLACK);
+            buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * most * (MAX_DEPTH + 1)];
+        }
+        board = new EvaluatedBoard(position);
+    }
+
+    /**
+     * Makes a move, searches the position after it and takes the move back.
+     *
+     * @param depth  Plies left to search after the move.
+     * @param ply    Plies from the root after the move.
+     * @param alpha  Score the player after the move already has elsewhere.
+     * @param beta   Score the player making the move already has elsewhere.
+     * @param offset First free index of the move buffer.
+     * @param move   Move to make.
+     * @return Score of the position after the move, from the view of the
+     * player to move there.
+     */
+    private int negamax(final int depth, final int ply, final int alpha, final int beta,
+                        final int offset, final int move) {
+        UndoRecord record = undo[ply];
+        Context.makeMove(board, move, record);
+        int value = negamax(depth, ply, alpha, beta, offset);
+        Context.unmakeMove(board, record);
+        return value;
+    }
+
+    private int negamax(final int depth, final int ply, int alpha, final int beta,
+                        final int offset) {
+        if ((++nodes & CHECK_INTERVAL) == 0
+                && (stopped || this.depth > 0 && System.nanoTime() - deadline > 0)) {
+            aborted = true;
+            return 0;
+        }
+        Owner side = board.getSideToMove();
+        if (board.hasLost(side)) {
+            return -WIN + ply;
+        }
+        if (depth == 0 || ply == MAX_DEPTH) {
+            return board.evaluate(side);
+        }
+        long hash = board.getHash();
+        long entry = TABLE.probe(hash);
+        if (entry != 0 && TranspositionTable.getDepth(entry) >= depth) {
+            int stored = fromTable(TranspositionTable.getScore(entry), ply);
+            int bound = TranspositionTable.getBound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || bound == TranspositionTable.LOWER && stored >= beta
+                    || bound == TranspositionTable.UPPER && stored <= alpha) {
+                return stored;
+            }
+        }
+        int count = Context.generateMoves(board, side, buffer, offset);
+        if (count == 0) {
+            return board.evaluate(side);
+        }
+        int end = offset + count;
+        ORDERING.score(buffer, offset, count,
+                entry != 0 ? TranspositionTable.getMove(entry) : PackedMove.NONE, ply, side);
+        int start = alpha;
+        int best = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int i = offset; i < end; i++) {
+            int move = ORDERING.next(buffer, i, end);
+            int value = -negamax(depth - 1, ply + 1, -beta, -alpha, end, move);
+            if (aborted) {
+                return 0;
+            }
+            if (value > best) {
+                best = value;
+                if (value > alpha) {
+                    alpha = value;
+                    bestMove = move;
+                    if (alpha >= beta) {
+                        ORDERING.cutoff(move, ply, depth, side);
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > start ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        TABLE.store(hash, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    /**
+     * Makes a won or lost score relative to the position it is stored for,
+     * so it stays right when the position is reached at another ply.
+     */
+    private static int toTable(final int score, final int ply) {
+        return score > WIN - MAX_DEPTH ? score + ply : score < MAX_DEPTH - WIN ? score - ply : score;
+    }
+
+    /**
+     * Makes a won or lost score read from the table relative to the root.
+     */
+    private static int fromTable(final int score, final int ply) {
+        return score > WIN - MAX_DEPTH ? score - ply : score < MAX_DEPTH - WIN ? score + ply : score;
+    }
+
+    private static Owner opponent(final Owner side) {
+        return side == Owner.PLAYER_BLACK ? Owner.PLAYER_WHITE : Owner.PLAYER_BLACK;
+    }
+}
@@ -0,0 +1,521 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.logic.BoardVersions;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.Player;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.logic.communication.InitPackage;
+import de.lmu.ifi.sep.abalone.logic.communication.Move;
+import de.lmu.ifi.sep.abalone.logic.communication.SyncPackage;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.network.ConnectorObserver;
+import de.lmu.ifi.sep.abalone.network.Network;
+import de.lmu.ifi.sep.abalone.network.NetworkObserver;
+import de.lmu.ifi.sep.abalone.network.message.Message;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * A computer player in place of the remote peer.
+ * <p>
+ * The local game logic is the host and talks to this network like to a guest
+ * client: the opponent asks for the game with {@code RDY}, receives the
+ * board size and its color with {@code INIT} and answers every {@code MOVE}
+ * with a {@code MOVE} of its own, found by an {@link Engine} within the time
+ * budget of a move. Wins are confirmed and boards synchronized like a guest
+ * does. Unless given explicitly, the engine is chosen by the system property
+ * {@value Engine#ENGINE_PROPERTY}, by default a {@link ParallelSearch} on all
+ * configured threads.
+ * <p>
+ * Messages are handled and moves searched on one background thread, in the
+ * order the game logic sends them, so the game logic never waits for a
+ * search.
+ * <p>
+ * While the local player thinks, the opponent ponders: it plays the reply
+ * its engine expects on a copy of the board and searches the position after
+ * it on a thread of its own. When the actual move arrives, pondering is
+ * stopped, and if the prediction was right the search of the move finds the
+ * work already done in the transposition table or tree. Pondering is turned
+ * off with the system property {@value #PONDER_PROPERTY} set to
+ * {@code false}.
+ * <p>
+ * In the opening the opponent plays from an {@link OpeningBook} if it has
+ * one, by default the book named by the system property
+ * {@value OpeningBook#BOOK_PROPERTY}. Only positions missing from the book
+ * are searched. Endgames in which both players are one marble from winning
+ * are played perfectly from a {@link Tablebase} that has their marbles, by
+ * default the one named by the system property
+ * {@value Tablebase#TABLEBASE_PROPERTY}.
+ */
+public class ComputerOpponent extends Network {
+
+    /**
+     * Time budget of a move if none is given, in milliseconds.
+     */
+    public static final long DEFAULT_MOVE_MILLIS = 1000;
+
+    /**
+     * System property turning pondering on or off, on by default.
+     */
+    public static final String PONDER_PROPERTY = "abalone.ponder";
+
+    /**
+     * Time budget of pondering, which only ends when stopped.
+     */
+    private static final long PONDER_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * Interval of {@code RDY} messages until the game logic answers, in
+     * milliseconds.
+     */
+    private static final long READY_INTERVAL = 100;
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * Time budget of a move in milliseconds.
+     */
+    private final long MOVE_MILLIS;
+
+    private final Engine ENGINE;
+
+    /**
+     * Book checked before searching, {@code null} if there is none.
+     */
+    private final OpeningBook BOOK;
+
+    /**
+     * Tablebase checked before searching, {@code null} if there is none.
+     */
+    private final Tablebase TABLEBASE;
+
+    /**
+     * Thread all messages are handled and all moves are searched on.
+     */
+    private final ScheduledExecutorService EXECUTOR;
+
+    /**
+     * Thread pondering runs on, {@code null} if pondering is off.
+     */
+    private final ExecutorService PONDERER;
+
+    private NetworkObserver observer;
+
+    private ScheduledFuture<?> ready;
+
+    /**
+     * Board of the opponent, {@code null} until {@code INIT} was received.
+     */
+    private EvaluatedBoard board;
+    private BoardVersions versions;
+
+    private Owner color;
+
+    /**
+     * Messages received before {@code INIT}, handled once the board is set up.
+     */
+    private final Queue<Message> pending = new ArrayDeque<>();
+
+    /**
+     * Running ponder search, {@code null} if there is none.
+     */
+    private Future<?> pondering;
+
+    /**
+     * Reply the running ponder search expects.
+     */
+    private int ponderMove = PackedMove.NONE;
+
+    /**
+     * Creates a computer opponent with the default time budget.
+     */
+    public ComputerOpponent() {
+        this(DEFAULT_MOVE_MILLIS);
+    }
+
+    /**
+     * Creates a computer opponent.
+     *
+     * @param moveMillis time budget of a move in milliseconds
+     */
+    public ComputerOpponent(long moveMillis) {
+        this(moveMillis, Engine.create());
+    }
+
+    /**
+     * Creates a computer opponent with a given engine, closed with the
+     * opponent.
+     *
+     * @param moveMillis time budget of a move in milliseconds
+     * @param engine     engine that finds the moves
+     */
+    public ComputerOpponent(long moveMillis, Engine engine) {
+        this(moveMillis, engine,
+                Boolean.parseBoolean(System.getProperty(PONDER_PROPERTY, "true")));
+    }
+
+    /**
+     * Creates a computer opponent with a given engine, closed with the
+     * opponent.
+     *
+     * @param moveMillis time budget of a move in milliseconds
+     * @param engine     engine that finds the moves
+     * @param ponder     whether to search while the local player thinks
+     */
+    public ComputerOpponent(long moveMillis, Engine engine, boolean ponder) {
+        this(moveMillis, engine, ponder, openBook());
+    }
+
+    /**
+     * Creates a computer opponent with a given engine and book, both closed
+     * with the opponent.
+     *
+     * @param moveMillis time budget of a move in milliseconds
+     * @param engine     engine that finds the moves
+     * @param ponder     whether to search while the local player thinks
+     * @param book       book to play from in the opening, {@code null} for none
+     */
+    public ComputerOpponent(long moveMillis, Engine engine, boolean ponder, OpeningBook book) {
+        this(moveMillis, engine, ponder, book, openTablebase());
+    }
+
+    /**
+     * Creates a computer opponent with a given engine, book and tablebase,
+     * all closed with the opponent.
+     *
+     * @param moveMillis time budget of a move in milliseconds
+     * @param engine     engine that finds the moves
+     * @param ponder     whether to search while the local player thinks
+     * @param book       book to play from in the opening, {@code null} for none
+     * @param tablebase  tablebase to play from in the endgame, {@code null} for none
+     */
+    public ComputerOpponent(long moveMillis, Engine engine, boolean ponder, OpeningBook book,
+                            Tablebase tablebase) {
+        super(ClientType.HOST);
+        this.MOVE_MILLIS = moveMillis;
+        this.ENGINE = engine;
+        this.BOOK = book;
+        this.TABLEBASE = tablebase;
+        this.EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "computer-opponent");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.PONDERER = !ponder ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "computer-ponder");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The opponent is there right away.
+     *
+     * @param observer observer to tell about the connection
+     */
+    @Override
+    public void connect(ConnectorObserver observer) {
+        observer.connected();
+    }
+
+    /**
+     * Starts a new game with the given game logic. The opponent keeps asking
+     * for the game with {@code RDY} until the game logic answers with
+     * {@code INIT}.
+     *
+     * @param observer game logic of the local player
+     */
+    @Override
+    public void setObserver(NetworkObserver observer) {
+        EXECUTOR.execute(() -> {
+            stopPondering();
+            this.observer = observer;
+            this.board = null;
+            this.pending.clear();
+            if (ready != null) {
+                ready.cancel(false);
+            }
+            ready = EXECUTOR.scheduleWithFixedDelay(
+                    () -> reply(Message.MessageType.RDY, null),
+                    READY_INTERVAL, READY_INTERVAL, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    @Override
+    public void send(Message message) throws IOException {
+        if (EXECUTOR.isShutdown()) {
+            throw new IOException("Computer opponent was closed.");
+        }
+        EXECUTOR.execute(() -> handle(message));
+    }
+
+    @Override
+    public void close() {
+        logger.info("Closing computer opponent...");
+        EXECUTOR.shutdownNow();
+        if (PONDERER != null) {
+            PONDERER.shutdownNow();
+            ENGINE.stop();
+        }
+        ENGINE.close();
+        if (BOOK != null) {
+            try {
+                BOOK.close();
+            } catch (IOException e) {
+                logger.warning("Closing the opening book failed: " + e);
+            }
+        }
+        if (TABLEBASE != null) {
+            try {
+                TABLEBASE.close();
+            } catch (IOException e) {
+                logger.warning("Closing the tablebase failed: " + e);
+            }
+        }
+    }
+
+    /**
+     * Opens the book named by the system property, if there is one.
+     *
+     * @return the book, {@code null} if there is none or it cannot be read
+     */
+    private static OpeningBook openBook() {
+        try {
+            return OpeningBook.open();
+        } catch (IOException e) {
+            Logger.getLogger(ComputerOpponent.class.getName())
+                    .warning("Playing without opening book: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Opens the tablebase named by the system property, if there is one.
+     *
+     * @return the tablebase, {@code null} if there is none or it cannot be read
+     */
+    private static Tablebase openTablebase() {
+        try {
+            return Tablebase.open();
+        } catch (IOException e) {
+            Logger.getLogger(ComputerOpponent.class.getName())
+                    .warning("Playing without tablebase: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Handles a message of the game logic on the thread of the opponent.
+     *
+     * @param message received message
+     */
+    private void handle(Message message) {
+        if (board == null && message.getMessageType() != Message.MessageType.INIT) {
+            pending.add(message);
+            return;
+        }
+        switch (message.getMessageType()) {
+            case INIT:
+                if (board != null || !(message.getPayload() instanceof InitPackage)) {
+                    return;
+                }
+                InitPackage init = (InitPackage) message.getPayload();
+                if (init.getGameSize() == 0) {
+                    return;
+                }
+                ready.cancel(false);
+                color = init.getYourColor() != null ? init.getYourColor() : Owner.PLAYER_WHITE;
+                board = new EvaluatedBoard(init.getGameSize());
+                board.setSideToMove(opponent(color));
+                versions = new BoardVersions(board.getGeometry().getCellCount());
+                logger.info("Computer opponent plays " + color + " on size " + init.getGameSize());
+                while (!pending.isEmpty()) {
+                    handle(pending.poll());
+                }
+                play();
+                break;
+
+            case MOVE:
+                if (!(message.getPayload() instanceof Move)) {
+                    return;
+                }
+                int move = Context.toPackedMove(board, (Move) message.getPayload(),
+                        board.getSideToMove());
+                if (pondering != null) {
+                    logger.info(move == ponderMove ? "Ponder hit" : "Ponder miss");
+                }
+                stopPondering();
+                if (move == PackedMove.NONE) {
+                    logger.info("Received move is not valid, requesting sync");
+                    reply(Message.MessageType.SYNC_REQUEST, versions.getVersion());
+                    return;
+                }
+                UndoRecord undo = new UndoRecord();
+                Context.makeMove(board, move, undo);
+                versions.record(undo);
+                play();
+                break;
+
+            case SYNC:
+                if (!(message.getPayload() instanceof SyncPackage)) {
+                    return;
+                }
+                stopPondering();
+                SyncPackage sync = (SyncPackage) message.getPayload();
+                if (!versions.apply(board, sync)) {
+                    reply(Message.MessageType.SYNC_REQUEST, BoardVersions.UNKNOWN);
+                    return;
+                }
+                board.setSideToMove(sync.getTurn() == opponent(color) ? opponent(color) : color);
+                play();
+                break;
+
+            case SYNC_REQUEST:
+                reply(Message.MessageType.SYNC, versions.createSync(board,
+                        message.getPayload() instanceof Integer
+                                ? (Integer) message.getPayload() : BoardVersions.UNKNOWN,
+                        new Player(opponent(color), true, board.getPiecesToWin(opponent(color)), false),
+                        new Player(color, false, board.getPiecesToWin(color), true)));
+                break;
+
+            case WIN:
+                if (board.hasLost(color)
+                        || board.hasLost(opponent(color))) {
+                    reply(Message.MessageType.CONFIRM_WIN, null);
+                } else {
+                    reply(Message.MessageType.ERROR, null);
+                }
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Searches and sends a move if it is the opponent's turn and the game is
+     * not decided yet.
+     */
+    private void play() {
+        if (board.getSideToMove() != color) {
+            return;
+        }
+        int move = BOOK == null ? PackedMove.NONE : BOOK.probe(board);
+        int expected = PackedMove.NONE;
+        if (move != PackedMove.NONE && isLegal(move)) {
+            logger.info("Computer opponent plays " + PackedMove.toString(move, board.getGeometry())
+                    + " from the book");
+        } else if (TABLEBASE != null && TABLEBASE.covers(board)
+                && (move = TABLEBASE.bestMove(board)) != PackedMove.NONE) {
+            logger.info("Computer opponent plays " + PackedMove.toString(move, board.getGeometry())
+                    + " from the tablebase, value " + TABLEBASE.probe(board));
+        } else {
+            move = ENGINE.search(board, MOVE_MILLIS);
+            if (move == PackedMove.NONE) {
+                return;
+            }
+            logger.info("Computer opponent plays " + PackedMove.toString(move, board.getGeometry())
+                    + " after " + ENGINE.getNodes() + " nodes");
+            expected = ENGINE.getPonderMove();
+        }
+        Move chosen = Context.toMove(board, move);
+        UndoRecord undo = new UndoRecord();
+        Context.makeMove(board, move, undo);
+        versions.record(undo);
+        reply(Message.MessageType.MOVE, chosen);
+        ponder(expected);
+    }
+
+    /**
+     * Starts searching the position after the expected reply of the local
+     * player, if pondering is on and the reply is legal.
+     *
+     * @param expected expected reply, packed
+     */
+    private void ponder(int expected) {
+        Owner side = board.getSideToMove();
+        if (PONDERER == null || expected == PackedMove.NONE
+                || board.hasLost(side) || board.hasLost(color) || !isLegal(expected)) {
+            return;
+        }
+        EvaluatedBoard position = new EvaluatedBoard(board);
+        Context.makeMove(position, expected, new UndoRecord());
+        ponderMove = expected;
+        pondering = PONDERER.submit(() -> ENGINE.search(position, PONDER_MILLIS));
+    }
+
+    /**
+     * @param move packed move
+     * @return {@code true} if the side to move may play the move
+     */
+    private boolean isLegal(int move) {
+        Owner side = board.getSideToMove();
+        int[] moves = new int[PackedMove.MAX_MOVES_PER_PIECE * board.countPieces(side)];
+        int count = Context.generateMoves(board, side, moves);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops a running ponder search and waits for it to end, so the engine
+     * is free for the next search.
+     */
+    private void stopPondering() {
+        if (pondering == null) {
+            return;
+        }
+        // the search may not have started yet and would then ignore a
+        // single stop, so keep stopping until it is over
+        while (!pondering.isDone()) {
+            ENGINE.stop();
+            try {
+                pondering.get(10, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // stop again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException | CancellationException e) {
+                logger.severe("Pondering failed: " + e.getCause());
+            }
+        }
+        pondering = null;
+        ponderMove = PackedMove.NONE;
+    }
+
+    /**
+     * Passes a message to the game logic, as if it came from the network.
+     *
+     * @param type    type of the message
+     * @param payload payload of the message
+     */
+    private void reply(Message.MessageType type, Serializable payload) {
+        try {
+            observer.receive(new Message(type, payload));
+        } catch (RuntimeException e) {
+            logger.severe("Game logic failed to handle " + type + ": " + e);
+        }
+    }
+
+    private static Owner opponent(Owner side) {
+        return side == Owner.PLAYER_BLACK ? Owner.PLAYER_WHITE : Owner.PLAYER_BLACK;
+    }
+}
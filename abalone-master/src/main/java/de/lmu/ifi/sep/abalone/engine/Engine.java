@@ -0,0 +1,126 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+
+import java.io.Closeable;
+
+/**
+ * Something that finds the move of the computer player within a time
+ * budget. Engines get the same wall-clock budget per move, so they can
+ * stand in for each other and be compared fairly.
+ */
+public interface Engine extends Closeable {
+
+    /**
+     * System property naming the engine of the computer player, one of
+     * {@value #ALPHA_BETA} and {@value #MONTE_CARLO}.
+     */
+    String ENGINE_PROPERTY = "abalone.engine";
+
+    /**
+     * Name of the {@link ParallelSearch} engine, the default.
+     */
+    String ALPHA_BETA = "alphabeta";
+
+    /**
+     * Name of the {@link MonteCarloSearch} engine.
+     */
+    String MONTE_CARLO = "mcts";
+
+    /**
+     * Searches the best move of the side to move until the time is up.
+     *
+     * @param position Position to search, not changed.
+     * @param millis   Time budget in milliseconds.
+     * @return Best packed move, {@link PackedMove#NONE} if there is none or
+     * the game is already decided.
+     */
+    int search(AbaloneBoard position, long millis);
+
+    /**
+     * Lets a running search end as soon as possible and return the best
+     * move found so far. May be called from any thread; a search started
+     * later runs normally.
+     */
+    void stop();
+
+    /**
+     * Predicts the opponent's reply to the move of the last search, so it
+     * can be searched while the opponent thinks ("pondering"). A later
+     * search of the position after the predicted reply reuses what was
+     * learned about it.
+     *
+     * @return Expected reply, {@link PackedMove#NONE} if there is none. Not
+     * necessarily legal.
+     */
+    int getPonderMove();
+
+    /**
+     * @return Number of positions visited by the last search.
+     */
+    long getNodes();
+
+    /**
+     * Forgets what was learned in earlier games, so the engine can play the
+     * next game as if it was new without allocating its tables again.
+     */
+    void newGame();
+
+    /**
+     * Stops the threads of the engine.
+     */
+    @Override
+    void close();
+
+    /**
+     * Creates an engine by name.
+     *
+     * @param name Name of the engine, {@code null} for the default.
+     * @return New engine with its default settings.
+     * @throws IllegalArgumentException if no engine has the name.
+     */
+    static Engine create(final String name) {
+        return create(name, Integer.getInteger(ParallelSearch.THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Creates an engine by name that searches on a given number of threads.
+     *
+     * @param name    Name of the engine, {@code null} for the default.
+     * @param threads Number of threads searching, at least one.
+     * @return New engine with its default settings otherwise.
+     * @throws IllegalArgumentException if no engine has the name.
+     */
+    static Engine create(final String name, final int threads) {
+        if (!exists(name)) {
+            throw new IllegalArgumentException("Unknown engine: " + name);
+        }
+        if (name == null || ALPHA_BETA.equals(name)) {
+            return new ParallelSearch(threads, new TranspositionTable());
+        }
+        return new MonteCarloSearch(threads, Integer.getInteger(
+                MonteCarloSearch.NODES_PROPERTY, MonteCarloSearch.DEFAULT_NODES));
+    }
+
+    /**
+     * Checks a name without creating the engine and its tables.
+     *
+     * @param name Name of an engine, {@code null} for the default.
+     * @return {@code true} if {@link #create(String)} knows the name.
+     */
+    static boolean exists(final String name) {
+        return name == null || ALPHA_BETA.equals(name) || MONTE_CARLO.equals(name);
+    }
+
+    /**
+     * Creates the engine named by the system property
+     * {@value #ENGINE_PROPERTY}.
+     *
+     * @return New engine with its default settings.
+     */
+    static Engine create() {
+        return create(System.getProperty(ENGINE_PROPERTY));
+    }
+}
@@ -0,0 +1,191 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+
+/**
+ * Bitboard that keeps the terms of its static evaluation up to date.
+ * <p>
+ * Every change of a cell, whether by {@code Context.makeMove},
+ * {@code Context.unmakeMove} or a synchronization, adjusts the terms by the
+ * value of the pebble leaving and the pebble entering the cell and by their
+ * pairs with the six neighbors, just like the Zobrist hash. Evaluating a
+ * position is then a handful of additions instead of a walk over the board.
+ *
+ * @see Evaluation
+ */
+public final class EvaluatedBoard extends BitboardAbaloneBoard {
+
+    private final Evaluation EVALUATION;
+
+    /**
+     * Neighbor of every cell by direction, see {@link BoardGeometry#getNeighbors(int)}.
+     */
+    private final int[][] NEIGHBORS = new int[BoardGeometry.DIRECTIONS][];
+
+    /**
+     * Pebbles on the board, by owner ordinal.
+     */
+    private final int[] pieces = new int[Owner.values().length];
+
+    /**
+     * Sum of the centre and edge danger values, by owner ordinal.
+     */
+    private final int[] position = new int[Owner.values().length];
+
+    /**
+     * Pairs of neighboring pebbles, by owner ordinal.
+     */
+    private final int[] cohesion = new int[Owner.values().length];
+
+    /**
+     * Constructs a board with the starting layout of the given size.
+     *
+     * @param size Maximum rows and columns of this board.
+     */
+    public EvaluatedBoard(final int size) {
+        super(size);
+        EVALUATION = Evaluation.forGeometry(getGeometry());
+        resetTerms();
+    }
+
+    /**
+     * Constructs a copy of the given board, including the side to move.
+     *
+     * @param board Board whose size and spaces are copied.
+     */
+    public EvaluatedBoard(final AbaloneBoard board) {
+        super(board);
+        EVALUATION = Evaluation.forGeometry(getGeometry());
+        resetTerms();
+    }
+
+    /**
+     * Changes the {@code Owner} of a cell index and the terms of the
+     * evaluation with it.
+     *
+     * @param index    Cell index on this board.
+     * @param changeTo Owner that the space is being changed to.
+     */
+    @Override
+    public void setOwner(final int index, final Owner changeTo) {
+        Owner old = getOwner(index);
+        if (old != changeTo) {
+            remove(index, old);
+            add(index, changeTo);
+        }
+        super.setOwner(index, changeTo);
+    }
+
+    /**
+     * Scores the position.
+     *
+     * @param side Player the score is seen from.
+     * @return Score, positive if {@code side} is ahead.
+     */
+    public int evaluate(final Owner side) {
+        Owner other = opponent(side);
+        int own = side.ordinal();
+        int others = other.ordinal();
+        return Evaluation.score(getPiecesToWin(side), getPiecesToWin(other),
+                position[own] - position[others], cohesion[own] - cohesion[others]);
+    }
+
+    /**
+     * Counts the pebbles a player still has to push off to win, like
+     * {@code Player.getPiecesToWin}.
+     *
+     * @param owner The player.
+     * @return Pebbles left to push off, {@code 0} or less if {@code owner} won.
+     */
+    public int getPiecesToWin(final Owner owner) {
+        return EVALUATION.piecesToWin(pieces[opponent(owner).ordinal()]);
+    }
+
+    /**
+     * Checks if a player has lost.
+     *
+     * @param owner The player.
+     * @return {@code true} if the opponent has pushed off enough pebbles.
+     */
+    public boolean hasLost(final Owner owner) {
+        return getPiecesToWin(opponent(owner)) <= 0;
+    }
+
+    /**
+     * Counts the pebbles of a player without looking at the board.
+     *
+     * @param owner Player whose pieces are counted.
+     * @return Number of pieces as {@code int}.
+     */
+    @Override
+    public int countPieces(final Owner owner) {
+        return owner == Owner.EMPTY ? getCellCount() - pieces[Owner.PLAYER_WHITE.ordinal()]
+                - pieces[Owner.PLAYER_BLACK.ordinal()] : pieces[owner.ordinal()];
+    }
+
+    /**
+     * Sums up all terms from the cells, counting every pair of neighbors
+     * once by only looking in three directions.
+     */
+    private void resetTerms() {
+        BoardGeometry geometry = getGeometry();
+        for (int d = 0; d < NEIGHBORS.length; d++) {
+            NEIGHBORS[d] = geometry.getNeighbors(d);
+        }
+        for (int cell = 0; cell < getCellCount(); cell++) {
+            Owner owner = getOwner(cell);
+            if (owner == Owner.EMPTY) {
+                continue;
+            }
+            int o = owner.ordinal();
+            pieces[o]++;
+            position[o] += EVALUATION.position(cell);
+            for (int d = 0; d < BoardGeometry.DIRECTIONS / 2; d++) {
+                int neighbor = NEIGHBORS[d][cell];
+                if (neighbor >= 0 && getOwner(neighbor) == owner) {
+                    cohesion[o]++;
+                }
+            }
+        }
+    }
+
+    private void remove(final int cell, final Owner owner) {
+        if (owner == Owner.EMPTY) {
+            return;
+        }
+        int o = owner.ordinal();
+        pieces[o]--;
+        position[o] -= EVALUATION.position(cell);
+        cohesion[o] -= neighbors(cell, owner);
+    }
+
+    private void add(final int cell, final Owner owner) {
+        if (owner == Owner.EMPTY) {
+            return;
+        }
+        int o = owner.ordinal();
+        pieces[o]++;
+        position[o] += EVALUATION.position(cell);
+        cohesion[o] += neighbors(cell, owner);
+    }
+
+    /**
+     * Counts the neighbors of a cell owned by a player.
+     */
+    private int neighbors(final int cell, final Owner owner) {
+        int count = 0;
+        for (int[] neighbors : NEIGHBORS) {
+            int neighbor = neighbors[cell];
+            if (neighbor >= 0 && getOwner(neighbor) == owner) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Owner opponent(final Owner side) {
+        return side == Owner.PLAYER_BLACK ? Owner.PLAYER_WHITE : Owner.PLAYER_BLACK;
+    }
+}
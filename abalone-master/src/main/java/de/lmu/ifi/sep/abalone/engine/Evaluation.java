@@ -0,0 +1,147 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Weights and per-cell tables of the static evaluation of a board size.
+ * <p>
+ * A position is scored by four terms, each kept up to date cell by cell by
+ * {@link EvaluatedBoard}:
+ * <ul>
+ * <li>material: pebbles each player still has to push off to win, as
+ * counted by {@code Player.getPiecesToWin},</li>
+ * <li>centre: steps from the edge of every pebble, measured in cube
+ * coordinates including {@link Vector#getZ()},</li>
+ * <li>cohesion: pairs of neighboring pebbles of the same player,</li>
+ * <li>edge danger: sides of a pebble's cell that face off the board.</li>
+ * </ul>
+ * Centre and edge danger only depend on the cell, so both are folded into one
+ * value per cell.
+ */
+final class Evaluation {
+
+    /**
+     * Value of one pebble the opponent still has to push off.
+     */
+    static final int PEBBLE = 1000;
+
+    /**
+     * Value of one step a pebble is away from the edge.
+     */
+    static final int CENTRE = 10;
+
+    /**
+     * Value of one pair of neighboring pebbles of the same player.
+     */
+    static final int COHESION = 3;
+
+    /**
+     * Cost of one side of a pebble's cell facing off the board.
+     */
+    static final int EDGE = 8;
+
+    /**
+     * Evaluations already built, by board size.
+     */
+    private static final Map<Integer, Evaluation> EVALUATIONS = new ConcurrentHashMap<>();
+
+    private final BoardGeometry GEOMETRY;
+
+    /**
+     * Centre and edge danger value of a pebble on every cell, by cell index.
+     */
+    private final int[] POSITION;
+
+    /**
+     * Pebbles a player has to push off to win.
+     */
+    private final int PIECES_TO_WIN;
+
+    /**
+     * Pebbles of each player in the starting layout.
+     */
+    private final int STARTING_PIECES;
+
+    /**
+     * Builds the tables of a board geometry.
+     *
+     * @param geometry Geometry of the evaluated boards.
+     */
+    private Evaluation(final BoardGeometry geometry) {
+        GEOMETRY = geometry;
+        POSITION = new int[geometry.getCellCount()];
+        for (int cell = 0; cell < POSITION.length; cell++) {
+            Vector position = geometry.getPosition(cell);
+            int distance = Math.max(Math.abs(position.getX()),
+                    Math.max(Math.abs(position.getY()), Math.abs(position.getZ())));
+            int open = 0;
+            for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+                if (geometry.getNeighbor(cell, d) < 0) {
+                    open++;
+                }
+            }
+            POSITION[cell] = CENTRE * (geometry.getRadius() - distance) - EDGE * open;
+        }
+        int size = geometry.getSize();
+        PIECES_TO_WIN = 2 * size / 3;
+        STARTING_PIECES = new BitboardAbaloneBoard(size).countPieces(Owner.PLAYER_BLACK);
+    }
+
+    /**
+     * Returns the shared evaluation of a board geometry, building it on
+     * first use.
+     *
+     * @param geometry Geometry of the evaluated boards.
+     * @return Evaluation of the geometry.
+     */
+    static Evaluation forGeometry(final BoardGeometry geometry) {
+        return EVALUATIONS.computeIfAbsent(geometry.getSize(),
+                size -> new Evaluation(geometry));
+    }
+
+    /**
+     * @return Geometry of the evaluated boards.
+     */
+    BoardGeometry getGeometry() {
+        return GEOMETRY;
+    }
+
+    /**
+     * @param cell Cell index.
+     * @return Centre and edge danger value of a pebble on the cell.
+     */
+    int position(final int cell) {
+        return POSITION[cell];
+    }
+
+    /**
+     * Counts the pebbles a player still has to push off to win.
+     *
+     * @param opponentPieces Pebbles of the opponent left on the board.
+     * @return Pebbles left to push off, {@code 0} or less if the player won.
+     */
+    int piecesToWin(final int opponentPieces) {
+        return PIECES_TO_WIN - (STARTING_PIECES - opponentPieces);
+    }
+
+    /**
+     * Scores a position from its terms.
+     *
+     * @param ownToWin      Pebbles the player still has to push off.
+     * @param othersToWin   Pebbles the opponent still has to push off.
+     * @param position      Centre and edge danger of the player minus the
+     *                      opponent's.
+     * @param cohesion      Neighbor pairs of the player minus the opponent's.
+     * @return Score, positive if the player is ahead.
+     */
+    static int score(final int ownToWin, final int othersToWin, final int position,
+                     final int cohesion) {
+        return PEBBLE * (othersToWin - ownToWin) + position + COHESION * cohesion;
+    }
+}
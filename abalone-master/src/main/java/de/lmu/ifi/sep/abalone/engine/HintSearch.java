@@ -0,0 +1,136 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.communication.Move;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Suggests a move to the local player while they think.
+ * <p>
+ * A hint is searched on a thread of its own, never on the caller's, so it can
+ * be started from the event dispatch thread. The search deepens one ply at a
+ * time and reports the best move after every finished ply, so the hint gets
+ * better the longer the player thinks. It ends after {@value #HINT_MILLIS}
+ * milliseconds, when the game is decided, or when the hint is cancelled,
+ * e.g. because the player moved. Once cancelled, a hint reports nothing more.
+ */
+public final class HintSearch implements Closeable {
+
+    /**
+     * Longest time a hint is searched, in milliseconds.
+     */
+    public static final long HINT_MILLIS = 30_000;
+
+    /**
+     * Gets told about better and better hints.
+     */
+    public interface Listener {
+
+        /**
+         * Called by the hint thread after every finished ply.
+         *
+         * @param move  Suggested move, with selection and target.
+         * @param depth Plies searched for it.
+         */
+        void hint(Move move, int depth);
+    }
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    private final AlphaBetaSearch SEARCH = new AlphaBetaSearch();
+
+    /**
+     * Thread the hints are searched on.
+     */
+    private final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hint-search");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Number of the current hint, raised by every start and cancel, so a
+     * hint can tell that it is outdated.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Starts searching a hint for the side to move of a position, cancelling
+     * the hint before. Returns right away.
+     *
+     * @param position Position to search, copied before returning.
+     * @param side     Player the hint is for.
+     * @param listener Gets told about the hints found.
+     */
+    public void start(final AbaloneBoard position, final Owner side, final Listener listener) {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(position);
+        board.setSideToMove(side);
+        int hint = generation.incrementAndGet();
+        SEARCH.stop();
+        EXECUTOR.execute(() -> search(board, hint, listener));
+    }
+
+    /**
+     * Cancels the running hint, if there is one. Returns right away.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        SEARCH.stop();
+    }
+
+    /**
+     * @param hint Number of a hint.
+     * @return {@code true} if the hint was neither cancelled nor replaced.
+     */
+    private boolean isCurrent(final int hint) {
+        return generation.get() == hint;
+    }
+
+    /**
+     * Searches a hint on the hint thread.
+     */
+    private void search(final BitboardAbaloneBoard board, final int hint, final Listener listener) {
+        if (!isCurrent(hint)) {
+            return;
+        }
+        // a cancel before this resume raised the generation, one after it
+        // stops the search
+        SEARCH.resume();
+        if (!isCurrent(hint)) {
+            return;
+        }
+        SEARCH.setProgress((depth, move, score) -> {
+            Move suggested = Context.toMove(board, move);
+            if (suggested != null && isCurrent(hint)) {
+                listener.hint(suggested, depth);
+            }
+        });
+        try {
+            SEARCH.getTable().newSearch();
+            SEARCH.run(board, 1, AlphaBetaSearch.MAX_DEPTH, HINT_MILLIS);
+            logger.fine("Hint searched " + SEARCH.getDepth() + " plies");
+        } catch (RuntimeException e) {
+            logger.severe("Hint search failed: " + e);
+        } finally {
+            SEARCH.setProgress(null);
+        }
+    }
+
+    /**
+     * Cancels the running hint and stops the hint thread.
+     */
+    @Override
+    public void close() {
+        cancel();
+        EXECUTOR.shutdownNow();
+    }
+}
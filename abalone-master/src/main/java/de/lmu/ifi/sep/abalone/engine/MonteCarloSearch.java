@@ -0,0 +1,555 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * Finds the best move of a position with a Monte Carlo tree search.
+ * <p>
+ * Every iteration walks down the tree by the UCT rule, adds the children of
+ * the leaf it ends in once the leaf was visited before, plays the game on
+ * from there with random moves and counts the result for every node on the
+ * way. The most visited move of the root is played.
+ * <p>
+ * The tree lives in an arena of preallocated parallel arrays, a node is an
+ * index into them and the children of a node are consecutive. Moves are
+ * made and unmade in place on an {@link EvaluatedBoard} per thread, so an
+ * iteration does not allocate. Playouts end after {@value #PLAYOUT_DEPTH}
+ * plies, when the evaluation of the board decides the result.
+ * <p>
+ * Several threads search the same tree. A thread walking through a node
+ * counts its visit right away and its result only when the playout is done,
+ * so until then the visit counts as a loss ("virtual loss") and other
+ * threads prefer other moves. The number of threads comes from the system
+ * property {@value ParallelSearch#THREADS_PROPERTY}, the number of nodes
+ * from {@value #NODES_PROPERTY}. When the arena is full, leaves are no
+ * longer expanded but still played out.
+ * <p>
+ * A search of the same position as the search before goes on with its
+ * tree, so the work of pondering on a position is kept.
+ */
+public final class MonteCarloSearch implements Engine {
+
+    /**
+     * System property holding the number of nodes of the arena.
+     */
+    public static final String NODES_PROPERTY = "abalone.mcts.nodes";
+
+    /**
+     * Number of nodes of the arena if none is configured.
+     */
+    public static final int DEFAULT_NODES = 1 << 20;
+
+    /**
+     * Weight of exploring rarely visited moves against exploiting good ones.
+     */
+    private static final double EXPLORATION = 0.7;
+
+    /**
+     * Random plies of a playout before the evaluation decides it.
+     */
+    private static final int PLAYOUT_DEPTH = 40;
+
+    /**
+     * Deepest path through the tree, in plies.
+     */
+    private static final int MAX_PATH = 128;
+
+    /**
+     * Results in half points, so a draw counts.
+     */
+    private static final int LOSS = 0;
+    private static final int DRAW = 1;
+    private static final int WON = 2;
+
+    /**
+     * States of a node: children unknown, being added, added, never to be
+     * added because there are no moves or the arena is full, or lost for
+     * the player to move. A move into a lost node is always played.
+     */
+    private static final int LEAF = 0;
+    private static final int EXPANDING = 1;
+    private static final int EXPANDED = 2;
+    private static final int FINAL = 3;
+    private static final int LOST = 4;
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    /**
+     * Move leading into a node.
+     */
+    private final int[] MOVE;
+
+    /**
+     * Index of the first child of a node.
+     */
+    private final int[] FIRST_CHILD;
+
+    /**
+     * Number of children of a node.
+     */
+    private final int[] CHILD_COUNT;
+
+    /**
+     * State of a node. Setting it to {@link #EXPANDED} publishes the
+     * children written before.
+     */
+    private final AtomicIntegerArray STATE;
+
+    /**
+     * Visits of a node, including the playouts still running.
+     */
+    private final AtomicIntegerArray VISITS;
+
+    /**
+     * Sum of the results of a node in half points, for the player who made
+     * the move into it.
+     */
+    private final AtomicLongArray REWARD;
+
+    /**
+     * Number of nodes of the arena in use.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Number of playouts started by all threads.
+     */
+    private final AtomicLong started = new AtomicLong();
+
+    /**
+     * Worker of the calling thread at index {@code 0}, then one per helper
+     * thread.
+     */
+    private final Worker[] WORKERS;
+
+    /**
+     * Threads of the helpers, {@code null} for a single thread.
+     */
+    private final ExecutorService HELPERS;
+
+    /**
+     * Hash of the root of the tree, which is searched on if the next search
+     * starts from the same position.
+     */
+    private long rootHash;
+    private boolean rooted;
+
+    private volatile long deadline;
+    private volatile long playoutLimit;
+    private volatile boolean stopped;
+
+    /**
+     * Creates a search with the configured number of threads and nodes.
+     */
+    public MonteCarloSearch() {
+        this(Integer.getInteger(ParallelSearch.THREADS_PROPERTY,
+                Runtime.getRuntime().availableProcessors()),
+                Integer.getInteger(NODES_PROPERTY, DEFAULT_NODES));
+    }
+
+    /**
+     * Creates a search.
+     *
+     * @param threads Number of threads searching, at least one.
+     * @param nodes   Number of nodes of the arena, at least one.
+     */
+    public MonteCarloSearch(final int threads, final int nodes) {
+        int capacity = Math.max(1, nodes);
+        MOVE = new int[capacity];
+        FIRST_CHILD = new int[capacity];
+        CHILD_COUNT = new int[capacity];
+        STATE = new AtomicIntegerArray(capacity);
+        VISITS = new AtomicIntegerArray(capacity);
+        REWARD = new AtomicLongArray(capacity);
+        WORKERS = new Worker[Math.max(1, threads)];
+        for (int i = 0; i < WORKERS.length; i++) {
+            WORKERS[i] = new Worker();
+        }
+        HELPERS = WORKERS.length == 1 ? null
+                : Executors.newFixedThreadPool(WORKERS.length - 1, runnable -> {
+            Thread thread = new Thread(runnable, "playout-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the best move of the side to move until the time is up.
+     *
+     * @param position Position to search, not changed.
+     * @param millis   Time budget in milliseconds.
+     * @return Best packed move, {@link PackedMove#NONE} if there is none or
+     * the game is already decided.
+     */
+    @Override
+    public int search(final AbaloneBoard position, final long millis) {
+        return search(position, Long.MAX_VALUE, millis);
+    }
+
+    /**
+     * Searches the best move of the side to move until the time is up or
+     * the given number of playouts has been played.
+     *
+     * @param position Position to search, not changed.
+     * @param limit    Most playouts to play, by all threads together.
+     * @param millis   Time budget in milliseconds.
+     * @return Best packed move, {@link PackedMove#NONE} if there is none or
+     * the game is already decided.
+     * @throws IllegalArgumentException if the side to move of the position is
+     *                                  unknown.
+     */
+    public int search(final AbaloneBoard position, final long limit, final long millis) {
+        Owner side = position.getSideToMove();
+        if (side == Owner.EMPTY) {
+            throw new IllegalArgumentException("side to move is unknown");
+        }
+        deadline = System.nanoTime() + millis * 1_000_000L;
+        playoutLimit = limit;
+        stopped = false;
+        started.set(0);
+        if (!rooted || rootHash != position.getHash()) {
+            size.set(1);
+            clear(0);
+            rootHash = position.getHash();
+            rooted = true;
+        }
+
+        List<Future<?>> helpers = new ArrayList<>(WORKERS.length - 1);
+        for (int i = 1; i < WORKERS.length; i++) {
+            Worker helper = WORKERS[i];
+            helpers.add(HELPERS.submit(() -> helper.run(position)));
+        }
+        WORKERS[0].run(position);
+        stopped = true;
+        for (Future<?> helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                logger.severe("Playout helper failed: " + e.getCause());
+            }
+        }
+
+        int best = bestChild();
+        logger.info("Played " + getPlayouts() + " playouts with " + WORKERS.length
+                + " threads, " + getTreeSize() + " nodes in the tree");
+        return best < 0 ? PackedMove.NONE : MOVE[best];
+    }
+
+    /**
+     * Lets a running search end as soon as possible, with the most visited
+     * move so far. A search started later runs normally.
+     */
+    @Override
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return Most visited reply to the move of the last search,
+     * {@link PackedMove#NONE} if it has not been expanded.
+     */
+    @Override
+    public int getPonderMove() {
+        int best = bestChild();
+        if (best < 0 || STATE.get(best) != EXPANDED) {
+            return PackedMove.NONE;
+        }
+        int reply = FIRST_CHILD[best];
+        for (int child = reply; child < FIRST_CHILD[best] + CHILD_COUNT[best]; child++) {
+            if (VISITS.get(child) > VISITS.get(reply)) {
+                reply = child;
+            }
+        }
+        return MOVE[reply];
+    }
+
+    /**
+     * @return Number of threads searching.
+     */
+    public int getThreads() {
+        return WORKERS.length;
+    }
+
+    /**
+     * @return Number of playouts of the last search.
+     */
+    public long getPlayouts() {
+        long playouts = 0;
+        for (Worker worker : WORKERS) {
+            playouts += worker.playouts;
+        }
+        return playouts;
+    }
+
+    /**
+     * @return Number of nodes of the tree of the last search.
+     */
+    public int getTreeSize() {
+        return Math.min(size.get(), MOVE.length);
+    }
+
+    /**
+     * @return Share of the results of the played move in the last search,
+     * {@code 0} for lost, {@code 1} for won.
+     */
+    public double getWinRate() {
+        int best = bestChild();
+        return best < 0 || VISITS.get(best) == 0 ? 0
+                : REWARD.get(best) / (2.0 * VISITS.get(best));
+    }
+
+    /**
+     * @return Number of moves made in the tree and in playouts by all
+     * threads in the last search.
+     */
+    @Override
+    public long getNodes() {
+        long nodes = 0;
+        for (Worker worker : WORKERS) {
+            nodes += worker.nodes;
+        }
+        return nodes;
+    }
+
+    /**
+     * Drops the tree, the next search starts from a new root. The arena
+     * stays allocated.
+     */
+    @Override
+    public void newGame() {
+        rooted = false;
+    }
+
+    /**
+     * Stops the helper threads.
+     */
+    @Override
+    public void close() {
+        if (HELPERS != null) {
+            HELPERS.shutdownNow();
+        }
+    }
+
+    /**
+     * @return Most visited child of the root, {@code -1} if the root has
+     * none.
+     */
+    private int bestChild() {
+        if (STATE.get(0) != EXPANDED) {
+            return -1;
+        }
+        int best = -1;
+        for (int child = FIRST_CHILD[0]; child < FIRST_CHILD[0] + CHILD_COUNT[0]; child++) {
+            if (STATE.get(child) == LOST) {
+                return child;
+            }
+            if (best < 0 || VISITS.get(child) > VISITS.get(best)) {
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    private void clear(final int node) {
+        STATE.set(node, LEAF);
+        VISITS.set(node, 0);
+        REWARD.set(node, 0);
+    }
+
+    /**
+     * Picks the child with the best upper confidence bound. Unvisited
+     * children come first.
+     */
+    private int select(final int node) {
+        int first = FIRST_CHILD[node];
+        int end = first + CHILD_COUNT[node];
+        double log = Math.log(Math.max(1, VISITS.get(node)));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < end; child++) {
+            int visits = VISITS.get(child);
+            if (visits == 0 || STATE.get(child) == LOST) {
+                return child;
+            }
+            double value = REWARD.get(child) / (2.0 * visits)
+                    + EXPLORATION * Math.sqrt(log / visits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Searching thread with its own board, move buffer and undo records.
+     */
+    private final class Worker {
+
+        private final SplittableRandom RANDOM = new SplittableRandom();
+        private final int[] PATH = new int[MAX_PATH + 1];
+        private final UndoRecord[] UNDO = new UndoRecord[MAX_PATH + PLAYOUT_DEPTH];
+
+        private EvaluatedBoard board;
+        private int[] buffer;
+        private long nodes;
+        private long playouts;
+
+        Worker() {
+            for (int i = 0; i < UNDO.length; i++) {
+                UNDO[i] = new UndoRecord();
+            }
+        }
+
+        /**
+         * Iterates until the time is up, the playouts are played or the
+         * search is stopped.
+         */
+        void run(final AbaloneBoard position) {
+            if (board == null || board.getGeometry() != position.getGeometry()) {
+                int most = new BitboardAbaloneBoard(position.getSize())
+                        .countPieces(Owner.PLAYER_BLACK);
+                buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * most];
+            }
+            board = new EvaluatedBoard(position);
+            nodes = 0;
+            playouts = 0;
+            Owner side = board.getSideToMove();
+            if (board.hasLost(side) || board.hasLost(opponent(side))) {
+                return;
+            }
+            while (!stopped && System.nanoTime() - deadline < 0
+                    && started.getAndIncrement() < playoutLimit) {
+                iterate();
+                playouts++;
+            }
+        }
+
+        /**
+         * Selects a leaf, expands it, plays it out and counts the result.
+         */
+        private void iterate() {
+            int node = 0;
+            int ply = 0;
+            PATH[0] = 0;
+            VISITS.incrementAndGet(0);
+            int result;
+            while (true) {
+                Owner side = board.getSideToMove();
+                if (board.hasLost(side)) {
+                    STATE.set(node, LOST);
+                    result = LOSS;
+                    break;
+                }
+                int state = STATE.get(node);
+                if (state == LEAF && ply < MAX_PATH && (node == 0 || VISITS.get(node) > 1)
+                        && STATE.compareAndSet(node, LEAF, EXPANDING)) {
+                    state = expand(node, side);
+                }
+                if (state != EXPANDED) {
+                    result = playout(ply);
+                    break;
+                }
+                node = select(node);
+                VISITS.incrementAndGet(node);
+                Context.makeMove(board, MOVE[node], UNDO[ply]);
+                nodes++;
+                PATH[++ply] = node;
+            }
+            for (int i = ply; i >= 0; i--) {
+                REWARD.addAndGet(PATH[i], WON - result);
+                result = WON - result;
+                if (i > 0) {
+                    Context.unmakeMove(board, UNDO[i - 1]);
+                }
+            }
+        }
+
+        /**
+         * Adds the children of a node taken over with {@link #EXPANDING}.
+         *
+         * @return New state of the node.
+         */
+        private int expand(final int node, final Owner side) {
+            int count = Context.generateMoves(board, side, buffer, 0);
+            int first = count == 0 ? -1 : size.getAndAdd(count);
+            if (first < 0 || first + count > MOVE.length) {
+                STATE.set(node, FINAL);
+                return FINAL;
+            }
+            for (int i = 0; i < count; i++) {
+                MOVE[first + i] = buffer[i];
+                clear(first + i);
+            }
+            FIRST_CHILD[node] = first;
+            CHILD_COUNT[node] = count;
+            STATE.set(node, EXPANDED);
+            return EXPANDED;
+        }
+
+        /**
+         * Plays random moves from the current position and takes them back.
+         * Ejecting pushes are always played when there are some.
+         *
+         * @param ply Plies already made on the board, whose undo records
+         *            are in use.
+         * @return Result for the side to move, in half points.
+         */
+        private int playout(final int ply) {
+            Owner side = board.getSideToMove();
+            int made = 0;
+            int result = DRAW;
+            while (true) {
+                Owner toMove = board.getSideToMove();
+                if (board.hasLost(toMove)) {
+                    result = toMove == side ? LOSS : WON;
+                    break;
+                }
+                int count = made == PLAYOUT_DEPTH ? 0
+                        : Context.generateMoves(board, toMove, buffer, 0);
+                if (count == 0) {
+                    int value = board.evaluate(side);
+                    result = value > 0 ? WON : value < 0 ? LOSS : DRAW;
+                    break;
+                }
+                int move = buffer[RANDOM.nextInt(count)];
+                for (int i = 0; i < count; i++) {
+                    if (PackedMove.isEjecting(buffer[i])) {
+                        move = buffer[i];
+                        break;
+                    }
+                }
+                Context.makeMove(board, move, UNDO[ply + made++]);
+                nodes++;
+            }
+            while (made > 0) {
+                Context.unmakeMove(board, UNDO[ply + --made]);
+            }
+            return result;
+        }
+    }
+
+    private static Owner opponent(final Owner side) {
+        return side == Owner.PLAYER_BLACK ? Owner.PLAYER_WHITE : Owner.PLAYER_BLACK;
+    }
+}
@@ -0,0 +1,201 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+
+import java.util.Arrays;
+
+/**
+ * Decides in which order the search tries the moves of a position.
+ * <p>
+ * Alpha-beta cuts off the most when the best move comes first, so the moves
+ * of a list are tried in this order:
+ * <ol>
+ * <li>the move of the transposition table,</li>
+ * <li>pushes that eject a marble,</li>
+ * <li>other pushes, more pushed marbles first,</li>
+ * <li>the two killer moves of the ply, quiet moves that cut off a sibling
+ * position,</li>
+ * <li>the remaining quiet moves by their history, how often and how deep
+ * they cut off anywhere in the search.</li>
+ * </ol>
+ * Moves stay in their packed {@code int} lists: every move gets a score in a
+ * parallel array, and {@link #next(int[], int, int)} picks the best of the
+ * rest one at a time, so a list cut off after its first move is never
+ * sorted.
+ * <p>
+ * Killers and history are learned while searching and belong to one
+ * {@link AlphaBetaSearch}; an ordering is not thread-safe.
+ */
+public final class MoveOrdering {
+
+    private static final int TABLE_MOVE = Integer.MAX_VALUE;
+    private static final int EJECTING = 4 << 24;
+    private static final int PUSH = 3 << 24;
+    private static final int KILLER = 2 << 24;
+
+    /**
+     * Largest history score before all of them are halved, well below the
+     * scores of killers.
+     */
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    /**
+     * Number of history entries per side: quiet moves have neither pushed
+     * marbles nor the eject flag, so their code fits into 16 bits.
+     */
+    private static final int QUIET_MOVES = 1 << 16;
+
+    /**
+     * Killer moves by ply, the most recent first.
+     */
+    private final int[][] KILLERS = new int[AlphaBetaSearch.MAX_DEPTH + 1][2];
+
+    /**
+     * History scores of quiet moves, by side and move code.
+     */
+    private final int[][] HISTORY = new int[2][QUIET_MOVES];
+
+    /**
+     * Score of every move, parallel to the move buffer of the search.
+     */
+    private int[] scores = new int[0];
+
+    /**
+     * Constructs an ordering that knows no killers and no history yet.
+     */
+    public MoveOrdering() {
+        for (int[] killers : KILLERS) {
+            Arrays.fill(killers, PackedMove.NONE);
+        }
+    }
+
+    /**
+     * Prepares a new search: forgets the killers, which belong to the
+     * plies of the last position, and halves the history, so what was
+     * learned lately weighs more.
+     */
+    public void newSearch() {
+        for (int[] killers : KILLERS) {
+            Arrays.fill(killers, PackedMove.NONE);
+        }
+        ageHistory();
+    }
+
+    /**
+     * Scores the moves of a list. Afterwards {@link #next(int[], int, int)}
+     * hands them out best first.
+     *
+     * @param moves     Move buffer.
+     * @param offset    Index of the first move of the list.
+     * @param count     Number of moves in the list.
+     * @param tableMove Move of the transposition table,
+     *                  {@link PackedMove#NONE} if there is none.
+     * @param ply       Plies from the root of the position.
+     * @param side      Player making the moves.
+     */
+    public void score(final int[] moves, final int offset, final int count,
+                      final int tableMove, final int ply, final Owner side) {
+        if (scores.length < moves.length) {
+            scores = new int[moves.length];
+        }
+        int[] killers = KILLERS[ply];
+        int[] history = HISTORY[side.ordinal() - 1];
+        for (int i = offset; i < offset + count; i++) {
+            int move = moves[i];
+            int score;
+            if (move == tableMove) {
+                score = TABLE_MOVE;
+            } else if (PackedMove.isEjecting(move)) {
+                score = EJECTING + PackedMove.getPushed(move);
+            } else if (PackedMove.getPushed(move) > 0) {
+                score = PUSH + PackedMove.getPushed(move);
+            } else if (move == killers[0]) {
+                score = KILLER + 1;
+            } else if (move == killers[1]) {
+                score = KILLER;
+            } else {
+                score = history[move];
+            }
+            scores[i] = score;
+        }
+    }
+
+    /**
+     * Swaps the best scored of the remaining moves to the front of them.
+     *
+     * @param moves Move buffer, scored with
+     *              {@link #score(int[], int, int, int, int, Owner)}.
+     * @param index Index of the first remaining move.
+     * @param end   Index after the last move of the list.
+     * @return The best remaining move, now at {@code index}.
+     */
+    public int next(final int[] moves, final int index, final int end) {
+        int best = index;
+        for (int i = index + 1; i < end; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        if (best != index) {
+            moves[best] = moves[index];
+            moves[index] = move;
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return move;
+    }
+
+    /**
+     * Learns from a move that cut off the search. Pushes are tried early
+     * anyway, so only quiet moves become killers and gain history.
+     *
+     * @param move  Move that cut off.
+     * @param ply   Plies from the root of the position it was made in.
+     * @param depth Plies that were left to search in that position.
+     * @param side  Player that made the move.
+     */
+    public void cutoff(final int move, final int ply, final int depth, final Owner side) {
+        if (PackedMove.getPushed(move) > 0) {
+            return;
+        }
+        int[] killers = KILLERS[ply];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+        int[] history = HISTORY[side.ordinal() - 1];
+        history[move] += depth * depth;
+        if (history[move] > HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    /**
+     * @param ply Plies from the root.
+     * @return Killer moves of the ply, the most recent first,
+     * {@link PackedMove#NONE} where there is none.
+     */
+    public int[] getKillers(final int ply) {
+        return KILLERS[ply].clone();
+    }
+
+    /**
+     * @param move Quiet move.
+     * @param side Player making the move.
+     * @return History score of the move.
+     */
+    public int getHistory(final int move, final Owner side) {
+        return HISTORY[side.ordinal() - 1][move];
+    }
+
+    private void ageHistory() {
+        for (int[] history : HISTORY) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+}
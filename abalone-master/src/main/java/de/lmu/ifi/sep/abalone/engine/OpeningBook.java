@@ -0,0 +1,408 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.Symmetry;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves known to be good in the opening, read from a book file.
+ * <p>
+ * The file is a header followed by records sorted by position hash and move:
+ * <pre>
+ * header  int magic, int version, int board size, int 0, long records
+ * record  long canonical hash of the position, int packed move, int weight
+ * </pre>
+ * Positions are kept as their canonical position under the
+ * {@link Symmetry symmetries} of the board, with the move taken along, so
+ * symmetric positions share their records.
+ * The book maps the file into memory instead of reading it, so even books of
+ * tens of millions of records open at once, only the pages a lookup touches
+ * are read, and processes using the same book share them in the page cache.
+ * A lookup is a binary search over the mapped records that allocates
+ * nothing. Books are written by a {@link Builder} from played games, e.g.
+ * the game file of a {@link Tournament}.
+ * <p>
+ * Usage: {@code OpeningBook --out book.bin [--plies 20] games.bin...}
+ */
+public final class OpeningBook implements Closeable {
+
+    /**
+     * System property holding the path of the book the computer player uses,
+     * no book if it is not set.
+     */
+    public static final String BOOK_PROPERTY = "abalone.book";
+
+    /**
+     * First bytes of a book file.
+     */
+    public static final int MAGIC = 0x4142_424B;
+
+    /**
+     * Version of the book file format.
+     */
+    public static final int VERSION = 2;
+
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+    private static final int RECORD_BYTES = Long.BYTES + 2 * Integer.BYTES;
+
+    /**
+     * A single mapping is limited to 2 GB, so the records are mapped in
+     * segments of 2^{@value} records each.
+     */
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final FileChannel CHANNEL;
+    private final MappedByteBuffer[] SEGMENTS;
+    private final int SIZE;
+    private final long COUNT;
+    private final Symmetry SYMMETRY;
+
+    /**
+     * Opens a book file.
+     *
+     * @param path Path of the book.
+     * @throws IOException if the file cannot be read or is no book.
+     */
+    public OpeningBook(final Path path) throws IOException {
+        CHANNEL = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = CHANNEL.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a book of version " + VERSION + ": " + path);
+            }
+            SIZE = header.getInt(8);
+            COUNT = header.getLong(16);
+            SYMMETRY = Symmetry.forSize(SIZE);
+            if (HEADER_BYTES + COUNT * RECORD_BYTES > CHANNEL.size()) {
+                throw new IOException("Book is truncated: " + path);
+            }
+            SEGMENTS = new MappedByteBuffer[(int) ((COUNT + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < SEGMENTS.length; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long records = Math.min(COUNT - first, 1L << SEGMENT_SHIFT);
+                SEGMENTS[i] = CHANNEL.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + first * RECORD_BYTES, records * RECORD_BYTES);
+            }
+        } catch (IOException | RuntimeException e) {
+            CHANNEL.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the book named by the system property {@value #BOOK_PROPERTY}.
+     *
+     * @return The book, {@code null} if the property is not set.
+     * @throws IOException if the file cannot be read or is no book.
+     */
+    public static OpeningBook open() throws IOException {
+        String path = System.getProperty(BOOK_PROPERTY);
+        return path == null ? null : new OpeningBook(Paths.get(path));
+    }
+
+    /**
+     * @return Size of the board the book is for.
+     */
+    public int getSize() {
+        return SIZE;
+    }
+
+    /**
+     * @return Number of records, i.e. of position and move pairs.
+     */
+    public long getCount() {
+        return COUNT;
+    }
+
+    /**
+     * Looks up the move with the highest weight for the side to move.
+     *
+     * @param position Position to look up.
+     * @return Packed move, {@link PackedMove#NONE} if the position is not in
+     * the book or the board has another size. Not necessarily legal, as
+     * positions may share a hash.
+     */
+    public int probe(final AbaloneBoard position) {
+        if (position.getGeometry().getSize() != SIZE) {
+            return PackedMove.NONE;
+        }
+        int transform = SYMMETRY.canonicalize(position);
+        int move = probe(SYMMETRY.hash(position, transform));
+        return SYMMETRY.transformMove(Symmetry.inverse(transform), move);
+    }
+
+    /**
+     * Looks up the move with the highest weight for a canonical position.
+     *
+     * @param hash Canonical hash of the position, see
+     *             {@link Symmetry#canonicalHash(AbaloneBoard)}.
+     * @return Packed move on the canonical position, {@link PackedMove#NONE}
+     * if the position is not in the book.
+     */
+    public int probe(final long hash) {
+        int best = PackedMove.NONE;
+        int bestWeight = Integer.MIN_VALUE;
+        for (long i = find(hash); i < COUNT && hash(i) == hash; i++) {
+            int weight = weight(i);
+            if (weight > bestWeight) {
+                best = move(i);
+                bestWeight = weight;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Copies all moves of a canonical position and their weights.
+     *
+     * @param hash    Canonical hash of the position.
+     * @param moves   Gets the packed moves on the canonical position, in the
+     *                order of the book.
+     * @param weights Gets the weights of the moves, as long as moves.
+     * @return Number of moves of the position, more than copied if the arrays
+     * are too short.
+     */
+    public int getMoves(final long hash, final int[] moves, final int[] weights) {
+        int count = 0;
+        for (long i = find(hash); i < COUNT && hash(i) == hash; i++, count++) {
+            if (count < moves.length) {
+                moves[count] = move(i);
+                weights[count] = weight(i);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Index of the first record with the hash or a greater one.
+     */
+    private long find(final long hash) {
+        long low = 0;
+        long high = COUNT;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (hash(middle) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long hash(final long record) {
+        return segment(record).getLong(offset(record));
+    }
+
+    private int move(final long record) {
+        return segment(record).getInt(offset(record) + Long.BYTES);
+    }
+
+    private int weight(final long record) {
+        return segment(record).getInt(offset(record) + Long.BYTES + Integer.BYTES);
+    }
+
+    private MappedByteBuffer segment(final long record) {
+        return SEGMENTS[(int) (record >>> SEGMENT_SHIFT)];
+    }
+
+    private static int offset(final long record) {
+        return (int) (record & SEGMENT_MASK) * RECORD_BYTES;
+    }
+
+    /**
+     * Closes the file. The mapping itself is released by the garbage
+     * collector, so the book must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        CHANNEL.close();
+    }
+
+    /**
+     * Collects the moves of played games and writes them as book.
+     * <p>
+     * Every move of the first plies of a game counts for the position it was
+     * played in: two points if its side won the game, one for a draw, none
+     * for a loss. Moves without points are left out of the book.
+     */
+    public static final class Builder {
+
+        private final int SIZE;
+        private final int PLIES;
+        private final Symmetry SYMMETRY;
+
+        /**
+         * Weights of the moves, by position hash and packed move.
+         */
+        private final Map<Long, Map<Integer, Integer>> weights = new HashMap<>();
+
+        /**
+         * Constructs an empty builder.
+         *
+         * @param size  Size of the board of the games.
+         * @param plies Number of plies of a game that go into the book.
+         */
+        public Builder(final int size, final int plies) {
+            this.SIZE = size;
+            this.PLIES = plies;
+            this.SYMMETRY = Symmetry.forSize(size);
+        }
+
+        /**
+         * Adds a game played from the starting position with black to move.
+         *
+         * @param moves  Packed moves of the game.
+         * @param winner Winner of the game, {@code Owner.EMPTY} for a draw.
+         * @return This builder.
+         */
+        public Builder add(final int[] moves, final Owner winner) {
+            BitboardAbaloneBoard board = new BitboardAbaloneBoard(SIZE);
+            board.setSideToMove(Owner.PLAYER_BLACK);
+            UndoRecord undo = new UndoRecord();
+            for (int ply = 0; ply < Math.min(PLIES, moves.length); ply++) {
+                Owner side = board.getSideToMove();
+                int points = winner == Owner.EMPTY ? 1 : winner == side ? 2 : 0;
+                if (points > 0) {
+                    int transform = SYMMETRY.canonicalize(board);
+                    weights.computeIfAbsent(SYMMETRY.hash(board, transform), hash -> new HashMap<>())
+                            .merge(SYMMETRY.transformMove(transform, moves[ply]), points,
+                                    Integer::sum);
+                }
+                Context.makeMove(board, moves[ply], undo);
+            }
+            return this;
+        }
+
+        /**
+         * Adds a game of a tournament, if it was played on the size of the book.
+         *
+         * @param game Finished game.
+         * @return This builder.
+         */
+        public Builder add(final Tournament.Game game) {
+            return game.getSize() == SIZE ? add(game.getMoves(), game.getWinner()) : this;
+        }
+
+        /**
+         * @return Number of records the book will have.
+         */
+        public long getCount() {
+            long count = 0;
+            for (Map<Integer, Integer> moves : weights.values()) {
+                count += moves.size();
+            }
+            return count;
+        }
+
+        /**
+         * Writes the book, sorted by position hash and move.
+         *
+         * @param path Path of the book, replaced if it exists.
+         * @throws IOException if the file cannot be written.
+         */
+        public void write(final Path path) throws IOException {
+            List<Long> hashes = new ArrayList<>(weights.keySet());
+            hashes.sort(null);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(path)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(SIZE);
+                out.writeInt(0);
+                out.writeLong(getCount());
+                for (long hash : hashes) {
+                    Map<Integer, Integer> moves = weights.get(hash);
+                    List<Integer> sorted = new ArrayList<>(moves.keySet());
+                    sorted.sort(null);
+                    for (int move : sorted) {
+                        out.writeLong(hash);
+                        out.writeInt(move);
+                        out.writeInt(moves.get(move));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds a book from game files of tournaments.
+     *
+     * @param args see the usage in the class description
+     * @throws IOException if a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        String out = null;
+        int plies = 20;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out":
+                    out = args[++i];
+                    break;
+                case "--plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        System.err.println("Unknown argument " + args[i]);
+                        System.err.println("Usage: OpeningBook --out book.bin [--plies 20] games.bin...");
+                        System.exit(1);
+                    }
+                    files.add(args[i]);
+            }
+        }
+        if (out == null || files.isEmpty()) {
+            System.err.println("Usage: OpeningBook --out book.bin [--plies 20] games.bin...");
+            System.exit(1);
+        }
+        Builder builder = null;
+        int games = 0;
+        for (String file : files) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(Paths.get(file))))) {
+                if (in.readInt() != Tournament.MAGIC || in.readInt() != Tournament.VERSION) {
+                    throw new IOException("Not a game file of version " + Tournament.VERSION
+                            + ": " + file);
+                }
+                while (in.available() > 0) {
+                    Tournament.Game game = Tournament.Game.read(in);
+                    if (builder == null) {
+                        builder = new Builder(game.getSize(), plies);
+                    }
+                    builder.add(game);
+                    games++;
+                }
+            }
+        }
+        if (builder == null) {
+            System.err.println("No games in " + String.join(", ", files));
+            System.exit(1);
+        }
+        builder.write(Paths.get(out));
+        System.out.println("Wrote " + builder.getCount() + " moves of " + games + " games to " + out);
+    }
+}
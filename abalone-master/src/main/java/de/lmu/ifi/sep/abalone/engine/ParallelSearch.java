@@ -0,0 +1,218 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Searches with several threads at once, sharing one transposition table
+ * ("lazy SMP").
+ * <p>
+ * The calling thread runs the main {@link AlphaBetaSearch}, helper threads
+ * run searches of their own on the same position. Helpers start up to two
+ * plies deeper than the main search, so they reach positions the main search
+ * will need next and leave their results in the shared table, where the main
+ * search finds them. When the main search is done the helpers are stopped and
+ * the move of the main search is played.
+ * <p>
+ * The number of threads comes from the system property
+ * {@value #THREADS_PROPERTY} unless given explicitly, by default every
+ * available processor searches.
+ */
+public final class ParallelSearch implements Engine {
+
+    /**
+     * System property holding the number of search threads.
+     */
+    public static final String THREADS_PROPERTY = "abalone.threads";
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    private final TranspositionTable TABLE;
+
+    /**
+     * Main search at index {@code 0}, then one search per helper thread.
+     */
+    private final AlphaBetaSearch[] SEARCHES;
+
+    /**
+     * Threads of the helpers, {@code null} for a single thread.
+     */
+    private final ExecutorService HELPERS;
+
+    /**
+     * Creates a search with the configured number of threads and a
+     * transposition table of the configured size.
+     */
+    public ParallelSearch() {
+        this(Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()),
+                new TranspositionTable());
+    }
+
+    /**
+     * Creates a search.
+     *
+     * @param threads Number of threads searching, at least one.
+     * @param table   Transposition table shared by the threads.
+     */
+    public ParallelSearch(final int threads, final TranspositionTable table) {
+        this.TABLE = table;
+        this.SEARCHES = new AlphaBetaSearch[Math.max(1, threads)];
+        for (int i = 0; i < SEARCHES.length; i++) {
+            SEARCHES[i] = new AlphaBetaSearch(table);
+        }
+        this.HELPERS = SEARCHES.length == 1 ? null
+                : Executors.newFixedThreadPool(SEARCHES.length - 1, runnable -> {
+            Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Searches the best move of the side to move until the time is up.
+     *
+     * @param position Position to search, not changed.
+     * @param millis   Time budget in milliseconds.
+     * @return Best packed move, {@link PackedMove#NONE} if there is none or
+     * the game is already decided.
+     * @see AlphaBetaSearch#search(AbaloneBoard, long)
+     */
+    @Override
+    public int search(final AbaloneBoard position, final long millis) {
+        return search(position, AlphaBetaSearch.MAX_DEPTH, millis);
+    }
+
+    /**
+     * Searches the best move of the side to move until the time is up or the
+     * main search has searched the given depth completely.
+     *
+     * @param position Position to search, not changed.
+     * @param maxDepth Deepest iteration of the main search, in plies.
+     * @param millis   Time budget in milliseconds.
+     * @return Best packed move, {@link PackedMove#NONE} if there is none or
+     * the game is already decided.
+     * @throws IllegalArgumentException if the side to move of the position is
+     *                                  unknown.
+     */
+    public int search(final AbaloneBoard position, final int maxDepth, final long millis) {
+        if (position.getSideToMove() == Owner.EMPTY) {
+            throw new IllegalArgumentException("side to move is unknown");
+        }
+        TABLE.newSearch();
+        List<Future<?>> helpers = new ArrayList<>(SEARCHES.length - 1);
+        for (int i = 1; i < SEARCHES.length; i++) {
+            AlphaBetaSearch helper = SEARCHES[i];
+            int firstDepth = 1 + i % 3;
+            helper.resume();
+            helpers.add(HELPERS.submit(() ->
+                    helper.run(position, firstDepth, AlphaBetaSearch.MAX_DEPTH, millis)));
+        }
+        AlphaBetaSearch main = SEARCHES[0];
+        main.resume();
+        int move = main.run(position, 1, maxDepth, millis);
+        for (int i = 1; i < SEARCHES.length; i++) {
+            SEARCHES[i].stop();
+        }
+        for (Future<?> helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                logger.severe("Search helper failed: " + e.getCause());
+            }
+        }
+        logger.info("Searched " + main.getDepth() + " plies with " + SEARCHES.length
+                + " threads, " + getNodes() + " nodes");
+        return move;
+    }
+
+    /**
+     * Lets a running search end as soon as possible, with the move of the
+     * deepest iteration the main search finished. A search started later
+     * runs normally.
+     */
+    @Override
+    public void stop() {
+        for (AlphaBetaSearch search : SEARCHES) {
+            search.stop();
+        }
+    }
+
+    /**
+     * @return Reply to the move of the last search the main search expects,
+     * {@link PackedMove#NONE} if it does not know one.
+     * @see AlphaBetaSearch#getReply()
+     */
+    @Override
+    public int getPonderMove() {
+        return SEARCHES[0].getReply();
+    }
+
+    /**
+     * @return Number of threads searching.
+     */
+    public int getThreads() {
+        return SEARCHES.length;
+    }
+
+    /**
+     * @return Transposition table shared by the threads.
+     */
+    public TranspositionTable getTable() {
+        return TABLE;
+    }
+
+    /**
+     * @return Depth of the deepest finished iteration of the main search.
+     */
+    public int getDepth() {
+        return SEARCHES[0].getDepth();
+    }
+
+    /**
+     * @return Score of the best move of the main search.
+     */
+    public int getScore() {
+        return SEARCHES[0].getScore();
+    }
+
+    /**
+     * @return Number of positions visited by all threads in the last search.
+     */
+    @Override
+    public long getNodes() {
+        long nodes = 0;
+        for (AlphaBetaSearch search : SEARCHES) {
+            nodes += search.getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * Empties the transposition table.
+     */
+    @Override
+    public void newGame() {
+        TABLE.clear();
+    }
+
+    /**
+     * Stops the helper threads.
+     */
+    @Override
+    public void close() {
+        if (HELPERS != null) {
+            HELPERS.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.ReadableBoard;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Performance test of the move generation: counts the leaf positions of the
+ * full legal-move tree of a position at a given depth.
+ * <p>
+ * The moves at the root are split across a {@link ForkJoinPool}, every root
+ * move is counted on its own copy of the board. Moves are made and unmade in
+ * place, so the counts only differ between {@link Generator}s if the
+ * generators disagree. Positions where the game is already decided are
+ * expanded like any other.
+ * <p>
+ * Usage: {@code Perft [--size 9] [--depth 3] [--threads n] [--divide] [--rules]}
+ */
+public final class Perft {
+
+    /**
+     * Source of the legal moves of a position.
+     */
+    public interface Generator {
+
+        /**
+         * Writes the legal moves of a player into a buffer.
+         *
+         * @param board  The board.
+         * @param side   The player whose turn it is.
+         * @param buffer Buffer receiving packed moves.
+         * @param offset Index of the buffer to write the first move to.
+         * @return Number of moves written.
+         */
+        int generate(AbaloneBoard board, Owner side, int[] buffer, int offset);
+    }
+
+    private static final String USAGE = "Usage: Perft [--size 9] [--depth 3] [--threads n] "
+            + "[--divide] [--rules]";
+
+    /**
+     * Moves of the packed move generator of {@link Context}.
+     */
+    public static final Generator FAST = Context::generateMoves;
+
+    /**
+     * Moves found the way the user interface finds them: every selection
+     * reachable by {@link Context#getValidClicks(ReadableBoard, List, Owner)}
+     * that has directions in
+     * {@link Context#getValidMoves(ReadableBoard, List, Owner)}.
+     */
+    public static final Generator RULES = Perft::rulesMoves;
+
+    /**
+     * Source of the legal moves.
+     */
+    private final Generator generator;
+
+    /**
+     * Pool the root moves are counted in.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a perft counting in the common pool.
+     *
+     * @param generator Source of the legal moves.
+     */
+    public Perft(final Generator generator) {
+        this(generator, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a perft counting in the given pool.
+     *
+     * @param generator Source of the legal moves.
+     * @param pool      Pool the root moves are counted in.
+     */
+    public Perft(final Generator generator, final ForkJoinPool pool) {
+        this.generator = generator;
+        this.pool = pool;
+    }
+
+    /**
+     * Counts the leaves of the legal-move tree. The side to move of the board
+     * moves first, black if it is unknown. The board is not changed.
+     *
+     * @param board Position to start from.
+     * @param depth Number of plies to look ahead.
+     * @return Node counts per root move and in total.
+     */
+    public Result run(final AbaloneBoard board, final int depth) {
+        long start = System.nanoTime();
+        BitboardAbaloneBoard root = new BitboardAbaloneBoard(board);
+        if (root.getSideToMove() == Owner.EMPTY) {
+            root.setSideToMove(Owner.PLAYER_BLACK);
+        }
+        if (depth <= 0) {
+            return new Result(root.getGeometry(), new int[0], new long[0], 1,
+                    System.nanoTime() - start);
+        }
+        int[] buffer = new int[bufferSize(root.getGeometry(), 1)];
+        int moves = generator.generate(root, root.getSideToMove(), buffer, 0);
+        List<RootMove> tasks = new ArrayList<>(moves);
+        for (int i = 0; i < moves; i++) {
+            tasks.add(new RootMove(root, buffer[i], depth - 1));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        int[] rootMoves = new int[moves];
+        long[] counts = new long[moves];
+        long nodes = 0;
+        for (int i = 0; i < moves; i++) {
+            rootMoves[i] = buffer[i];
+            counts[i] = tasks.get(i).join();
+            nodes += counts[i];
+        }
+        return new Result(root.getGeometry(), rootMoves, counts, nodes,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Counts the leaves of the legal-move tree in the calling thread.
+     *
+     * @param board     Position to start from, restored when done.
+     * @param depth     Number of plies to look ahead.
+     * @param generator Source of the legal moves.
+     * @return Number of leaves.
+     * @throws IllegalArgumentException if the side to move of the board is
+     *                                  unknown.
+     */
+    public static long count(final AbaloneBoard board, final int depth,
+                             final Generator generator) {
+        if (board.getSideToMove() == Owner.EMPTY) {
+            throw new IllegalArgumentException("side to move is unknown");
+        }
+        if (depth <= 0) {
+            return 1;
+        }
+        UndoRecord[] undo = new UndoRecord[depth];
+        for (int i = 0; i < depth; i++) {
+            undo[i] = new UndoRecord();
+        }
+        int[] buffer = new int[bufferSize(board.getGeometry(), depth)];
+        return count(board, depth, generator, buffer, 0, undo);
+    }
+
+    private static long count(final AbaloneBoard board, final int depth,
+                              final Generator generator, final int[] buffer,
+                              final int offset, final UndoRecord[] undo) {
+        int moves = generator.generate(board, board.getSideToMove(), buffer, offset);
+        if (depth == 1) {
+            return moves;
+        }
+        long nodes = 0;
+        UndoRecord record = undo[depth - 1];
+        for (int i = offset; i < offset + moves; i++) {
+            Context.makeMove(board, buffer[i], record);
+            nodes += count(board, depth - 1, generator, buffer, offset + moves, undo);
+            Context.unmakeMove(board, record);
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns a buffer size large enough for the moves of all plies.
+     *
+     * @param geometry Geometry of the board.
+     * @param plies    Number of plies stacked in the buffer.
+     * @return Buffer size.
+     */
+    private static int bufferSize(final BoardGeometry geometry, final int plies) {
+        return PackedMove.MAX_MOVES_PER_PIECE * geometry.getCellCount() * plies;
+    }
+
+    /**
+     * Generator of {@link #RULES}.
+     */
+    private static int rulesMoves(final AbaloneBoard board, final Owner side,
+                                  final int[] buffer, final int offset) {
+        return rulesMoves(board, side, new ArrayList<>(), new HashSet<>(), buffer, offset)
+                - offset;
+    }
+
+    private static int rulesMoves(final AbaloneBoard board, final Owner side,
+                                  final List<Vector> selected, final Set<Integer> seen,
+                                  final int[] buffer, int end) {
+        if (!selected.isEmpty()) {
+            for (Vector.Direction d : Context.getValidMoves(board, selected, side)) {
+                int move = Context.toPackedMove(board, selected, d, side);
+                if (seen.add(move)) {
+                    buffer[end++] = move;
+                }
+            }
+        }
+        if (selected.size() < 3) {
+            for (Vector click : Context.getValidClicks(board, selected, side)) {
+                if (!selected.contains(click)) {
+                    selected.add(click);
+                    end = rulesMoves(board, side, selected, seen, buffer, end);
+                    selected.remove(selected.size() - 1);
+                }
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Counts the subtree of one root move on a copy of the root.
+     */
+    private final class RootMove extends RecursiveTask<Long> {
+
+        /**
+         * Tasks are serializable by inheritance only, they are never written.
+         */
+        private static final long serialVersionUID = 1L;
+
+        private final AbaloneBoard root;
+        private final int move;
+        private final int depth;
+
+        RootMove(final AbaloneBoard root, final int move, final int depth) {
+            this.root = root;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            BitboardAbaloneBoard board = new BitboardAbaloneBoard(root);
+            Context.makeMove(board, move, new UndoRecord());
+            return count(board, depth, generator);
+        }
+    }
+
+    /**
+     * Node counts of a perft run.
+     */
+    public static final class Result {
+
+        private final BoardGeometry geometry;
+        private final int[] moves;
+        private final long[] counts;
+        private final long nodes;
+        private final long nanos;
+
+        Result(final BoardGeometry geometry, final int[] moves, final long[] counts,
+               final long nodes, final long nanos) {
+            this.geometry = geometry;
+            this.moves = moves;
+            this.counts = counts;
+            this.nodes = nodes;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return Number of leaves of the tree.
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * @return Wall clock time of the run in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return Leaves counted per second.
+         */
+        public long getNodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+        }
+
+        /**
+         * @return Number of legal moves at the root.
+         */
+        public int getRootMoveCount() {
+            return moves.length;
+        }
+
+        /**
+         * @param i Index of the root move.
+         * @return Packed root move.
+         */
+        public int getRootMove(final int i) {
+            return moves[i];
+        }
+
+        /**
+         * @param i Index of the root move.
+         * @return Leaves below the root move.
+         */
+        public long getRootCount(final int i) {
+            return counts[i];
+        }
+
+        /**
+         * Lists the leaves below every root move, one line each.
+         *
+         * @return Readable divide.
+         */
+        public String divide() {
+            StringBuilder out = new StringBuilder();
+            for (int i = 0; i < moves.length; i++) {
+                out.append(PackedMove.toString(moves[i], geometry))
+                        .append(": ").append(counts[i]).append('\n');
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * Runs a perft from the starting layout and prints the node counts.
+     *
+     * @param args {@code --size n}, {@code --depth n}, {@code --threads n},
+     *             {@code --divide} to print the count of every root move and
+     *             {@code --rules} to generate moves through the rules of
+     *             the user interface.
+     */
+    public static void main(String[] args) {
+        int size = 9;
+        int depth = 3;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean divide = false;
+        Generator generator = FAST;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--size":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--rules":
+                    generator = RULES;
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.err.println(USAGE);
+                    System.exit(1);
+            }
+        }
+        if (!BoardGeometry.isSupportedSize(size)) {
+            System.err.println("Board size must be odd and from " + BoardGeometry.MIN_SIZE + " to "
+                    + BoardGeometry.MAX_SIZE + ", got " + size);
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Result result = new Perft(generator, pool).run(new BitboardAbaloneBoard(size), depth);
+            if (divide) {
+                System.out.print(result.divide());
+            }
+            System.out.println("size " + size + ", depth " + depth + ", " + threads
+                    + " threads: " + result.getNodes() + " nodes in "
+                    + result.getNanos() / 1_000_000 + " ms, "
+                    + result.getNodesPerSecond() + " nodes/s");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
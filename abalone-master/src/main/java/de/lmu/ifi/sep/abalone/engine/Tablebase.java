@@ -0,0 +1,644 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Perfect play for endgames with few marbles, read from a tablebase file.
+ * <p>
+ * A tablebase holds every position of one board size with a fixed number of
+ * white and black marbles, for both sides to move, in which the next marble
+ * pushed off decides the game. That is the end of every game in which both
+ * players are one marble from winning, see {@link #covers(EvaluatedBoard)}.
+ * For every position it keeps one signed byte from the view of the side to
+ * move: {@code +n} if it wins in {@code n} plies, {@code -n} if it loses in
+ * {@code n} plies, and {@code 0} if neither side can force a win.
+ * <p>
+ * Positions are numbered without gaps by the combinatorial number system:
+ * the set of white cells is ranked among all sets of as many cells, the set
+ * of black cells among the cells left free by white, so a tablebase needs
+ * exactly one byte per position. The file is a header followed by these
+ * bytes:
+ * <pre>
+ * header  int magic, int version, int board size, int white marbles,
+ *         int black marbles, int 0, long positions
+ * </pre>
+ * The file is mapped into memory like an {@link OpeningBook}, so it opens at
+ * once and looking up a position reads one byte and allocates nothing.
+ * Tablebases are computed by a {@link Builder}.
+ * <p>
+ * Usage: {@code Tablebase --out table.bin [--size 5] [--white n] [--black n] [--threads n]},
+ * the marbles default to those {@link #coveredPieces(int)} of the size.
+ */
+public final class Tablebase implements Closeable {
+
+    /**
+     * System property holding the path of the tablebase the computer player
+     * uses, none if it is not set.
+     */
+    public static final String TABLEBASE_PROPERTY = "abalone.tablebase";
+
+    /**
+     * First bytes of a tablebase file.
+     */
+    public static final int MAGIC = 0x4142_5442;
+
+    /**
+     * Version of the tablebase file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Longest win or loss a byte holds, in plies.
+     */
+    public static final int MAX_DISTANCE = Byte.MAX_VALUE;
+
+    /**
+     * Most cells of a board a tablebase can number the positions of.
+     */
+    public static final int MAX_CELLS = 64;
+
+    private static final String USAGE = "Usage: Tablebase --out table.bin [--size 5] "
+            + "[--white n] [--black n] [--threads n]";
+
+    private static final int HEADER_BYTES = 6 * Integer.BYTES + Long.BYTES;
+
+    /**
+     * A single mapping is limited to 2 GB, so the positions are mapped in
+     * segments of 2^{@value} positions each.
+     */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final FileChannel CHANNEL;
+    private final MappedByteBuffer[] SEGMENTS;
+    private final Index INDEX;
+
+    /**
+     * Opens a tablebase file.
+     *
+     * @param path Path of the tablebase.
+     * @throws IOException if the file cannot be read or is no tablebase.
+     */
+    public Tablebase(final Path path) throws IOException {
+        CHANNEL = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = CHANNEL.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a tablebase of version " + VERSION + ": " + path);
+            }
+            INDEX = new Index(header.getInt(8), header.getInt(12), header.getInt(16));
+            long positions = header.getLong(24);
+            if (positions != INDEX.getPositions()
+                    || HEADER_BYTES + positions > CHANNEL.size()) {
+                throw new IOException("Tablebase is truncated: " + path);
+            }
+            SEGMENTS = new MappedByteBuffer[(int) ((positions + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < SEGMENTS.length; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                SEGMENTS[i] = CHANNEL.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first,
+                        Math.min(positions - first, 1L << SEGMENT_SHIFT));
+            }
+        } catch (IOException | RuntimeException e) {
+            CHANNEL.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the tablebase named by the system property
+     * {@value #TABLEBASE_PROPERTY}.
+     *
+     * @return The tablebase, {@code null} if the property is not set.
+     * @throws IOException if the file cannot be read or is no tablebase.
+     */
+    public static Tablebase open() throws IOException {
+        String path = System.getProperty(TABLEBASE_PROPERTY);
+        return path == null ? null : new Tablebase(Paths.get(path));
+    }
+
+    /**
+     * @return Size of the board of the positions.
+     */
+    public int getSize() {
+        return INDEX.SIZE;
+    }
+
+    /**
+     * @param owner A player.
+     * @return Marbles the player has in every position.
+     */
+    public int getPieces(final Owner owner) {
+        return owner == Owner.PLAYER_WHITE ? INDEX.WHITE : INDEX.BLACK;
+    }
+
+    /**
+     * @return Number of positions.
+     */
+    public long getPositions() {
+        return INDEX.getPositions();
+    }
+
+    /**
+     * Checks if the tablebase tells perfect play for a game position: the
+     * board has the size and the marbles of the tablebase and both players
+     * win with the next marble they push off.
+     *
+     * @param board Position of a game.
+     * @return {@code true} if {@link #bestMove(AbaloneBoard)} plays it perfectly.
+     */
+    public boolean covers(final EvaluatedBoard board) {
+        return board.getGeometry().getSize() == INDEX.SIZE
+                && board.countPieces(Owner.PLAYER_WHITE) == INDEX.WHITE
+                && board.countPieces(Owner.PLAYER_BLACK) == INDEX.BLACK
+                && board.getPiecesToWin(Owner.PLAYER_WHITE) == 1
+                && board.getPiecesToWin(Owner.PLAYER_BLACK) == 1;
+    }
+
+    /**
+     * Counts the marbles each player has in the positions a tablebase of a
+     * board size covers: one marble more than the opponent has to push off
+     * to win.
+     *
+     * @param size Size of the board.
+     * @return Marbles of each player, see {@link #covers(EvaluatedBoard)}.
+     */
+    public static int coveredPieces(final int size) {
+        EvaluatedBoard board = new EvaluatedBoard(size);
+        return board.countPieces(Owner.PLAYER_WHITE) - board.getPiecesToWin(Owner.PLAYER_BLACK) + 1;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param position Position with the size and marbles of the tablebase.
+     * @return {@code +n} if the side to move wins in {@code n} plies,
+     * {@code -n} if it loses in {@code n} plies, {@code 0} for a draw.
+     * @throws IllegalArgumentException if the position is not in the tablebase.
+     */
+    public int probe(final AbaloneBoard position) {
+        long index = INDEX.indexOf(position);
+        if (index < 0) {
+            throw new IllegalArgumentException("Position is not in the tablebase");
+        }
+        return SEGMENTS[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    /**
+     * Finds the best move of a position: the quickest win, else a draw, else
+     * the slowest loss.
+     *
+     * @param position Position with the size and marbles of the tablebase,
+     *                 not changed.
+     * @return Packed move, {@link PackedMove#NONE} if the side to move has none.
+     * @throws IllegalArgumentException if the position is not in the tablebase.
+     */
+    public int bestMove(final AbaloneBoard position) {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(position);
+        Owner side = board.getSideToMove();
+        int[] moves = new int[PackedMove.MAX_MOVES_PER_PIECE * board.countPieces(side)];
+        int count = Context.generateMoves(board, side, moves);
+        UndoRecord undo = new UndoRecord();
+        int best = PackedMove.NONE;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.isEjecting(moves[i])) {
+                return moves[i];
+            }
+            Context.makeMove(board, moves[i], undo);
+            int score = score(-probe(board));
+            Context.unmakeMove(board, undo);
+            if (score > bestScore) {
+                best = moves[i];
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Orders values: quicker wins before slower ones before draws before
+     * slower losses before quicker ones.
+     */
+    private static int score(final int value) {
+        if (value > 0) {
+            return 2 * MAX_DISTANCE - value;
+        }
+        if (value < 0) {
+            return -2 * MAX_DISTANCE - value;
+        }
+        return 0;
+    }
+
+    /**
+     * Closes the file. The mapping itself is released by the garbage
+     * collector, so the tablebase must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        CHANNEL.close();
+    }
+
+    /**
+     * Numbers the positions of a tablebase without gaps.
+     */
+    static final class Index {
+
+        /**
+         * Binomial coefficients, {@code C(n, k)} at {@code [n][k]}.
+         */
+        private static final long[][] BINOMIAL = new long[MAX_CELLS + 1][MAX_CELLS + 1];
+
+        static {
+            for (int n = 0; n < BINOMIAL.length; n++) {
+                BINOMIAL[n][0] = 1;
+                for (int k = 1; k <= n; k++) {
+                    BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+                }
+            }
+        }
+
+        final int SIZE;
+        final int WHITE;
+        final int BLACK;
+        private final int CELLS;
+
+        /**
+         * Sets of white cells.
+         */
+        private final long WHITE_SETS;
+
+        /**
+         * Sets of black cells among the cells left free by white.
+         */
+        private final long BLACK_SETS;
+
+        Index(final int size, final int white, final int black) {
+            this.SIZE = size;
+            this.WHITE = white;
+            this.BLACK = black;
+            this.CELLS = new BitboardAbaloneBoard(size).getCellCount();
+            if (CELLS > MAX_CELLS) {
+                throw new IllegalArgumentException("Tablebases hold boards of up to "
+                        + MAX_CELLS + " cells, size " + size + " has " + CELLS);
+            }
+            if (white < 1 || black < 1 || white + black > CELLS) {
+                throw new IllegalArgumentException("No positions with " + white
+                        + " white and " + black + " black marbles on size " + size);
+            }
+            this.WHITE_SETS = BINOMIAL[CELLS][white];
+            this.BLACK_SETS = BINOMIAL[CELLS - white][black];
+        }
+
+        long getPositions() {
+            return 2 * WHITE_SETS * BLACK_SETS;
+        }
+
+        /**
+         * @return Number of the position, {@code -1} if it has another size
+         * or other marbles.
+         */
+        long indexOf(final AbaloneBoard board) {
+            if (board.getGeometry().getSize() != SIZE) {
+                return -1;
+            }
+            long whiteRank = 0;
+            long blackRank = 0;
+            int whites = 0;
+            int blacks = 0;
+            int free = 0;
+            for (int cell = 0; cell < CELLS; cell++) {
+                Owner owner = board.getOwner(cell);
+                if (owner == Owner.PLAYER_WHITE) {
+                    whiteRank += BINOMIAL[cell][++whites];
+                    continue;
+                }
+                if (owner == Owner.PLAYER_BLACK) {
+                    blackRank += BINOMIAL[free][++blacks];
+                }
+                free++;
+            }
+            if (whites != WHITE || blacks != BLACK) {
+                return -1;
+            }
+            int side = board.getSideToMove() == Owner.PLAYER_WHITE ? 0 : 1;
+            return (side * WHITE_SETS + whiteRank) * BLACK_SETS + blackRank;
+        }
+
+        /**
+         * Sets up a position on a board of the size.
+         *
+         * @param index   Number of the position.
+         * @param board   Board receiving the position.
+         * @param members Buffer of at least as many cells as marbles.
+         */
+        void setUp(final long index, final AbaloneBoard board, final int[] members) {
+            long blackRank = index % BLACK_SETS;
+            long whiteRank = index / BLACK_SETS % WHITE_SETS;
+            boolean whiteToMove = index / BLACK_SETS / WHITE_SETS == 0;
+            for (int cell = 0; cell < CELLS; cell++) {
+                board.setOwner(cell, Owner.EMPTY);
+            }
+            unrank(whiteRank, WHITE, CELLS, members);
+            for (int i = 0; i < WHITE; i++) {
+                board.setOwner(members[i], Owner.PLAYER_WHITE);
+            }
+            unrank(blackRank, BLACK, CELLS - WHITE, members);
+            // members are ascending numbers among the free cells
+            int free = 0;
+            int next = BLACK - 1;
+            for (int cell = 0; cell < CELLS && next >= 0; cell++) {
+                if (board.getOwner(cell) != Owner.EMPTY) {
+                    continue;
+                }
+                if (free == members[next]) {
+                    board.setOwner(cell, Owner.PLAYER_BLACK);
+                    next--;
+                }
+                free++;
+            }
+            board.setSideToMove(whiteToMove ? Owner.PLAYER_WHITE : Owner.PLAYER_BLACK);
+        }
+
+        /**
+         * Finds the set of a rank, largest member first.
+         */
+        private static void unrank(long rank, final int k, final int n, final int[] members) {
+            int candidate = n - 1;
+            for (int i = k; i > 0; i--) {
+                while (BINOMIAL[candidate][i] > rank) {
+                    candidate--;
+                }
+                members[k - i] = candidate;
+                rank -= BINOMIAL[candidate][i];
+                candidate--;
+            }
+        }
+    }
+
+    /**
+     * Computes a tablebase by backward induction over the number of plies.
+     * <p>
+     * The first pass finds every position whose side to move can push off a
+     * marble, a win in one ply. Pass {@code n} then looks at the positions
+     * still open: a position is won in {@code n} plies if a move leads to a
+     * position lost in {@code n - 1} plies, and lost in {@code n} plies if
+     * every move leads to a position won in fewer plies. Positions still open
+     * when a pass finds nothing new are draws.
+     * <p>
+     * A pass splits the positions into chunks that all threads take from.
+     * A thread only writes the positions of its chunks and only trusts values
+     * of earlier passes, so threads need no locks: a value written in the
+     * same pass is told apart by its distance.
+     */
+    public static final class Builder {
+
+        /**
+         * Positions a thread takes at a time.
+         */
+        private static final int CHUNK = 1 << 12;
+
+        private final Index INDEX;
+        private final int THREADS;
+
+        /**
+         * Constructs a builder.
+         *
+         * @param size    Size of the board.
+         * @param white   Marbles of white.
+         * @param black   Marbles of black.
+         * @param threads Number of threads computing, at least one.
+         * @throws IllegalArgumentException if there are no such positions or
+         *                                  too many to compute in memory.
+         */
+        public Builder(final int size, final int white, final int black, final int threads) {
+            this.INDEX = new Index(size, white, black);
+            this.THREADS = Math.max(1, threads);
+            if (INDEX.getPositions() > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException(INDEX.getPositions()
+                        + " positions do not fit into memory");
+            }
+        }
+
+        /**
+         * Computes the values of all positions.
+         *
+         * @return Value of every position by its number, as returned by
+         * {@link Tablebase#probe(AbaloneBoard)}.
+         * @throws IllegalStateException if a win takes more than
+         *                               {@value Tablebase#MAX_DISTANCE} plies.
+         */
+        public byte[] build() {
+            byte[] values = new byte[(int) INDEX.getPositions()];
+            ExecutorService workers = Executors.newFixedThreadPool(THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "tablebase-builder");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                for (int pass = 1; ; pass++) {
+                    if (pass > MAX_DISTANCE) {
+                        throw new IllegalStateException("Wins take more than "
+                                + MAX_DISTANCE + " plies");
+                    }
+                    AtomicLong next = new AtomicLong();
+                    AtomicBoolean changed = new AtomicBoolean();
+                    List<Future<?>> futures = new ArrayList<>();
+                    int distance = pass;
+                    for (int i = 0; i < THREADS; i++) {
+                        futures.add(workers.submit(() -> pass(values, distance, next, changed)));
+                    }
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                    if (!changed.get()) {
+                        return values;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Building was interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Building failed", e.getCause());
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+
+        /**
+         * Resolves open positions in chunks until none is left.
+         *
+         * @param values   Values of all positions.
+         * @param distance Plies of the wins and losses this pass finds.
+         * @param next     First position of the next chunk.
+         * @param changed  Set if a position was resolved.
+         */
+        private void pass(final byte[] values, final int distance, final AtomicLong next,
+                          final AtomicBoolean changed) {
+            BitboardAbaloneBoard board = new BitboardAbaloneBoard(INDEX.SIZE);
+            int[] members = new int[Math.max(INDEX.WHITE, INDEX.BLACK)];
+            int[] moves = new int[PackedMove.MAX_MOVES_PER_PIECE * members.length];
+            UndoRecord undo = new UndoRecord();
+            long start;
+            while ((start = next.getAndAdd(CHUNK)) < values.length) {
+                int end = (int) Math.min(values.length, start + CHUNK);
+                for (int index = (int) start; index < end; index++) {
+                    if (values[index] != 0) {
+                        continue;
+                    }
+                    INDEX.setUp(index, board, members);
+                    int value = resolve(board, values, distance, moves, undo);
+                    if (value != 0) {
+                        values[index] = (byte) value;
+                        changed.set(true);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return Value of the position if this pass finds it, else {@code 0}.
+         */
+        private int resolve(final BitboardAbaloneBoard board, final byte[] values,
+                            final int distance, final int[] moves, final UndoRecord undo) {
+            int count = Context.generateMoves(board, board.getSideToMove(), moves);
+            if (count == 0) {
+                return 0;
+            }
+            boolean allWon = true;
+            for (int i = 0; i < count; i++) {
+                if (PackedMove.isEjecting(moves[i])) {
+                    return 1;
+                }
+                if (distance == 1) {
+                    continue;
+                }
+                Context.makeMove(board, moves[i], undo);
+                int value = values[(int) INDEX.indexOf(board)];
+                Context.unmakeMove(board, undo);
+                if (Math.abs(value) >= distance) {
+                    // found in this pass, not yet to be trusted
+                    value = 0;
+                }
+                if (value < 0) {
+                    return distance;
+                }
+                allWon &= value > 0;
+            }
+            return distance > 1 && allWon ? -distance : 0;
+        }
+
+        /**
+         * Computes and writes the tablebase.
+         *
+         * @param path Path of the tablebase, replaced if it exists.
+         * @throws IOException if the file cannot be written.
+         */
+        public void write(final Path path) throws IOException {
+            byte[] values = build();
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(path)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(INDEX.SIZE);
+                out.writeInt(INDEX.WHITE);
+                out.writeInt(INDEX.BLACK);
+                out.writeInt(0);
+                out.writeLong(values.length);
+                out.write(values);
+            }
+        }
+    }
+
+    /**
+     * Computes a tablebase and writes it to a file.
+     *
+     * @param args see the usage in the class description
+     * @throws IOException if the file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        String out = null;
+        int size = 5;
+        int white = 0;
+        int black = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out":
+                    out = args[++i];
+                    break;
+                case "--size":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--white":
+                    white = Integer.parseInt(args[++i]);
+                    break;
+                case "--black":
+                    black = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.err.println(USAGE);
+                    System.exit(1);
+            }
+        }
+        if (out == null) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        if (!BoardGeometry.isSupportedSize(size)) {
+            System.err.println("Board size must be odd and from " + BoardGeometry.MIN_SIZE + " to "
+                    + BoardGeometry.MAX_SIZE + ", got " + size);
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        if (BoardGeometry.forSize(size).getCellCount() > MAX_CELLS) {
+            System.err.println("Tablebases hold boards of up to " + MAX_CELLS + " cells, size " + size
+                    + " has " + BoardGeometry.forSize(size).getCellCount());
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        int covered = coveredPieces(size);
+        white = white == 0 ? covered : white;
+        black = black == 0 ? covered : black;
+        if (white != covered || black != covered) {
+            System.err.println("A tablebase of size " + size + " only covers games with "
+                    + covered + " white and " + covered + " black marbles, see Tablebase.covers");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        new Builder(size, white, black, threads).write(Paths.get(out));
+        try (Tablebase tablebase = new Tablebase(Paths.get(out))) {
+            System.out.println("Wrote " + tablebase.getPositions() + " positions to " + out
+                    + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+}
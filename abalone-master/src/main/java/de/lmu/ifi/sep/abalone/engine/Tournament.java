@@ -0,0 +1,537 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Plays engines against each other without user interface, network or event
+ * bus, to compare and tune them.
+ * <p>
+ * Several games run at once, on workers that each keep one pair of
+ * single-threaded engines and clear them between their games. Moves are made in place on an
+ * {@link EvaluatedBoard}. The engines change colors from game to game, a game
+ * is drawn when it reaches the ply limit or a player has no move. Results
+ * can be written as CSV, one line per game, and as binary game file with
+ * every move, see {@link Game#write(DataOutput)}.
+ * <p>
+ * Usage: {@code Tournament [--games 100] [--size 9] [--millis 100]
+ * [--engines alphabeta,mcts] [--parallel n] [--max-plies 400]
+ * [--csv file] [--games-file file]}
+ */
+public final class Tournament {
+
+    /**
+     * First bytes of a binary game file.
+     */
+    public static final int MAGIC = 0x4142_474D;
+
+    /**
+     * Version of the binary game file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Header of the CSV results.
+     */
+    public static final String CSV_HEADER =
+            "game,black,white,winner,plies,millis,moves_per_second,nodes_per_second";
+
+    private static final String USAGE = "Usage: Tournament [--games 100] [--size 9] "
+            + "[--millis 100] [--engines alphabeta,mcts] [--parallel n] "
+            + "[--max-plies 400] [--csv file] [--games-file file]";
+
+    private final int SIZE;
+    private final long MOVE_MILLIS;
+    private final int MAX_PLIES;
+    private final int PARALLEL;
+
+    /**
+     * Constructs a tournament.
+     *
+     * @param size       Size of the board.
+     * @param moveMillis Time budget of a move in milliseconds.
+     * @param maxPlies   Plies after which a game is drawn.
+     * @param parallel   Number of games played at once, at least one.
+     */
+    public Tournament(final int size, final long moveMillis, final int maxPlies,
+                      final int parallel) {
+        this.SIZE = size;
+        this.MOVE_MILLIS = moveMillis;
+        this.MAX_PLIES = maxPlies;
+        this.PARALLEL = Math.max(1, parallel);
+    }
+
+    /**
+     * Plays games between two engines, which change colors from game to game,
+     * the first engine playing black in the first game.
+     *
+     * @param games    Number of games.
+     * @param first    Name of the first engine, see {@link Engine#create(String)}.
+     * @param second   Name of the second engine.
+     * @param finished Gets every finished game on the calling thread, in the
+     *                 order the games finish.
+     * @return All games, in the order they were started.
+     * @throws IllegalArgumentException if an engine name is unknown.
+     */
+    public List<Game> run(final int games, final String first, final String second,
+                          final Consumer<Game> finished) {
+        for (String name : new String[]{first, second}) {
+            if (!Engine.exists(name)) {
+                throw new IllegalArgumentException("Unknown engine: " + name);
+            }
+        }
+        Queue<Engine> created = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Engine[]> engines = ThreadLocal.withInitial(() -> {
+            Engine[] pair = {Engine.create(first, 1), Engine.create(second, 1)};
+            created.addAll(Arrays.asList(pair));
+            return pair;
+        });
+        ExecutorService workers = Executors.newFixedThreadPool(PARALLEL, runnable -> {
+            Thread thread = new Thread(runnable, "tournament-game");
+            thread.setDaemon(true);
+            return thread;
+        });
+        CompletionService<Game> completion = new ExecutorCompletionService<>(workers);
+        try {
+            for (int i = 0; i < games; i++) {
+                int index = i;
+                boolean swapped = i % 2 == 1;
+                completion.submit(() -> {
+                    Engine[] pair = engines.get();
+                    return swapped ? play(index, second, first, pair[1], pair[0])
+                            : play(index, first, second, pair[0], pair[1]);
+                });
+            }
+            Game[] played = new Game[games];
+            for (int i = 0; i < games; i++) {
+                Game game = completion.take().get();
+                played[game.getIndex()] = game;
+                finished.accept(game);
+            }
+            return Arrays.asList(played);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tournament was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Game failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+            for (Engine engine : created) {
+                engine.close();
+            }
+        }
+    }
+
+    /**
+     * Tells which engine of {@link #run(int, String, String, Consumer)} won
+     * a game. Wins go by color and the number of the game, not by name, as
+     * both engines may have the same.
+     *
+     * @param game Game of a run.
+     * @return 0 if the first engine won, 1 if the second did, -1 for a draw.
+     */
+    public static int winner(final Game game) {
+        if (game.getWinner() == Owner.EMPTY) {
+            return -1;
+        }
+        boolean firstIsBlack = game.getIndex() % 2 == 0;
+        return (game.getWinner() == Owner.PLAYER_BLACK) == firstIsBlack ? 0 : 1;
+    }
+
+    /**
+     * Plays one game on the calling thread.
+     *
+     * @param index Number of the game.
+     * @param black Name of the engine playing black, who moves first.
+     * @param white Name of the engine playing white.
+     * @return The finished game.
+     */
+    public Game play(final int index, final String black, final String white) {
+        Engine blackEngine = Engine.create(black, 1);
+        Engine whiteEngine = Engine.create(white, 1);
+        try {
+            return play(index, black, white, blackEngine, whiteEngine);
+        } finally {
+            blackEngine.close();
+            whiteEngine.close();
+        }
+    }
+
+    /**
+     * Plays one game with engines that may have played before.
+     */
+    private Game play(final int index, final String black, final String white,
+                      final Engine blackEngine, final Engine whiteEngine) {
+        blackEngine.newGame();
+        whiteEngine.newGame();
+        EvaluatedBoard board = new EvaluatedBoard(SIZE);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        UndoRecord undo = new UndoRecord();
+        int[] moves = new int[MAX_PLIES];
+        int plies = 0;
+        long nodes = 0;
+        Owner winner = Owner.EMPTY;
+        long start = System.nanoTime();
+        while (true) {
+            Owner side = board.getSideToMove();
+            if (board.hasLost(side)) {
+                winner = opponent(side);
+                break;
+            }
+            if (plies == MAX_PLIES) {
+                break;
+            }
+            Engine engine = side == Owner.PLAYER_BLACK ? blackEngine : whiteEngine;
+            int move = engine.search(board, MOVE_MILLIS);
+            nodes += engine.getNodes();
+            if (move == PackedMove.NONE) {
+                break;
+            }
+            Context.makeMove(board, move, undo);
+            moves[plies++] = move;
+        }
+        return new Game(index, black, white, SIZE, winner,
+                Arrays.copyOf(moves, plies), nodes, System.nanoTime() - start);
+    }
+
+    private static Owner opponent(final Owner side) {
+        return side == Owner.PLAYER_BLACK ? Owner.PLAYER_WHITE : Owner.PLAYER_BLACK;
+    }
+
+    /**
+     * A finished game of a tournament.
+     */
+    public static final class Game {
+
+        private final int index;
+        private final String black;
+        private final String white;
+        private final int size;
+        private final Owner winner;
+        private final int[] moves;
+        private final long nodes;
+        private final long nanos;
+
+        /**
+         * Constructs a finished game.
+         *
+         * @param index  Number of the game.
+         * @param black  Name of the engine playing black.
+         * @param white  Name of the engine playing white.
+         * @param size   Size of the board.
+         * @param winner Winner, {@code Owner.EMPTY} for a draw.
+         * @param moves  Packed moves in the order they were played.
+         * @param nodes  Positions visited by both engines.
+         * @param nanos  Wall clock time of the game in nanoseconds.
+         */
+        public Game(final int index, final String black, final String white, final int size,
+                    final Owner winner, final int[] moves, final long nodes, final long nanos) {
+            this.index = index;
+            this.black = black;
+            this.white = white;
+            this.size = size;
+            this.winner = winner;
+            this.moves = moves;
+            this.nodes = nodes;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return Number of the game.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return Name of the engine playing black.
+         */
+        public String getBlack() {
+            return black;
+        }
+
+        /**
+         * @return Name of the engine playing white.
+         */
+        public String getWhite() {
+            return white;
+        }
+
+        /**
+         * @return Size of the board.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * @return Winner, {@code Owner.EMPTY} for a draw.
+         */
+        public Owner getWinner() {
+            return winner;
+        }
+
+        /**
+         * @return Name of the winning engine, {@code null} for a draw.
+         */
+        public String getWinningEngine() {
+            return winner == Owner.PLAYER_BLACK ? black
+                    : winner == Owner.PLAYER_WHITE ? white : null;
+        }
+
+        /**
+         * @return Packed moves in the order they were played.
+         */
+        public int[] getMoves() {
+            return moves.clone();
+        }
+
+        /**
+         * @return Number of plies played.
+         */
+        public int getPlies() {
+            return moves.length;
+        }
+
+        /**
+         * @return Positions visited by both engines.
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /**
+         * @return Wall clock time of the game in nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return Plies played per second of the game.
+         */
+        public double getMovesPerSecond() {
+            return nanos == 0 ? 0 : moves.length * 1e9 / nanos;
+        }
+
+        /**
+         * @return Positions visited per second of the game.
+         */
+        public double getNodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1e9 / nanos;
+        }
+
+        /**
+         * @return The game as a line of CSV, see {@link #CSV_HEADER}.
+         */
+        public String toCsv() {
+            return String.format(Locale.ROOT, "%d,%s,%s,%s,%d,%d,%.2f,%.0f", index, black, white,
+                    winner == Owner.EMPTY ? "draw"
+                            : winner == Owner.PLAYER_BLACK ? "black" : "white", moves.length,
+                    nanos / 1_000_000, getMovesPerSecond(), getNodesPerSecond());
+        }
+
+        /**
+         * Writes the game as record of a binary game file: number, engine
+         * names, board size, winner ordinal, nodes, nanoseconds, number of
+         * plies and the packed moves.
+         *
+         * @param out Output to write to.
+         * @throws IOException if writing fails.
+         */
+        public void write(final DataOutput out) throws IOException {
+            out.writeInt(index);
+            out.writeUTF(black);
+            out.writeUTF(white);
+            out.writeByte(size);
+            out.writeByte(winner.ordinal());
+            out.writeLong(nodes);
+            out.writeLong(nanos);
+            out.writeInt(moves.length);
+            for (int move : moves) {
+                out.writeInt(move);
+            }
+        }
+
+        /**
+         * Reads a game written by {@link #write(DataOutput)}.
+         *
+         * @param in Input to read from.
+         * @return The game.
+         * @throws IOException if reading fails.
+         */
+        public static Game read(final DataInput in) throws IOException {
+            int index = in.readInt();
+            String black = in.readUTF();
+            String white = in.readUTF();
+            int size = in.readByte();
+            Owner winner = Owner.values()[in.readByte()];
+            long nodes = in.readLong();
+            long nanos = in.readLong();
+            int[] moves = new int[in.readInt()];
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = in.readInt();
+            }
+            return new Game(index, black, white, size, winner, moves, nodes, nanos);
+        }
+    }
+
+    /**
+     * Sink of the finished games, writing the files asked for.
+     */
+    private static final class Output implements Closeable, Consumer<Game> {
+
+        private final Writer csv;
+        private final DataOutputStream games;
+
+        Output(final String csvFile, final String gamesFile) throws IOException {
+            csv = csvFile == null ? null
+                    : Files.newBufferedWriter(Paths.get(csvFile), StandardCharsets.UTF_8);
+            games = gamesFile == null ? null : new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(Paths.get(gamesFile))));
+            if (csv != null) {
+                csv.write(CSV_HEADER);
+                csv.write('\n');
+            }
+            if (games != null) {
+                games.writeInt(MAGIC);
+                games.writeInt(VERSION);
+            }
+        }
+
+        @Override
+        public void accept(final Game game) {
+            try {
+                if (csv != null) {
+                    csv.write(game.toCsv());
+                    csv.write('\n');
+                }
+                if (games != null) {
+                    game.write(games);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Writing results failed", e);
+            }
+            System.out.println(game.toCsv());
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (csv != null) {
+                csv.close();
+            }
+            if (games != null) {
+                games.close();
+            }
+        }
+    }
+
+    /**
+     * Plays a tournament and prints a line per game and a summary.
+     *
+     * @param args see the usage in the class description
+     * @throws IOException if a result file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int games = 100;
+        int size = 9;
+        long millis = 100;
+        String[] engines = {Engine.ALPHA_BETA, Engine.MONTE_CARLO};
+        int parallel = Runtime.getRuntime().availableProcessors();
+        int maxPlies = 400;
+        String csvFile = null;
+        String gamesFile = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--size":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--millis":
+                    millis = Long.parseLong(args[++i]);
+                    break;
+                case "--engines":
+                    engines = args[++i].split(",");
+                    break;
+                case "--parallel":
+                    parallel = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-plies":
+                    maxPlies = Integer.parseInt(args[++i]);
+                    break;
+                case "--csv":
+                    csvFile = args[++i];
+                    break;
+                case "--games-file":
+                    gamesFile = args[++i];
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.err.println(USAGE);
+                    System.exit(1);
+            }
+        }
+        if (!BoardGeometry.isSupportedSize(size)) {
+            System.err.println("Board size must be odd and from " + BoardGeometry.MIN_SIZE + " to "
+                    + BoardGeometry.MAX_SIZE + ", got " + size);
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        if (engines.length != 2) {
+            System.err.println("Two engines needed, got " + String.join(",", engines));
+            System.exit(1);
+        }
+        List<Game> played;
+        long start = System.nanoTime();
+        System.out.println(CSV_HEADER);
+        try (Output output = new Output(csvFile, gamesFile)) {
+            played = new Tournament(size, millis, maxPlies, parallel)
+                    .run(games, engines[0], engines[1], output);
+        }
+        long nanos = System.nanoTime() - start;
+
+        List<Integer> wins = new ArrayList<>(Arrays.asList(0, 0));
+        long plies = 0;
+        for (Game game : played) {
+            int winner = winner(game);
+            if (winner >= 0) {
+                wins.set(winner, wins.get(winner) + 1);
+            }
+            plies += game.getPlies();
+        }
+        System.out.printf(Locale.ROOT, "%s %d, %s %d, draws %d; %.1f plies per game, "
+                        + "%.1f moves/s over %d games in %d s%n",
+                engines[0], wins.get(0), engines[1], wins.get(1),
+                games - wins.get(0) - wins.get(1), games == 0 ? 0.0 : (double) plies / games,
+                plies * 1e9 / nanos, games, nanos / 1_000_000_000);
+    }
+}
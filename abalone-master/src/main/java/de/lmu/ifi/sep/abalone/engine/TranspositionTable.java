@@ -0,0 +1,202 @@
+package de.lmu.ifi.sep.abalone.engine;
+
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results, keyed by the Zobrist hash of a
+ * position and shared by all search threads without locks.
+ * <p>
+ * Every slot is two {@code long}s: the entry itself and the hash XOR the
+ * entry. Threads read and write both words without synchronization. A reader
+ * only accepts an entry if XOR-ing both words gives back the hash it looks
+ * for, so an entry torn by a concurrent write, or one of another position
+ * sharing the slot, is seen as a miss instead of a wrong result.
+ * <pre>
+ * bits  0-19  packed move + 1, 0 if there is none
+ * bits 20-41  score, signed
+ * bits 42-48  depth the score was searched to
+ * bits 49-50  bound type of the score
+ * bits 51-58  search generation the entry was written in
+ * bit  62     always set, tells entries from empty slots
+ * </pre>
+ * The table is allocated once, its size in megabytes comes from the system
+ * property {@value #SIZE_PROPERTY} unless given explicitly.
+ */
+public final class TranspositionTable {
+
+    /**
+     * System property holding the size of the table in megabytes.
+     */
+    public static final String SIZE_PROPERTY = "abalone.hash";
+
+    /**
+     * Size of the table in megabytes if the system property is not set.
+     */
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    /**
+     * The score is the exact value of the position.
+     */
+    public static final int EXACT = 0;
+
+    /**
+     * The score is a lower bound, the search failed high.
+     */
+    public static final int LOWER = 1;
+
+    /**
+     * The score is an upper bound, the search failed low.
+     */
+    public static final int UPPER = 2;
+
+    private static final int SCORE_SHIFT = 20;
+    private static final int DEPTH_SHIFT = 42;
+    private static final int BOUND_SHIFT = 49;
+    private static final int AGE_SHIFT = 51;
+    private static final long MOVE_MASK = (1L << SCORE_SHIFT) - 1;
+    private static final long PRESENT = 1L << 62;
+
+    /**
+     * Bytes of one slot.
+     */
+    private static final int SLOT_BYTES = 2 * Long.BYTES;
+
+    /**
+     * Pairs of hash XOR entry and entry, by slot.
+     */
+    private final long[] SLOTS;
+
+    /**
+     * Slot index of a hash, as mask of its low bits.
+     */
+    private final int MASK;
+
+    /**
+     * Generation of the current search, replaces entries of older ones first.
+     */
+    private volatile int age;
+
+    /**
+     * Allocates a table of the configured size.
+     */
+    public TranspositionTable() {
+        this(Integer.getInteger(SIZE_PROPERTY, DEFAULT_MEGABYTES));
+    }
+
+    /**
+     * Allocates a table with the largest power of two of slots that fits in
+     * the given size, at least one.
+     *
+     * @param megabytes Size of the table in megabytes.
+     */
+    public TranspositionTable(final int megabytes) {
+        long slots = Math.max(1, (long) megabytes * 1024 * 1024 / SLOT_BYTES);
+        int count = Integer.highestOneBit((int) Math.min(slots, 1 << 30));
+        SLOTS = new long[2 * count];
+        MASK = count - 1;
+    }
+
+    /**
+     * @return Number of slots of the table.
+     */
+    public int getSlotCount() {
+        return MASK + 1;
+    }
+
+    /**
+     * Starts a new search generation, entries of older searches are
+     * replaced first from now on.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        Arrays.fill(SLOTS, 0L);
+    }
+
+    /**
+     * Looks up the entry of a position.
+     *
+     * @param hash Zobrist hash of the position.
+     * @return The entry, to be read with the static getters, or {@code 0}
+     * if the table holds none for the position.
+     */
+    public long probe(final long hash) {
+        int slot = ((int) hash & MASK) << 1;
+        long check = SLOTS[slot];
+        long entry = SLOTS[slot + 1];
+        return (check ^ entry) == hash && entry != 0 ? entry : 0;
+    }
+
+    /**
+     * Stores the result of a search. An entry of another position is only
+     * replaced if it is from an older search or not searched deeper. A
+     * result without best move keeps the one already stored for the position.
+     *
+     * @param hash  Zobrist hash of the position.
+     * @param move  Best packed move, {@link PackedMove#NONE} if unknown.
+     * @param score Score of the position.
+     * @param depth Depth the score was searched to.
+     * @param bound {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     */
+    public void store(final long hash, final int move, final int score,
+                      final int depth, final int bound) {
+        int slot = ((int) hash & MASK) << 1;
+        long old = SLOTS[slot + 1];
+        boolean same = (SLOTS[slot] ^ old) == hash;
+        if (old != 0 && !same && getAge(old) == age && getDepth(old) > depth) {
+            return;
+        }
+        int best = same && move == PackedMove.NONE ? getMove(old) : move;
+        long entry = PRESENT
+                | (best + 1L) & MOVE_MASK
+                | ((long) score & 0x3FFFFFL) << SCORE_SHIFT
+                | (long) (depth & 0x7F) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) age << AGE_SHIFT;
+        SLOTS[slot] = hash ^ entry;
+        SLOTS[slot + 1] = entry;
+    }
+
+    /**
+     * @param entry Entry returned by {@link #probe(long)}.
+     * @return Best packed move, {@link PackedMove#NONE} if unknown.
+     */
+    public static int getMove(final long entry) {
+        return (int) (entry & MOVE_MASK) - 1;
+    }
+
+    /**
+     * @param entry Entry returned by {@link #probe(long)}.
+     * @return Score of the position.
+     */
+    public static int getScore(final long entry) {
+        return (int) (entry << (64 - DEPTH_SHIFT) >> (64 - DEPTH_SHIFT + SCORE_SHIFT));
+    }
+
+    /**
+     * @param entry Entry returned by {@link #probe(long)}.
+     * @return Depth the score was searched to.
+     */
+    public static int getDepth(final long entry) {
+        return (int) (entry >>> DEPTH_SHIFT & 0x7F);
+    }
+
+    /**
+     * @param entry Entry returned by {@link #probe(long)}.
+     * @return {@link #EXACT}, {@link #LOWER} or {@link #UPPER}.
+     */
+    public static int getBound(final long entry) {
+        return (int) (entry >>> BOUND_SHIFT & 0x3);
+    }
+
+    private static int getAge(final long entry) {
+        return (int) (entry >>> AGE_SHIFT & 0xFF);
+    }
+}
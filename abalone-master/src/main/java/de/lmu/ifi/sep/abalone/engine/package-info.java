@@ -0,0 +1,16 @@
+/**
+ * Computer side of the game: tools and players that work on packed moves
+ * made and unmade in place instead of the {@code Move} data class.
+ * <p>
+ * <p> {@code Perft} counts the leaves of the legal-move tree, as benchmark
+ * of the move generation and as oracle between the rules of {@code Context}
+ * and the packed move generator.
+ * <p>
+ * <p> {@code AlphaBetaSearch} finds the move of the computer player, which
+ * {@code ComputerOpponent} plays in place of the remote peer.
+ * {@code MonteCarloSearch} is an alternative {@code Engine} for the same
+ * job.
+ *
+ * @since 1.0
+ */
+package de.lmu.ifi.sep.abalone.engine;
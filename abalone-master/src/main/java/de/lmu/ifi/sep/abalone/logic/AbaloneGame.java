@@ -2,7 +2,6 @@ package de.lmu.ifi.sep.abalone.logic;
 
 import de.lmu.ifi.sep.abalone.components.GameObservable;
 import de.lmu.ifi.sep.abalone.components.GameObserver;
-import de.lmu.ifi.sep.abalone.components.ObservableMap;
 import de.lmu.ifi.sep.abalone.components.Vector;
 import de.lmu.ifi.sep.abalone.logic.communication.InitPackage;
 import de.lmu.ifi.sep.abalone.logic.communication.Move;
@@ -42,6 +41,10 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
      * instance of the AbaloneBoard model for setting positions
      */
     private AbaloneBoard board;
+    /**
+     * Versions of the board, to synchronize it by the changed cells.
+     */
+    private BoardVersions versions;
     /**
      * host player information
      */
@@ -87,11 +90,12 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
         size = s;
         if (s != 0) {
             board = new AbaloneBoard(s);
+            versions = new BoardVersions(board.getGeometry().getCellCount());
         }
 
         colorToSend = getOtherColor(myColor);
         initPlayer(myColor, piecesToWin);
-        active = host;
+        setActive(host);
         if (network.getClientType() == Network.ClientType.GUEST) {
             TimerTask task = new TimerTask() {
                 @Override
@@ -116,6 +120,7 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
         if (network.getClientType() == Network.ClientType.HOST) {
             size = s;
             board = new AbaloneBoard(s);
+            versions = new BoardVersions(board.getGeometry().getCellCount());
             colorToSend = null;
 /*            InitPackage initPackage = new InitPackage(s, null);
             sendNetworkMessage(Message.MessageType.INIT, initPackage);*/
@@ -125,7 +130,7 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
                             AbaloneBoard.Owner.PLAYER_WHITE;
             initPlayer(myColor, piecesToWin);
 
-            active = host;
+            setActive(host);
         } else {
             sendNetworkMessage(Message.MessageType.RDY, null);
         }
@@ -138,13 +143,17 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
      * <p>
      * {@code MOVE}:        The move of the opposing player is received.
      * Move gets validated and replayed on our board.
-     * If the validation of the move fails, a sync will be performed
+     * If the validation of the move fails, the changes since our version
+     * of the board are requested
      * {@code SYNC}:        A SYNC order by the host of the game is received.
-     * The local board layout will be replaced with the one transmitted
-     * in the payload
+     * The cells transmitted in the payload, all of them or those changed
+     * since our version, replace the ones of the local board, and the turn
+     * goes to the player it names. A SYNC without package, which stands for
+     * a message that could not be read, requests them
      * {@code SYNC_REQUEST}:A SYNC_REQUEST get's received if a peer players
      * validation of a received move failed and a sync
-     * is necessary
+     * is necessary. It is answered with the cells changed since the version
+     * in the payload, or the whole board, see {@link BoardVersions}
      * {@code WIN}:         A WIN message is received if the peer players last executed move
      * resulted in a win situation. If a win situation occurred as well
      * on the last received MOVE locally, it is confirmed by a CONFIRM_WIN
@@ -154,7 +163,8 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
      * win flag is set the game will be deemed won.
      * {@code INIT}:        A INIT message gets received by the peer player when
      * the connection has been established. The Message contains a {@link InitPackage}
-     * containing the board size.
+     * containing the board size, and whether the peer player moves first,
+     * which only a game server asks for.
      *
      * @param message received message
      */
@@ -172,34 +182,48 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
                 }
                 Move move = (Move) message.getPayload();
                 logger.info("Move received: " + move.toString());
-                this.isValidMove(move);
+                if (!this.playMove(move)) {
+                    logger.info("move invalid here, requesting the changes since our version");
+                    requestSync();
+                }
                 break;
             case SYNC:
                 logger.info("sync order received");
                 if (!(message.getPayload() instanceof SyncPackage)) {
-                    //handle error
+                    // unreadable, see Client#run()
+                    requestSync();
                     return;
                 }
                 SyncPackage syncPackage = (SyncPackage) message.getPayload();
                 Map<Vector, AbaloneBoard.Owner> map = syncPackage.getBoard();
                 Vector middle = new Vector(0, 0);
                 //checking if contained map has right types
-                if (map.containsKey(middle) &&
-                        (map.get(middle) != null)) {
-                    ObservableMap<Vector, AbaloneBoard.Owner> received = new ObservableMap<>(map);
+                if (map != null && (syncPackage.isDelta() || map.containsKey(middle) &&
+                        (map.get(middle) != null))) {
+                    if (!versions.apply(board, syncPackage)) {
+                        logger.info("changes since another version, requesting the whole board");
+                        sendNetworkMessage(Message.MessageType.SYNC_REQUEST, BoardVersions.UNKNOWN);
+                        break;
+                    }
                     logger.info("synchronization complete");
                     replacePlayer(syncPackage.getPlayerOne());
                     replacePlayer(syncPackage.getPlayerTwo());
-                    this.board.setBoard(received);
+                    AbaloneBoard.Owner turn = syncPackage.getTurn();
+                    if (turn == host.getOwner() || turn == peer.getOwner()) {
+                        // a refused move of ours handed the turn on already
+                        setActive(playerOf(turn));
+                        if (active.isLocalPlayer()) {
+                            start();
+                        }
+                    }
                 }
                 break;
 
             case SYNC_REQUEST:
                 logger.info("replying to sync request");
-                SyncPackage syncPackageToSend = new SyncPackage(
-                        new LinkedHashMap<>(this.board.getBoard()),
-                        this.host, this.peer
-                );
+                int acked = message.getPayload() instanceof Integer
+                        ? (Integer) message.getPayload() : BoardVersions.UNKNOWN;
+                SyncPackage syncPackageToSend = versions.createSync(board, acked, this.host, this.peer);
                 sendNetworkMessage(Message.MessageType.SYNC, syncPackageToSend);
                 break;
 
@@ -233,16 +257,18 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
                 if (this.board == null) {
                     if (!(message.getPayload() instanceof InitPackage)) {
                         errorPublisher.sendMessage(ErrorEvent.syncError());
-                        sendNetworkMessage(Message.MessageType.SYNC_REQUEST, null);
+                        requestSync();
+                        return;
                     }
                     InitPackage initPackage = (InitPackage) message.getPayload();
                     this.size = initPackage.getGameSize();
                     this.board = new AbaloneBoard(size);
+                    this.versions = new BoardVersions(board.getGeometry().getCellCount());
                     logger.info("AbaloneBoard set up");
                     if (initPackage.getYourColor() != null) {
                         logger.info("non-standard color received. Setting up....");
                         initPlayer(initPackage.getYourColor(), 2 * size / 3);
-                        active = host;
+                        setActive(host);
 
                     } else {
                         AbaloneBoard.Owner myColor =
@@ -250,7 +276,10 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
                                         AbaloneBoard.Owner.PLAYER_BLACK :
                                         AbaloneBoard.Owner.PLAYER_WHITE;
                         initPlayer(myColor, 2 * size / 3);
-                        active = host;
+                        setActive(host);
+                    }
+                    if (initPackage.isYourTurn()) {
+                        setActive(localPlayer);
                     }
                     logger.info("sending BOARD_READY event");
                     boardPublisher.sendMessage(BoardEvent.boardReady());
@@ -272,7 +301,7 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
         if (this.gameObservers.size() > 1) {
             return;
         }
-        if (this.localPlayer == host) {
+        if (this.localPlayer == active) {
             start();
         } else {
             this.notifyValidClicks(new LinkedList<>());
@@ -338,17 +367,25 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
             isLocalPlayer = true;
         }
         if (newPlayer.getOwner().equals(host.getOwner())) {
+            boolean isActive = active == host;
             host = new Player(newPlayer.getOwner(),
                     true, newPlayer.getPiecesToWin(), isLocalPlayer);
             if (isLocalPlayer) {
                 localPlayer = host;
             }
+            if (isActive) {
+                active = host;
+            }
         } else {
+            boolean isActive = active == peer;
             peer = new Player(newPlayer.getOwner(),
                     false, newPlayer.getPiecesToWin(), isLocalPlayer);
             if (isLocalPlayer) {
                 localPlayer = peer;
             }
+            if (isActive) {
+                active = peer;
+            }
         }
     }
 
@@ -360,29 +397,51 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
      *             Contains selected pebbles and optionally the target area of a move
      */
     public synchronized void isValidMove(Move move) {
+        playMove(move);
+    }
+
+    /**
+     * Body of {@link #isValidMove(Move)}, telling received moves the board
+     * cannot follow apart.
+     *
+     * @param move Selected pebbles and optionally the target area of a move
+     * @return {@code false} if the move has a target but is invalid
+     */
+    private synchronized boolean playMove(Move move) {
 
         this.notifyValidClicks(
-                Context.getValidClicks(board.getBoard(), move.getSelected(),
+                Context.getValidClicks(board, move.getSelected(),
                         active.getOwner()));
         this.notifyValidMoves(translateDirectionsToVectors(
-                Context.getValidMoves(board.getBoard(),
+                Context.getValidMoves(board,
                         move.getSelected(), active.getOwner()),
                 move.getSelected()));
 
         if (move.getSelected() == null) {
-            return;
+            return true;
         }
         if (move.getTarget() != null) {
-            Vector.Direction moveDirection = getDirectionOfMove(
+            Vector.Direction moveDirection = Context.getDirectionOfMove(
                     move.getSelected(), move.getTarget());
-            if ((Context.isValidMove(board.getBoard(), move.getSelected(),
+            if ((Context.isValidMove(board, move.getSelected(),
                     moveDirection, active.getOwner()))) {
                 endTurn(move);
             } else {
                 errorPublisher.sendMessage(ErrorEvent.syncError());
+                return false;
             }
 
         }
+        return true;
+    }
+
+    /**
+     * Asks the peer for the cells changed since the version of our board, or
+     * for the whole board if there is none yet.
+     */
+    private void requestSync() {
+        sendNetworkMessage(Message.MessageType.SYNC_REQUEST,
+                versions == null ? BoardVersions.UNKNOWN : versions.getVersion());
     }
 
     /**
@@ -413,83 +472,11 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
      * has started.
      */
     private void start() {
-        this.notifyValidClicks(Context.getValidClicks(board.getBoard(),
+        this.notifyValidClicks(Context.getValidClicks(board,
                 new LinkedList<>(), active.getOwner()));
     }
 
 
-    /**
-     * Translates a clicked target into a direction relative to the
-     * starting pebble of the selected pebbles.
-     *
-     * @param selected the selected pebbles of this move
-     * @param target   the target to move to
-     * @return The direction of the move
-     * @see AbaloneGame#getStartingPebble(List, Vector)
-     */
-    private Vector.Direction getDirectionOfMove(List<Vector> selected,
-                                                Vector target) {
-        Vector leading = getStartingPebble(selected, target);
-
-
-        return Vector.getDirectionOfMove(leading, target);
-    }
-
-    /**
-     * The starting pebble (basically the "leading" or "most important" pebble)
-     * of the move is always the most north-western pebble of the selection.
-     * It will be used as the root of a move.
-     *
-     * @param selected the selected pebbles
-     * @return the starting pebble
-     */
-    private Vector getStartingPebble(List<Vector> selected, Vector target) {
-        Vector leading = null;
-        boolean downMove = isDownMove(selected, target);
-        boolean rightMove = isRightMove(selected, target);
-
-        for (Vector selection : selected) {
-            if (leading == null) {
-                leading = selection;
-                continue;
-            }
-            if (!downMove && (leading.getY() > selection.getY())) {
-                leading = selection;
-            } else if (downMove && (leading.getY() < selection.getY())) {
-                leading = selection;
-            } else {
-                if (!rightMove && (leading.getX() > selection.getX())) {
-                    leading = selection;
-                } else if (rightMove && (leading.getX() < selection.getX())) {
-                    leading = selection;
-                }
-            }
-        }
-        logger.info("Starting pebble " + leading + " selected;");
-        return leading;
-    }
-
-    private boolean isDownMove(List<Vector> selected, Vector target) {
-        Vector mostSouthern = selected.get(0);
-
-        for (Vector current : selected) {
-            if (current.getY() > mostSouthern.getY()) {
-                mostSouthern = current;
-            }
-        }
-        return mostSouthern.getY() < target.getY();
-    }
-
-    private boolean isRightMove(List<Vector> selected, Vector target) {
-        Vector mostRight = selected.get(0);
-        for (Vector current : selected) {
-            if (current.getX() > mostRight.getX()) {
-                mostRight = current;
-            }
-        }
-        return mostRight.getX() < target.getX();
-    }
-
     /**
      * Method to perform post-validation actions of the turn.
      * These include:
@@ -501,17 +488,19 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
      * @param move the player-chosen validated move
      */
     private void endTurn(Move move) {
-        Map<Vector, AbaloneBoard.Owner> updated = calculateNewPositions(move);
-        for (Map.Entry<Vector, AbaloneBoard.Owner> update : updated.entrySet()) {
-            if (board.getOwner(update.getKey()) != update.getValue()) {
-                board.setOwner(update.getKey(), update.getValue());
-            }
-        }
+        int packed = Context.toPackedMove(board, move.getSelected(),
+                Context.getDirectionOfMove(move.getSelected(), move.getTarget()),
+                active.getOwner());
+        logger.info("Performing " + PackedMove.toString(packed, board.getGeometry()));
+        UndoRecord undo = makeMove(packed);
         if (this.active == localPlayer) {
             sendNetworkMessage(Message.MessageType.MOVE, move);
         }
 
         if (winFlag) {
+            if (!undo.winFlag) {
+                sendNetworkMessage(Message.MessageType.WIN, null);
+            }
             return;
         }
         this.notifyEndTurn(getInactive().getOwner());
@@ -525,9 +514,9 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
         //active is a pointer to either host or peer
         //that's why == is used
         if (active == host) {
-            active = peer;
+            setActive(peer);
         } else {
-            active = host;
+            setActive(host);
         }
         if (active.isLocalPlayer()) {
             start();
@@ -535,109 +524,59 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
     }
 
     /**
-     * Method to calculate the new Positions of moved pebbles based of a sent Move.
+     * Makes a player the active one and keeps the side to move of the board,
+     * which is part of its hash, in line.
      *
-     * @param move The Move to perform
-     * @return A Map containing the changed board layout
+     * @param player host or peer
      */
-    private Map<Vector, AbaloneBoard.Owner> calculateNewPositions(Move move) {
-        Map<Vector, AbaloneBoard.Owner> board
-                = new LinkedHashMap<>(this.board.getBoard());
-        Vector startingPoint = getStartingPebble(move.getSelected(),
-                move.getTarget());
-        Vector.Direction direction = Vector.getDirectionOfMove(startingPoint,
-                move.getTarget());
-        logger.info("Direction of move selected as " + direction);
-        Vector firstInLine = null;
-        for (Vector pebble : move.getSelected()) {
-            if (!move.getSelected().contains(pebble.go(direction))) {
-                firstInLine = pebble;
-            }
+    private void setActive(Player player) {
+        active = player;
+        if (board != null) {
+            board.setSideToMove(player.getOwner());
         }
-
-        assert firstInLine != null;
-        Vector next = firstInLine.invertGo(direction);
-
-        if (isInline(move.getSelected(), direction)) {
-            while (move.getSelected().contains(firstInLine)) {
-                logger.info("Moving " + firstInLine + " " + direction);
-                performMove(board, firstInLine, direction);
-                firstInLine = next;
-                next = firstInLine.invertGo(direction);
-            }
-        } else {
-            for (Vector pebble : move.getSelected()) {
-                logger.info("Moving " + firstInLine + " " + direction);
-                performMove(board, pebble, direction);
-            }
-        }
-
-        return board;
     }
 
     /**
-     * Checks if move is a inline Move.
-     * This check is required by {@link AbaloneGame#performMove(Map, Vector,
-     * Vector.Direction)}
-     * to select the movement order of the pebbles.
+     * Makes a move of the active player in place on the board, changing only
+     * the cells the move touches. Pushing a pebble off the board scores for
+     * the active player. The active player is not changed and nothing is
+     * sent to the peer, so the move can be taken back without a trace.
      *
-     * @param selected  The selected pebbles
-     * @param direction The direction to move into
-     * @return {@code true} if move is inline
+     * @param move Packed move legal for the active player
+     * @return Record to take the move back with {@link #unmakeMove(UndoRecord)}
      */
-    private boolean isInline(List<Vector> selected, Vector.Direction direction) {
-        return (selected.contains(selected.get(0).go(direction))
-                || selected.contains(selected.get(0).invertGo(direction)));
+    public synchronized UndoRecord makeMove(int move) {
+        UndoRecord undo = new UndoRecord();
+        undo.winFlag = winFlag;
+        Context.makeMove(board, move, undo);
+        versions.record(undo);
+        if (PackedMove.isEjecting(move)) {
+            undo.scorer = active.getOwner();
+            handleRemovedPebble();
+        }
+        return undo;
     }
 
     /**
-     * Method used to move one pebble in a chosen direction and updating the board.
-     * This method also handles the pushing of enemy pebbles as well as removed
-     * pebbles.
+     * Takes back a move made with {@link #makeMove(int)}, including the score
+     * it earned. The board gets a new version, see
+     * {@link BoardVersions#record(UndoRecord)}.
      *
-     * @param board     the current board
-     * @param pebble    the pebble to move
-     * @param direction the direction to move in
+     * @param undo Record returned by {@link #makeMove(int)}
      */
-    private void performMove(Map<Vector, AbaloneBoard.Owner> board, Vector pebble,
-                             Vector.Direction direction) {
-        Vector moveTo = pebble.go(direction);
-        if (!board.get(moveTo).equals(AbaloneBoard.Owner.EMPTY)) {
-            pushEnemyLine(board, pebble, direction);
-        }
-        board.put(moveTo, active.getOwner());
-        board.put(pebble, AbaloneBoard.Owner.EMPTY);
-    }
-
-    private void pushEnemyLine(Map<Vector, AbaloneBoard.Owner> board, Vector pebble,
-                               Vector.Direction direction) {
-        int i = 0;
-        Vector[] toMove = new Vector[2];
-        Vector curr = pebble.go(direction);
-        while (board.get(curr).equals(getInactive().getOwner()) && i < 2) {
-            toMove[i] = curr;
-            i++;
-            curr = curr.go(direction);
-            if (!board.containsKey(curr)) {
-                break;
-            }
-        }
-        for (i = i - 1; i >= 0; i--) {
-            curr = toMove[i];
-            Vector newPosition = curr.go(direction);
-            board.replace(curr, AbaloneBoard.Owner.EMPTY);
-            if (!board.containsKey(newPosition)) {
-                handleRemovedPebble();
-                continue;
-            }
-            board.replace(newPosition, getInactive().getOwner());
+    public synchronized void unmakeMove(UndoRecord undo) {
+        Context.unmakeMove(board, undo);
+        versions.record(undo);
+        if (undo.scorer != null) {
+            playerOf(undo.scorer).undoScore();
         }
+        winFlag = undo.winFlag;
     }
 
     /**
      * Handles the removal of a pebble.
-     * Causes the players score to rise and triggers the win flow
-     * if conditions are met
+     * Causes the players score to rise and sets the win flag
+     * if conditions are met, the turn sends the WIN message
      */
     private void handleRemovedPebble() {
         active.didScore();
@@ -645,10 +584,18 @@ public class AbaloneGame extends GameObservable implements NetworkObserver {
             winFlag = true;
             logger.info("GAME WON");
             logger.info(this.board.getBoard().toString());
-            sendNetworkMessage(Message.MessageType.WIN, null);
         }
     }
 
+    /**
+     * @param owner Color of host or peer.
+     * @return The player of the color, which SYNC may have replaced since
+     * the color was stored.
+     */
+    private Player playerOf(AbaloneBoard.Owner owner) {
+        return host.getOwner() == owner ? host : peer;
+    }
+
     public AbaloneBoard getBoard() {
         return board;
     }
@@ -0,0 +1,185 @@
+package de.lmu.ifi.sep.abalone.logic;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.logic.communication.SyncPackage;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Numbers the states of a game board, so peers can synchronize by the cells
+ * that changed instead of the whole board.
+ * <p>
+ * Every move made on the board, and every move taken back, is a new
+ * version. Both peers make the same moves in the same order, so equal
+ * versions should stand for equal boards; boards that went astray at the
+ * same version are caught by the hash of the cells sent with every delta.
+ * For every cell the version of its last
+ * change is kept: the cells changed since a version the peer acknowledged
+ * are those with a later one. Versions before the board was last replaced
+ * by a full synchronization are unknown, their changes were not kept.
+ */
+public final class BoardVersions {
+
+    /**
+     * Version of a board nobody moved on yet.
+     */
+    public static final int INITIAL = 0;
+
+    /**
+     * Version of a peer that does not know its version, it gets the whole
+     * board.
+     */
+    public static final int UNKNOWN = -1;
+
+    /**
+     * Share of the cells up to which changes are sent instead of the whole
+     * board, one in {@value}: a changed cell packs into about five times
+     * the bits of a cell of the whole board.
+     */
+    static final int DELTA_SHARE = 5;
+
+    /**
+     * Version of the last change of every cell.
+     */
+    private final int[] changed;
+
+    private int version = INITIAL;
+
+    /**
+     * Oldest version whose changes are all kept.
+     */
+    private int oldest = INITIAL;
+
+    /**
+     * @param cells Number of cells of the board.
+     */
+    public BoardVersions(final int cells) {
+        this.changed = new int[cells];
+    }
+
+    /**
+     * @return Version of the board.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Counts a move made or taken back as a new version. Taking a move back
+     * does not return to the version before it: a peer that acknowledged the
+     * move gets the cells it changed back, and the next move made gets a
+     * version no peer has seen with another board.
+     *
+     * @param undo Record of the move, holding the cells it changed.
+     */
+    public void record(final UndoRecord undo) {
+        version++;
+        for (int i = 0; i < undo.count; i++) {
+            changed[undo.cells[i]] = version;
+        }
+    }
+
+    /**
+     * Takes over the version of a board received as a whole. Changes before
+     * it are unknown from now on.
+     *
+     * @param version Version of the received board.
+     */
+    public void reset(final int version) {
+        this.version = version;
+        this.oldest = version;
+        Arrays.fill(changed, version);
+    }
+
+    /**
+     * Takes over the version of a board received as changes.
+     *
+     * @param version Version after the changes.
+     * @param cells   Indices of the changed cells.
+     */
+    public void update(final int version, final int[] cells) {
+        this.version = version;
+        for (int cell : cells) {
+            changed[cell] = version;
+        }
+    }
+
+    /**
+     * Creates the synchronization for a peer: the cells changed since its
+     * version, or the whole board if that version is unknown or too many
+     * cells changed. The side to move of the board is sent as the turn.
+     *
+     * @param board     Board of these versions.
+     * @param acked     Version of the peer, {@link #UNKNOWN} if it has none.
+     * @param playerOne First player to send along.
+     * @param playerTwo Second player to send along.
+     * @return Synchronization to send.
+     */
+    public SyncPackage createSync(final AbaloneBoard board, final int acked,
+                                  final Player playerOne, final Player playerTwo) {
+        Owner turn = board.getSideToMove() == Owner.EMPTY ? null : board.getSideToMove();
+        if (acked >= oldest && acked <= version) {
+            BoardGeometry geometry = board.getGeometry();
+            LinkedHashMap<Vector, Owner> cells = new LinkedHashMap<>();
+            for (int cell = 0; cell < changed.length && cells.size() <= changed.length / DELTA_SHARE; cell++) {
+                if (changed[cell] > acked) {
+                    cells.put(geometry.getPosition(cell), board.getOwner(cell));
+                }
+            }
+            if (cells.size() <= changed.length / DELTA_SHARE) {
+                return new SyncPackage(cells, playerOne, playerTwo, version, acked, board.getCellHash(),
+                        turn);
+            }
+        }
+        return new SyncPackage(new LinkedHashMap<>(board.getBoard()), playerOne, playerTwo, version,
+                SyncPackage.FULL, board.getCellHash(), turn);
+    }
+
+    /**
+     * Applies a synchronization to a board if it fits the version of the
+     * board, and takes over its version.
+     *
+     * @param board Board of these versions.
+     * @param sync  Received synchronization.
+     * @return {@code false} if it holds changes since another version than
+     * the one of the board, or the board differs from the one of the sender
+     * afterwards, which then needs a full synchronization.
+     */
+    public boolean apply(final AbaloneBoard board, final SyncPackage sync) {
+        if (!sync.isDelta()) {
+            for (Map.Entry<Vector, Owner> cell : sync.getBoard().entrySet()) {
+                board.setOwner(cell.getKey(), cell.getValue());
+            }
+            // a board without version is taken as the current one
+            reset(sync.getVersion() == UNKNOWN ? version : sync.getVersion());
+            return true;
+        }
+        if (sync.getSince() != version) {
+            return false;
+        }
+        BoardGeometry geometry = board.getGeometry();
+        int[] cells = new int[sync.getBoard().size()];
+        int i = 0;
+        for (Map.Entry<Vector, Owner> cell : sync.getBoard().entrySet()) {
+            cells[i] = geometry.getCellIndex(cell.getKey());
+            if (cells[i] < 0) {
+                return false;
+            }
+            i++;
+        }
+        i = 0;
+        for (Owner owner : sync.getBoard().values()) {
+            board.setOwner(cells[i++], owner);
+        }
+        if (sync.getHash() != SyncPackage.NO_HASH && sync.getHash() != board.getCellHash()) {
+            return false;
+        }
+        update(sync.getVersion(), cells);
+        return true;
+    }
+}
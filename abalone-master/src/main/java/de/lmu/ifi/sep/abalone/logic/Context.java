@@ -1,151 +1,220 @@
 package de.lmu.ifi.sep.abalone.logic;
 
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
 import de.lmu.ifi.sep.abalone.components.Vector;
 import de.lmu.ifi.sep.abalone.components.Vector.Direction;
+import de.lmu.ifi.sep.abalone.logic.communication.Move;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
 import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.ReadableBoard;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 public class Context {
 
     /**
-     * Checks if a selection of pebbles is movable in any direction.
+     * Calculates the directions in that the selected pebbles are movable.
+     * The map is read as a board, see
+     * {@link #getValidMoves(ReadableBoard, List, Owner)}.
      *
-     * @param currentSelected List of currently selected pebbles
-     * @param board           Reference to current game board as {@code map}
-     * @param activePlayer    Currently active player selecting pebbles
-     * @return {@code true} if movable, otherwise {@code false}
+     * @param board           The board, cells missing from it are off the board
+     * @param currentSelected The selected pebbles
+     * @param activePlayer    The active player
+     * @return The Directions in that the selection is movable
      */
-    private static boolean checkPotentiallyMovable(final Map<Vector, Owner> board,
-                                                   final List<Vector> currentSelected,
-                                                   final Owner activePlayer) {
+    public static List<Direction> getValidMoves(final Map<Vector, Owner> board,
+                                                final List<Vector> currentSelected,
+                                                final Owner activePlayer) {
+        return getValidMoves(new MapCells(board), currentSelected, activePlayer);
+    }
 
-        for (Direction d : Direction.values()) {
-            if (isValidMove(board, currentSelected, d, activePlayer)) {
-                return true;
-            }
+    /**
+     * Calculates the pebbles that are potentially movable in addition to the ones
+     * already selected. The map is read as a board, see
+     * {@link #getValidClicks(ReadableBoard, List, Owner)}.
+     *
+     * @param currentSelected The pebbles that are already selected.
+     * @param board           The board, cells missing from it are off the board
+     * @param activePlayer    The active player
+     * @return Clickable pebbles
+     */
+    public static List<Vector> getValidClicks(final Map<Vector, Owner> board,
+                                              final List<Vector> currentSelected,
+                                              final Owner activePlayer) {
+        return getValidClicks(new MapCells(board), currentSelected, activePlayer);
+    }
+
+    /**
+     * Calculates opponents strength, from active player, in one direction.
+     * The map is read as a board, see
+     * {@link #nextSpaceStrength(ReadableBoard, int, int, Owner)}.
+     *
+     * @param board        The board.
+     * @param pebble       The Vector after which to check.
+     * @param direction    The DirectionHelper in which to check.
+     * @param activePlayer The Owner whose turn it is.
+     * @return strength as {@code int} if valid move, otherwise returns
+     * {@code INTEGER.MAX_VALUE}.
+     */
+    public static int nextSpaceStrength(final Map<Vector, Owner> board,
+                                        final Vector pebble,
+                                        final Direction direction,
+                                        final Owner activePlayer) {
+        ReadableBoard view = new MapCells(board);
+        int cell = view.getGeometry().getCellIndex(pebble);
+        return cell < 0 ? Integer.MAX_VALUE
+                : nextSpaceStrength(view, cell, direction.ordinal(), activePlayer);
+    }
+
+
+    /**
+     * Checks if a List<Vector> is connected in a straight line in a specific
+     * direction.
+     *
+     * @param toCheck   The list you want to check
+     * @param direction The direction you want to check
+     * @return True, if toCheck is connected in a straight line in given direction
+     */
+    public static boolean isInDirection(final List<Vector> toCheck,
+                                        final Direction direction) {
+        if (toCheck == null || direction == null) {
+            return false;
         }
-        if (currentSelected.size() == 0) {
-            for (Entry<Vector, Owner> pebble : board.entrySet()) {
-                List<Vector> toCheck = new ArrayList<>();
-                toCheck.add(pebble.getKey());
-                for (Direction direction : Vector.Direction.values()) {
-                    if (potentiallyMovableInDirection
-                            (board, toCheck, activePlayer, direction)) {
-                        return true;
-                    }
-                }
-            }
-        } else if (currentSelected.size() == 1) {
-            List<Vector> neighbors = currentSelected.get(0).getNeighbors();
-            for (Vector v : neighbors) {
-                List<Vector> toCheck = new ArrayList<>();
-                toCheck.add(currentSelected.get(0));
-                toCheck.add(v);
-                for (Direction direction : Direction.values()) {
-                    if (potentiallyMovableInDirection
-                            (board, toCheck, activePlayer, direction)) {
-                        return true;
-                    }
-                }
-            }
-        } else if (currentSelected.size() == 2) {
-            Direction one = currentSelected.get(0).getDirection(currentSelected.get(1));
-            Direction two = currentSelected.get(1).getDirection(currentSelected.get(0));
-            List<Vector> toCheck = new ArrayList<>(currentSelected);
-            toCheck.add(currentSelected.get(1).go(one));
-            for (Direction direction : Vector.Direction.values()) {
-                if (potentiallyMovableInDirection(board, toCheck, activePlayer, direction)) {
-                    return true;
-                }
-            }
-            toCheck.clear();
-            toCheck.addAll(currentSelected);
-            toCheck.add(currentSelected.get(0).go(two));
-            for (Direction direction : Vector.Direction.values()) {
-                if (potentiallyMovableInDirection(board, toCheck, activePlayer, direction)) {
-                    return true;
-                }
-            }
-        } else if (currentSelected.size() == 3) {
-            for (Direction direction : Vector.Direction.values()) {
-                if (potentiallyMovableInDirection
-                        (board, currentSelected, activePlayer, direction)) {
-                    return true;
-                }
+        if (toCheck.size() == 0) {
+            return true;
+        }
+        int maxOneNotInToCheck = 0;
+        for (Vector v : toCheck) {
+            if (!(toCheck.contains(v.go(direction)))) {
+                maxOneNotInToCheck++;
             }
         }
-        return false;
+        return maxOneNotInToCheck == 1;
     }
 
     /**
-     * Calculates possible player strength in one direction from currently selected
-     * pebbles and compares with next space strength
+     * Checks if a list of Vectors are connected in a straight line.
      *
-     * @param board           The board
-     * @param currentSelected The current selected pebbles
-     * @param activePlayer    The active player
-     * @param direction       The direction you want to check
-     * @return {@code true} if movable, otherwise {@code false}
+     * @param toCheck The list you want to check.
+     * @return If a List<Vector> is connected in a straight line.
      */
-    private static boolean
-    potentiallyMovableInDirection(final Map<Vector, Owner> board,
-                                  final List<Vector> currentSelected,
-                                  final Owner activePlayer,
-                                  final Direction direction) {
-        if (currentSelected == null) {
+    public static boolean isInLine(final List<Vector> toCheck) {
+        if (toCheck == null) {
             return false;
         }
-        if (currentSelected.isEmpty() || currentSelected.size() > 3
-                || !(isInLine(currentSelected))) {
-            return false;
+        if (toCheck.size() == 0 || toCheck.size() == 1) {
+            return true;
         }
-        if (isInDirection(currentSelected, direction)) {
-            int strength = currentSelected.size();
-            Vector leadingPebble = findLeadingPebbleFromList(currentSelected, direction);
-            assert leadingPebble != null;
-            Vector next = leadingPebble.go(direction);
-            while (strength <= 3) {
-                if (!board.containsKey(next)) {
-                    strength = 0;
-                    break;
-                } else if (board.get(next) == board.get(leadingPebble)) {
-                    strength++;
-                    next = next.go(direction);
-                } else {
-                    break;
-                }
+        Direction direction = null;
+        for (Direction d : Vector.Direction.values()) {
+            if (toCheck.contains(toCheck.get(0).go(d))) {
+                direction = d;
             }
-            return nextSpaceStrength(board, next.invertGo(direction), direction, activePlayer)
-                    < strength;
-        } else {
-            for (Vector v : currentSelected) {
-                if (!(board.get(v.go(direction)) == Owner.EMPTY)) {
-                    return false;
+        }
+        return direction != null && isInDirection(toCheck, direction);
+    }
+
+    /**
+     * Translates a clicked target into a direction relative to the
+     * starting pebble of the selected pebbles.
+     *
+     * @param selected the selected pebbles of this move
+     * @param target   the target to move to
+     * @return The direction of the move, {@code null} if the target is not a
+     * neighbor of the starting pebble
+     * @see Context#getStartingPebble(List, Vector)
+     */
+    public static Direction getDirectionOfMove(final List<Vector> selected,
+                                               final Vector target) {
+        Vector leading = getStartingPebble(selected, target);
+
+        return Vector.getDirectionOfMove(leading, target);
+    }
+
+    /**
+     * The starting pebble (basically the "leading" or "most important" pebble)
+     * of the move is always the most north-western pebble of the selection.
+     * It will be used as the root of a move.
+     *
+     * @param selected the selected pebbles
+     * @return the starting pebble
+     */
+    private static Vector getStartingPebble(final List<Vector> selected,
+                                            final Vector target) {
+        Vector leading = null;
+        boolean downMove = isDownMove(selected, target);
+        boolean rightMove = isRightMove(selected, target);
+
+        for (Vector selection : selected) {
+            if (leading == null) {
+                leading = selection;
+                continue;
+            }
+            if (!downMove && (leading.getY() > selection.getY())) {
+                leading = selection;
+            } else if (downMove && (leading.getY() < selection.getY())) {
+                leading = selection;
+            } else {
+                if (!rightMove && (leading.getX() > selection.getX())) {
+                    leading = selection;
+                } else if (rightMove && (leading.getX() < selection.getX())) {
+                    leading = selection;
                 }
             }
-            return true;
         }
+        return leading;
+    }
+
+    private static boolean isDownMove(final List<Vector> selected, final Vector target) {
+        Vector mostSouthern = selected.get(0);
+
+        for (Vector current : selected) {
+            if (current.getY() > mostSouthern.getY()) {
+                mostSouthern = current;
+            }
+        }
+        return mostSouthern.getY() < target.getY();
+    }
+
+    private static boolean isRightMove(final List<Vector> selected, final Vector target) {
+        Vector mostRight = selected.get(0);
+        for (Vector current : selected) {
+            if (current.getX() > mostRight.getX()) {
+                mostRight = current;
+            }
+        }
+        return mostRight.getX() < target.getX();
     }
 
+    /*
+     * The rules below run on a ReadableBoard, an AbaloneBoard or the cells of
+     * a Map the methods above read. Positions are translated once into cell
+     * indices of the board's BoardGeometry, after that every step is a lookup
+     * in the neighbor and ray tables and no Vector is involved. Selections
+     * reaching beyond the edge of the board, or onto cells the board does not
+     * have, are never movable.
+     */
+
     /**
-     * Calculates the directions in that the selected pebbles are movable
+     * Calculates the directions in that the selected pebbles are movable.
      *
      * @param board           The board
      * @param currentSelected The selected pebbles
      * @param activePlayer    The active player
      * @return The Directions in that the selection is movable
      */
-    public static List<Direction> getValidMoves(final Map<Vector, Owner> board,
+    public static List<Direction> getValidMoves(final ReadableBoard board,
                                                 final List<Vector> currentSelected,
                                                 final Owner activePlayer) {
         List<Direction> validMoves = new ArrayList<>();
+        int[] cells = toCells(board, currentSelected);
+        if (cells == null) {
+            return validMoves;
+        }
         for (Direction direction : Vector.Direction.values()) {
-            if (isValidMove(board, currentSelected, direction, activePlayer)
-                    && !validMoves.contains(direction)) {
+            if (isValidMove(board, cells, cells.length, direction.ordinal(), activePlayer)) {
                 validMoves.add(direction);
             }
         }
@@ -156,74 +225,68 @@ public class Context {
      * Calculates the pebbles that are potentially movable in addition to the ones
      * already selected.
      *
-     * @param currentSelected The pebbles that are already selected.
      * @param board           The board
+     * @param currentSelected The pebbles that are already selected.
      * @param activePlayer    The active player
      * @return Clickable pebbles
      */
-    public static List<Vector> getValidClicks(final Map<Vector, Owner> board,
+    public static List<Vector> getValidClicks(final ReadableBoard board,
                                               final List<Vector> currentSelected,
                                               final Owner activePlayer) {
+        BoardGeometry geometry = board.getGeometry();
         List<Vector> validClicks = new ArrayList<>();
-        if (currentSelected.size() == 0) {
-            for (Entry<Vector, Owner> pebble : board.entrySet()) {
-                if (pebble.getValue() == activePlayer) {
-                    List<Vector> toCheck = new ArrayList<>();
-                    toCheck.add(pebble.getKey());
-                    if (checkPotentiallyMovable(board, toCheck, activePlayer)
-                            && !validClicks.contains(pebble.getKey())) {
-                        validClicks.add(pebble.getKey());
+        int[] cells = toCells(board, currentSelected);
+        if (cells == null) {
+            return validClicks;
+        }
+        int[] toCheck = new int[3];
+        if (cells.length == 0) {
+            for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+                if (board.getOwner(cell) == activePlayer) {
+                    toCheck[0] = cell;
+                    if (checkPotentiallyMovable(board, toCheck, 1, activePlayer)) {
+                        validClicks.add(geometry.getPosition(cell));
                     }
                 }
             }
-        } else if (currentSelected.size() == 1) {
-            List<Vector> neighbors = currentSelected.get(0).getNeighbors();
-            for (Vector v : neighbors) {
-                if (board.containsKey(v)) {
-                    if (board.get(v) == board.get(currentSelected.get(0))) {
-                        List<Vector> toCheck = new ArrayList<>(currentSelected);
-                        toCheck.add(v);
-                        if (checkPotentiallyMovable(board, toCheck, activePlayer)
-                                && !validClicks.contains(v)) {
-                            validClicks.add(v);
-                        }
+        } else if (cells.length == 1) {
+            for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+                int v = geometry.getNeighbor(cells[0], d);
+                if (v >= 0 && board.getOwner(v) == board.getOwner(cells[0])) {
+                    toCheck[0] = cells[0];
+                    toCheck[1] = v;
+                    if (checkPotentiallyMovable(board, toCheck, 2, activePlayer)) {
+                        validClicks.add(geometry.getPosition(v));
                     }
                 }
             }
-        } else if (currentSelected.size() == 2) {
-            if (!isInLine(currentSelected)) {
-                for (Vector v : currentSelected.get(0).getNeighbors()) {
-                    for (Vector f : currentSelected.get(1).getNeighbors()) {
-                        if (v.equals(f) && !validClicks.contains(f)) {
-                            validClicks.add(f);
+        } else if (cells.length == 2) {
+            if (!isInLine(geometry, cells, 2)) {
+                for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+                    int v = geometry.getNeighbor(cells[0], d);
+                    for (int e = 0; onBoard(board, v) && e < BoardGeometry.DIRECTIONS; e++) {
+                        if (v == geometry.getNeighbor(cells[1], e)) {
+                            validClicks.add(geometry.getPosition(v));
                             return validClicks;
                         }
                     }
                 }
+                return validClicks;
             }
-            Direction direction1 =
-                    currentSelected.get(0).getDirection(currentSelected.get(1));
-            Direction direction2 =
-                    currentSelected.get(1).getDirection(currentSelected.get(0));
-            Vector one = currentSelected.get(1).go(direction1);
-            Vector two = currentSelected.get(0).go(direction2);
-            List<Vector> toCheck = new ArrayList<>(currentSelected);
-            toCheck.add(one);
-            if (board.containsKey(one)) {
-                for (Direction direction : Vector.Direction.values()) {
-                    if (isValidMove(board, toCheck, direction, activePlayer)
-                            && !validClicks.contains(one)) {
-                        validClicks.add(one);
-                    }
+            int direction = directionOf(geometry, cells[0], cells[1]);
+            toCheck[0] = cells[0];
+            toCheck[1] = cells[1];
+            int[] ends = {geometry.getNeighbor(cells[1], direction),
+                    geometry.getNeighbor(cells[0], BoardGeometry.opposite(direction))};
+            for (int end : ends) {
+                if (end < 0) {
+                    continue;
                 }
-            }
-            toCheck = new ArrayList<>(currentSelected);
-            toCheck.add(two);
-            if (board.containsKey(two)) {
-                for (Direction direction : Vector.Direction.values()) {
-                    if (isValidMove(board, toCheck, direction, activePlayer)
-                            && !validClicks.contains(two)) {
-                        validClicks.add(two);
+                toCheck[2] = end;
+                for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+                    if (isValidMove(board, toCheck, 3, d, activePlayer)) {
+                        validClicks.add(geometry.getPosition(end));
+                        break;
                     }
                 }
             }
@@ -234,38 +297,56 @@ public class Context {
     /**
      * Checks if a list of Vectors is movable in given direction.
      *
-     * @param currentSelected List of selected {@code Vectors} being checked.
      * @param board           The board.
+     * @param currentSelected List of selected {@code Vectors} being checked.
      * @param direction       The direction you wish to check.
      * @param activePlayer    The player whose turn it is.
      * @return True if movable; False if not movable.
      */
-    static boolean isValidMove(final Map<Vector, Owner> board,
+    static boolean isValidMove(final ReadableBoard board,
                                final List<Vector> currentSelected,
                                final Direction direction,
                                final Owner activePlayer) {
-        if (currentSelected.size() > 3) {
+        int[] cells = toCells(board, currentSelected);
+        return cells != null && direction != null
+                && isValidMove(board, cells, cells.length, direction.ordinal(), activePlayer);
+    }
+
+    /**
+     * Checks if a selection of cell indices is movable in given direction.
+     *
+     * @param board        The board.
+     * @param selected     Cell indices of the selection, only the first
+     *                     {@code count} are read.
+     * @param count        Number of selected cells.
+     * @param direction    Ordinal of the direction you wish to check.
+     * @param activePlayer The player whose turn it is.
+     * @return True if movable; False if not movable.
+     */
+    static boolean isValidMove(final ReadableBoard board,
+                               final int[] selected,
+                               final int count,
+                               final int direction,
+                               final Owner activePlayer) {
+        BoardGeometry geometry = board.getGeometry();
+        if (count > 3) {
             return false;// Max three pebbles are movable
         }
-        if (!(isInLine(currentSelected))) {
+        if (!isInLine(geometry, selected, count)) {
             return false;// Can only move if pebbles that are in line
         }
-        for (Vector v : currentSelected) {
-            if (!(board.get(v).equals(activePlayer))) {
+        for (int i = 0; i < count; i++) {
+            if (board.getOwner(selected[i]) != activePlayer) {
                 return false;
             }
         }
-        if ((currentSelected.size() > 1) && (isInDirection(currentSelected, direction))) {
-            Vector leadingPebble = findLeadingPebbleFromList(currentSelected, direction);
-            if (leadingPebble != null) {
-                return (currentSelected.size() > nextSpaceStrength(
-                        board, leadingPebble, direction, activePlayer));
-            }
+        if (count > 1 && isInDirection(geometry, selected, count, direction)) {
+            int leadingPebble = findLeadingPebble(geometry, selected, count, direction);
+            return count > nextSpaceStrength(board, leadingPebble, direction, activePlayer);
         }
-        for (Vector v : currentSelected) {
-            if (!board.containsKey(v.go(direction))) {
-                return false;
-            } else if (!(board.get(v.go(direction)) == Owner.EMPTY)) {
+        for (int i = 0; i < count; i++) {
+            int next = geometry.getNeighbor(selected[i], direction);
+            if (next < 0 || board.getOwner(next) != Owner.EMPTY) {
                 return false;
             }
         }
@@ -276,82 +357,493 @@ public class Context {
      * Calculates opponents strength, from active player, in one direction.
      *
      * @param board        The board.
-     * @param pebble       The Vector after which to check.
-     * @param direction    The DirectionHelper in which to check.
+     * @param cell         Cell index after which to check.
+     * @param direction    Ordinal of the direction in which to check.
      * @param activePlayer The Owner whose turn it is.
      * @return strength as {@code int} if valid move, otherwise returns
      * {@code INTEGER.MAX_VALUE}.
      */
-    public static int nextSpaceStrength(final Map<Vector, Owner> board,
-                                        final Vector pebble,
-                                        final Direction direction,
+    public static int nextSpaceStrength(final ReadableBoard board,
+                                        final int cell,
+                                        final int direction,
                                         final Owner activePlayer) {
+        int[] ray = board.getGeometry().getRay(cell, direction);
+        if (ray.length == 0) {
+            return Integer.MAX_VALUE;
+        }
+        Owner opponent = board.getOwner(ray[0]);
+        if (opponent == activePlayer || opponent == null) {
+            return Integer.MAX_VALUE;
+        } else if (opponent == Owner.EMPTY) {
+            return 0;
+        }
         int strength = 0;
-        Vector next = pebble.go(direction);
-        if (board.containsKey(next)) {
-            if (board.get(next) == activePlayer) {
-                return Integer.MAX_VALUE;
-            } else if (board.get(next) == Owner.EMPTY) {
-                return strength;
-            } else {
-                Owner opponent = board.get(next);
-                while (board.containsKey(next) && (board.get(next) == opponent)) {
-                    strength++;
-                    next = next.go(direction);
+        while (strength < ray.length && board.getOwner(ray[strength]) == opponent) {
+            strength++;
+        }
+        if (strength < ray.length && board.getOwner(ray[strength]) == activePlayer) {
+            return Integer.MAX_VALUE;
+        }
+        return strength;
+    }
+
+    /**
+     * Writes every legal move of a player into a buffer, starting at index 0.
+     *
+     * @param board        The board.
+     * @param activePlayer The player whose turn it is.
+     * @param buffer       Buffer receiving the moves.
+     * @return Number of moves written.
+     * @see #generateMoves(AbaloneBoard, Owner, int[], int)
+     */
+    public static int generateMoves(final AbaloneBoard board,
+                                    final Owner activePlayer,
+                                    final int[] buffer) {
+        return generateMoves(board, activePlayer, buffer, 0);
+    }
+
+    /**
+     * Writes every legal move of a player into a buffer as {@link PackedMove}
+     * codes: single steps, inline moves and pushes of two and three marbles
+     * and broadside moves of two and three marbles. Nothing is allocated.
+     *
+     * @param board        The board.
+     * @param activePlayer The player whose turn it is.
+     * @param buffer       Buffer receiving the moves, needs room for
+     *                     {@link PackedMove#MAX_MOVES_PER_PIECE} moves per
+     *                     marble of the player.
+     * @param offset       Index of the buffer to write the first move to.
+     * @return Number of moves written.
+     * @throws IllegalArgumentException if the board has too many cells to
+     *                                  pack its moves.
+     */
+    public static int generateMoves(final AbaloneBoard board,
+                                    final Owner activePlayer,
+                                    final int[] buffer,
+                                    final int offset) {
+        BoardGeometry geometry = board.getGeometry();
+        PackedMove.checkCells(geometry);
+        int end = offset;
+        for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+            if (board.getOwner(cell) != activePlayer) {
+                continue;
+            }
+            for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+                int[] ray = geometry.getRay(cell, d);
+                if (ray.length > 0 && board.getOwner(ray[0]) == Owner.EMPTY) {
+                    buffer[end++] = PackedMove.encode(cell, 1, 0, d, 0, false);
                 }
-                if ((board.get(next) == activePlayer)) {
-                    return Integer.MAX_VALUE;
+                // inline lines with this cell as the tail, moving along d
+                int count = 1;
+                while (count < 3 && count <= ray.length
+                        && board.getOwner(ray[count - 1]) == activePlayer) {
+                    count++;
+                    end = addInlineMove(board, ray, cell, count, d, activePlayer, buffer, end);
+                }
+            }
+            for (int line = Direction.E.ordinal(); line <= Direction.SW.ordinal(); line++) {
+                int[] ray = geometry.getRay(cell, line);
+                for (int count = 2; count <= 3 && count - 1 <= ray.length
+                        && board.getOwner(ray[count - 2]) == activePlayer; count++) {
+                    end = addBroadsideMoves(board, cell, count, line, buffer, end);
                 }
-                return strength;
             }
-        } else {
-            return Integer.MAX_VALUE;
         }
+        return end - offset;
     }
 
     /**
-     * Searches for the leading pebble in List<Vector> in given direction.
+     * Adds the inline move of a line if the space in front of it is free or
+     * holds a smaller group of opposing marbles that can be pushed.
      *
-     * @param currentSelected The list you want to check.
-     * @param direction       The direction you want to check.
-     * @return Returns null if list is empty, or pebbles are not connected in given
-     * direction in a straight line.
-     * @implNote By implementation of this method, must determine pebbles in
-     * currentSelected are facing in given direction!
+     * @param board        The board.
+     * @param ray          Ray from the tail in direction of the move.
+     * @param tail         Cell index of the rear marble.
+     * @param count        Number of marbles of the line.
+     * @param direction    Ordinal of the direction of the move.
+     * @param activePlayer The player whose turn it is.
+     * @param buffer       Buffer receiving the move.
+     * @param end          Index to write the move to.
+     * @return Index after the written moves.
+     */
+    private static int addInlineMove(final AbaloneBoard board, final int[] ray,
+                                     final int tail, final int count, final int direction,
+                                     final Owner activePlayer, final int[] buffer,
+                                     final int end) {
+        int front = count - 1;
+        if (front == ray.length) {
+            return end;
+        }
+        Owner next = board.getOwner(ray[front]);
+        if (next == Owner.EMPTY) {
+            buffer[end] = PackedMove.encode(tail, count, direction, direction, 0, false);
+            return end + 1;
+        } else if (next == activePlayer) {
+            return end;
+        }
+        int pushed = 0;
+        while (front + pushed < ray.length && board.getOwner(ray[front + pushed]) == next) {
+            pushed++;
+        }
+        if (pushed >= count) {
+            return end;
+        }
+        boolean ejects = front + pushed == ray.length;
+        if (!ejects && board.getOwner(ray[front + pushed]) != Owner.EMPTY) {
+            return end;
+        }
+        buffer[end] = PackedMove.encode(tail, count, direction, direction, pushed, ejects);
+        return end + 1;
+    }
+
+    /**
+     * Adds the broadside moves of a line into every direction off its axis
+     * where all marbles step onto free spaces.
+     *
+     * @param board  The board.
+     * @param tail   Cell index of the rear marble.
+     * @param count  Number of marbles of the line.
+     * @param line   Ordinal of the direction the line extends in.
+     * @param buffer Buffer receiving the moves.
+     * @param end    Index to write the first move to.
+     * @return Index after the written moves.
      */
-    private static Vector findLeadingPebbleFromList(final List<Vector> currentSelected,
-                                                    final Direction direction) {
-        if (!(isInDirection(currentSelected, direction))) {
-            return null;
+    private static int addBroadsideMoves(final AbaloneBoard board, final int tail,
+                                         final int count, final int line,
+                                         final int[] buffer, int end) {
+        BoardGeometry geometry = board.getGeometry();
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+            if (d == line || d == BoardGeometry.opposite(line)) {
+                continue;
+            }
+            boolean free = true;
+            int cell = tail;
+            for (int i = 0; i < count && free; i++) {
+                int next = geometry.getNeighbor(cell, d);
+                free = next >= 0 && board.getOwner(next) == Owner.EMPTY;
+                cell = geometry.getNeighbor(cell, line);
+            }
+            if (free) {
+                buffer[end++] = PackedMove.encode(tail, count, line, d, 0, false);
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Packs a selection and a direction into a {@link PackedMove} code.
+     *
+     * @param board           The board.
+     * @param currentSelected The selected pebbles.
+     * @param direction       The direction of the move.
+     * @param activePlayer    The player whose turn it is.
+     * @return Packed move, {@link PackedMove#NONE} if the move is not valid.
+     * @throws IllegalArgumentException if the board has too many cells to
+     *                                  pack its moves.
+     */
+    public static int toPackedMove(final AbaloneBoard board,
+                                   final List<Vector> currentSelected,
+                                   final Direction direction,
+                                   final Owner activePlayer) {
+        BoardGeometry geometry = board.getGeometry();
+        PackedMove.checkCells(geometry);
+        int[] cells = toCells(board, currentSelected);
+        if (cells == null || cells.length == 0 || direction == null) {
+            return PackedMove.NONE;
+        }
+        int count = cells.length;
+        int d = direction.ordinal();
+        if (!isValidMove(board, cells, count, d, activePlayer)) {
+            return PackedMove.NONE;
+        } else if (count == 1) {
+            return PackedMove.encode(cells[0], 1, 0, d, 0, false);
+        } else if (isInDirection(geometry, cells, count, d)) {
+            int tail = findLeadingPebble(geometry, cells, count, BoardGeometry.opposite(d));
+            int front = findLeadingPebble(geometry, cells, count, d);
+            int pushed = nextSpaceStrength(board, front, d, activePlayer);
+            boolean ejects = pushed > 0 && geometry.getRay(front, d).length == pushed;
+            return PackedMove.encode(tail, count, d, d, pushed, ejects);
+        }
+        int line = Direction.E.ordinal();
+        while (!isInDirection(geometry, cells, count, line)) {
+            line++;
+        }
+        int tail = findLeadingPebble(geometry, cells, count, BoardGeometry.opposite(line));
+        return PackedMove.encode(tail, count, line, d, 0, false);
+    }
+
+    /**
+     * Packs a {@link Move} as sent by the view or the peer.
+     *
+     * @param board        The board.
+     * @param move         Selected pebbles and the clicked target.
+     * @param activePlayer The player whose turn it is.
+     * @return Packed move, {@link PackedMove#NONE} if the move is not valid.
+     */
+    public static int toPackedMove(final AbaloneBoard board, final Move move,
+                                   final Owner activePlayer) {
+        if (move.getSelected() == null || move.getSelected().isEmpty()
+                || move.getTarget() == null) {
+            return PackedMove.NONE;
+        }
+        return toPackedMove(board, move.getSelected(),
+                getDirectionOfMove(move.getSelected(), move.getTarget()), activePlayer);
+    }
+
+    /**
+     * Unpacks a move into the {@link Move} a player clicking it would send:
+     * the moved pebbles and a target that {@link #getDirectionOfMove(List, Vector)}
+     * translates back into the direction of the move.
+     *
+     * @param board The board the move was generated on.
+     * @param move  Packed move.
+     * @return The move, {@code null} if no target leads to its direction.
+     */
+    public static Move toMove(final AbaloneBoard board, final int move) {
+        BoardGeometry geometry = board.getGeometry();
+        Direction direction = Direction.values()[PackedMove.getDirection(move)];
+        List<Vector> selected = new ArrayList<>(PackedMove.getCount(move));
+        for (int i = 0; i < PackedMove.getCount(move); i++) {
+            selected.add(geometry.getPosition(PackedMove.getCell(move, i, geometry)));
+        }
+        for (Vector pebble : selected) {
+            Vector target = pebble.go(direction);
+            if (!selected.contains(target)
+                    && getDirectionOfMove(selected, target) == direction) {
+                return new Move(selected, target);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes a legal move in place, changing only the cells the move touches,
+     * and hands the turn to the other player.
+     *
+     * @param board The board.
+     * @param move  Packed move legal on the board.
+     * @param undo  Record receiving what is needed to take the move back.
+     */
+    public static void makeMove(final AbaloneBoard board, final int move,
+                                final UndoRecord undo) {
+        BoardGeometry geometry = board.getGeometry();
+        int tail = PackedMove.getTail(move);
+        int count = PackedMove.getCount(move);
+        int line = PackedMove.getLine(move);
+        int direction = PackedMove.getDirection(move);
+        Owner mover = board.getOwner(tail);
+        undo.move = move;
+        undo.count = 0;
+        undo.sideToMove = board.getSideToMove();
+        if (PackedMove.isInline(move)) {
+            int[] ray = geometry.getRay(tail, direction);
+            int pushed = PackedMove.getPushed(move);
+            if (pushed > 0 && !PackedMove.isEjecting(move)) {
+                change(board, undo, ray[count - 1 + pushed], board.getOwner(ray[count - 1]));
+            }
+            change(board, undo, ray[count - 1], mover);
+            change(board, undo, tail, Owner.EMPTY);
         } else {
-            for (Vector v : currentSelected) {
-                if (!currentSelected.contains(v.go(direction))) {
-                    return v;
+            int cell = tail;
+            for (int i = 0; i < count; i++) {
+                change(board, undo, geometry.getNeighbor(cell, direction), mover);
+                change(board, undo, cell, Owner.EMPTY);
+                cell = geometry.getNeighbor(cell, line);
+            }
+        }
+        board.setSideToMove(mover == Owner.PLAYER_BLACK ? Owner.PLAYER_WHITE : Owner.PLAYER_BLACK);
+    }
+
+    /**
+     * Takes back the move of an undo record, restoring the changed cells in
+     * reverse order and the side to move.
+     *
+     * @param board The board the move was made on.
+     * @param undo  Record filled by {@link #makeMove(AbaloneBoard, int, UndoRecord)}.
+     */
+    public static void unmakeMove(final AbaloneBoard board, final UndoRecord undo) {
+        for (int i = undo.count - 1; i >= 0; i--) {
+            board.setOwner(undo.cells[i], undo.owners[i]);
+        }
+        board.setSideToMove(undo.sideToMove);
+    }
+
+    /**
+     * Changes one cell and records its previous owner.
+     *
+     * @param board    The board.
+     * @param undo     Record of the move.
+     * @param cell     Cell index to change.
+     * @param changeTo New owner of the cell.
+     */
+    private static void change(final AbaloneBoard board, final UndoRecord undo,
+                               final int cell, final Owner changeTo) {
+        undo.cells[undo.count] = cell;
+        undo.owners[undo.count] = board.getOwner(cell);
+        undo.count++;
+        board.setOwner(cell, changeTo);
+    }
+
+    /**
+     * Checks if a selection of cell indices is movable in any direction.
+     *
+     * @param board        The board.
+     * @param selected     Cell indices of the selection.
+     * @param count        Number of selected cells.
+     * @param activePlayer Currently active player selecting pebbles.
+     * @return {@code true} if movable, otherwise {@code false}
+     */
+    private static boolean checkPotentiallyMovable(final ReadableBoard board,
+                                                   final int[] selected,
+                                                   final int count,
+                                                   final Owner activePlayer) {
+        BoardGeometry geometry = board.getGeometry();
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+            if (isValidMove(board, selected, count, d, activePlayer)) {
+                return true;
+            }
+        }
+        int[] toCheck = new int[3];
+        if (count == 1) {
+            toCheck[0] = selected[0];
+            for (int n = 0; n < BoardGeometry.DIRECTIONS; n++) {
+                toCheck[1] = geometry.getNeighbor(selected[0], n);
+                if (onBoard(board, toCheck[1]) && anyPotentiallyMovable(board, toCheck, 2, activePlayer)) {
+                    return true;
                 }
             }
+        } else if (count == 2) {
+            int one = directionOf(geometry, selected[0], selected[1]);
+            if (one < 0) {
+                return false;
+            }
+            toCheck[0] = selected[0];
+            toCheck[1] = selected[1];
+            toCheck[2] = geometry.getNeighbor(selected[1], one);
+            if (onBoard(board, toCheck[2]) && anyPotentiallyMovable(board, toCheck, 3, activePlayer)) {
+                return true;
+            }
+            toCheck[2] = geometry.getNeighbor(selected[0], BoardGeometry.opposite(one));
+            return onBoard(board, toCheck[2]) && anyPotentiallyMovable(board, toCheck, 3, activePlayer);
+        } else if (count == 3) {
+            return anyPotentiallyMovable(board, selected, 3, activePlayer);
         }
-        return null;
+        return false;
     }
 
     /**
-     * Checks if a List<Vector> is connected in a straight line in a specific
-     * direction.
+     * Checks {@link #potentiallyMovableInDirection(ReadableBoard, int[], int, Owner, int)}
+     * for every direction.
      *
-     * @param toCheck   The list you want to check
-     * @param direction The direction you want to check
-     * @return True, if toCheck is connected in a straight line in given direction
+     * @param board        The board.
+     * @param selected     Cell indices of the selection.
+     * @param count        Number of selected cells.
+     * @param activePlayer The active player.
+     * @return {@code true} if potentially movable in any direction.
      */
-    public static boolean isInDirection(final List<Vector> toCheck,
-                                        final Direction direction) {
-        if (toCheck == null || direction == null) {
+    private static boolean anyPotentiallyMovable(final ReadableBoard board,
+                                                 final int[] selected,
+                                                 final int count,
+                                                 final Owner activePlayer) {
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+            if (potentiallyMovableInDirection(board, selected, count, activePlayer, d)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calculates possible player strength in one direction from the selected
+     * cells and compares with next space strength.
+     *
+     * @param board        The board.
+     * @param selected     Cell indices of the selection.
+     * @param count        Number of selected cells.
+     * @param activePlayer The active player.
+     * @param direction    Ordinal of the direction you want to check.
+     * @return {@code true} if movable, otherwise {@code false}
+     */
+    private static boolean potentiallyMovableInDirection(final ReadableBoard board,
+                                                         final int[] selected,
+                                                         final int count,
+                                                         final Owner activePlayer,
+                                                         final int direction) {
+        BoardGeometry geometry = board.getGeometry();
+        if (count == 0 || count > 3 || !isInLine(geometry, selected, count)) {
             return false;
         }
-        if (toCheck.size() == 0) {
+        if (isInDirection(geometry, selected, count, direction)) {
+            int leadingPebble = findLeadingPebble(geometry, selected, count, direction);
+            Owner owner = board.getOwner(leadingPebble);
+            int[] ray = geometry.getRay(leadingPebble, direction);
+            int strength = count;
+            int next = 0;
+            while (strength <= 3) {
+                if (next == ray.length) {
+                    return false;
+                } else if (board.getOwner(ray[next]) == owner) {
+                    strength++;
+                    next++;
+                } else {
+                    break;
+                }
+            }
+            int last = next == 0 ? leadingPebble : ray[next - 1];
+            return nextSpaceStrength(board, last, direction, activePlayer) < strength;
+        }
+        for (int i = 0; i < count; i++) {
+            int next = geometry.getNeighbor(selected[i], direction);
+            if (next < 0 || board.getOwner(next) != Owner.EMPTY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches for the leading cell of a selection in given direction.
+     *
+     * @param geometry  Geometry of the board.
+     * @param selected  Cell indices of the selection.
+     * @param count     Number of selected cells.
+     * @param direction Ordinal of the direction you want to check.
+     * @return The first cell whose neighbor is not selected, {@code -1} if
+     * there is none.
+     */
+    private static int findLeadingPebble(final BoardGeometry geometry,
+                                         final int[] selected,
+                                         final int count,
+                                         final int direction) {
+        for (int i = 0; i < count; i++) {
+            if (!contains(selected, count, geometry.getNeighbor(selected[i], direction))) {
+                return selected[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if a selection of cell indices is connected in a straight line in
+     * a specific direction.
+     *
+     * @param geometry  Geometry of the board.
+     * @param selected  Cell indices of the selection.
+     * @param count     Number of selected cells.
+     * @param direction Ordinal of the direction you want to check.
+     * @return True, if the selection is connected in a straight line in given
+     * direction
+     */
+    private static boolean isInDirection(final BoardGeometry geometry,
+                                         final int[] selected,
+                                         final int count,
+                                         final int direction) {
+        if (count == 0) {
             return true;
         }
         int maxOneNotInToCheck = 0;
-        for (Vector v : toCheck) {
-            if (!(toCheck.contains(v.go(direction)))) {
+        for (int i = 0; i < count; i++) {
+            if (!contains(selected, count, geometry.getNeighbor(selected[i], direction))) {
                 maxOneNotInToCheck++;
             }
         }
@@ -359,24 +851,121 @@ public class Context {
     }
 
     /**
-     * Checks if a list of Vectors are connected in a straight line.
+     * Checks if a selection of cell indices is connected in a straight line.
      *
-     * @param toCheck The list you want to check.
-     * @return If a List<Vector> is connected in a straight line.
+     * @param geometry Geometry of the board.
+     * @param selected Cell indices of the selection.
+     * @param count    Number of selected cells.
+     * @return If the selection is connected in a straight line.
      */
-    public static boolean isInLine(final List<Vector> toCheck) {
-        if (toCheck == null) {
-            return false;
-        }
-        if (toCheck.size() == 0 || toCheck.size() == 1) {
+    private static boolean isInLine(final BoardGeometry geometry,
+                                    final int[] selected,
+                                    final int count) {
+        if (count <= 1) {
             return true;
         }
-        Direction direction = null;
-        for (Direction d : Vector.Direction.values()) {
-            if (toCheck.contains(toCheck.get(0).go(d))) {
+        int direction = -1;
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+            if (contains(selected, count, geometry.getNeighbor(selected[0], d))) {
                 direction = d;
             }
         }
-        return direction != null && isInDirection(toCheck, direction);
+        return direction >= 0 && isInDirection(geometry, selected, count, direction);
+    }
+
+    /**
+     * Returns the direction leading from one cell to its neighbor.
+     *
+     * @param geometry Geometry of the board.
+     * @param from     Cell index to start at.
+     * @param to       Cell index to arrive at.
+     * @return Ordinal of the direction, {@code -1} if the cells are not
+     * neighbors.
+     */
+    private static int directionOf(final BoardGeometry geometry, final int from, final int to) {
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+            if (geometry.getNeighbor(from, d) == to) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if a neighbor is a cell of the board.
+     *
+     * @param board The board.
+     * @param cell  Cell index, negative if off the geometry.
+     * @return {@code true} if the board has the cell.
+     */
+    private static boolean onBoard(final ReadableBoard board, final int cell) {
+        return cell >= 0 && board.getOwner(cell) != null;
+    }
+
+    /**
+     * Checks if a cell index is part of a selection.
+     *
+     * @param selected Cell indices of the selection.
+     * @param count    Number of selected cells.
+     * @param cell     Cell index to look for, negative if off the board.
+     * @return {@code true} if selected.
+     */
+    private static boolean contains(final int[] selected, final int count, final int cell) {
+        if (cell < 0) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (selected[i] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Translates positions into cell indices of a board.
+     *
+     * @param board     The board.
+     * @param positions Positions to translate.
+     * @return Cell indices in the same order, or {@code null} if a position is
+     * not on the board.
+     */
+    private static int[] toCells(final ReadableBoard board, final List<Vector> positions) {
+        BoardGeometry geometry = board.getGeometry();
+        int[] cells = new int[positions.size()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = geometry.getCellIndex(positions.get(i));
+            if (cells[i] < 0 || board.getOwner(cells[i]) == null) {
+                return null;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Cells of a map, read on the geometry of the board whose cell count the
+     * map has. Maps holding only some cells are read on the largest
+     * geometry. Either way cells missing from the map are off the board.
+     */
+    private static final class MapCells implements ReadableBoard {
+
+        private final BoardGeometry GEOMETRY;
+        private final Map<Vector, Owner> CELLS;
+
+        private MapCells(final Map<Vector, Owner> cells) {
+            int size = BoardGeometry.sizeOf(cells.size());
+            this.GEOMETRY = BoardGeometry.forSize(size < 0 ? BoardGeometry.MAX_SIZE : size);
+            this.CELLS = cells;
+        }
+
+        @Override
+        public BoardGeometry getGeometry() {
+            return GEOMETRY;
+        }
+
+        @Override
+        public Owner getOwner(final int index) {
+            return CELLS.get(GEOMETRY.getPosition(index));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,189 @@
+package de.lmu.ifi.sep.abalone.logic;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.components.Vector.Direction;
+
+/**
+ * Encoding of a move into a single {@code int}, so move lists are plain
+ * {@code int[]} buffers and generating them does not allocate.
+ * <p>
+ * A move is described by the rear marble of its line (the tail), the number
+ * of marbles, the direction the line extends in from the tail and the
+ * direction of the move. Inline moves always have the line extend in the
+ * direction of the move, broadside moves have their line along
+ * {@link Direction#E}, {@link Direction#SE} or {@link Direction#SW}, so every
+ * move has exactly one code. Pushes also record the number of opposing
+ * marbles pushed and whether the last of them leaves the board.
+ * <pre>
+ * bits  0- 7  cell index of the tail
+ * bits  8- 9  number of marbles - 1
+ * bits 10-12  ordinal of the line direction
+ * bits 13-15  ordinal of the move direction
+ * bits 16-17  number of pushed marbles
+ * bit  18     last pushed marble leaves the board
+ * </pre>
+ */
+public final class PackedMove {
+
+    /**
+     * Upper bound of the moves one marble can take part in as the tail:
+     * six single steps, six inline lines of two and three marbles and
+     * four broadside directions of two lines on each of three axes.
+     */
+    public static final int MAX_MOVES_PER_PIECE = 6 + 6 * 2 + 3 * 2 * 4;
+
+    /**
+     * Code that is never a legal move.
+     */
+    public static final int NONE = -1;
+
+    /**
+     * Number of cells up to which the cell index of the tail fits its eight
+     * bits.
+     */
+    public static final int MAX_CELLS = 0x100;
+
+    private static final int TAIL_MASK = 0xFF;
+    private static final int COUNT_SHIFT = 8;
+    private static final int LINE_SHIFT = 10;
+    private static final int DIRECTION_SHIFT = 13;
+    private static final int PUSHED_SHIFT = 16;
+    private static final int EJECTS = 1 << 18;
+
+    /**
+     * Not instantiable, only static methods.
+     */
+    private PackedMove() {
+    }
+
+    /**
+     * Checks that the moves of a board can be packed.
+     *
+     * @param geometry Geometry of the board.
+     * @throws IllegalArgumentException if the board has more than
+     *                                  {@value #MAX_CELLS} cells.
+     */
+    public static void checkCells(final BoardGeometry geometry) {
+        if (geometry.getCellCount() > MAX_CELLS) {
+            throw new IllegalArgumentException("Moves of boards with " + geometry.getCellCount()
+                    + " cells cannot be packed, at most " + MAX_CELLS);
+        }
+    }
+
+    /**
+     * Packs a move.
+     *
+     * @param tail      Cell index of the rear marble of the line.
+     * @param count     Number of marbles moved, 1 to 3.
+     * @param line      Ordinal of the direction the line extends in.
+     * @param direction Ordinal of the direction of the move.
+     * @param pushed    Number of opposing marbles pushed, 0 to 2.
+     * @param ejects    {@code true} if a pushed marble leaves the board.
+     * @return Packed move.
+     */
+    public static int encode(final int tail, final int count, final int line,
+                             final int direction, final int pushed, final boolean ejects) {
+        return tail
+                | (count - 1) << COUNT_SHIFT
+                | line << LINE_SHIFT
+                | direction << DIRECTION_SHIFT
+                | pushed << PUSHED_SHIFT
+                | (ejects ? EJECTS : 0);
+    }
+
+    /**
+     * @param move Packed move.
+     * @return Cell index of the rear marble of the line.
+     */
+    public static int getTail(final int move) {
+        return move & TAIL_MASK;
+    }
+
+    /**
+     * @param move Packed move.
+     * @return Number of marbles moved.
+     */
+    public static int getCount(final int move) {
+        return (move >>> COUNT_SHIFT & 0x3) + 1;
+    }
+
+    /**
+     * @param move Packed move.
+     * @return Ordinal of the direction the line extends in from the tail.
+     */
+    public static int getLine(final int move) {
+        return move >>> LINE_SHIFT & 0x7;
+    }
+
+    /**
+     * @param move Packed move.
+     * @return Ordinal of the direction of the move.
+     */
+    public static int getDirection(final int move) {
+        return move >>> DIRECTION_SHIFT & 0x7;
+    }
+
+    /**
+     * @param move Packed move.
+     * @return Number of opposing marbles pushed.
+     */
+    public static int getPushed(final int move) {
+        return move >>> PUSHED_SHIFT & 0x3;
+    }
+
+    /**
+     * @param move Packed move.
+     * @return {@code true} if a pushed marble leaves the board.
+     */
+    public static boolean isEjecting(final int move) {
+        return (move & EJECTS) != 0;
+    }
+
+    /**
+     * @param move Packed move.
+     * @return {@code true} if the marbles move along their line.
+     */
+    public static boolean isInline(final int move) {
+        return getCount(move) > 1 && getLine(move) == getDirection(move);
+    }
+
+    /**
+     * Returns the cell index of one of the moved marbles.
+     *
+     * @param move     Packed move.
+     * @param i        Position in the line, {@code 0} is the tail.
+     * @param geometry Geometry of the board the move was generated on.
+     * @return Cell index of the marble before the move.
+     */
+    public static int getCell(final int move, final int i, final BoardGeometry geometry) {
+        int cell = getTail(move);
+        for (int step = 0; step < i; step++) {
+            cell = geometry.getNeighbor(cell, getLine(move));
+        }
+        return cell;
+    }
+
+    /**
+     * Describes a move for logs and tools, e.g. {@code (0,3)+2 NW push 1}.
+     *
+     * @param move     Packed move.
+     * @param geometry Geometry of the board the move was generated on.
+     * @return Readable move.
+     */
+    public static String toString(final int move, final BoardGeometry geometry) {
+        Direction[] directions = Direction.values();
+        StringBuilder out = new StringBuilder();
+        out.append(geometry.getPosition(getTail(move)));
+        if (getCount(move) > 1) {
+            out.append('+').append(getCount(move) - 1).append(directions[getLine(move)]);
+        }
+        out.append(' ').append(directions[getDirection(move)]);
+        if (getPushed(move) > 0) {
+            out.append(" push ").append(getPushed(move));
+            if (isEjecting(move)) {
+                out.append(" out");
+            }
+        }
+        return out.toString();
+    }
+}
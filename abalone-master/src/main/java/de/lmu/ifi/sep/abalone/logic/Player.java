@@ -6,6 +6,12 @@ import java.io.Serializable;
 
 public class Player implements Serializable {
 
+    /**
+     * Computed value of the class before its accessors were widened, kept so that
+     * older peers still read the players of a package.
+     */
+    private static final long serialVersionUID = 4740099108627177008L;
+
     private final AbaloneBoard.Owner owner;
     private final boolean isHost;
     private final boolean localPlayer;
@@ -26,7 +32,7 @@ public class Player implements Serializable {
         return isHost;
     }
 
-    int getPiecesToWin() {
+    public int getPiecesToWin() {
         return piecesToWin;
     }
 
@@ -34,7 +40,11 @@ public class Player implements Serializable {
         this.piecesToWin--;
     }
 
-    boolean isLocalPlayer() {
+    void undoScore() {
+        this.piecesToWin++;
+    }
+
+    public boolean isLocalPlayer() {
         return localPlayer;
     }
 
@@ -0,0 +1,239 @@
+package de.lmu.ifi.sep.abalone.logic;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.components.Vector.Direction;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.ZobristKeys;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The twelve symmetries of the hexagonal board: six rotations, each with and
+ * without a reflection.
+ * <p>
+ * Symmetric positions are equally good for the side to move and their best
+ * moves are the same up to the symmetry. Tables of positions therefore only
+ * need to keep one of them, the canonical position: the one whose Zobrist
+ * hash, see {@link #hash(AbaloneBoard, int)}, is the smallest.
+ * {@link #canonicalize(AbaloneBoard)} finds the symmetry leading there, and
+ * moves are taken to and from the canonical position with
+ * {@link #transformMove(int, int)} and {@link #inverse(int)}.
+ * <p>
+ * Symmetry {@code t} reflects the board first if {@code t >= 6}, by swapping
+ * the cube coordinates x and z, and then rotates it by {@code t % 6} steps of
+ * 60 degrees clockwise, each taking the cube coordinates (x, y, z) to
+ * (-y, -z, -x). A rotation step turns every {@link Direction} into the next
+ * one in clockwise order, so symmetries of directions are plain arithmetic
+ * on their ordinals. The colors of the marbles and the side to move are left
+ * as they are.
+ * <p>
+ * The cube coordinate helpers of the old prototype, {@code abalone/HexMath},
+ * are not part of this module and have no rotations or reflections, so the
+ * steps are done on the positions of the {@link BoardGeometry} here.
+ */
+public final class Symmetry {
+
+    /**
+     * Number of symmetries.
+     */
+    public static final int COUNT = 12;
+
+    /**
+     * Symmetry leaving the board as it is.
+     */
+    public static final int IDENTITY = 0;
+
+    private static final int ROTATIONS = BoardGeometry.DIRECTIONS;
+
+    /**
+     * Symmetries already built, by board size.
+     */
+    private static final Map<Integer, Symmetry> SYMMETRIES = new ConcurrentHashMap<>();
+
+    private final BoardGeometry GEOMETRY;
+    private final ZobristKeys KEYS;
+
+    /**
+     * Image of every cell index, by symmetry.
+     */
+    private final int[][] CELLS;
+
+    /**
+     * Builds the tables of a board size.
+     *
+     * @param size Maximum rows and columns of the board.
+     */
+    private Symmetry(final int size) {
+        GEOMETRY = BoardGeometry.forSize(size);
+        KEYS = ZobristKeys.forSize(size);
+        CELLS = new int[COUNT][GEOMETRY.getCellCount()];
+        for (int cell = 0; cell < GEOMETRY.getCellCount(); cell++) {
+            Vector position = GEOMETRY.getPosition(cell);
+            for (int t = 0; t < COUNT; t++) {
+                int x = position.getX();
+                int y = position.getY();
+                if (t >= ROTATIONS) {
+                    x = -x - y;
+                }
+                for (int step = 0; step < t % ROTATIONS; step++) {
+                    int rotated = -y;
+                    y = x + y;
+                    x = rotated;
+                }
+                CELLS[t][cell] = GEOMETRY.getCellIndex(x, y);
+            }
+        }
+    }
+
+    /**
+     * Returns the shared symmetries of a board size, building them on first
+     * use.
+     *
+     * @param size Maximum rows and columns of the board.
+     * @return Symmetries of the board size.
+     */
+    public static Symmetry forSize(final int size) {
+        return SYMMETRIES.computeIfAbsent(size, Symmetry::new);
+    }
+
+    /**
+     * Returns the image of a cell.
+     *
+     * @param transform Symmetry, {@code 0} to {@code COUNT - 1}.
+     * @param cell      Cell index on the board.
+     * @return Cell index the symmetry takes the cell to.
+     */
+    public int getCell(final int transform, final int cell) {
+        return CELLS[transform][cell];
+    }
+
+    /**
+     * Returns the image of a direction.
+     *
+     * @param transform Symmetry, {@code 0} to {@code COUNT - 1}.
+     * @param direction Ordinal of a {@code Direction}.
+     * @return Ordinal of the {@code Direction} the symmetry takes it to.
+     */
+    public static int getDirection(final int transform, final int direction) {
+        int reflected = transform >= ROTATIONS ? (ROTATIONS + 1 - direction) % ROTATIONS : direction;
+        return (reflected + transform) % ROTATIONS;
+    }
+
+    /**
+     * Returns the symmetry undoing another one.
+     *
+     * @param transform Symmetry, {@code 0} to {@code COUNT - 1}.
+     * @return Symmetry taking every image back to where it came from.
+     */
+    public static int inverse(final int transform) {
+        // reflections undo themselves, rotations are undone by the rest of a
+        // full turn
+        return transform >= ROTATIONS ? transform : (ROTATIONS - transform) % ROTATIONS;
+    }
+
+    /**
+     * Computes the Zobrist hash the position would have after a symmetry,
+     * without changing it.
+     *
+     * @param board     Board of the size of these symmetries.
+     * @param transform Symmetry, {@code 0} to {@code COUNT - 1}.
+     * @return Hash of the image of the position.
+     */
+    public long hash(final AbaloneBoard board, final int transform) {
+        long hash = KEYS.side(board.getSideToMove());
+        for (int cell = 0; cell < GEOMETRY.getCellCount(); cell++) {
+            Owner owner = board.getOwner(cell);
+            if (owner != Owner.EMPTY) {
+                hash ^= KEYS.cell(CELLS[transform][cell], owner);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Finds the symmetry taking a position to its canonical position, the
+     * image with the smallest hash. Symmetric positions have the same
+     * canonical position.
+     *
+     * @param board Board of the size of these symmetries.
+     * @return Symmetry to apply to the position, {@link #hash(AbaloneBoard, int)}
+     * of it is the canonical hash.
+     */
+    public int canonicalize(final AbaloneBoard board) {
+        int best = IDENTITY;
+        long bestHash = hash(board, IDENTITY);
+        for (int t = 1; t < COUNT; t++) {
+            long hash = hash(board, t);
+            if (hash < bestHash) {
+                best = t;
+                bestHash = hash;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Computes the hash of the canonical position.
+     *
+     * @param board Board of the size of these symmetries.
+     * @return Smallest hash of all images of the position.
+     */
+    public long canonicalHash(final AbaloneBoard board) {
+        return hash(board, canonicalize(board));
+    }
+
+    /**
+     * Returns the image of a move, as the move generation would pack it on
+     * the image of the board.
+     *
+     * @param transform Symmetry, {@code 0} to {@code COUNT - 1}.
+     * @param move      Packed move.
+     * @return Packed move the symmetry takes the move to, {@link PackedMove#NONE}
+     * for {@code NONE}.
+     */
+    public int transformMove(final int transform, final int move) {
+        if (move == PackedMove.NONE) {
+            return PackedMove.NONE;
+        }
+        int count = PackedMove.getCount(move);
+        int tail = CELLS[transform][PackedMove.getTail(move)];
+        int direction = getDirection(transform, PackedMove.getDirection(move));
+        int line = count == 1 ? 0 : getDirection(transform, PackedMove.getLine(move));
+        if (count > 1 && line != direction && !isBroadsideLine(line)) {
+            // the image extends the other way, its tail is the former head
+            for (int i = 1; i < count; i++) {
+                tail = GEOMETRY.getNeighbor(tail, line);
+            }
+            line = BoardGeometry.opposite(line);
+        }
+        return PackedMove.encode(tail, count, line, direction,
+                PackedMove.getPushed(move), PackedMove.isEjecting(move));
+    }
+
+    /**
+     * @param line Ordinal of a direction.
+     * @return {@code true} if broadside moves are packed with lines along it.
+     */
+    private static boolean isBroadsideLine(final int line) {
+        return line == Direction.E.ordinal() || line == Direction.SE.ordinal()
+                || line == Direction.SW.ordinal();
+    }
+
+    /**
+     * Copies the image of a position onto another board.
+     *
+     * @param from      Board to copy, not changed.
+     * @param transform Symmetry, {@code 0} to {@code COUNT - 1}.
+     * @param to        Board of the same size receiving the image, including
+     *                  the side to move.
+     */
+    public void apply(final AbaloneBoard from, final int transform, final AbaloneBoard to) {
+        for (int cell = 0; cell < GEOMETRY.getCellCount(); cell++) {
+            to.setOwner(CELLS[transform][cell], from.getOwner(cell));
+        }
+        to.setSideToMove(from.getSideToMove());
+    }
+}
@@ -0,0 +1,67 @@
+package de.lmu.ifi.sep.abalone.logic;
+
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+
+/**
+ * Everything needed to take back one move made with
+ * {@link Context#makeMove(de.lmu.ifi.sep.abalone.models.AbaloneBoard, int, UndoRecord)}
+ * or {@link AbaloneGame#makeMove(int)}: the previous owners of the changed
+ * cells, the previous side to move and, for games, the score.
+ * <p>
+ * Records are reusable, so a search can allocate one per ply up front and
+ * make and unmake moves without creating garbage.
+ */
+public final class UndoRecord {
+
+    /**
+     * Maximum cells changed by one move, reached by broadside moves of three
+     * marbles.
+     */
+    static final int MAX_CELLS = 6;
+
+    /**
+     * Changed cell indices in the order they were changed.
+     */
+    final int[] cells = new int[MAX_CELLS];
+
+    /**
+     * Owners of the changed cells before the move.
+     */
+    final Owner[] owners = new Owner[MAX_CELLS];
+
+    /**
+     * Number of changed cells.
+     */
+    int count;
+
+    /**
+     * The packed move made.
+     */
+    int move = PackedMove.NONE;
+
+    /**
+     * Side to move before the move.
+     */
+    Owner sideToMove;
+
+    /**
+     * Color of the player whose score was raised by the move, {@code null}
+     * if none. The color and not the player is kept, as synchronizations
+     * replace the players of a game.
+     */
+    Owner scorer;
+
+    /**
+     * Win flag of the game before the move.
+     */
+    boolean winFlag;
+
+    /**
+     * Accessor for the move this record takes back.
+     *
+     * @return packed move, {@link PackedMove#NONE} if no move was made.
+     */
+    public int getMove() {
+        return move;
+    }
+}
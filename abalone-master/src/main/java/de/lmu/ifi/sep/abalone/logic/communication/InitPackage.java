@@ -5,12 +5,30 @@ import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
 import java.io.Serializable;
 
 public class InitPackage implements Serializable {
+    /**
+     * Computed value of the class before the turn was added, kept so that
+     * older peers still read the package.
+     */
+    private static final long serialVersionUID = 5163122981595693560L;
+
     private final int GAME_SIZE;
     private final AbaloneBoard.Owner YOUR_COLOR;
+    private final boolean YOUR_TURN;
 
     public InitPackage(int gameSize, AbaloneBoard.Owner yourColor) {
+        this(gameSize, yourColor, false);
+    }
+
+    /**
+     * @param gameSize  size of the board
+     * @param yourColor color of the receiver, {@code null} for the default
+     * @param yourTurn  whether the receiver moves first instead of the host,
+     *                  for guests paired by a game server
+     */
+    public InitPackage(int gameSize, AbaloneBoard.Owner yourColor, boolean yourTurn) {
         this.GAME_SIZE = gameSize;
         this.YOUR_COLOR = yourColor;
+        this.YOUR_TURN = yourTurn;
     }
 
     public int getGameSize() {
@@ -20,4 +38,8 @@ public class InitPackage implements Serializable {
     public AbaloneBoard.Owner getYourColor() {
         return YOUR_COLOR;
     }
+
+    public boolean isYourTurn() {
+        return YOUR_TURN;
+    }
 }
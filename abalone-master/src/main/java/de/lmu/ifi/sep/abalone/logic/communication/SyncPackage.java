@@ -1,22 +1,92 @@
 package de.lmu.ifi.sep.abalone.logic.communication;
 
 import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.logic.BoardVersions;
 import de.lmu.ifi.sep.abalone.logic.Player;
 import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.LinkedHashMap;
 
+/**
+ * Board and players of the sender, for a peer whose board went astray.
+ * Holds either the whole board or, as delta, only the cells that changed
+ * since a version of the board the peer had, see {@link BoardVersions}.
+ * Deltas carry the hash of the cells of the sender, so the peer can tell
+ * whether its board matches afterwards. The player whose turn it is comes
+ * along, as a peer whose move was refused already handed the turn on.
+ */
 public class SyncPackage implements Serializable {
 
-    private final LinkedHashMap<Vector, AbaloneBoard.Owner> board;
-    private final Player playerOne;
-    private final Player playerTwo;
+    /**
+     * Computed value of the class before versions were added, kept so that
+     * older peers still read the package.
+     */
+    private static final long serialVersionUID = -4562857047098268412L;
 
+    /**
+     * {@link #getSince()} of packages holding the whole board.
+     */
+    public static final int FULL = -1;
+
+    /**
+     * {@link #getHash()} of packages without hash, which are not checked.
+     */
+    public static final long NO_HASH = 0;
+
+    // not final, as readObject fills in the fields older peers do not send
+    private LinkedHashMap<Vector, AbaloneBoard.Owner> board;
+    private Player playerOne;
+    private Player playerTwo;
+    private int version;
+    private int since;
+    private long hash;
+    private AbaloneBoard.Owner turn;
+
+    /**
+     * Creates a package of the whole board without version.
+     */
     public SyncPackage(LinkedHashMap<Vector, AbaloneBoard.Owner> board, Player playerOne, Player playerTwo) {
+        this(board, playerOne, playerTwo, BoardVersions.UNKNOWN, FULL, NO_HASH, null);
+    }
+
+    /**
+     * @param board     cells of the board, all of them or those changed since {@code since}
+     * @param playerOne first player
+     * @param playerTwo second player
+     * @param version   version of the board of the sender, {@link BoardVersions#UNKNOWN} if none
+     * @param since     version the changes were made since, {@link #FULL} for the whole board
+     * @param hash      {@link AbaloneBoard#getCellHash()} of the board of the sender, {@link #NO_HASH} if none
+     * @param turn      player whose turn it is, {@code null} if unknown
+     */
+    public SyncPackage(LinkedHashMap<Vector, AbaloneBoard.Owner> board, Player playerOne, Player playerTwo,
+                       int version, int since, long hash, AbaloneBoard.Owner turn) {
         this.board = board;
         this.playerOne = playerOne;
         this.playerTwo = playerTwo;
+        this.version = version;
+        this.since = since;
+        this.hash = hash;
+        this.turn = turn;
+    }
+
+    /**
+     * Reads the fields by name, so that packages of older peers, which lack
+     * all but the board and the players, hold the whole board of an unknown
+     * version instead of a delta since version 0.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        board = (LinkedHashMap<Vector, AbaloneBoard.Owner>) fields.get("board", null);
+        playerOne = (Player) fields.get("playerOne", null);
+        playerTwo = (Player) fields.get("playerTwo", null);
+        version = fields.get("version", BoardVersions.UNKNOWN);
+        since = fields.get("since", FULL);
+        hash = fields.get("hash", NO_HASH);
+        turn = (AbaloneBoard.Owner) fields.get("turn", null);
     }
 
     public LinkedHashMap<Vector, AbaloneBoard.Owner> getBoard() {
@@ -30,4 +100,30 @@ public class SyncPackage implements Serializable {
     public Player getPlayerTwo() {
         return playerTwo;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getSince() {
+        return since;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return player whose turn it is, {@code null} if the sender did not tell.
+     */
+    public AbaloneBoard.Owner getTurn() {
+        return turn;
+    }
+
+    /**
+     * @return {@code true} if only the changed cells are held.
+     */
+    public boolean isDelta() {
+        return since != FULL;
+    }
 }
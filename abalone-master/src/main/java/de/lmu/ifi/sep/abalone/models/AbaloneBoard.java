@@ -1,8 +1,10 @@
 package de.lmu.ifi.sep.abalone.models;
 
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
 import de.lmu.ifi.sep.abalone.components.EntryObserver;
 import de.lmu.ifi.sep.abalone.components.ObservableMap;
 import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.components.VectorTable;
 
 import java.util.Map;
 
@@ -10,7 +12,7 @@ import java.util.Map;
  * Model in the MVC architecture, responsible for holding internal game
  * structure, position as {@code Vector} to {@code Owner} Mapping.
  */
-public class AbaloneBoard {
+public class AbaloneBoard implements ReadableBoard {
 
     /**
      * Structure holding board data. Implements observer pattern.
@@ -20,6 +22,23 @@ public class AbaloneBoard {
      * Maximum number of rows and columns of this board.
      */
     private final int BOARD_SIZE;
+    /**
+     * Precomputed cell indices, neighbors and rays of this board size.
+     */
+    private final BoardGeometry GEOMETRY;
+    /**
+     * Zobrist keys of this board size.
+     */
+    private final ZobristKeys KEYS;
+    /**
+     * Zobrist hash of the cells and the side to move, kept up to date by
+     * every change made through this class.
+     */
+    private long hash;
+    /**
+     * Player whose turn it is, {@code Owner.EMPTY} while unknown.
+     */
+    private Owner sideToMove = Owner.EMPTY;
 
     /**
      * Constructor of Abalone Board with a Observable Map as a data structure.
@@ -28,7 +47,27 @@ public class AbaloneBoard {
      */
     public AbaloneBoard(final int BOARD_SIZE) {
         this.BOARD_SIZE = BOARD_SIZE;
+        this.GEOMETRY = BoardGeometry.forSize(BOARD_SIZE);
+        this.KEYS = ZobristKeys.forSize(BOARD_SIZE);
         BOARD = initializeBoard(BOARD_SIZE);
+        resetHash();
+    }
+
+    /**
+     * Constructor for subclasses that keep the cells in their own structure.
+     * Such subclasses must override every accessor of this class that
+     * touches the board data and call {@link #resetHash()} once their cells
+     * are filled.
+     *
+     * @param BOARD_SIZE Maximum rows and columns of this board.
+     * @param board      Structure holding board data, may be {@code null}.
+     */
+    protected AbaloneBoard(final int BOARD_SIZE,
+                           final ObservableMap<Vector, Owner> board) {
+        this.BOARD_SIZE = BOARD_SIZE;
+        this.GEOMETRY = BoardGeometry.forSize(BOARD_SIZE);
+        this.KEYS = ZobristKeys.forSize(BOARD_SIZE);
+        this.BOARD = board;
     }
 
     public static String getOwnerName(Owner o) {
@@ -48,35 +87,49 @@ public class AbaloneBoard {
     }
 
     /**
-     * Utility method to initialize game board with BOARD_SIZE.
+     * Utility method to initialize game board with BOARD_SIZE. Positions are
+     * the canonical {@code Vector}s of the board size, so walking the board
+     * does not allocate.
      *
      * @param size Maximum rows and columns of this board.
      * @return board of this class.
      */
     private ObservableMap<Vector, Owner> initializeBoard(final int size) {
         ObservableMap<Vector, Owner> board = new ObservableMap<>();
+        VectorTable positions = VectorTable.forSize(size);
         int radius = size / 2;
-        int cond1 = radius - 2;
-        Owner o;
         for (int y = -radius; y <= radius; y++) {
             int x1 = Math.max(-radius, -y - radius);
             int x2 = Math.min(radius, -y + radius);
             for (int x = x1; x <= x2; x++) {
-                boolean cond2 = x > -1 && x < radius - 1;
-                boolean cond3 = x < 1 && x > -radius + 1;
-                if (y < -cond1 || (y == -cond1 && cond2)) {
-                    o = Owner.PLAYER_WHITE;
-                } else if (y > cond1 || (y == cond1 && cond3)) {
-                    o = Owner.PLAYER_BLACK;
-                } else {
-                    o = Owner.EMPTY;
-                }
-                board.put(new Vector(x, y), o);
+                board.put(positions.get(x, y), getStartingOwner(size, x, y));
             }
         }
         return board;
     }
 
+    /**
+     * Returns the {@code Owner} of a position in the starting layout of a
+     * board with the given size.
+     *
+     * @param size Maximum rows and columns of the board.
+     * @param x    x-position of the space.
+     * @param y    y-position of the space.
+     * @return Owner of the space when a game starts.
+     */
+    protected static Owner getStartingOwner(final int size, final int x, final int y) {
+        int radius = size / 2;
+        int cond1 = radius - 2;
+        boolean cond2 = x > -1 && x < radius - 1;
+        boolean cond3 = x < 1 && x > -radius + 1;
+        if (y < -cond1 || (y == -cond1 && cond2)) {
+            return Owner.PLAYER_WHITE;
+        } else if (y > cond1 || (y == cond1 && cond3)) {
+            return Owner.PLAYER_BLACK;
+        }
+        return Owner.EMPTY;
+    }
+
     /**
      * Accessor method to this board.
      *
@@ -88,7 +141,7 @@ public class AbaloneBoard {
 
     public void setBoard(ObservableMap<Vector, Owner> board) {
         for (Map.Entry<Vector, Owner> entry : board.entrySet()) {
-            this.BOARD.replace(entry.getKey(), entry.getValue());
+            setOwner(entry.getKey(), entry.getValue());
         }
     }
 
@@ -114,6 +167,17 @@ public class AbaloneBoard {
         return BOARD_SIZE;
     }
 
+    /**
+     * Accessor for the precomputed cell indices, neighbors and rays of this
+     * board size.
+     *
+     * @return geometry of this board.
+     */
+    @Override
+    public BoardGeometry getGeometry() {
+        return GEOMETRY;
+    }
+
     /**
      * Method to change the current owner of a position on this board.
      *
@@ -122,7 +186,8 @@ public class AbaloneBoard {
      */
     public synchronized void setOwner(Vector c, Owner changeTo) {
         if (BOARD != null && BOARD.containsKey(c)) {
-            BOARD.replace(c, changeTo);
+            Owner old = BOARD.replace(c, changeTo);
+            updateHash(GEOMETRY.getCellIndex(c), old, changeTo);
         }
     }
 
@@ -140,6 +205,101 @@ public class AbaloneBoard {
         return owner;
     }
 
+    /**
+     * Method to return current {@code Owner} of a cell index of this board's
+     * {@link BoardGeometry}.
+     *
+     * @param index Cell index on this board.
+     * @return Owner of the position on this board.
+     */
+    @Override
+    public Owner getOwner(int index) {
+        return getOwner(GEOMETRY.getPosition(index));
+    }
+
+    /**
+     * Method to change the current owner of a cell index of this board's
+     * {@link BoardGeometry}.
+     *
+     * @param index    Cell index on this board.
+     * @param changeTo Owner that the position of the board is being changed to.
+     */
+    public void setOwner(int index, Owner changeTo) {
+        setOwner(GEOMETRY.getPosition(index), changeTo);
+    }
+
+    /**
+     * Accessor for the player whose turn it is.
+     *
+     * @return side to move, {@code Owner.EMPTY} while unknown.
+     */
+    public Owner getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Changes the player whose turn it is, which is part of the hash.
+     *
+     * @param sideToMove Player whose turn it is.
+     */
+    public synchronized void setSideToMove(Owner sideToMove) {
+        hash ^= KEYS.side(this.sideToMove) ^ KEYS.side(sideToMove);
+        this.sideToMove = sideToMove;
+    }
+
+    /**
+     * Accessor for the Zobrist hash of the cells and the side to move.
+     * Changes written directly into the {@code Map} of {@link #getBoard()}
+     * are not part of the hash, use {@link #setOwner(Vector, Owner)}.
+     *
+     * @return 64-bit hash of the position.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Accessor for the Zobrist hash of the cells alone, without the side to
+     * move, to compare boards whose turns may differ.
+     *
+     * @return 64-bit hash of the cells.
+     */
+    public long getCellHash() {
+        return hash ^ KEYS.side(sideToMove);
+    }
+
+    /**
+     * Calculates the hash of the position from scratch, e.g. to verify
+     * {@link #getHash()}.
+     *
+     * @return 64-bit hash of the position.
+     */
+    public long computeHash() {
+        long h = KEYS.side(sideToMove);
+        for (int cell = 0; cell < GEOMETRY.getCellCount(); cell++) {
+            h ^= KEYS.cell(cell, getOwner(cell));
+        }
+        return h;
+    }
+
+    /**
+     * Replaces the hash with one calculated from scratch.
+     */
+    protected final void resetHash() {
+        hash = computeHash();
+    }
+
+    /**
+     * Updates the hash for one changed cell.
+     *
+     * @param cell Cell index of the changed space.
+     * @param from Previous owner of the space.
+     * @param to   New owner of the space.
+     */
+    protected final void updateHash(int cell, Owner from, Owner to) {
+        hash ^= KEYS.cell(cell, from) ^ KEYS.cell(cell, to);
+    }
+
     /**
      * Adds observers that are interested in receiving information regarding
      * changes to entries held by this map.
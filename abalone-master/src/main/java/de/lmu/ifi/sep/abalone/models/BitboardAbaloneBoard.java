@@ -0,0 +1,385 @@
+package de.lmu.ifi.sep.abalone.models;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.components.EntryObserver;
+import de.lmu.ifi.sep.abalone.components.ObservableMap;
+import de.lmu.ifi.sep.abalone.components.Vector;
+
+import java.util.*;
+
+/**
+ * Alternative {@link AbaloneBoard} backend that keeps the spaces of the board
+ * as bitsets instead of a {@code Vector} to {@code Owner} mapping.
+ * <p>
+ * Every space of the hexagon is addressed by its dense cell index of the
+ * board's {@link BoardGeometry}. The board holds one bitset per player color,
+ * so an occupancy test is a single word operation and no {@code Vector} has
+ * to be hashed. {@link #getBoard()} stays available as a {@code Map} view backed by
+ * the bitsets for code that still works on positions.
+ * <p>
+ * <strong>Note that the index based accessors are not synchronized.</strong>
+ * They are meant for code that owns the board exclusively, e.g. a computer
+ * player searching on its own copy.
+ */
+public class BitboardAbaloneBoard extends AbaloneBoard {
+
+    /**
+     * Number of spaces of this board.
+     */
+    private final int CELLS;
+
+    /**
+     * Bitset of the spaces owned by the white player.
+     */
+    private final long[] white;
+
+    /**
+     * Bitset of the spaces owned by the black player.
+     */
+    private final long[] black;
+
+    /**
+     * List containing the Observers that need to be notified of changes.
+     */
+    private final List<EntryObserver<Vector, Owner>> observers = new ArrayList<>();
+
+    /**
+     * {@code Map} view on the bitsets returned by {@link #getBoard()}.
+     */
+    private final Map<Vector, Owner> view = new BoardView();
+
+    /**
+     * Constructs a board with the starting layout of the given size.
+     *
+     * @param BOARD_SIZE Maximum rows and columns of this board.
+     */
+    public BitboardAbaloneBoard(final int BOARD_SIZE) {
+        super(BOARD_SIZE, null);
+        BoardGeometry geometry = getGeometry();
+        CELLS = geometry.getCellCount();
+        white = new long[(CELLS + 63) >>> 6];
+        black = new long[(CELLS + 63) >>> 6];
+        for (int i = 0; i < CELLS; i++) {
+            Vector position = geometry.getPosition(i);
+            setBit(i, getStartingOwner(BOARD_SIZE, position.getX(), position.getY()));
+        }
+        resetHash();
+    }
+
+    /**
+     * Constructs a copy of the given board, regardless of its backend,
+     * including the side to move. Observers of the given board are not
+     * copied.
+     *
+     * @param board Board whose size and spaces are copied.
+     */
+    public BitboardAbaloneBoard(final AbaloneBoard board) {
+        this(board.getSize());
+        for (int i = 0; i < CELLS; i++) {
+            setBit(i, board.getOwner(i));
+        }
+        setSideToMove(board.getSideToMove());
+        resetHash();
+    }
+
+    /**
+     * Returns the cell index of a position.
+     *
+     * @param x x-position of the space.
+     * @param y y-position of the space.
+     * @return Cell index, or {@code -1} if the position is not on this board.
+     */
+    public int getCellIndex(final int x, final int y) {
+        return getGeometry().getCellIndex(x, y);
+    }
+
+    /**
+     * Returns the cell index of a position.
+     *
+     * @param c Position as {@code Vector}.
+     * @return Cell index, or {@code -1} if the position is not on this board.
+     */
+    public int getCellIndex(final Vector c) {
+        return getGeometry().getCellIndex(c);
+    }
+
+    /**
+     * Accessor for the number of spaces of this board.
+     *
+     * @return Number of spaces as {@code int}.
+     */
+    public int getCellCount() {
+        return CELLS;
+    }
+
+    /**
+     * Returns the position of a cell index.
+     *
+     * @param index Cell index on this board.
+     * @return Position as {@code Vector}.
+     */
+    public Vector getPosition(final int index) {
+        return getGeometry().getPosition(index);
+    }
+
+    /**
+     * Returns the {@code Owner} of a cell index.
+     *
+     * @param index Cell index on this board.
+     * @return Owner of the space.
+     */
+    @Override
+    public Owner getOwner(final int index) {
+        long mask = 1L << index;
+        if ((white[index >>> 6] & mask) != 0) {
+            return Owner.PLAYER_WHITE;
+        } else if ((black[index >>> 6] & mask) != 0) {
+            return Owner.PLAYER_BLACK;
+        }
+        return Owner.EMPTY;
+    }
+
+    /**
+     * Changes the {@code Owner} of a cell index and notifies observers.
+     *
+     * @param index    Cell index on this board.
+     * @param changeTo Owner that the space is being changed to.
+     */
+    @Override
+    public void setOwner(final int index, final Owner changeTo) {
+        updateHash(index, getOwner(index), changeTo);
+        setBit(index, changeTo);
+        for (EntryObserver<Vector, Owner> o : observers) {
+            o.entryChanged(getPosition(index), changeTo);
+        }
+    }
+
+    /**
+     * Checks whether a cell index is occupied by either player.
+     *
+     * @param index Cell index on this board.
+     * @return {@code true} if the space is not empty.
+     */
+    public boolean isOccupied(final int index) {
+        return ((white[index >>> 6] | black[index >>> 6]) & (1L << index)) != 0;
+    }
+
+    /**
+     * Counts the pieces of a player that are left on this board.
+     *
+     * @param owner Player whose pieces are counted.
+     * @return Number of pieces as {@code int}.
+     */
+    public int countPieces(final Owner owner) {
+        long[] bits = bitsOf(owner);
+        int count = 0;
+        if (bits != null) {
+            for (long word : bits) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Accessor for the number of words of a bitset.
+     *
+     * @return Number of {@code long} words per player.
+     */
+    public int getWordCount() {
+        return white.length;
+    }
+
+    /**
+     * Returns one word of the bitset of a player. Bit {@code i} of word
+     * {@code w} belongs to cell index {@code 64 * w + i}.
+     *
+     * @param owner Player whose pieces are returned.
+     * @param word  Index of the word.
+     * @return Bits of the word, {@code 0} for {@code Owner.EMPTY}.
+     */
+    public long getPieces(final Owner owner, final int word) {
+        long[] bits = bitsOf(owner);
+        return bits == null ? 0L : bits[word];
+    }
+
+    @Override
+    public Map<Vector, Owner> getBoard() {
+        return view;
+    }
+
+    @Override
+    public void setBoard(ObservableMap<Vector, Owner> board) {
+        for (Map.Entry<Vector, Owner> entry : board.entrySet()) {
+            int index = getCellIndex(entry.getKey());
+            if (index >= 0) {
+                setOwner(index, entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public boolean hasPosition(Vector c) {
+        return getCellIndex(c) >= 0;
+    }
+
+    @Override
+    public synchronized void setOwner(Vector c, Owner changeTo) {
+        int index = getCellIndex(c);
+        if (index >= 0) {
+            setOwner(index, changeTo);
+        }
+    }
+
+    @Override
+    public synchronized Owner getOwner(Vector c) {
+        int index = getCellIndex(c);
+        return index < 0 ? null : getOwner(index);
+    }
+
+    @Override
+    public void addObserver(EntryObserver<Vector, Owner> obs) {
+        if (!observers.contains(obs)) {
+            observers.add(obs);
+        }
+    }
+
+    /**
+     * Writes an owner into the bitsets without notifying observers.
+     *
+     * @param index    Cell index on this board.
+     * @param changeTo Owner that the space is being changed to.
+     */
+    private void setBit(final int index, final Owner changeTo) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        white[word] &= ~mask;
+        black[word] &= ~mask;
+        if (changeTo == Owner.PLAYER_WHITE) {
+            white[word] |= mask;
+        } else if (changeTo == Owner.PLAYER_BLACK) {
+            black[word] |= mask;
+        }
+    }
+
+    /**
+     * Returns the bitset of a player.
+     *
+     * @param owner Player whose bitset is returned.
+     * @return Bitset, or {@code null} for {@code Owner.EMPTY}.
+     */
+    private long[] bitsOf(final Owner owner) {
+        if (owner == Owner.PLAYER_WHITE) {
+            return white;
+        } else if (owner == Owner.PLAYER_BLACK) {
+            return black;
+        }
+        return null;
+    }
+
+    /**
+     * {@code Map} view on the bitsets. Writes go through to the board, but
+     * positions that are not on the board cannot be added.
+     */
+    private class BoardView extends AbstractMap<Vector, Owner> {
+
+        @Override
+        public int size() {
+            return CELLS;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Vector && hasPosition((Vector) key);
+        }
+
+        @Override
+        public Owner get(Object key) {
+            return key instanceof Vector ? getOwner((Vector) key) : null;
+        }
+
+        @Override
+        public Owner put(Vector key, Owner value) {
+            int index = getCellIndex(key);
+            if (index < 0) {
+                throw new IllegalArgumentException(key + " is not on the board");
+            }
+            Owner old = getOwner(index);
+            setOwner(index, value);
+            return old;
+        }
+
+        @Override
+        public Set<Entry<Vector, Owner>> entrySet() {
+            return new AbstractSet<Entry<Vector, Owner>>() {
+                @Override
+                public Iterator<Entry<Vector, Owner>> iterator() {
+                    return new Iterator<Entry<Vector, Owner>>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < CELLS;
+                        }
+
+                        @Override
+                        public Entry<Vector, Owner> next() {
+                            if (next >= CELLS) {
+                                throw new NoSuchElementException();
+                            }
+                            return new CellEntry(next++);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return CELLS;
+                }
+            };
+        }
+    }
+
+    /**
+     * Entry of the {@code Map} view, reading and writing one cell index.
+     */
+    private class CellEntry implements Map.Entry<Vector, Owner> {
+
+        private final int index;
+
+        CellEntry(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Vector getKey() {
+            return getPosition(index);
+        }
+
+        @Override
+        public Owner getValue() {
+            return getOwner(index);
+        }
+
+        @Override
+        public Owner setValue(Owner value) {
+            Owner old = getOwner(index);
+            setOwner(index, value);
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && getValue() == e.getValue();
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ getValue().hashCode();
+        }
+    }
+}
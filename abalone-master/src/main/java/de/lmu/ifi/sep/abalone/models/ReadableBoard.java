@@ -0,0 +1,22 @@
+package de.lmu.ifi.sep.abalone.models;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+
+/**
+ * Read access to the cells of a board by index, all the move rules of
+ * {@link de.lmu.ifi.sep.abalone.logic.Context} need.
+ */
+public interface ReadableBoard {
+
+    /**
+     * @return geometry the cell indices refer to.
+     */
+    BoardGeometry getGeometry();
+
+    /**
+     * @param index Cell index of the geometry.
+     * @return Owner of the cell, {@code null} if the cell is not part of the
+     * board, which the rules treat like a cell off the board.
+     */
+    AbaloneBoard.Owner getOwner(int index);
+}
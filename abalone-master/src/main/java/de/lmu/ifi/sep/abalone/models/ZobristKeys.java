@@ -0,0 +1,98 @@
+package de.lmu.ifi.sep.abalone.models;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Random 64-bit keys for Zobrist hashing of a board size.
+ * <p>
+ * The hash of a position is the XOR of the key of every occupied cell and the
+ * key of the side to move. Changing one cell therefore changes the hash by
+ * two XOR operations. Keys are drawn from a fixed seed, so every process
+ * computes the same hash for the same position, which lets peers and files
+ * compare hashes.
+ */
+public final class ZobristKeys {
+
+    /**
+     * Keys already drawn, by board size.
+     */
+    private static final Map<Integer, ZobristKeys> KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * Seed of the keys of all board sizes.
+     */
+    private static final long SEED = 0x4162616C6F6E6521L;
+
+    /**
+     * Key of every cell and owner, at {@code cell * 3 + owner.ordinal()}.
+     * Keys of {@code Owner.EMPTY} are {@code 0}.
+     */
+    private final long[] CELLS;
+
+    /**
+     * Key of the side to move by owner ordinal, {@code 0} for
+     * {@code Owner.EMPTY}.
+     */
+    private final long[] SIDES;
+
+    /**
+     * Draws the keys of a board size.
+     *
+     * @param size Maximum rows and columns of the board.
+     */
+    private ZobristKeys(final int size) {
+        SplittableRandom random = new SplittableRandom(SEED + size);
+        int owners = Owner.values().length;
+        int cells = BoardGeometry.forSize(size).getCellCount();
+        CELLS = new long[cells * owners];
+        for (int cell = 0; cell < cells; cell++) {
+            for (Owner owner : Owner.values()) {
+                if (owner != Owner.EMPTY) {
+                    CELLS[cell * owners + owner.ordinal()] = random.nextLong();
+                }
+            }
+        }
+        SIDES = new long[owners];
+        for (Owner owner : Owner.values()) {
+            if (owner != Owner.EMPTY) {
+                SIDES[owner.ordinal()] = random.nextLong();
+            }
+        }
+    }
+
+    /**
+     * Returns the shared keys of a board size, drawing them on first use.
+     *
+     * @param size Maximum rows and columns of the board.
+     * @return Keys of the board size.
+     */
+    public static ZobristKeys forSize(final int size) {
+        return KEYS.computeIfAbsent(size, ZobristKeys::new);
+    }
+
+    /**
+     * Returns the key of an owner on a cell.
+     *
+     * @param cell  Cell index of the board's {@link BoardGeometry}.
+     * @param owner Owner of the cell, may be {@code null}.
+     * @return Key, {@code 0} for empty cells.
+     */
+    public long cell(final int cell, final Owner owner) {
+        return owner == null ? 0L : CELLS[cell * SIDES.length + owner.ordinal()];
+    }
+
+    /**
+     * Returns the key of the side to move.
+     *
+     * @param owner Player to move, may be {@code null}.
+     * @return Key, {@code 0} for {@code Owner.EMPTY}.
+     */
+    public long side(final Owner owner) {
+        return owner == null ? 0L : SIDES[owner.ordinal()];
+    }
+}
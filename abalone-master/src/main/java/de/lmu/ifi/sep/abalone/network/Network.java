@@ -63,6 +63,19 @@ public class Network implements NetworkObservable, ConnectorObservable, Closeabl
         this.client = new GuestClient(InetAddress.getByName(host), Integer.parseInt(port), publisher);
     }
 
+    /**
+     * Creates a network api object without a client, for subclasses that
+     * answer the game logic without a socket, like a local opponent.
+     * Subclasses must override {@link #connect(ConnectorObserver)},
+     * {@link #setObserver(NetworkObserver)}, {@link #send(Message)} and
+     * {@link #close()}.
+     *
+     * @param clientType role of the local game logic
+     */
+    protected Network(ClientType clientType) {
+        this.clientType = clientType;
+    }
+
     @Override
     public void connect(ConnectorObserver observer) {
         this.client.start(observer);
@@ -84,7 +97,7 @@ public class Network implements NetworkObservable, ConnectorObservable, Closeabl
             this.handler.reset(observer);
         } else {
             this.handler = new MessageHandler(this.client.getMessageQueue(), observer);
-            this.handler.start();
+            Transport.preferred().start(this.handler);
         }
 
     }
@@ -0,0 +1,123 @@
+package de.lmu.ifi.sep.abalone.network;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.logging.Logger;
+
+/**
+ * Threads the socket reader of a {@link de.lmu.ifi.sep.abalone.network.clients.Client}
+ * and the dispatch loop of a {@link de.lmu.ifi.sep.abalone.network.message.MessageHandler}
+ * run on. Both keep their blocking code either way.
+ * <p>
+ * {@link #PLATFORM} threads are operating system threads, two per
+ * connection. {@link #VIRTUAL} threads are scheduled by the JVM on a few
+ * carrier threads and only take memory for the stack they use, so a process
+ * may hold many thousands of connections. They exist from Java 21 on; the
+ * game is built for Java 8, so they are looked up at runtime, and older
+ * runtimes fall back to platform threads. The transport comes from the
+ * system property {@value #TRANSPORT_PROPERTY}, {@code platform} unless set
+ * to {@code virtual}.
+ */
+public enum Transport {
+
+    /**
+     * An operating system thread per loop.
+     */
+    PLATFORM,
+
+    /**
+     * A virtual thread per loop, platform threads before Java 21.
+     */
+    VIRTUAL;
+
+    /**
+     * System property choosing the transport.
+     */
+    public static final String TRANSPORT_PROPERTY = "abalone.transport";
+
+    /**
+     * Starts a virtual thread with a name and a task, {@code null} before
+     * Java 21.
+     */
+    private static final MethodHandle START_VIRTUAL = findStartVirtual();
+
+    /**
+     * @return Transport named by the system property {@value #TRANSPORT_PROPERTY}.
+     */
+    public static Transport preferred() {
+        if (!"virtual".equals(System.getProperty(TRANSPORT_PROPERTY))) {
+            return PLATFORM;
+        }
+        if (START_VIRTUAL == null) {
+            Logger.getLogger(Transport.class.getName())
+                    .warning("Virtual threads need Java 21, using platform threads.");
+        }
+        return VIRTUAL;
+    }
+
+    /**
+     * @return {@code true} if the runtime has virtual threads.
+     */
+    public static boolean isVirtualSupported() {
+        return START_VIRTUAL != null;
+    }
+
+    /**
+     * Runs a thread object that was not started yet. Platform threads start
+     * it as it is; virtual threads run it as task of a new virtual thread of
+     * the same name, the thread object itself stays unstarted.
+     *
+     * @param thread Thread to run.
+     * @return Thread running it.
+     */
+    public Thread start(final Thread thread) {
+        return start(thread.getName(), thread);
+    }
+
+    /**
+     * Runs a task on a new thread.
+     *
+     * @param name Name of the thread.
+     * @param task Task to run.
+     * @return Thread running the task.
+     */
+    public Thread start(final String name, final Runnable task) {
+        if (this == VIRTUAL && START_VIRTUAL != null) {
+            try {
+                return (Thread) START_VIRTUAL.invoke(name, task);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        Thread thread = task instanceof Thread && name.equals(((Thread) task).getName())
+                ? (Thread) task : new Thread(task, name);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Binds {@code Thread.ofVirtual().name(name).start(task)} if the runtime
+     * has it.
+     */
+    private static MethodHandle findStartVirtual() {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+                    MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")));
+            MethodHandle name = lookup.findVirtual(builder, "name",
+                    MethodType.methodType(builder, String.class));
+            MethodHandle start = lookup.findVirtual(builder, "start",
+                    MethodType.methodType(Thread.class, Runnable.class));
+            // (name, task) -> start(name(ofVirtual(), name), task)
+            MethodHandle named = MethodHandles.collectArguments(name, 0,
+                    ofVirtual.asType(MethodType.methodType(builder)));
+            return MethodHandles.collectArguments(start, 0, named);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -5,7 +5,9 @@ import de.lmu.ifi.sep.abalone.logic.communication.events.ErrorEvent;
 import de.lmu.ifi.sep.abalone.logic.communication.events.EventMessage;
 import de.lmu.ifi.sep.abalone.logic.communication.publishers.EventPublisher;
 import de.lmu.ifi.sep.abalone.network.ConnectorObserver;
+import de.lmu.ifi.sep.abalone.network.Transport;
 import de.lmu.ifi.sep.abalone.network.message.Message;
+import de.lmu.ifi.sep.abalone.network.message.MessageCodec;
 
 import java.io.*;
 import java.net.Socket;
@@ -25,8 +27,7 @@ public abstract class Client extends Thread implements Closeable {
     Socket socket;
     boolean closed = false;
     private ConnectorObserver observer;
-    private ObjectInputStream inputStream;
-    private ObjectOutputStream outputStream;
+    private MessageCodec codec;
     private final EventPublisher<ErrorEvent> publisher;
 
     /**
@@ -49,16 +50,30 @@ public abstract class Client extends Thread implements Closeable {
      * @param observer Observer which will be notified after connection was established
      */
     public void start(ConnectorObserver observer) {
+        start(observer, Transport.preferred());
+    }
+
+    /**
+     * Starts the client on a thread of the given transport and sets an
+     * observer which is notified after the connection with a client/server
+     * was established
+     *
+     * @param observer  Observer which will be notified after connection was established
+     * @param transport Threads the client listens on
+     */
+    public void start(ConnectorObserver observer, Transport transport) {
         assert observer != null;
 
         this.observer = observer;
-        this.start();
+        transport.start(this);
     }
 
     /**
      * Establishes connection during setup process and listens to port for
      * incoming messages after connection was established. Received messages
-     * are appended to messageQueue.
+     * are appended to messageQueue, anything else read as a SYNC without
+     * package, which the game answers by requesting the changes since the
+     * version of its board.
      */
     @Override
     public void run() {
@@ -68,15 +83,11 @@ public abstract class Client extends Thread implements Closeable {
 
         try {
             while (this.socket != null && !this.socket.isClosed()) {
-                Object received = this.inputStream.readObject();
+                Object received = this.codec.read();
                 if (received instanceof Message) {
                     this.messageQueue.putLast((Message) received);
                 } else {
-                    if (this instanceof HostClient) {
-                        this.messageQueue.putLast(new Message(Message.MessageType.SYNC, null));
-                    } else {
-                        this.send(new Message(Message.MessageType.SYNC_REQUEST, null));
-                    }
+                    this.messageQueue.putLast(new Message(Message.MessageType.SYNC, null));
                 }
             }
         } catch (IOException e) {
@@ -91,19 +102,21 @@ public abstract class Client extends Thread implements Closeable {
 
 
     /**
-     * Builds a stream cascade from the socket in/output streams to object
-     * in/output streams.
+     * Builds a stream cascade from the socket in/output streams to the
+     * message codec both ends agree on, see
+     * {@link MessageCodec#negotiate(InputStream, OutputStream, int)}.
      * Method is overwritten by derived classes but called during setup process
      * by super.setup().
      */
     void setup() {
         try {
             logger.info("Initializing streams...");
-            this.outputStream = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
-            this.outputStream.flush();
-            this.inputStream = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.socket.setSoTimeout(MessageCodec.HANDSHAKE_TIMEOUT_MILLIS);
+            this.codec = MessageCodec.negotiate(new BufferedInputStream(socket.getInputStream()),
+                    new BufferedOutputStream(socket.getOutputStream()), MessageCodec.preferredFormat());
+            this.socket.setSoTimeout(0);
 
-            logger.info("Streams were initialized.");
+            logger.info("Streams were initialized, wire format " + this.codec.getFormat() + ".");
 
             logger.info("Completed setup successfully.");
         } catch (IOException e) {
@@ -124,11 +137,17 @@ public abstract class Client extends Thread implements Closeable {
      */
     public void send(Serializable message) throws IOException {
         logger.info("Sending message " + message.toString());
-        this.outputStream.writeObject(message);
-        this.outputStream.flush();
+        this.codec.write(message);
         logger.info("Message sent");
     }
 
+    /**
+     * @return codec of the connection, {@code null} before it was established
+     */
+    public MessageCodec getCodec() {
+        return codec;
+    }
+
     /**
      * @return true, if client is connected to a client/socket, false otherwise
      */
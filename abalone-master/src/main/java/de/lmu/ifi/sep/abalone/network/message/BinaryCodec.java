@@ -0,0 +1,578 @@
+package de.lmu.ifi.sep.abalone.network.message;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.logic.Player;
+import de.lmu.ifi.sep.abalone.logic.communication.InitPackage;
+import de.lmu.ifi.sep.abalone.logic.communication.Move;
+import de.lmu.ifi.sep.abalone.logic.communication.SyncPackage;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends messages as compact binary frames instead of serialized objects.
+ * <p>
+ * A frame is its length as variable-length integer, seven bits per byte with
+ * the high bit set on all but the last byte, followed by a tag byte and the
+ * payload. Frames are at most {@value #MAX_FRAME_BYTES} bytes long. The tag holds the ordinal of the {@link Message.MessageType} in
+ * its low four bits and the form of the payload in the next two:
+ * <pre>
+ * form 0  no payload
+ * form 1  payload packed by this codec
+ * form 2  payload serialized, for payloads this codec does not know
+ * </pre>
+ * Objects sent that are no {@link Message} are serialized with the type bits
+ * all set. Packed payloads are:
+ * <pre>
+ * Move         count, count positions, target position
+ * InitPackage  board size, owner of the color with bit 2 set if the
+ *              receiver moves first
+ * SyncPackage  board size, two bits of owner per cell in the order of the
+ *              board's {@link BoardGeometry}, two players of owner, flags
+ *              (host, local) and pebbles to win each, version + 1
+ *              or, as delta, {@value #DELTA}, the version the changes were
+ *              made since, count, count positions, two bits of owner per
+ *              position, the players and version + 1 as above;
+ *              then eight bytes of the hash of the cells and the owner
+ *              whose turn it is
+ * SYNC_REQUEST version of the sender + 1
+ * </pre>
+ * A position is one byte holding x + 8 and y + 8 in four bits each, an owner
+ * is one byte holding its ordinal or {@value #NULL} for {@code null},
+ * versions are variable-length integers like the frame length. A move takes
+ * five to seven bytes and a synchronization of the largest board 35, or less
+ * as delta, instead of hundreds and thousands serialized.
+ */
+public final class BinaryCodec implements MessageCodec {
+
+    /**
+     * Code of {@code null} owners and players.
+     */
+    static final int NULL = 3;
+
+    private static final int TYPE_MASK = 0x0F;
+    private static final int NOT_A_MESSAGE = 0x0F;
+    private static final int FORM_SHIFT = 4;
+    private static final int NO_PAYLOAD = 0;
+    private static final int PACKED = 1;
+    private static final int SERIALIZED = 2;
+
+    private static final int YOUR_TURN = 4;
+
+    /**
+     * Longest frame read, far more than any message needs. Longer ones are
+     * refused before anything is allocated for them.
+     */
+    public static final int MAX_FRAME_BYTES = 16 * 1024;
+
+    /**
+     * First byte of synchronizations holding changes, in place of the board
+     * size.
+     */
+    static final int DELTA = 0x80;
+
+    private static final int POSITION_OFFSET = 8;
+    private static final int CELLS_PER_BYTE = 4;
+
+    private static final Message.MessageType[] TYPES = Message.MessageType.values();
+    private static final Owner[] OWNERS = Owner.values();
+
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Guards writes; a lock rather than a monitor, so a writer on a virtual thread
+     * does not pin its carrier while it blocks on the socket.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * Frame being written, reused for every message.
+     */
+    private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+    private final DataOutputStream frameOut = new DataOutputStream(frame);
+
+    /**
+     * Frame being read, grown as needed.
+     */
+    private byte[] buffer = new byte[64];
+
+    /**
+     * Creates a codec on the streams of a connection.
+     *
+     * @param in  Buffered input from the peer.
+     * @param out Buffered output to the peer.
+     */
+    public BinaryCodec(final InputStream in, final OutputStream out) {
+        this.in = new DataInputStream(in);
+        this.out = new DataOutputStream(out);
+    }
+
+    @Override
+    public void write(final Serializable message) throws IOException {
+        writeLock.lock();
+        try {
+            frame.reset();
+            if (message instanceof Message) {
+                encode((Message) message);
+            } else {
+                frameOut.writeByte(SERIALIZED << FORM_SHIFT | NOT_A_MESSAGE);
+                serialize(message);
+            }
+            int length = frame.size();
+            if (length > MAX_FRAME_BYTES) {
+                throw new IOException("Frame of " + length + " bytes is longer than " + MAX_FRAME_BYTES);
+            }
+            while (length >= 0x80) {
+                out.writeByte(length & 0x7F | 0x80);
+                length >>>= 7;
+            }
+            out.writeByte(length);
+            frame.writeTo(out);
+            out.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Object read() throws IOException, ClassNotFoundException {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int next = in.readUnsignedByte();
+            length |= (next & 0x7F) << shift;
+            if (next < 0x80) {
+                break;
+            }
+            if (shift > 21) {
+                throw new IOException("Frame is too long");
+            }
+        }
+        if (length > MAX_FRAME_BYTES) {
+            throw new IOException("Frame of " + length + " bytes is longer than " + MAX_FRAME_BYTES);
+        }
+        if (length > buffer.length) {
+            buffer = new byte[Math.max(length, 2 * buffer.length)];
+        }
+        in.readFully(buffer, 0, length);
+        try {
+            return decode(ByteBuffer.wrap(buffer, 0, length), true);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed frame", e);
+        }
+    }
+
+    /**
+     * Reads a frame from bytes received without a stream, like those of a
+     * non-blocking channel. Only messages with packed payloads or none are
+     * read: the bytes may come from anybody, and serialized objects could
+     * make the reader run code of any class it knows.
+     *
+     * @param buffer Buffer backed by an array, ready to get the received bytes.
+     * @return The message, {@code null} if the buffer does not hold the whole
+     * frame yet; the position of the buffer is then left as it was.
+     * @throws IOException if the bytes are no message or a serialized one.
+     */
+    public static Object readFrame(final ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                buffer.position(start);
+                return null;
+            }
+            int next = buffer.get() & 0xFF;
+            length |= (next & 0x7F) << shift;
+            if (next < 0x80) {
+                break;
+            }
+            if (shift > 21) {
+                throw new IOException("Frame is too long");
+            }
+        }
+        if (length > MAX_FRAME_BYTES) {
+            throw new IOException("Frame of " + length + " bytes is longer than " + MAX_FRAME_BYTES);
+        }
+        if (buffer.remaining() < length) {
+            buffer.position(start);
+            return null;
+        }
+        ByteBuffer frame = buffer.slice();
+        frame.limit(length);
+        buffer.position(buffer.position() + length);
+        try {
+            return decode(frame, false);
+        } catch (ClassNotFoundException e) {
+            // not thrown without serialized payloads
+            throw new IllegalStateException(e);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed frame", e);
+        }
+    }
+
+    @Override
+    public int getFormat() {
+        return BINARY;
+    }
+
+    /**
+     * Writes the tag and payload of a message into the frame.
+     */
+    private void encode(final Message message) throws IOException {
+        int type = message.getMessageType().ordinal();
+        Serializable payload = message.getPayload();
+        if (payload == null) {
+            frameOut.writeByte(NO_PAYLOAD << FORM_SHIFT | type);
+            return;
+        }
+        frameOut.writeByte(PACKED << FORM_SHIFT | type);
+        if (pack(message.getMessageType(), payload)) {
+            return;
+        }
+        frame.reset();
+        frameOut.writeByte(SERIALIZED << FORM_SHIFT | type);
+        serialize(payload);
+    }
+
+    /**
+     * Packs a payload into the frame.
+     *
+     * @return {@code false} if this codec cannot pack it, the frame then
+     * holds garbage after the tag.
+     */
+    private boolean pack(final Message.MessageType type, final Serializable payload)
+            throws IOException {
+        if (type == Message.MessageType.SYNC_REQUEST && payload instanceof Integer) {
+            int version = (Integer) payload;
+            writeVarint(version + 1);
+            return version >= -1;
+        }
+        if (payload instanceof Move) {
+            Move move = (Move) payload;
+            List<Vector> selected = move.getSelected();
+            if (selected == null || selected.isEmpty() || selected.size() > 3) {
+                return false;
+            }
+            frameOut.writeByte(selected.size());
+            for (Vector position : selected) {
+                if (!packPosition(position)) {
+                    return false;
+                }
+            }
+            return packPosition(move.getTarget());
+        }
+        if (payload instanceof InitPackage) {
+            InitPackage init = (InitPackage) payload;
+            frameOut.writeByte(init.getGameSize());
+            frameOut.writeByte(ownerCode(init.getYourColor()) | (init.isYourTurn() ? YOUR_TURN : 0));
+            return init.getGameSize() >= 0 && init.getGameSize() < 0x100;
+        }
+        if (payload instanceof SyncPackage) {
+            SyncPackage sync = (SyncPackage) payload;
+            if (!(sync.isDelta() ? packCells(sync.getSince(), sync.getBoard()) : packBoard(sync.getBoard()))
+                    || !packPlayer(sync.getPlayerOne()) || !packPlayer(sync.getPlayerTwo())
+                    || sync.getVersion() < -1) {
+                return false;
+            }
+            writeVarint(sync.getVersion() + 1);
+            frameOut.writeLong(sync.getHash());
+            frameOut.writeByte(ownerCode(sync.getTurn()));
+            return true;
+        }
+        return false;
+    }
+
+    private boolean packPosition(final Vector position) throws IOException {
+        if (position == null) {
+            return false;
+        }
+        int x = position.getX() + POSITION_OFFSET;
+        int y = position.getY() + POSITION_OFFSET;
+        if (x < 0 || x > 0xF || y < 0 || y > 0xF) {
+            return false;
+        }
+        frameOut.writeByte(x << 4 | y);
+        return true;
+    }
+
+    /**
+     * Packs a board if its positions are exactly those of a board size.
+     */
+    private boolean packBoard(final Map<Vector, Owner> board) throws IOException {
+        if (board == null) {
+            return false;
+        }
+        int size = sizeOf(board.size());
+        if (size < 0) {
+            return false;
+        }
+        BoardGeometry geometry = BoardGeometry.forSize(size);
+        frameOut.writeByte(size);
+        int bits = 0;
+        for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+            Vector position = geometry.getPosition(cell);
+            if (!board.containsKey(position)) {
+                return false;
+            }
+            bits |= ownerCode(board.get(position)) << 2 * (cell % CELLS_PER_BYTE);
+            if (cell % CELLS_PER_BYTE == CELLS_PER_BYTE - 1) {
+                frameOut.writeByte(bits);
+                bits = 0;
+            }
+        }
+        if (geometry.getCellCount() % CELLS_PER_BYTE != 0) {
+            frameOut.writeByte(bits);
+        }
+        return true;
+    }
+
+    /**
+     * Packs the changed cells of a delta.
+     */
+    private boolean packCells(final int since, final Map<Vector, Owner> cells) throws IOException {
+        if (cells == null || since < 0 || cells.size() > 0xFF) {
+            return false;
+        }
+        frameOut.writeByte(DELTA);
+        writeVarint(since);
+        frameOut.writeByte(cells.size());
+        for (Vector position : cells.keySet()) {
+            if (!packPosition(position)) {
+                return false;
+            }
+        }
+        int bits = 0;
+        int cell = 0;
+        for (Owner owner : cells.values()) {
+            bits |= ownerCode(owner) << 2 * (cell % CELLS_PER_BYTE);
+            if (cell % CELLS_PER_BYTE == CELLS_PER_BYTE - 1) {
+                frameOut.writeByte(bits);
+                bits = 0;
+            }
+            cell++;
+        }
+        if (cell % CELLS_PER_BYTE != 0) {
+            frameOut.writeByte(bits);
+        }
+        return true;
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            frameOut.writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        frameOut.writeByte(value);
+    }
+
+    private boolean packPlayer(final Player player) throws IOException {
+        if (player == null) {
+            frameOut.writeByte(NULL);
+            return true;
+        }
+        frameOut.writeByte(ownerCode(player.getOwner()));
+        frameOut.writeByte((player.isHost() ? 1 : 0) | (player.isLocalPlayer() ? 2 : 0));
+        frameOut.writeByte(player.getPiecesToWin());
+        return player.getPiecesToWin() >= Byte.MIN_VALUE && player.getPiecesToWin() <= Byte.MAX_VALUE;
+    }
+
+    private void serialize(final Serializable payload) throws IOException {
+        ObjectOutputStream objects = new ObjectOutputStream(frameOut);
+        objects.writeObject(payload);
+        objects.flush();
+    }
+
+    /**
+     * Reads the message of a frame.
+     *
+     * @param serialized Whether serialized payloads and objects are read
+     *                   or refused.
+     */
+    private static Object decode(final ByteBuffer frame, final boolean serialized)
+            throws IOException, ClassNotFoundException {
+        int tag = frame.get() & 0xFF;
+        int type = tag & TYPE_MASK;
+        int form = tag >>> FORM_SHIFT;
+        if (!serialized && (type == NOT_A_MESSAGE || form == SERIALIZED)) {
+            throw new IOException("Serialized frames are not accepted");
+        }
+        if (type == NOT_A_MESSAGE) {
+            return deserialize(frame);
+        }
+        if (type >= TYPES.length) {
+            throw new IOException("Unknown message type " + type);
+        }
+        Message.MessageType messageType = TYPES[type];
+        switch (form) {
+            case NO_PAYLOAD:
+                return new Message(messageType, null);
+            case SERIALIZED:
+                Object payload = deserialize(frame);
+                if (payload != null && !(payload instanceof Serializable)) {
+                    throw new IOException("Payload is not serializable");
+                }
+                return new Message(messageType, (Serializable) payload);
+            case PACKED:
+                return new Message(messageType, unpack(messageType, frame));
+            default:
+                throw new IOException("Unknown payload form " + form);
+        }
+    }
+
+    private static Serializable unpack(final Message.MessageType type, final ByteBuffer frame)
+            throws IOException {
+        switch (type) {
+            case MOVE:
+                int count = frame.get();
+                if (count < 1 || count > 3) {
+                    throw new IOException("Cannot move " + count + " pebbles");
+                }
+                List<Vector> selected = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    selected.add(unpackPosition(frame));
+                }
+                return new Move(selected, unpackPosition(frame));
+            case INIT:
+                int size = frame.get() & 0xFF;
+                int color = frame.get();
+                return new InitPackage(size, owner(color & ~YOUR_TURN), (color & YOUR_TURN) != 0);
+            case SYNC:
+                boolean delta = (frame.get(frame.position()) & 0xFF) == DELTA;
+                int since = delta ? unpackSince(frame) : SyncPackage.FULL;
+                LinkedHashMap<Vector, Owner> board = delta ? unpackCells(frame) : unpackBoard(frame);
+                Player playerOne = unpackPlayer(frame);
+                Player playerTwo = unpackPlayer(frame);
+                return new SyncPackage(board, playerOne, playerTwo, readVarint(frame) - 1, since,
+                        frame.getLong(), owner(frame.get()));
+            case SYNC_REQUEST:
+                return readVarint(frame) - 1;
+            default:
+                throw new IOException("No packed payload for " + type);
+        }
+    }
+
+    private static Vector unpackPosition(final ByteBuffer frame) {
+        int position = frame.get() & 0xFF;
+        return new Vector((position >>> 4) - POSITION_OFFSET, (position & 0xF) - POSITION_OFFSET);
+    }
+
+    private static LinkedHashMap<Vector, Owner> unpackBoard(final ByteBuffer frame)
+            throws IOException {
+        int size = frame.get() & 0xFF;
+        if (size % 2 == 0 || size >= 2 * POSITION_OFFSET) {
+            throw new IOException("Unknown board size " + size);
+        }
+        BoardGeometry geometry = BoardGeometry.forSize(size);
+        LinkedHashMap<Vector, Owner> board = new LinkedHashMap<>();
+        int bits = 0;
+        for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+            if (cell % CELLS_PER_BYTE == 0) {
+                bits = frame.get() & 0xFF;
+            }
+            board.put(geometry.getPosition(cell), owner(bits >>> 2 * (cell % CELLS_PER_BYTE) & 3));
+        }
+        return board;
+    }
+
+    private static int unpackSince(final ByteBuffer frame) throws IOException {
+        frame.get();
+        return readVarint(frame);
+    }
+
+    private static LinkedHashMap<Vector, Owner> unpackCells(final ByteBuffer frame)
+            throws IOException {
+        int count = frame.get() & 0xFF;
+        Vector[] positions = new Vector[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = unpackPosition(frame);
+        }
+        LinkedHashMap<Vector, Owner> cells = new LinkedHashMap<>();
+        int bits = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % CELLS_PER_BYTE == 0) {
+                bits = frame.get() & 0xFF;
+            }
+            cells.put(positions[i], owner(bits >>> 2 * (i % CELLS_PER_BYTE) & 3));
+        }
+        return cells;
+    }
+
+    private static int readVarint(final ByteBuffer frame) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int next = frame.get() & 0xFF;
+            value |= (next & 0x7F) << shift;
+            if (next < 0x80) {
+                return value;
+            }
+            if (shift > 21) {
+                throw new IOException("Number is too long");
+            }
+        }
+    }
+
+    private static Player unpackPlayer(final ByteBuffer frame) throws IOException {
+        int code = frame.get();
+        if (code == NULL) {
+            return null;
+        }
+        int flags = frame.get();
+        return new Player(owner(code), (flags & 1) != 0, frame.get(), (flags & 2) != 0);
+    }
+
+    private static Object deserialize(final ByteBuffer frame) throws IOException, ClassNotFoundException {
+        ObjectInputStream objects = new MessageObjectInputStream(new ByteArrayInputStream(
+                frame.array(), frame.arrayOffset() + frame.position(), frame.remaining()));
+        try {
+            return objects.readObject();
+        } catch (EOFException e) {
+            throw new IOException("Malformed frame", e);
+        }
+    }
+
+    private static int ownerCode(final Owner owner) {
+        return owner == null ? NULL : owner.ordinal();
+    }
+
+    private static Owner owner(final int code) throws IOException {
+        if (code == NULL) {
+            return null;
+        }
+        if (code < 0 || code >= OWNERS.length) {
+            throw new IOException("Unknown owner " + code);
+        }
+        return OWNERS[code];
+    }
+
+    /**
+     * @param cells Number of cells of a board.
+     * @return Size of the board with that many cells, {@code -1} if there is
+     * none small enough to pack.
+     */
+    private static int sizeOf(final int cells) {
+        for (int radius = 0; radius < POSITION_OFFSET; radius++) {
+            if (3 * radius * (radius + 1) + 1 == cells) {
+                return 2 * radius + 1;
+            }
+        }
+        return -1;
+    }
+}
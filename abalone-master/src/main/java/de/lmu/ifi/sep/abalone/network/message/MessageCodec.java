@@ -0,0 +1,137 @@
+package de.lmu.ifi.sep.abalone.network.message;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamConstants;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Serializable;
+import java.net.SocketTimeoutException;
+
+/**
+ * Turns messages into bytes on the connection to the peer and back.
+ * <p>
+ * Both ends agree on a wire format when they connect. Each one sends
+ * {@link #HANDSHAKE}, the header every object stream starts with, so that
+ * peers built before the handshake, which only speak
+ * {@link #SERIALIZATION}, take it for the header of ours. Ends preferring
+ * {@link #BINARY} follow it with {@link #BINARY_MARKER}, which those peers
+ * skip as a reset of the stream. Binary frames are used if both ends sent
+ * the marker, object streams otherwise, so {@link #SERIALIZATION} is the
+ * fallback either end can ask for. The preferred format comes from the
+ * system property {@value #WIRE_PROPERTY}, {@code binary} unless set to
+ * {@code serialization}.
+ */
+public interface MessageCodec {
+
+    /**
+     * System property choosing the preferred wire format.
+     */
+    String WIRE_PROPERTY = "abalone.wire";
+
+    /**
+     * Java serialization of the messages, see {@link SerializationCodec}.
+     */
+    int SERIALIZATION = 0;
+
+    /**
+     * Compact binary frames, see {@link BinaryCodec}.
+     */
+    int BINARY = 1;
+
+    /**
+     * First bytes each end sends on a new connection, the magic number and
+     * version of {@link ObjectStreamConstants}.
+     */
+    int HANDSHAKE = ObjectStreamConstants.STREAM_MAGIC << 16 | ObjectStreamConstants.STREAM_VERSION;
+
+    /**
+     * Byte after {@link #HANDSHAKE} of ends preferring {@link #BINARY}, a
+     * reset to object streams.
+     */
+    int BINARY_MARKER = ObjectStreamConstants.TC_RESET;
+
+    /**
+     * Milliseconds to wait for {@link #BINARY_MARKER} on connections that
+     * can time out. Peers that do not send it may wait for a message of
+     * this end before they send anything.
+     */
+    int HANDSHAKE_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * Sends a message and flushes it.
+     *
+     * @param message Message to send, usually a {@link Message}.
+     * @throws IOException if the connection fails.
+     */
+    void write(Serializable message) throws IOException;
+
+    /**
+     * Waits for the next message.
+     *
+     * @return The message, usually a {@link Message}.
+     * @throws IOException            if the connection fails or the bytes are
+     *                                no message.
+     * @throws ClassNotFoundException if a serialized class is unknown.
+     */
+    Object read() throws IOException, ClassNotFoundException;
+
+    /**
+     * @return {@link #SERIALIZATION} or {@link #BINARY}.
+     */
+    int getFormat();
+
+    /**
+     * @return Wire format named by the system property {@value #WIRE_PROPERTY}.
+     */
+    static int preferredFormat() {
+        return "serialization".equals(System.getProperty(WIRE_PROPERTY)) ? SERIALIZATION : BINARY;
+    }
+
+    /**
+     * Agrees on a wire format with the peer and creates its codec.
+     *
+     * @param in        Buffered input from the peer, reads may time out
+     *                  after {@link #HANDSHAKE_TIMEOUT_MILLIS}.
+     * @param out       Buffered output to the peer.
+     * @param preferred Wire format this end prefers.
+     * @return Codec of the format both ends understand.
+     * @throws IOException if the connection fails or the peer does not speak
+     *                     this protocol.
+     */
+    static MessageCodec negotiate(final InputStream in, final OutputStream out,
+                                  final int preferred) throws IOException {
+        DataOutputStream handshake = new DataOutputStream(out);
+        handshake.writeInt(HANDSHAKE);
+        if (preferred == BINARY) {
+            handshake.writeByte(BINARY_MARKER);
+        }
+        handshake.flush();
+        if (new DataInputStream(in).readInt() != HANDSHAKE) {
+            throw new IOException("Peer does not speak the Abalone protocol");
+        }
+        if (preferred != BINARY) {
+            // a marker of the peer is skipped by the object stream
+            return new SerializationCodec(in, out, false);
+        }
+        PushbackInputStream peer = new PushbackInputStream(in, 1);
+        int next;
+        try {
+            next = peer.read();
+        } catch (SocketTimeoutException e) {
+            // an older peer waiting for our first message
+            return new SerializationCodec(peer, out, false);
+        }
+        if (next < 0) {
+            throw new EOFException("Peer closed the connection during the handshake");
+        }
+        if (next == BINARY_MARKER) {
+            return new BinaryCodec(peer, out);
+        }
+        peer.unread(next);
+        return new SerializationCodec(peer, out, false);
+    }
+}
@@ -0,0 +1,92 @@
+package de.lmu.ifi.sep.abalone.network.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reads serialized messages of a peer, refusing every class a message does
+ * not consist of. Deserializing a class runs its code, so a peer must not
+ * be able to pick any class on the class path.
+ */
+class MessageObjectInputStream extends ObjectInputStream {
+
+    /**
+     * Package of the payloads.
+     */
+    private static final String PAYLOADS = "de.lmu.ifi.sep.abalone.logic.communication.";
+
+    /**
+     * Other classes messages consist of.
+     */
+    private static final Set<String> ALLOWED = new HashSet<>(Arrays.asList(
+            "de.lmu.ifi.sep.abalone.network.message.Message",
+            "de.lmu.ifi.sep.abalone.network.message.Message$MessageType",
+            "de.lmu.ifi.sep.abalone.logic.Player",
+            "de.lmu.ifi.sep.abalone.components.Vector",
+            "de.lmu.ifi.sep.abalone.models.AbaloneBoard$Owner",
+            "java.lang.Enum",
+            "java.lang.Number",
+            "java.lang.String",
+            "java.lang.Boolean",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.util.ArrayList",
+            "java.util.Arrays$ArrayList",
+            "java.util.LinkedList",
+            "java.util.HashMap",
+            "java.util.LinkedHashMap"));
+
+    /**
+     * @param in Stream of the peer.
+     * @throws IOException if the stream header cannot be read.
+     */
+    MessageObjectInputStream(final InputStream in) throws IOException {
+        super(in);
+    }
+
+    /**
+     * @param in Stream of the peer whose header was read already.
+     * @return Stream reading the messages that follow the header.
+     * @throws IOException if the stream cannot be set up.
+     */
+    static MessageObjectInputStream withoutHeader(final InputStream in) throws IOException {
+        return new MessageObjectInputStream(in) {
+            @Override
+            protected void readStreamHeader() {
+                // read by MessageCodec#negotiate
+            }
+        };
+    }
+
+    @Override
+    protected Class<?> resolveClass(final ObjectStreamClass description)
+            throws IOException, ClassNotFoundException {
+        String name = description.getName();
+        if (!isAllowed(name)) {
+            throw new InvalidClassException(name, "Class is not part of a message");
+        }
+        return super.resolveClass(description);
+    }
+
+    /**
+     * @param name Name of a class as serialized, arrays like {@code [Lpackage.Class;}.
+     * @return {@code true} for the classes of messages and arrays of them or
+     * of primitives, like the one of {@code Arrays.asList}.
+     */
+    private static boolean isAllowed(final String name) {
+        String element = name.substring(name.lastIndexOf('[') + 1);
+        if (element.length() != name.length()) {
+            if (element.length() == 1) {
+                return true;
+            }
+            element = element.substring(1, element.length() - 1);
+        }
+        return element.startsWith(PAYLOADS) || ALLOWED.contains(element);
+    }
+}
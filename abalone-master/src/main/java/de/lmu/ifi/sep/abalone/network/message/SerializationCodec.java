@@ -0,0 +1,181 @@
+package de.lmu.ifi.sep.abalone.network.message;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends messages with Java serialization, the format of earlier versions and
+ * the fallback of {@link BinaryCodec}.
+ * <p>
+ * Object streams remember every object they have written or read, to send
+ * it as a back reference the next time, so over a long session both ends
+ * would keep every message ever sent. The codec therefore resets the
+ * streams after {@value #DEFAULT_RESET_MESSAGES} messages or
+ * {@value #DEFAULT_RESET_BYTES} bytes, whichever comes first; the reset
+ * travels with the stream, so the peer forgets its objects as well. The
+ * limits come from the system properties {@value #RESET_MESSAGES_PROPERTY}
+ * and {@value #RESET_BYTES_PROPERTY} unless given explicitly.
+ */
+public final class SerializationCodec implements MessageCodec {
+
+    /**
+     * System property holding the messages after which the streams are reset.
+     */
+    public static final String RESET_MESSAGES_PROPERTY = "abalone.wire.reset.messages";
+
+    /**
+     * System property holding the bytes after which the streams are reset.
+     */
+    public static final String RESET_BYTES_PROPERTY = "abalone.wire.reset.bytes";
+
+    /**
+     * Messages after which the streams are reset if the property is not set.
+     */
+    public static final int DEFAULT_RESET_MESSAGES = 256;
+
+    /**
+     * Bytes after which the streams are reset if the property is not set.
+     */
+    public static final long DEFAULT_RESET_BYTES = 256 * 1024;
+
+    private final ObjectInputStream inputStream;
+    private final ObjectOutputStream outputStream;
+    private final CountingOutputStream counter;
+
+    /**
+     * Lets one writer at a time in without pinning a virtual thread to its carrier.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final int RESET_MESSAGES;
+    private final long RESET_BYTES;
+
+    /**
+     * Messages written since the last reset.
+     */
+    private int messages;
+
+    /**
+     * Creates the object streams with the reset limits of the system
+     * properties. The streams exchange a header with the peer first.
+     *
+     * @param in  Buffered input from the peer.
+     * @param out Buffered output to the peer.
+     * @throws IOException if the connection fails.
+     */
+    public SerializationCodec(final InputStream in, final OutputStream out) throws IOException {
+        this(in, out, Integer.getInteger(RESET_MESSAGES_PROPERTY, DEFAULT_RESET_MESSAGES),
+                Long.getLong(RESET_BYTES_PROPERTY, DEFAULT_RESET_BYTES));
+    }
+
+    /**
+     * Creates the object streams. The streams exchange a header with the
+     * peer first.
+     *
+     * @param in            Buffered input from the peer.
+     * @param out           Buffered output to the peer.
+     * @param resetMessages Messages after which the streams are reset, 0 or
+     *                      less to never reset for the number of messages.
+     * @param resetBytes    Bytes after which the streams are reset, 0 or less
+     *                      to never reset for the number of bytes.
+     * @throws IOException if the connection fails.
+     */
+    public SerializationCodec(final InputStream in, final OutputStream out,
+                              final int resetMessages, final long resetBytes) throws IOException {
+        this(in, out, resetMessages, resetBytes, true);
+    }
+
+    /**
+     * Creates the object streams with the reset limits of the system
+     * properties on a connection whose headers may have been exchanged by
+     * {@link MessageCodec#negotiate(InputStream, OutputStream, int)}.
+     *
+     * @param in      Buffered input from the peer.
+     * @param out     Buffered output to the peer.
+     * @param headers {@code false} if both ends sent their header already.
+     * @throws IOException if the connection fails.
+     */
+    SerializationCodec(final InputStream in, final OutputStream out, final boolean headers)
+            throws IOException {
+        this(in, out, Integer.getInteger(RESET_MESSAGES_PROPERTY, DEFAULT_RESET_MESSAGES),
+                Long.getLong(RESET_BYTES_PROPERTY, DEFAULT_RESET_BYTES), headers);
+    }
+
+    private SerializationCodec(final InputStream in, final OutputStream out, final int resetMessages,
+                               final long resetBytes, final boolean headers) throws IOException {
+        this.RESET_MESSAGES = resetMessages;
+        this.RESET_BYTES = resetBytes;
+        this.counter = new CountingOutputStream(out);
+        if (headers) {
+            this.outputStream = new ObjectOutputStream(counter);
+            this.outputStream.flush();
+            this.inputStream = new MessageObjectInputStream(in);
+        } else {
+            this.outputStream = new ObjectOutputStream(counter) {
+                @Override
+                protected void writeStreamHeader() {
+                    // sent by MessageCodec#negotiate
+                }
+            };
+            this.inputStream = MessageObjectInputStream.withoutHeader(in);
+        }
+    }
+
+    @Override
+    public void write(final Serializable message) throws IOException {
+        writeLock.lock();
+        try {
+            outputStream.writeObject(message);
+            messages++;
+            if (RESET_MESSAGES > 0 && messages >= RESET_MESSAGES
+                    || RESET_BYTES > 0 && counter.bytes >= RESET_BYTES) {
+                outputStream.reset();
+                messages = 0;
+                counter.bytes = 0;
+            }
+            outputStream.flush();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Object read() throws IOException, ClassNotFoundException {
+        return inputStream.readObject();
+    }
+
+    @Override
+    public int getFormat() {
+        return SERIALIZATION;
+    }
+
+    /**
+     * Counts the bytes written through it.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long bytes;
+
+        CountingOutputStream(final OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package de.lmu.ifi.sep.abalone.network.server;
+
+import de.lmu.ifi.sep.abalone.network.message.BinaryCodec;
+import de.lmu.ifi.sep.abalone.network.message.MessageCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Non-blocking connection of a guest to the {@link GameServer}.
+ * <p>
+ * Received bytes are only touched by the thread of the server. Messages are
+ * sent from the workers of the rooms: they are encoded right away and queued
+ * until the server writes them to the channel.
+ */
+final class Connection {
+
+    /**
+     * Bytes of the handshake, see {@link MessageCodec#negotiate}.
+     */
+    static final int HANDSHAKE_BYTES = 5;
+
+    private final SocketChannel CHANNEL;
+    private final GameServer SERVER;
+
+    /**
+     * Received bytes not handled yet, in write mode.
+     */
+    private final ByteBuffer INPUT;
+
+    /**
+     * Encoded messages waiting to be written to the channel.
+     */
+    private final Queue<ByteBuffer> OUTPUT = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Codec encoding sent messages, the bytes end up in {@link #OUTPUT}.
+     */
+    private final BinaryCodec CODEC;
+
+    private SelectionKey key;
+
+    private boolean handshaken;
+
+    /**
+     * Whether the guest sent {@code RDY} before it got a room.
+     */
+    private boolean ready;
+
+    private volatile Room room;
+
+    private volatile boolean closed;
+
+    /**
+     * @param channel     Non-blocking channel of the guest.
+     * @param server      Server the connection belongs to.
+     * @param bufferBytes Size of the largest frame the guest may send.
+     */
+    Connection(final SocketChannel channel, final GameServer server, final int bufferBytes) {
+        this.CHANNEL = channel;
+        this.SERVER = server;
+        this.INPUT = ByteBuffer.allocate(bufferBytes);
+        this.CODEC = new BinaryCodec(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                OUTPUT.add(ByteBuffer.wrap(toByteArray()));
+                reset();
+            }
+        });
+    }
+
+    /**
+     * Sends a message to the guest. Called by the worker of the room.
+     *
+     * @param message Message to send.
+     */
+    void send(final Serializable message) {
+        if (closed) {
+            return;
+        }
+        try {
+            CODEC.write(message);
+        } catch (IOException e) {
+            // only thrown by the underlying stream, which is in memory
+            throw new IllegalStateException(e);
+        }
+        SERVER.requestWrite(this);
+    }
+
+    /**
+     * Queues the answer to the handshake of the guest.
+     */
+    void sendHandshake() {
+        ByteBuffer handshake = ByteBuffer.allocate(HANDSHAKE_BYTES);
+        handshake.putInt(MessageCodec.HANDSHAKE);
+        handshake.put((byte) MessageCodec.BINARY_MARKER);
+        handshake.flip();
+        OUTPUT.add(handshake);
+    }
+
+    /**
+     * Writes queued messages until the channel takes no more bytes.
+     *
+     * @return {@code true} if all queued messages were written.
+     * @throws IOException if the connection fails.
+     */
+    boolean flush() throws IOException {
+        ByteBuffer next;
+        while ((next = OUTPUT.peek()) != null) {
+            CHANNEL.write(next);
+            if (next.hasRemaining()) {
+                return false;
+            }
+            OUTPUT.poll();
+        }
+        return true;
+    }
+
+    SocketChannel getChannel() {
+        return CHANNEL;
+    }
+
+    ByteBuffer getInput() {
+        return INPUT;
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    void setKey(final SelectionKey key) {
+        this.key = key;
+    }
+
+    boolean isHandshaken() {
+        return handshaken;
+    }
+
+    void setHandshaken() {
+        this.handshaken = true;
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    void setReady() {
+        this.ready = true;
+    }
+
+    Room getRoom() {
+        return room;
+    }
+
+    void setRoom(final Room room) {
+        this.room = room;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Marks the connection as closed, the server closes the channel.
+     *
+     * @return {@code false} if it was closed before.
+     */
+    synchronized boolean markClosed() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        return true;
+    }
+}
@@ -0,0 +1,407 @@
+package de.lmu.ifi.sep.abalone.network.server;
+
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.network.NetworkUtilities;
+import de.lmu.ifi.sep.abalone.network.message.BinaryCodec;
+import de.lmu.ifi.sep.abalone.network.message.Message;
+import de.lmu.ifi.sep.abalone.network.message.MessageCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many network games in one process.
+ * <p>
+ * Players join with the guest client of the game, as if the server was a
+ * host. The server pairs them in the order they connect, each pair plays in
+ * a {@link Room} of its own. All connections are non-blocking channels
+ * served by a single thread with a {@link Selector}, which only reads and
+ * writes bytes; the rooms handle the messages on a small pool of workers
+ * they share. The server only speaks the binary wire format, guests that
+ * ask for serialization or send serialized payloads are turned away.
+ * <p>
+ * Usage: {@code GameServer [--port 48410] [--size 9] [--workers n]}
+ */
+public final class GameServer implements Closeable {
+
+    /**
+     * Size of the input buffer of a connection, which holds the largest
+     * frame a guest may send with its length.
+     */
+    private static final int BUFFER_BYTES = BinaryCodec.MAX_FRAME_BYTES + 4;
+
+    /**
+     * Milliseconds the server stops accepting after accepting failed.
+     */
+    private static final long ACCEPT_PAUSE_MILLIS = 100;
+
+    private static final String USAGE = "Usage: GameServer [--port 48410] [--size 9] [--workers n]";
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    private final int SIZE;
+    private final Selector SELECTOR;
+    private final ServerSocketChannel LISTENER;
+    private final ExecutorService WORKERS;
+    private final Thread SELECTOR_THREAD;
+
+    /**
+     * Connections with messages queued by the workers.
+     */
+    private final Queue<Connection> WRITES = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger rooms = new AtomicInteger();
+
+    /**
+     * Guest that completed the handshake and waits for a second one,
+     * only touched by the thread of the selector.
+     */
+    private Connection waiting;
+
+    private volatile boolean closed;
+
+    /**
+     * Time in nanoseconds from which on guests are accepted again, 0 while
+     * accepting.
+     */
+    private long acceptPausedUntil;
+
+    /**
+     * Opens the server, which accepts guests after {@link #start()}.
+     *
+     * @param port    Port to listen on, 0 for any free port.
+     * @param size    Size of the boards.
+     * @param workers Number of workers the rooms share.
+     * @throws IOException if the port cannot be opened.
+     */
+    public GameServer(final int port, final int size, final int workers) throws IOException {
+        this.SIZE = size;
+        this.SELECTOR = Selector.open();
+        this.LISTENER = ServerSocketChannel.open();
+        this.LISTENER.bind(new InetSocketAddress(port));
+        this.LISTENER.configureBlocking(false);
+        this.LISTENER.register(SELECTOR, SelectionKey.OP_ACCEPT);
+        AtomicInteger threads = new AtomicInteger();
+        this.WORKERS = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "game-room-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.SELECTOR_THREAD = new Thread(this::run, "game-server");
+    }
+
+    /**
+     * Starts accepting guests.
+     */
+    public void start() {
+        logger.info("Game server listening on port " + getPort());
+        SELECTOR_THREAD.start();
+    }
+
+    /**
+     * @return Port the server listens on.
+     */
+    public int getPort() {
+        return LISTENER.socket().getLocalPort();
+    }
+
+    /**
+     * @return Number of open connections of guests.
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * @return Number of rooms with two guests.
+     */
+    public int getRooms() {
+        return rooms.get();
+    }
+
+    /**
+     * Stops the server and closes the connections of all guests.
+     */
+    @Override
+    public void close() {
+        logger.info("Closing game server...");
+        closed = true;
+        SELECTOR.wakeup();
+        try {
+            SELECTOR_THREAD.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        WORKERS.shutdownNow();
+        logger.info("Game server was closed.");
+    }
+
+    /**
+     * Selector loop, runs until the server is closed. Failures of single
+     * connections, and of accepting one, only close that connection.
+     */
+    private void run() {
+        try {
+            while (!closed) {
+                SELECTOR.select(acceptPausedUntil == 0 ? 0 : ACCEPT_PAUSE_MILLIS);
+                if (acceptPausedUntil != 0 && System.nanoTime() - acceptPausedUntil >= 0) {
+                    acceptPausedUntil = 0;
+                    LISTENER.keyFor(SELECTOR).interestOps(SelectionKey.OP_ACCEPT);
+                }
+                Connection pending;
+                while ((pending = WRITES.poll()) != null) {
+                    write(pending);
+                }
+                Iterator<SelectionKey> keys = SELECTOR.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        handle(key);
+                    } catch (CancelledKeyException e) {
+                        // the channel was closed meanwhile
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            logger.severe("Game server failed: " + e);
+        } finally {
+            for (SelectionKey key : SELECTOR.keys()) {
+                NetworkUtilities.close(key.channel());
+            }
+            NetworkUtilities.close(SELECTOR);
+        }
+    }
+
+    private void handle(final SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+        } else {
+            Connection connection = (Connection) key.attachment();
+            if (key.isWritable()) {
+                write(connection);
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(connection);
+            }
+        }
+    }
+
+    /**
+     * Accepts the waiting guests. If accepting fails, for example because
+     * the process ran out of file handles, the guests keep waiting and the
+     * server tries again after a pause, instead of spinning on a listener
+     * that stays ready.
+     */
+    private void accept() {
+        SocketChannel channel;
+        while (true) {
+            try {
+                if ((channel = LISTENER.accept()) == null) {
+                    return;
+                }
+            } catch (IOException e) {
+                logger.warning("Accepting a guest failed: " + e);
+                LISTENER.keyFor(SELECTOR).interestOps(0);
+                acceptPausedUntil = System.nanoTime() + ACCEPT_PAUSE_MILLIS * 1_000_000L;
+                return;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                Connection connection = new Connection(channel, this, BUFFER_BYTES);
+                connection.setKey(channel.register(SELECTOR, SelectionKey.OP_READ, connection));
+                connection.sendHandshake();
+                connections.incrementAndGet();
+                write(connection);
+            } catch (IOException e) {
+                logger.info("Dropping guest: " + e);
+                NetworkUtilities.close(channel);
+            }
+        }
+    }
+
+    /**
+     * Reads what the guest sent and hands complete messages to its room.
+     */
+    private void read(final Connection connection) {
+        ByteBuffer input = connection.getInput();
+        try {
+            if (connection.getChannel().read(input) < 0) {
+                disconnected(connection);
+                return;
+            }
+            input.flip();
+            try {
+                if (!connection.isHandshaken()) {
+                    if (input.remaining() < Connection.HANDSHAKE_BYTES) {
+                        return;
+                    }
+                    handshake(connection, input.getInt(), input.get());
+                }
+                Object message;
+                while (!connection.isClosed() && (message = BinaryCodec.readFrame(input)) != null) {
+                    dispatch(connection, message);
+                }
+            } finally {
+                input.compact();
+            }
+            if (!input.hasRemaining()) {
+                throw new IOException("Frame is larger than " + BUFFER_BYTES + " bytes");
+            }
+        } catch (IOException e) {
+            logger.info("Dropping guest: " + e);
+            disconnected(connection);
+        }
+    }
+
+    private void handshake(final Connection connection, final int magic, final int marker)
+            throws IOException {
+        if (magic != MessageCodec.HANDSHAKE) {
+            throw new IOException("Guest does not speak the Abalone protocol");
+        }
+        if (marker != MessageCodec.BINARY_MARKER) {
+            throw new IOException("Guest does not speak binary frames");
+        }
+        connection.setHandshaken();
+        if (waiting == null) {
+            waiting = connection;
+        } else {
+            new Room(SIZE, waiting, connection, this, WORKERS);
+            waiting = null;
+            rooms.incrementAndGet();
+        }
+    }
+
+    /**
+     * Hands a message to the room of the guest. Before the guest has a room,
+     * only whether it sent {@code RDY} is kept.
+     */
+    private void dispatch(final Connection connection, final Object message) {
+        Room room = connection.getRoom();
+        if (room != null) {
+            room.receive(connection, message);
+        } else if (message instanceof Message
+                && ((Message) message).getMessageType() == Message.MessageType.RDY) {
+            connection.setReady();
+        }
+    }
+
+    /**
+     * Writes the queued messages of a connection, and keeps asking the
+     * selector when it can write more if not all of them fit.
+     */
+    private void write(final Connection connection) {
+        SelectionKey key = connection.getKey();
+        if (connection.isClosed() || !key.isValid()) {
+            return;
+        }
+        try {
+            boolean done = connection.flush();
+            key.interestOps(done ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            logger.info("Dropping guest: " + e);
+            disconnected(connection);
+        }
+    }
+
+    /**
+     * Handles a guest that left, closing its room.
+     */
+    private void disconnected(final Connection connection) {
+        if (connection == waiting) {
+            waiting = null;
+        }
+        Room room = connection.getRoom();
+        close(connection);
+        if (room != null) {
+            room.close();
+        }
+    }
+
+    /**
+     * Asks the thread of the selector to write the queued messages of a
+     * connection.
+     *
+     * @param connection Connection with queued messages.
+     */
+    void requestWrite(final Connection connection) {
+        WRITES.add(connection);
+        SELECTOR.wakeup();
+    }
+
+    /**
+     * Closes the channel of a connection.
+     *
+     * @param connection Connection to close, may be closed already.
+     */
+    void close(final Connection connection) {
+        if (connection.markClosed()) {
+            NetworkUtilities.close(connection.getChannel());
+            connections.decrementAndGet();
+        }
+    }
+
+    /**
+     * Counts a room as closed.
+     */
+    void roomClosed() {
+        rooms.decrementAndGet();
+    }
+
+    /**
+     * Runs a server until the process is stopped.
+     *
+     * @param args see the usage in the class description
+     * @throws IOException if the port cannot be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(NetworkUtilities.getDefaultPort());
+        int size = 9;
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--size":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown argument " + args[i]);
+                    System.err.println(USAGE);
+                    System.exit(1);
+            }
+        }
+        if (!BoardGeometry.isSupportedSize(size)) {
+            System.err.println("Board size must be odd and from " + BoardGeometry.MIN_SIZE + " to "
+                    + BoardGeometry.MAX_SIZE + ", got " + size);
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        new GameServer(port, size, workers).start();
+    }
+}
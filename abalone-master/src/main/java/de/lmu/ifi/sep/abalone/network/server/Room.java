@@ -0,0 +1,253 @@
+package de.lmu.ifi.sep.abalone.network.server;
+
+import de.lmu.ifi.sep.abalone.engine.EvaluatedBoard;
+import de.lmu.ifi.sep.abalone.logic.BoardVersions;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.Player;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.logic.communication.InitPackage;
+import de.lmu.ifi.sep.abalone.logic.communication.Move;
+import de.lmu.ifi.sep.abalone.logic.communication.SyncPackage;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.network.message.Message;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Game of two guests on the {@link GameServer}.
+ * <p>
+ * The room plays the host for both guests: it answers {@code RDY} with
+ * {@code INIT} once both guests are there, keeps the board, checks every
+ * move on it and passes it on to the other guest. Moves that are not valid
+ * are answered with the whole board and the turn, which hands the turn back
+ * to the guest, {@code SYNC_REQUEST} with the cells
+ * changed since the version of the guest, see {@link BoardVersions}. {@code WIN},
+ * {@code CONFIRM_WIN} and {@code ERROR} are passed on as they are, the
+ * guests settle the end of the game between them. Asking for the next game
+ * with {@code RDY} starts it with the colors switched.
+ * <p>
+ * Rooms share the workers of the server. The messages of a room are handled
+ * one after another in the order they arrived, never on two workers at once,
+ * so a room needs no locks.
+ */
+final class Room {
+
+    /**
+     * Messages a room handles before it lets the other rooms have the worker.
+     */
+    private static final int BATCH = 64;
+
+    private final Logger logger = Logger.getLogger(this.getClass().getName());
+
+    private final int SIZE;
+    private final Connection[] GUESTS;
+    private final GameServer SERVER;
+    private final Executor WORKERS;
+
+    private final Queue<Runnable> TASKS = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean SCHEDULED = new AtomicBoolean();
+
+    /**
+     * Whether each guest asked for the next game.
+     */
+    private final boolean[] ready = new boolean[2];
+
+    /**
+     * Index of the guest playing black, who moves first.
+     */
+    private int black = 1;
+
+    /**
+     * Board of the running game, {@code null} before the first one.
+     */
+    private EvaluatedBoard board;
+    private BoardVersions versions;
+
+    private boolean closed;
+
+    /**
+     * Creates a room for two guests that completed the handshake.
+     *
+     * @param size    Size of the boards.
+     * @param first   Guest that waited for the room, black in the first game.
+     * @param second  Guest that completed the room.
+     * @param server  Server of the guests.
+     * @param workers Workers shared by the rooms.
+     */
+    Room(final int size, final Connection first, final Connection second,
+         final GameServer server, final Executor workers) {
+        this.SIZE = size;
+        this.GUESTS = new Connection[]{first, second};
+        this.SERVER = server;
+        this.WORKERS = workers;
+        this.ready[0] = first.isReady();
+        this.ready[1] = second.isReady();
+        first.setRoom(this);
+        second.setRoom(this);
+        execute(this::startIfReady);
+    }
+
+    /**
+     * Handles a message of a guest on a worker.
+     *
+     * @param from     Guest that sent the message.
+     * @param received Received object, usually a {@link Message}.
+     */
+    void receive(final Connection from, final Object received) {
+        execute(() -> handle(from == GUESTS[0] ? 0 : 1, received));
+    }
+
+    /**
+     * Closes the room and the connections of both guests on a worker.
+     */
+    void close() {
+        execute(() -> {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            SERVER.close(GUESTS[0]);
+            SERVER.close(GUESTS[1]);
+            SERVER.roomClosed();
+        });
+    }
+
+    private void execute(final Runnable task) {
+        TASKS.add(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (SCHEDULED.compareAndSet(false, true)) {
+            WORKERS.execute(this::drain);
+        }
+    }
+
+    /**
+     * Runs queued tasks on the current worker.
+     */
+    private void drain() {
+        Runnable task;
+        for (int i = 0; i < BATCH && (task = TASKS.poll()) != null; i++) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.severe("Room failed to handle a message: " + e);
+            }
+        }
+        SCHEDULED.set(false);
+        if (!TASKS.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private void handle(final int guest, final Object received) {
+        if (closed) {
+            return;
+        }
+        if (!(received instanceof Message)) {
+            logger.info("Ignoring " + received.getClass().getName() + " of a guest");
+            return;
+        }
+        Message message = (Message) received;
+        switch (message.getMessageType()) {
+            case RDY:
+                if (isRunning()) {
+                    GUESTS[guest].send(init(guest));
+                } else {
+                    ready[guest] = true;
+                    startIfReady();
+                }
+                break;
+
+            case MOVE:
+                if (!(message.getPayload() instanceof Move)) {
+                    return;
+                }
+                Owner color = colorOf(guest);
+                int move = !isRunning() || board.getSideToMove() != color ? PackedMove.NONE
+                        : Context.toPackedMove(board, (Move) message.getPayload(), color);
+                if (move == PackedMove.NONE) {
+                    logger.info("Move of a guest is not valid, sending sync");
+                    // the guest made the move on its board, which no version stands for
+                    sync(guest, BoardVersions.UNKNOWN);
+                    return;
+                }
+                UndoRecord undo = new UndoRecord();
+                Context.makeMove(board, move, undo);
+                versions.record(undo);
+                GUESTS[1 - guest].send(message);
+                break;
+
+            case SYNC_REQUEST:
+                sync(guest, message.getPayload() instanceof Integer
+                        ? (Integer) message.getPayload() : BoardVersions.UNKNOWN);
+                break;
+
+            case WIN:
+            case CONFIRM_WIN:
+            case ERROR:
+                GUESTS[1 - guest].send(message);
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Starts the next game with the colors switched if both guests asked
+     * for it.
+     */
+    private void startIfReady() {
+        if (closed || !ready[0] || !ready[1]) {
+            return;
+        }
+        ready[0] = false;
+        ready[1] = false;
+        black = 1 - black;
+        board = new EvaluatedBoard(SIZE);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        versions = new BoardVersions(board.getGeometry().getCellCount());
+        GUESTS[0].send(init(0));
+        GUESTS[1].send(init(1));
+    }
+
+    /**
+     * @return {@code true} if a game was started and nobody won it yet.
+     */
+    private boolean isRunning() {
+        return board != null && !board.hasLost(Owner.PLAYER_BLACK) && !board.hasLost(Owner.PLAYER_WHITE);
+    }
+
+    private Message init(final int guest) {
+        return new Message(Message.MessageType.INIT,
+                new InitPackage(SIZE, colorOf(guest), guest == black));
+    }
+
+    /**
+     * Sends the board of the room to a guest, the cells changed since its
+     * version if possible.
+     *
+     * @param acked Version of the guest, {@link BoardVersions#UNKNOWN} for
+     *              the whole board.
+     */
+    private void sync(final int guest, final int acked) {
+        if (board == null) {
+            return;
+        }
+        SyncPackage sync = versions.createSync(board, acked,
+                new Player(Owner.PLAYER_WHITE, true, board.getPiecesToWin(Owner.PLAYER_WHITE), false),
+                new Player(Owner.PLAYER_BLACK, false, board.getPiecesToWin(Owner.PLAYER_BLACK), false));
+        GUESTS[guest].send(new Message(Message.MessageType.SYNC, sync));
+    }
+
+    private Owner colorOf(final int guest) {
+        return guest == black ? Owner.PLAYER_BLACK : Owner.PLAYER_WHITE;
+    }
+}
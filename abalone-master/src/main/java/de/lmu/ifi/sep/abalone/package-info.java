@@ -28,6 +28,9 @@
  * and interacting over the Network. {@code Context} class is a utility class
  * responsible for implementing all game rules.
  * <p>
+ * <p> {@code engine package} Computer players and tools that search the
+ * game tree on packed moves.
+ * <p>
  * <p> {@code network package} Allows users to connect over a network.
  * <p>
  * <p> {@code components package} Includes classes that implement the
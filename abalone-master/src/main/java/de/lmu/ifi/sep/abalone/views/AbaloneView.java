@@ -2,6 +2,7 @@ package de.lmu.ifi.sep.abalone.views;
 
 import de.lmu.ifi.sep.abalone.components.GameObserver;
 import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.engine.HintSearch;
 import de.lmu.ifi.sep.abalone.logic.AbaloneGame;
 import de.lmu.ifi.sep.abalone.logic.communication.Move;
 import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
@@ -77,6 +78,23 @@ public class AbaloneView extends JPanel {
      */
     private Set<RoundButton> selectedButtons = new TreeSet<>();
 
+    /**
+     * Searches hints for the local player in the background, {@code null}
+     * until the first hint is asked for.
+     */
+    private HintSearch hintSearch;
+
+    /**
+     * Number of the current turn, raised at every end of turn, so hints of
+     * an earlier turn are not shown.
+     */
+    private volatile int turn;
+
+    /**
+     * Buttons highlighted by the last hint.
+     */
+    private final List<RoundButton> hintedButtons = new ArrayList<>();
+
     /**
      * Constructor for this JPanel containing the AbaloneGame GUI.
      *
@@ -165,6 +183,65 @@ public class AbaloneView extends JPanel {
         return allButtons.get(key);
     }
 
+    /**
+     * Starts searching a move for the local player in the background, if it
+     * is their turn, and highlights the suggested selection and target on
+     * the board. The hint gets better the longer the player thinks and is
+     * cancelled when the turn ends. Must be called on the event dispatch
+     * thread.
+     */
+    public void showHint() {
+        if (abaloneGame.getActivePlayer() != abaloneGame.getLocalPlayer()) {
+            return;
+        }
+        if (hintSearch == null) {
+            hintSearch = new HintSearch();
+        }
+        int hintTurn = turn;
+        hintSearch.start(board, abaloneGame.getLocalPlayer().getOwner(), (move, depth) ->
+                SwingUtilities.invokeLater(() -> {
+                    if (hintTurn == turn) {
+                        highlightHint(move);
+                    }
+                }));
+    }
+
+    /**
+     * Cancels a running hint and stops the background search for good.
+     */
+    public void closeHints() {
+        if (hintSearch != null) {
+            hintSearch.close();
+        }
+    }
+
+    /**
+     * Highlights the buttons of a suggested move instead of the ones of the
+     * hint before.
+     *
+     * @param move Suggested move.
+     */
+    private void highlightHint(Move move) {
+        clearHint();
+        List<Vector> hinted = new ArrayList<>(move.getSelected());
+        hinted.add(move.getTarget());
+        for (Vector v : hinted) {
+            RoundButton button = allButtons.get(v);
+            if (button != null) {
+                button.setHinted(true);
+                hintedButtons.add(button);
+            }
+        }
+    }
+
+    /**
+     * Removes the highlights of the last hint.
+     */
+    private void clearHint() {
+        hintedButtons.forEach(b -> b.setHinted(false));
+        hintedButtons.clear();
+    }
+
     /* Visual methods and initialization */
 
     /**
@@ -233,7 +310,12 @@ public class AbaloneView extends JPanel {
             @Override
             public void endTurn(AbaloneBoard.Owner o) {
                 selectedButtons = new TreeSet<>();
+                turn++;
+                if (hintSearch != null) {
+                    hintSearch.cancel();
+                }
                 Runnable valid = () -> {
+                    clearHint();
                     for (Entry<Vector, RoundButton> entry : allButtons.entrySet()) {
                         RoundButton b = entry.getValue();
                         b.setEnabled(false); // Not selectable
@@ -99,6 +99,17 @@ public class RoundButton extends JButton implements Comparable<RoundButton> {
      */
     private static final Color MOUSE_OVER_HIGHLIGHT = Color.magenta;
 
+    /**
+     * Highlights the outside of the button when it is part of the move
+     * suggested by a hint.
+     */
+    private static final Color HINT_HIGHLIGHT = Color.CYAN;
+
+    /**
+     * Width of the hint highlight.
+     */
+    private static final BasicStroke HINT_STROKE = new BasicStroke(3f);
+
     /**
      * Border of button when it is enabled and mouse is not in it (contains
      * method returns false), or not enabled.
@@ -173,6 +184,12 @@ public class RoundButton extends JButton implements Comparable<RoundButton> {
      */
     private boolean selected = false;
 
+    /**
+     * A flag to track whether this button is part of the move suggested by a
+     * hint, either as selected marble or as target.
+     */
+    private boolean hinted = false;
+
     /**
      * RoundButton constructor.
      *
@@ -277,6 +294,28 @@ public class RoundButton extends JButton implements Comparable<RoundButton> {
         repaint();
     }
 
+    /**
+     * Flag whether this button is part of the move suggested by a hint.
+     *
+     * @return {@code True} if button is highlighted as hint, otherwise
+     * {@code false}.
+     */
+    public boolean isHinted() {
+        return hinted;
+    }
+
+    /**
+     * Sets 'hinted' flag, highlighting this button as part of the move
+     * suggested by a hint.
+     *
+     * @param hint {@code True} if button is part of the hint, otherwise
+     *             {@code false}.
+     */
+    public void setHinted(boolean hint) {
+        hinted = hint;
+        repaint();
+    }
+
     /**
      * Return the position of this button in reference to the field it
      * represents on the AbaloneBoard.
@@ -408,6 +447,15 @@ public class RoundButton extends JButton implements Comparable<RoundButton> {
         }
         g2.drawOval(getWidth() / 2 - radius, getHeight() / 2 - radius,
                 diameter, diameter);
+        // Hint highlight inside the border
+        if (hinted) {
+            Stroke stroke = g2.getStroke();
+            g2.setColor(HINT_HIGHLIGHT);
+            g2.setStroke(HINT_STROKE);
+            g2.drawOval(getWidth() / 2 - radius + 2, getHeight() / 2 - radius + 2,
+                    diameter - 4, diameter - 4);
+            g2.setStroke(stroke);
+        }
         g2.setColor(BUTTON_BORDER);
     }
 
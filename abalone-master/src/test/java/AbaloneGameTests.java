@@ -2,7 +2,11 @@ import de.lmu.ifi.sep.abalone.components.GameObserver;
 import de.lmu.ifi.sep.abalone.components.ObservableMap;
 import de.lmu.ifi.sep.abalone.components.Vector;
 import de.lmu.ifi.sep.abalone.logic.AbaloneGame;
+import de.lmu.ifi.sep.abalone.logic.BoardVersions;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
 import de.lmu.ifi.sep.abalone.logic.Player;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
 import de.lmu.ifi.sep.abalone.logic.communication.EventBus;
 import de.lmu.ifi.sep.abalone.logic.communication.InitPackage;
 import de.lmu.ifi.sep.abalone.logic.communication.Move;
@@ -212,11 +216,29 @@ class AbaloneGameTests {
                 new LinkedHashMap<>(abaloneGame.getBoard().getBoard())));
         networkMock2.reset();
         networkMock2.triggerMessage(new Message(Message.MessageType.MOVE, move));
-        System.out.println(networkMock2.getSendCalledWith());
-        assertThat(networkMock2.getSendCalledTimes()).isEqualTo(0);
+        // the move of the 7 board is invalid on the 9 board, so the changes are requested once
+        assertThat(networkMock2.getSendCalledTimes()).isEqualTo(1);
+        Message request = (Message) networkMock2.getSendCalledWith();
+        assertThat(request.getMessageType()).isEqualTo(Message.MessageType.SYNC_REQUEST);
+        assertThat(request.getPayload()).isEqualTo(BoardVersions.INITIAL);
     }
 
 
+    @Test
+    @DisplayName("Guest told to move first by INIT is the active player")
+    void guestMovesFirst() {
+        NetworkMock guestNetwork = new NetworkMock();
+        guestNetwork.setClientType(Network.ClientType.GUEST);
+        AbaloneGame guest = new AbaloneGame(0, guestNetwork, new EventPublisher<>(eventBus),
+                new EventPublisher<>(eventBus));
+        guestNetwork.triggerMessage(new Message(Message.MessageType.INIT,
+                new InitPackage(9, AbaloneBoard.Owner.PLAYER_BLACK, true)));
+
+        assertThat(guest.getActivePlayer()).isSameAs(guest.getLocalPlayer());
+        assertThat(guest.getLocalPlayer().getOwner()).isEqualTo(AbaloneBoard.Owner.PLAYER_BLACK);
+        assertThat(guest.getBoard().getSideToMove()).isEqualTo(AbaloneBoard.Owner.PLAYER_BLACK);
+    }
+
     @DisplayName("Horizontal Eastern Move #24 #31")
     @Test
     void replicationMoveEastern() {
@@ -287,6 +309,146 @@ class AbaloneGameTests {
         assertThat(board.get(new Vector(3, 0))).isEqualByComparingTo(AbaloneBoard.Owner.PLAYER_WHITE);
     }
 
+    @DisplayName("Unmake restores board and score")
+    @Test
+    void makeUnmake() {
+        abaloneGame = new AbaloneGame(7, network, new EventPublisher<>(eventBus),
+                new EventPublisher<>(eventBus));
+        AbaloneBoard board = abaloneGame.getBoard();
+        for (Vector v : board.getBoard().keySet()) {
+            board.setOwner(v, AbaloneBoard.Owner.EMPTY);
+        }
+        board.setOwner(new Vector(1, 0), AbaloneBoard.Owner.PLAYER_BLACK);
+        board.setOwner(new Vector(2, 0), AbaloneBoard.Owner.PLAYER_BLACK);
+        board.setOwner(new Vector(3, 0), AbaloneBoard.Owner.PLAYER_WHITE);
+        Map<Vector, AbaloneBoard.Owner> before = new HashMap<>(board.getBoard());
+        long hash = board.getHash();
+        List<Vector> selected = new LinkedList<>();
+        selected.add(new Vector(1, 0));
+        selected.add(new Vector(2, 0));
+        int move = Context.toPackedMove(board, selected, Vector.Direction.E,
+                AbaloneBoard.Owner.PLAYER_BLACK);
+        assertThat(PackedMove.isEjecting(move)).isTrue();
+
+        UndoRecord undo = abaloneGame.makeMove(move);
+        assertThat(board.getOwner(new Vector(1, 0))).isEqualTo(AbaloneBoard.Owner.EMPTY);
+        assertThat(board.getOwner(new Vector(3, 0))).isEqualTo(AbaloneBoard.Owner.PLAYER_BLACK);
+        assertThat(abaloneGame.getActivePlayer())
+                .isEqualToComparingFieldByField(new Player(AbaloneBoard.Owner.PLAYER_BLACK, true, 3, true));
+
+        abaloneGame.unmakeMove(undo);
+        assertThat(new HashMap<>(board.getBoard())).isEqualTo(before);
+        assertThat(board.getHash()).isEqualTo(hash);
+        assertThat(abaloneGame.getActivePlayer())
+                .isEqualToComparingFieldByField(new Player(AbaloneBoard.Owner.PLAYER_BLACK, true, 4, true));
+    }
+
+    @DisplayName("Make and unmake send nothing and follow players replaced by SYNC")
+    @Test
+    void makeUnmakeAcrossSync() {
+        abaloneGame = new AbaloneGame(7, network, new EventPublisher<>(eventBus),
+                new EventPublisher<>(eventBus));
+        AbaloneBoard board = abaloneGame.getBoard();
+        for (Vector v : board.getBoard().keySet()) {
+            board.setOwner(v, AbaloneBoard.Owner.EMPTY);
+        }
+        board.setOwner(new Vector(1, 0), AbaloneBoard.Owner.PLAYER_BLACK);
+        board.setOwner(new Vector(2, 0), AbaloneBoard.Owner.PLAYER_BLACK);
+        board.setOwner(new Vector(3, 0), AbaloneBoard.Owner.PLAYER_WHITE);
+        network.triggerMessage(new Message(Message.MessageType.SYNC, new SyncPackage(
+                new LinkedHashMap<>(board.getBoard()),
+                new Player(AbaloneBoard.Owner.PLAYER_BLACK, true, 1, true),
+                new Player(AbaloneBoard.Owner.PLAYER_WHITE, false, 4, false))));
+        network.reset();
+        List<Vector> selected = new LinkedList<>();
+        selected.add(new Vector(1, 0));
+        selected.add(new Vector(2, 0));
+        int move = Context.toPackedMove(board, selected, Vector.Direction.E,
+                AbaloneBoard.Owner.PLAYER_BLACK);
+
+        UndoRecord undo = abaloneGame.makeMove(move);
+        assertThat(network.getSendCalledTimes()).isEqualTo(0);
+        assertThat(abaloneGame.getActivePlayer().getPiecesToWin()).isEqualTo(0);
+
+        network.triggerMessage(new Message(Message.MessageType.SYNC, new SyncPackage(
+                new LinkedHashMap<>(board.getBoard()),
+                new Player(AbaloneBoard.Owner.PLAYER_BLACK, true, 0, true),
+                new Player(AbaloneBoard.Owner.PLAYER_WHITE, false, 4, false))));
+        abaloneGame.unmakeMove(undo);
+        assertThat(network.getSendCalledTimes()).isEqualTo(0);
+        assertThat(abaloneGame.getActivePlayer())
+                .isEqualToComparingFieldByField(new Player(AbaloneBoard.Owner.PLAYER_BLACK, true, 1, true));
+    }
+
+    @DisplayName("SYNC hands the turn to the player it names")
+    @Test
+    void syncTurn() {
+        abaloneGame = new AbaloneGame(7, network, new EventPublisher<>(eventBus),
+                new EventPublisher<>(eventBus));
+        AbaloneBoard board = abaloneGame.getBoard();
+        Player black = new Player(AbaloneBoard.Owner.PLAYER_BLACK, true, 6, true);
+        Player white = new Player(AbaloneBoard.Owner.PLAYER_WHITE, false, 6, false);
+
+        network.triggerMessage(new Message(Message.MessageType.SYNC, new SyncPackage(
+                new LinkedHashMap<>(board.getBoard()), black, white, BoardVersions.UNKNOWN,
+                SyncPackage.FULL, board.getCellHash(), AbaloneBoard.Owner.PLAYER_WHITE)));
+        assertThat(abaloneGame.getActivePlayer().getOwner()).isEqualTo(AbaloneBoard.Owner.PLAYER_WHITE);
+        assertThat(board.getSideToMove()).isEqualTo(AbaloneBoard.Owner.PLAYER_WHITE);
+
+        network.triggerMessage(new Message(Message.MessageType.SYNC, new SyncPackage(
+                new LinkedHashMap<>(board.getBoard()), black, white, BoardVersions.UNKNOWN,
+                SyncPackage.FULL, board.getCellHash(), AbaloneBoard.Owner.PLAYER_BLACK)));
+        assertThat(abaloneGame.getActivePlayer().getOwner()).isEqualTo(AbaloneBoard.Owner.PLAYER_BLACK);
+        assertThat(abaloneGame.getActivePlayer().isLocalPlayer()).isTrue();
+    }
+
+    /**
+     * @return the move a player of the game would click to move the pebbles
+     */
+    private static Move move(AbaloneGame game, Vector.Direction direction, Vector... pebbles) {
+        return Context.toMove(game.getBoard(), Context.toPackedMove(game.getBoard(),
+                Arrays.asList(pebbles), direction, game.getActivePlayer().getOwner()));
+    }
+
+    @DisplayName("A peer that cannot follow a move catches up with the changes since its version")
+    @Test
+    void syncDelta() {
+        AbaloneGame host = new AbaloneGame(9, network, new EventPublisher<>(eventBus),
+                new EventPublisher<>(eventBus));
+        NetworkMock guestNetwork = new NetworkMock();
+        guestNetwork.setClientType(Network.ClientType.GUEST);
+        AbaloneGame guest = new AbaloneGame(0, guestNetwork, new EventPublisher<>(eventBus),
+                new EventPublisher<>(eventBus));
+        guestNetwork.triggerMessage(new Message(Message.MessageType.INIT, new InitPackage(9, null)));
+
+        host.isValidMove(move(host, Vector.Direction.NE, new Vector(-2, 2), new Vector(-1, 2), new Vector(0, 2)));
+        guestNetwork.triggerMessage((Message) network.getSendCalledWith());
+        guest.isValidMove(move(guest, Vector.Direction.SW, new Vector(0, -2), new Vector(1, -2), new Vector(2, -2)));
+        network.triggerMessage((Message) guestNetwork.getSendCalledWith());
+        host.isValidMove(move(host, Vector.Direction.NE, new Vector(-1, 1), new Vector(0, 1), new Vector(1, 1)));
+        assertThat(network.getSendCalledTimes()).isEqualTo(2);
+        assertThat(guest.getBoard().getCellHash()).isNotEqualTo(host.getBoard().getCellHash());
+
+        // the move arrives garbled, a pebble of the guest selected
+        guestNetwork.triggerMessage(new Message(Message.MessageType.MOVE,
+                new Move(Collections.singletonList(new Vector(0, -1)), new Vector(0, 0))));
+        Message request = (Message) guestNetwork.getSendCalledWith();
+        assertThat(request.getMessageType()).isEqualTo(Message.MessageType.SYNC_REQUEST);
+        assertThat(request.getPayload()).isEqualTo(2);
+
+        network.triggerMessage(request);
+        Message reply = (Message) network.getSendCalledWith();
+        SyncPackage sync = (SyncPackage) reply.getPayload();
+        assertThat(sync.isDelta()).isTrue();
+        assertThat(sync.getSince()).isEqualTo(2);
+        assertThat(sync.getBoard()).hasSize(6);
+
+        guestNetwork.triggerMessage(reply);
+        assertThat(guest.getBoard().getCellHash()).isEqualTo(host.getBoard().getCellHash());
+        assertThat(new HashMap<>(guest.getBoard().getBoard())).isEqualTo(new HashMap<>(host.getBoard().getBoard()));
+        assertThat(guest.getActivePlayer()).isSameAs(guest.getLocalPlayer());
+    }
+
     @Nested
     @DisplayName("Network tests")
     class NetworkTests {
@@ -0,0 +1,91 @@
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Bitboard backend")
+class BitboardAbaloneBoardTest {
+
+    @Test
+    @DisplayName("Starting layout equals the map backend")
+    void startingLayout() {
+        for (int size = 5; size <= 13; size += 2) {
+            AbaloneBoard expected = new AbaloneBoard(size);
+            BitboardAbaloneBoard actual = new BitboardAbaloneBoard(size);
+            assertThat(actual.getCellCount()).isEqualTo(expected.getBoard().size());
+            assertThat(new HashMap<>(actual.getBoard())).isEqualTo(new HashMap<>(expected.getBoard()));
+            assertThat(actual.countPieces(Owner.PLAYER_BLACK) + actual.countPieces(Owner.PLAYER_WHITE))
+                    .isEqualTo((int) expected.getBoard().values().stream()
+                            .filter(o -> o != Owner.EMPTY).count());
+        }
+    }
+
+    @Test
+    @DisplayName("Cell indices are dense and unique")
+    void cellIndices() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(13);
+        for (int i = 0; i < board.getCellCount(); i++) {
+            assertThat(board.getCellIndex(board.getPosition(i))).isEqualTo(i);
+        }
+        assertThat(board.getCellIndex(new Vector(7, 0))).isEqualTo(-1);
+        assertThat(board.getCellIndex(new Vector(6, 1))).isEqualTo(-1);
+        assertThat(board.hasPosition(new Vector(-6, 6))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Changes are written through and observed")
+    void setOwner() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        Map<Vector, Owner> observed = new HashMap<>();
+        board.addObserver(observed::put);
+
+        Vector v = new Vector(0, 0);
+        board.setOwner(v, Owner.PLAYER_WHITE);
+        assertThat(board.getOwner(v)).isEqualTo(Owner.PLAYER_WHITE);
+        assertThat(board.isOccupied(board.getCellIndex(v))).isTrue();
+        assertThat(observed).containsEntry(v, Owner.PLAYER_WHITE);
+
+        board.getBoard().put(v, Owner.EMPTY);
+        assertThat(board.getOwner(v)).isEqualTo(Owner.EMPTY);
+        assertThat(board.getOwner(new Vector(10, 10))).isNull();
+        assertThatThrownBy(() -> board.getBoard().put(new Vector(10, 10), Owner.EMPTY))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Copies keep the layout of any backend")
+    void copy() {
+        AbaloneBoard source = new AbaloneBoard(11);
+        source.setOwner(new Vector(1, 1), Owner.PLAYER_BLACK);
+        BitboardAbaloneBoard copy = new BitboardAbaloneBoard(source);
+        assertThat(copy.getOwner(new Vector(1, 1))).isEqualTo(Owner.PLAYER_BLACK);
+        assertThat(new HashMap<>(copy.getBoard())).isEqualTo(new HashMap<>(source.getBoard()));
+    }
+
+    @Test
+    @DisplayName("Game rules give the same answers on both backends")
+    void rulesOnView() {
+        AbaloneBoard expected = new AbaloneBoard(9);
+        BitboardAbaloneBoard actual = new BitboardAbaloneBoard(9);
+        List<Vector> selected = new ArrayList<>();
+        assertThat(Context.getValidClicks(actual.getBoard(), selected, Owner.PLAYER_BLACK))
+                .containsExactlyInAnyOrderElementsOf(
+                        Context.getValidClicks(expected.getBoard(), selected, Owner.PLAYER_BLACK));
+        selected.add(new Vector(-2, 2));
+        selected.add(new Vector(-1, 2));
+        assertThat(Context.getValidMoves(actual.getBoard(), selected, Owner.PLAYER_BLACK))
+                .containsExactlyInAnyOrderElementsOf(
+                        Context.getValidMoves(expected.getBoard(), selected, Owner.PLAYER_BLACK));
+    }
+}
@@ -0,0 +1,129 @@
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Board geometry")
+class BoardGeometryTest {
+
+    @Test
+    @DisplayName("Geometries are shared per size")
+    void shared() {
+        assertThat(BoardGeometry.forSize(9)).isSameAs(BoardGeometry.forSize(9));
+        assertThat(BoardGeometry.forSize(9).getCellCount()).isEqualTo(61);
+        assertThat(BoardGeometry.forSize(13).getCellCount()).isEqualTo(127);
+        assertThat(new AbaloneBoard(11).getGeometry()).isSameAs(BoardGeometry.forSize(11));
+    }
+
+    @Test
+    @DisplayName("Supported sizes are odd and in range")
+    void supportedSizes() {
+        assertThat(BoardGeometry.isSupportedSize(5)).isTrue();
+        assertThat(BoardGeometry.isSupportedSize(15)).isTrue();
+        assertThat(BoardGeometry.isSupportedSize(3)).isFalse();
+        assertThat(BoardGeometry.isSupportedSize(10)).isFalse();
+        assertThat(BoardGeometry.isSupportedSize(17)).isFalse();
+        assertThat(BoardGeometry.isSupportedSize(-9)).isFalse();
+        assertThat(BoardGeometry.sizeOf(61)).isEqualTo(9);
+        assertThat(BoardGeometry.sizeOf(BoardGeometry.forSize(15).getCellCount())).isEqualTo(15);
+        assertThat(BoardGeometry.sizeOf(7)).isEqualTo(-1);
+        assertThat(BoardGeometry.sizeOf(60)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Neighbors match Vector.go")
+    void neighbors() {
+        BoardGeometry geometry = BoardGeometry.forSize(9);
+        for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+            Vector position = geometry.getPosition(cell);
+            assertThat(geometry.getCellIndex(position)).isEqualTo(cell);
+            for (Vector.Direction d : Vector.Direction.values()) {
+                assertThat(geometry.getNeighbor(cell, d))
+                        .isEqualTo(geometry.getCellIndex(position.go(d)));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Rays walk up to the edge")
+    void rays() {
+        BoardGeometry geometry = BoardGeometry.forSize(9);
+        int center = geometry.getCellIndex(0, 0);
+        for (Vector.Direction d : Vector.Direction.values()) {
+            int[] ray = geometry.getRay(center, d.ordinal());
+            assertThat(ray).hasSize(4);
+            Vector expected = geometry.getPosition(center);
+            for (int cell : ray) {
+                expected = expected.go(d);
+                assertThat(geometry.getPosition(cell)).isEqualTo(expected);
+            }
+        }
+        int corner = geometry.getCellIndex(0, -4);
+        assertThat(geometry.getRay(corner, Vector.Direction.NW.ordinal())).isEmpty();
+        assertThat(geometry.getRay(corner, Vector.Direction.SE.ordinal())).hasSize(8);
+        assertThat(BoardGeometry.opposite(Vector.Direction.NW.ordinal()))
+                .isEqualTo(Vector.Direction.SE.ordinal());
+    }
+
+    @Nested
+    @DisplayName("Rules on cell indices")
+    class Rules {
+
+        private final Random random = new Random(42);
+
+        @Test
+        @DisplayName("Give the same answers as the reference rules on positions")
+        void sameAnswers() {
+            for (int round = 0; round < 500; round++) {
+                AbaloneBoard board = randomBoard(round % 2 == 0 ? 9 : 7);
+                Owner active = round % 4 < 2 ? Owner.PLAYER_BLACK : Owner.PLAYER_WHITE;
+                List<Vector> selected = new ArrayList<>();
+                for (int clicks = 0; clicks < 3; clicks++) {
+                    List<Vector> expected = ReferenceRules.getValidClicks(board.getBoard(), selected, active);
+                    assertThat(Context.getValidClicks(board, selected, active))
+                            .containsExactlyInAnyOrderElementsOf(expected);
+                    assertThat(Context.getValidMoves(board, selected, active))
+                            .containsExactlyElementsOf(
+                                    ReferenceRules.getValidMoves(board.getBoard(), selected, active));
+                    if (expected.isEmpty()) {
+                        break;
+                    }
+                    selected.add(expected.get(random.nextInt(expected.size())));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Count the same next space strength")
+        void nextSpaceStrength() {
+            AbaloneBoard board = randomBoard(9);
+            BoardGeometry geometry = board.getGeometry();
+            for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+                for (Vector.Direction d : Vector.Direction.values()) {
+                    assertThat(Context.nextSpaceStrength(board, cell, d.ordinal(), Owner.PLAYER_WHITE))
+                            .isEqualTo(ReferenceRules.nextSpaceStrength(board.getBoard(),
+                                    geometry.getPosition(cell), d, Owner.PLAYER_WHITE));
+                }
+            }
+        }
+
+        private AbaloneBoard randomBoard(int size) {
+            AbaloneBoard board = new AbaloneBoard(size);
+            Owner[] owners = Owner.values();
+            for (int cell = 0; cell < board.getGeometry().getCellCount(); cell++) {
+                board.setOwner(cell, owners[random.nextInt(owners.length)]);
+            }
+            return board;
+        }
+    }
+}
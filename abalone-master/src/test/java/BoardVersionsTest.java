@@ -0,0 +1,140 @@
+import de.lmu.ifi.sep.abalone.logic.BoardVersions;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.Player;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.logic.communication.SyncPackage;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Board versions")
+class BoardVersionsTest {
+
+    private static final Player HOST = new Player(Owner.PLAYER_BLACK, true, 6, true);
+    private static final Player PEER = new Player(Owner.PLAYER_WHITE, false, 6, false);
+
+    private final int[] buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * 127];
+    private final Random random = new Random(3);
+
+    private final AbaloneBoard board = new AbaloneBoard(9);
+    private final BoardVersions versions = new BoardVersions(board.getGeometry().getCellCount());
+
+    /**
+     * Plays random moves on a board, counting them as versions.
+     */
+    private void play(final AbaloneBoard board, final BoardVersions versions, final int plies) {
+        for (int ply = 0; ply < plies; ply++) {
+            Owner side = versions.getVersion() % 2 == 0 ? Owner.PLAYER_BLACK : Owner.PLAYER_WHITE;
+            int count = Context.generateMoves(board, side, buffer);
+            UndoRecord undo = new UndoRecord();
+            Context.makeMove(board, buffer[random.nextInt(count)], undo);
+            versions.record(undo);
+        }
+    }
+
+    @Test
+    @DisplayName("Sends the cells changed since the version of the peer")
+    void delta() {
+        AbaloneBoard peer = new AbaloneBoard(9);
+        BoardVersions peerVersions = new BoardVersions(peer.getGeometry().getCellCount());
+        play(board, versions, 1);
+        peerVersions.apply(peer, versions.createSync(board, BoardVersions.UNKNOWN, HOST, PEER));
+        play(board, versions, 1);
+
+        SyncPackage sync = versions.createSync(board, peerVersions.getVersion(), HOST, PEER);
+
+        assertThat(sync.isDelta()).isTrue();
+        assertThat(sync.getSince()).isEqualTo(1);
+        assertThat(sync.getVersion()).isEqualTo(2);
+        assertThat(sync.getBoard().size()).isBetween(1, 6);
+        assertThat(peerVersions.apply(peer, sync)).isTrue();
+        assertThat(peerVersions.getVersion()).isEqualTo(2);
+        assertThat(new HashMap<>(peer.getBoard())).isEqualTo(new HashMap<>(board.getBoard()));
+        assertThat(versions.createSync(board, 2, HOST, PEER).getBoard()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Sends the whole board for unknown versions and large gaps")
+    void full() {
+        play(board, versions, 30);
+        int cells = board.getGeometry().getCellCount();
+
+        assertThat(versions.createSync(board, BoardVersions.UNKNOWN, HOST, PEER).isDelta()).isFalse();
+        assertThat(versions.createSync(board, versions.getVersion() + 1, HOST, PEER).isDelta()).isFalse();
+        SyncPackage gap = versions.createSync(board, BoardVersions.INITIAL, HOST, PEER);
+        assertThat(gap.isDelta()).isFalse();
+        assertThat(gap.getSince()).isEqualTo(SyncPackage.FULL);
+        assertThat(gap.getVersion()).isEqualTo(30);
+        assertThat(gap.getBoard()).hasSize(cells);
+
+        versions.reset(40);
+        assertThat(versions.createSync(board, 30, HOST, PEER).isDelta()).isFalse();
+        assertThat(versions.createSync(board, 40, HOST, PEER).isDelta()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Counts a move taken back as a new version")
+    void unmake() {
+        AbaloneBoard peer = new AbaloneBoard(9);
+        BoardVersions peerVersions = new BoardVersions(peer.getGeometry().getCellCount());
+        play(board, versions, 1);
+        int count = Context.generateMoves(board, Owner.PLAYER_WHITE, buffer);
+        UndoRecord undo = new UndoRecord();
+        Context.makeMove(board, buffer[random.nextInt(count)], undo);
+        versions.record(undo);
+        int moved = versions.createSync(board, 1, HOST, PEER).getBoard().size();
+        peerVersions.apply(peer, versions.createSync(board, BoardVersions.UNKNOWN, HOST, PEER));
+
+        Context.unmakeMove(board, undo);
+        versions.record(undo);
+        SyncPackage sync = versions.createSync(board, peerVersions.getVersion(), HOST, PEER);
+
+        assertThat(versions.getVersion()).isEqualTo(3);
+        assertThat(sync.isDelta()).isTrue();
+        assertThat(sync.getSince()).isEqualTo(2);
+        assertThat(sync.getBoard()).hasSize(moved);
+        assertThat(peerVersions.apply(peer, sync)).isTrue();
+        assertThat(peer.getCellHash()).isEqualTo(board.getCellHash());
+        assertThat(versions.createSync(board, 1, HOST, PEER).getBoard()).hasSize(moved);
+    }
+
+    @Test
+    @DisplayName("Rejects changes since another version")
+    void mismatch() {
+        AbaloneBoard peer = new AbaloneBoard(9);
+        BoardVersions peerVersions = new BoardVersions(peer.getGeometry().getCellCount());
+        play(board, versions, 2);
+        SyncPackage sync = versions.createSync(board, 1, HOST, PEER);
+
+        assertThat(sync.isDelta()).isTrue();
+        assertThat(peerVersions.apply(peer, sync)).isFalse();
+        assertThat(peerVersions.getVersion()).isEqualTo(BoardVersions.INITIAL);
+        assertThat(new HashMap<>(peer.getBoard())).isEqualTo(new HashMap<>(new AbaloneBoard(9).getBoard()));
+    }
+
+    @Test
+    @DisplayName("Rejects changes that leave the boards apart")
+    void diverged() {
+        AbaloneBoard peer = new AbaloneBoard(9);
+        BoardVersions peerVersions = new BoardVersions(peer.getGeometry().getCellCount());
+        play(board, versions, 1);
+        peerVersions.apply(peer, versions.createSync(board, BoardVersions.UNKNOWN, HOST, PEER));
+        peer.setOwner(0, peer.getOwner(0) == Owner.EMPTY ? Owner.PLAYER_WHITE : Owner.EMPTY);
+
+        SyncPackage sync = versions.createSync(board, peerVersions.getVersion(), HOST, PEER);
+
+        assertThat(sync.isDelta()).isTrue();
+        assertThat(sync.getBoard()).isEmpty();
+        assertThat(peerVersions.apply(peer, sync)).isFalse();
+        assertThat(peerVersions.apply(peer, versions.createSync(board, BoardVersions.UNKNOWN, HOST, PEER)))
+                .isTrue();
+        assertThat(peer.getCellHash()).isEqualTo(board.getCellHash());
+    }
+}
@@ -0,0 +1,118 @@
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.engine.AlphaBetaSearch;
+import de.lmu.ifi.sep.abalone.engine.ComputerOpponent;
+import de.lmu.ifi.sep.abalone.logic.AbaloneGame;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.logic.communication.EventBus;
+import de.lmu.ifi.sep.abalone.logic.communication.Move;
+import de.lmu.ifi.sep.abalone.logic.communication.publishers.EventPublisher;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Computer opponent")
+class ComputerOpponentTest {
+
+    @Test
+    @DisplayName("Packed moves turn into Moves the game logic understands")
+    void toMove() {
+        Random random = new Random(3);
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        int[] buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * 61];
+        for (int ply = 0; ply < 40; ply++) {
+            Owner side = board.getSideToMove();
+            int count = Context.generateMoves(board, side, buffer);
+            for (int i = 0; i < count; i++) {
+                Move move = Context.toMove(board, buffer[i]);
+                assertThat(move).isNotNull();
+                assertThat(Context.toPackedMove(board, move, side)).isEqualTo(buffer[i]);
+            }
+            Context.makeMove(board, buffer[random.nextInt(count)], new UndoRecord());
+        }
+    }
+
+    @Test
+    @DisplayName("Search pushes off the last pebble it needs")
+    void findsWin() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(7);
+        BoardGeometry geometry = board.getGeometry();
+        int black = board.countPieces(Owner.PLAYER_BLACK) - 3;
+        int white = board.countPieces(Owner.PLAYER_WHITE);
+        for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+            board.setOwner(cell, Owner.EMPTY);
+        }
+        board.setOwner(geometry.getCellIndex(0, -3), Owner.PLAYER_BLACK);
+        board.setOwner(geometry.getCellIndex(0, -2), Owner.PLAYER_WHITE);
+        board.setOwner(geometry.getCellIndex(0, -1), Owner.PLAYER_WHITE);
+        for (int cell = geometry.getCellIndex(-3, 0); white > 2; cell++) {
+            board.setOwner(cell, Owner.PLAYER_WHITE);
+            white--;
+        }
+        for (int cell = geometry.getCellCount() - 1; black > 1; cell--) {
+            if (!board.isOccupied(cell)) {
+                board.setOwner(cell, Owner.PLAYER_BLACK);
+                black--;
+            }
+        }
+        board.setSideToMove(Owner.PLAYER_WHITE);
+
+        AlphaBetaSearch search = new AlphaBetaSearch();
+        int move = search.search(board, 4, 10_000);
+
+        assertThat(PackedMove.isEjecting(move)).isTrue();
+        assertThat(search.getScore()).isGreaterThan(AlphaBetaSearch.WIN - AlphaBetaSearch.MAX_DEPTH);
+        assertThat(search.getDepth()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Search keeps to its time budget")
+    void timeBudget() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        AlphaBetaSearch search = new AlphaBetaSearch();
+
+        long start = System.nanoTime();
+        int move = search.search(board, 200);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(move).isNotEqualTo(PackedMove.NONE);
+        assertThat(search.getDepth()).isGreaterThanOrEqualTo(1);
+        assertThat(millis).isLessThan(2_000);
+        assertThat(board.getHash()).isEqualTo(new BitboardAbaloneBoard(board).computeHash());
+    }
+
+    @Test
+    @DisplayName("Answers the moves of the game logic")
+    void playsGame() throws InterruptedException {
+        ComputerOpponent opponent = new ComputerOpponent(50);
+        EventBus eventBus = new EventBus();
+        AbaloneGame game = new AbaloneGame(9, opponent, new EventPublisher<>(eventBus),
+                new EventPublisher<>(eventBus));
+        int[] buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * 61];
+        try {
+            for (int turn = 0; turn < 3; turn++) {
+                assertThat(game.getActivePlayer().getOwner()).isEqualTo(Owner.PLAYER_BLACK);
+                Context.generateMoves(game.getBoard(), Owner.PLAYER_BLACK, buffer);
+                game.isValidMove(Context.toMove(game.getBoard(), buffer[0]));
+                long deadline = System.currentTimeMillis() + 5_000;
+                while (game.getActivePlayer().getOwner() != Owner.PLAYER_BLACK
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+            }
+            assertThat(game.getActivePlayer().getOwner()).isEqualTo(Owner.PLAYER_BLACK);
+            assertThat(game.getBoard().getBoard())
+                    .isNotEqualTo(new BitboardAbaloneBoard(9).getBoard());
+        } finally {
+            opponent.close();
+        }
+    }
+}
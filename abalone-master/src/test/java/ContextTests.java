@@ -191,4 +191,25 @@ class ContextTests {
         boolean toCheck = i == 1;
         assertThat(toCheck).isTrue();
     }
+
+    @DisplayName("Cells missing from the map are off the board")
+    @Test
+    void missingCells() {
+        board = new ObservableMap<>();
+        board.put(new Vector(0, 0), Owner.PLAYER_BLACK);
+        board.put(new Vector(1, 0), Owner.EMPTY);
+        board.put(new Vector(-1, 0), Owner.PLAYER_WHITE);
+        currentSelected.add(new Vector(0, 0));
+
+        assertThat(Context.getValidMoves(board, currentSelected, Owner.PLAYER_BLACK))
+                .containsExactly(Direction.E);
+        assertThat(Context.getValidClicks(board, new ArrayList<>(), Owner.PLAYER_BLACK))
+                .containsExactly(new Vector(0, 0));
+        assertThat(Context.nextSpaceStrength(board, new Vector(0, 0), Direction.W, Owner.PLAYER_BLACK))
+                .isEqualTo(1);
+        assertThat(Context.nextSpaceStrength(board, new Vector(0, 0), Direction.NW, Owner.PLAYER_BLACK))
+                .isEqualTo(Integer.MAX_VALUE);
+        currentSelected.add(new Vector(0, -1));
+        assertThat(Context.getValidMoves(board, currentSelected, Owner.PLAYER_BLACK)).isEmpty();
+    }
 }
@@ -0,0 +1,99 @@
+import de.lmu.ifi.sep.abalone.engine.EvaluatedBoard;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Evaluation")
+class EvaluationTest {
+
+    @Test
+    @DisplayName("Scores the symmetric starting layout even")
+    void opening() {
+        for (int size = 7; size <= 13; size += 2) {
+            EvaluatedBoard board = new EvaluatedBoard(size);
+            assertThat(board.evaluate(Owner.PLAYER_BLACK)).isZero();
+            assertThat(board.evaluate(Owner.PLAYER_WHITE)).isZero();
+            assertThat(board.getPiecesToWin(Owner.PLAYER_BLACK)).isEqualTo(2 * size / 3);
+            assertThat(board.countPieces(Owner.PLAYER_WHITE))
+                    .isEqualTo(Long.valueOf(new AbaloneBoard(size).getBoard().values().stream()
+                            .filter(owner -> owner == Owner.PLAYER_WHITE).count()).intValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Incremental terms match terms summed up from scratch")
+    void incremental() {
+        Random random = new Random(12);
+        EvaluatedBoard board = new EvaluatedBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        int[] buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * 61];
+        Deque<UndoRecord> history = new ArrayDeque<>();
+        for (int ply = 0; ply < 300; ply++) {
+            Owner side = board.getSideToMove();
+            if (board.hasLost(side) || ply % 50 == 49) {
+                while (history.size() > 10) {
+                    Context.unmakeMove(board, history.pop());
+                }
+                assertSameEvaluation(board);
+                continue;
+            }
+            int count = Context.generateMoves(board, side, buffer);
+            int move = buffer[random.nextInt(count)];
+            for (int i = 0; i < count; i++) {
+                if (PackedMove.isEjecting(buffer[i])) {
+                    move = buffer[i];
+                }
+            }
+            UndoRecord undo = new UndoRecord();
+            Context.makeMove(board, move, undo);
+            history.push(undo);
+            assertSameEvaluation(board);
+        }
+    }
+
+    @Test
+    @DisplayName("Prefers the centre, company and pebbles on the board")
+    void terms() {
+        EvaluatedBoard board = new EvaluatedBoard(9);
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            board.setOwner(cell, Owner.EMPTY);
+        }
+        int centre = board.getCellIndex(0, 0);
+        int edge = board.getCellIndex(4, 0);
+        board.setOwner(centre, Owner.PLAYER_BLACK);
+        board.setOwner(edge, Owner.PLAYER_WHITE);
+        assertThat(board.evaluate(Owner.PLAYER_BLACK)).isPositive();
+
+        board.setOwner(board.getCellIndex(1, 0), Owner.PLAYER_BLACK);
+        int alone = board.evaluate(Owner.PLAYER_BLACK);
+        board.setOwner(board.getCellIndex(1, 0), Owner.EMPTY);
+        board.setOwner(board.getCellIndex(1, -1), Owner.PLAYER_BLACK);
+        board.setOwner(board.getCellIndex(0, -1), Owner.PLAYER_BLACK);
+        board.setOwner(board.getCellIndex(1, -1), Owner.EMPTY);
+        assertThat(board.evaluate(Owner.PLAYER_BLACK)).isEqualTo(alone);
+
+        board.setOwner(edge, Owner.EMPTY);
+        assertThat(board.getPiecesToWin(Owner.PLAYER_BLACK))
+                .isLessThan(board.getPiecesToWin(Owner.PLAYER_WHITE));
+        assertSameEvaluation(board);
+    }
+
+    private void assertSameEvaluation(EvaluatedBoard board) {
+        EvaluatedBoard fresh = new EvaluatedBoard(board);
+        for (Owner side : new Owner[]{Owner.PLAYER_BLACK, Owner.PLAYER_WHITE}) {
+            assertThat(board.evaluate(side)).isEqualTo(fresh.evaluate(side));
+            assertThat(board.getPiecesToWin(side)).isEqualTo(fresh.getPiecesToWin(side));
+            assertThat(board.countPieces(side)).isEqualTo(fresh.countPieces(side));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import de.lmu.ifi.sep.abalone.engine.HintSearch;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.communication.Move;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Hint search")
+class HintSearchTest {
+
+    @Test
+    @DisplayName("Suggests legal moves, deeper and deeper, off the calling thread")
+    void deepens() throws InterruptedException {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        List<Integer> depths = new CopyOnWriteArrayList<>();
+        List<Move> moves = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch deepEnough = new CountDownLatch(3);
+        try (HintSearch hints = new HintSearch()) {
+            hints.start(board, Owner.PLAYER_WHITE, (move, depth) -> {
+                depths.add(depth);
+                moves.add(move);
+                threads.add(Thread.currentThread());
+                deepEnough.countDown();
+            });
+            assertThat(deepEnough.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(depths.subList(0, 3)).containsExactly(1, 2, 3);
+        assertThat(threads).doesNotContain(Thread.currentThread());
+        board.setSideToMove(Owner.PLAYER_WHITE);
+        for (Move move : moves) {
+            assertThat(Context.toPackedMove(board, move, Owner.PLAYER_WHITE))
+                    .isNotEqualTo(PackedMove.NONE);
+        }
+    }
+
+    @Test
+    @DisplayName("Reports nothing once cancelled")
+    void cancel() throws InterruptedException {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        List<Integer> depths = new CopyOnWriteArrayList<>();
+        CountDownLatch first = new CountDownLatch(1);
+        try (HintSearch hints = new HintSearch()) {
+            hints.start(board, Owner.PLAYER_BLACK, (move, depth) -> {
+                depths.add(depth);
+                first.countDown();
+            });
+            assertThat(first.await(10, TimeUnit.SECONDS)).isTrue();
+            hints.cancel();
+            int reported = depths.size();
+            Thread.sleep(500);
+
+            assertThat(depths.size()).isLessThanOrEqualTo(reported + 1);
+        }
+    }
+
+    @Test
+    @DisplayName("A new hint replaces the running one")
+    void restart() throws InterruptedException {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(7);
+        List<Owner> sides = new CopyOnWriteArrayList<>();
+        CountDownLatch white = new CountDownLatch(1);
+        try (HintSearch hints = new HintSearch()) {
+            hints.start(board, Owner.PLAYER_BLACK, (move, depth) -> sides.add(Owner.PLAYER_BLACK));
+            hints.start(board, Owner.PLAYER_WHITE, (move, depth) -> {
+                sides.add(Owner.PLAYER_WHITE);
+                white.countDown();
+            });
+            assertThat(white.await(10, TimeUnit.SECONDS)).isTrue();
+            hints.cancel();
+        }
+        int last = sides.lastIndexOf(Owner.PLAYER_BLACK);
+        assertThat(sides.subList(last + 1, sides.size())).contains(Owner.PLAYER_WHITE);
+    }
+}
@@ -0,0 +1,120 @@
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.engine.Engine;
+import de.lmu.ifi.sep.abalone.engine.MonteCarloSearch;
+import de.lmu.ifi.sep.abalone.engine.ParallelSearch;
+import de.lmu.ifi.sep.abalone.engine.TranspositionTable;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Monte Carlo search")
+class MonteCarloSearchTest {
+
+    @Test
+    @DisplayName("Finds a legal move and leaves the position alone")
+    void legalMove() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        long hash = board.getHash();
+        int[] moves = new int[PackedMove.MAX_MOVES_PER_PIECE * 61];
+        Context.generateMoves(board, Owner.PLAYER_BLACK, moves);
+
+        try (MonteCarloSearch search = new MonteCarloSearch(2, 1 << 16)) {
+            int move = search.search(board, 500, 60_000);
+
+            assertThat(moves).contains(move);
+            assertThat(search.getPlayouts()).isEqualTo(500);
+            assertThat(search.getTreeSize()).isGreaterThan(1);
+            assertThat(search.getNodes()).isGreaterThan(500);
+            assertThat(board.getHash()).isEqualTo(hash);
+        }
+    }
+
+    @Test
+    @DisplayName("Pushes off the last pebble it needs")
+    void findsWin() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(7);
+        BoardGeometry geometry = board.getGeometry();
+        int black = board.countPieces(Owner.PLAYER_BLACK) - 3;
+        int white = board.countPieces(Owner.PLAYER_WHITE);
+        for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+            board.setOwner(cell, Owner.EMPTY);
+        }
+        board.setOwner(geometry.getCellIndex(0, -3), Owner.PLAYER_BLACK);
+        board.setOwner(geometry.getCellIndex(0, -2), Owner.PLAYER_WHITE);
+        board.setOwner(geometry.getCellIndex(0, -1), Owner.PLAYER_WHITE);
+        for (int cell = geometry.getCellIndex(-3, 0); white > 2; cell++) {
+            board.setOwner(cell, Owner.PLAYER_WHITE);
+            white--;
+        }
+        for (int cell = geometry.getCellCount() - 1; black > 1; cell--) {
+            if (!board.isOccupied(cell)) {
+                board.setOwner(cell, Owner.PLAYER_BLACK);
+                black--;
+            }
+        }
+        board.setSideToMove(Owner.PLAYER_WHITE);
+
+        try (MonteCarloSearch search = new MonteCarloSearch(1, 1 << 16)) {
+            int move = search.search(board, 2_000, 60_000);
+
+            assertThat(PackedMove.isEjecting(move)).isTrue();
+            assertThat(search.getWinRate()).isEqualTo(1.0);
+        }
+    }
+
+    @Test
+    @DisplayName("Keeps to its time budget with a full arena")
+    void timeBudget() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_WHITE);
+        try (MonteCarloSearch search = new MonteCarloSearch(3, 500)) {
+            long start = System.nanoTime();
+            int move = search.search(board, 200);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            assertThat(move).isNotEqualTo(PackedMove.NONE);
+            assertThat(millis).isLessThan(2_000);
+            assertThat(search.getTreeSize()).isLessThanOrEqualTo(500);
+        }
+    }
+
+    @Test
+    @DisplayName("Plays against alpha-beta on the same budget")
+    void againstAlphaBeta() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(7);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        try (Engine black = new MonteCarloSearch(1, 1 << 16);
+             Engine white = new ParallelSearch(1, new TranspositionTable(1))) {
+            for (int ply = 0; ply < 10; ply++) {
+                Engine engine = board.getSideToMove() == Owner.PLAYER_BLACK ? black : white;
+                int move = engine.search(board, 30);
+                if (move == PackedMove.NONE) {
+                    break;
+                }
+                assertThat(Context.toMove(board, move)).isNotNull();
+                Context.makeMove(board, move, new UndoRecord());
+            }
+        }
+        assertThat(board.getHash()).isEqualTo(board.computeHash());
+    }
+
+    @Test
+    @DisplayName("Engines are created by name")
+    void create() {
+        try (Engine alphaBeta = Engine.create(Engine.ALPHA_BETA);
+             Engine monteCarlo = Engine.create(Engine.MONTE_CARLO)) {
+            assertThat(alphaBeta).isInstanceOf(ParallelSearch.class);
+            assertThat(monteCarlo).isInstanceOf(MonteCarloSearch.class);
+        }
+        assertThatThrownBy(() -> Engine.create("random"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
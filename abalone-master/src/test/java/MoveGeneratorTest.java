@@ -0,0 +1,210 @@
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Move generator")
+class MoveGeneratorTest {
+
+    private final int[] buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * 127];
+
+    @Test
+    @DisplayName("Finds the 44 opening moves of the standard board")
+    void openingMoves() {
+        AbaloneBoard board = new BitboardAbaloneBoard(9);
+        assertThat(Context.generateMoves(board, Owner.PLAYER_BLACK, buffer)).isEqualTo(44);
+        assertThat(Context.generateMoves(board, Owner.PLAYER_WHITE, buffer)).isEqualTo(44);
+    }
+
+    @Test
+    @DisplayName("Counts the moves of lines of one to three marbles")
+    void lines() {
+        AbaloneBoard board = new AbaloneBoard(9);
+        for (Vector v : board.getBoard().keySet()) {
+            board.setOwner(v, Owner.EMPTY);
+        }
+        // a lone marble steps to its six neighbors
+        board.setOwner(new Vector(0, 0), Owner.PLAYER_BLACK);
+        assertThat(Context.generateMoves(board, Owner.PLAYER_BLACK, buffer)).isEqualTo(6);
+        // five steps each, the pair moves inline both ways and broadside four ways
+        board.setOwner(new Vector(1, 0), Owner.PLAYER_BLACK);
+        assertThat(Context.generateMoves(board, Owner.PLAYER_BLACK, buffer)).isEqualTo(5 + 5 + 2 + 4);
+        // 5 + 4 + 5 steps, each pair one inline and four broadside moves,
+        // the line of three two inline and four broadside moves
+        board.setOwner(new Vector(-1, 0), Owner.PLAYER_BLACK);
+        assertThat(Context.generateMoves(board, Owner.PLAYER_BLACK, buffer))
+                .isEqualTo(5 + 4 + 5 + 2 * (1 + 4) + 2 + 4);
+        assertThat(Context.generateMoves(board, Owner.PLAYER_WHITE, buffer)).isZero();
+    }
+
+    @Test
+    @DisplayName("Writes behind the given offset")
+    void offset() {
+        AbaloneBoard board = new AbaloneBoard(9);
+        int count = Context.generateMoves(board, Owner.PLAYER_BLACK, buffer);
+        int[] first = new int[count];
+        System.arraycopy(buffer, 0, first, 0, count);
+        assertThat(Context.generateMoves(board, Owner.PLAYER_BLACK, buffer, 500)).isEqualTo(count);
+        for (int i = 0; i < count; i++) {
+            assertThat(buffer[500 + i]).isEqualTo(first[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Finds exactly the moves the reference rules accept")
+    void sameAsRules() {
+        Random random = new Random(3);
+        Owner[] owners = Owner.values();
+        for (int round = 0; round < 100; round++) {
+            AbaloneBoard board = new BitboardAbaloneBoard(round % 2 == 0 ? 9 : 7);
+            for (int cell = 0; cell < board.getGeometry().getCellCount(); cell++) {
+                board.setOwner(cell, owners[random.nextInt(owners.length)]);
+            }
+            Owner active = round % 4 < 2 ? Owner.PLAYER_BLACK : Owner.PLAYER_WHITE;
+            assertThat(generated(board, active)).isEqualTo(expected(board, active));
+        }
+    }
+
+    @Test
+    @DisplayName("Boards whose cells do not fit a packed move are refused")
+    void tooManyCells() {
+        PackedMove.checkCells(BoardGeometry.forSize(BoardGeometry.MAX_SIZE));
+        assertThat(BoardGeometry.forSize(17).getCellCount()).isLessThanOrEqualTo(PackedMove.MAX_CELLS);
+        assertThatThrownBy(() -> PackedMove.checkCells(BoardGeometry.forSize(19)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Marks pushes and ejections")
+    void pushes() {
+        AbaloneBoard board = new AbaloneBoard(9);
+        for (Vector v : board.getBoard().keySet()) {
+            board.setOwner(v, Owner.EMPTY);
+        }
+        // black line of three pushing two white marbles off the north edge
+        board.setOwner(new Vector(0, 0), Owner.PLAYER_BLACK);
+        board.setOwner(new Vector(0, -1), Owner.PLAYER_BLACK);
+        board.setOwner(new Vector(0, -2), Owner.PLAYER_BLACK);
+        board.setOwner(new Vector(0, -3), Owner.PLAYER_WHITE);
+        board.setOwner(new Vector(0, -4), Owner.PLAYER_WHITE);
+        BoardGeometry geometry = board.getGeometry();
+        int count = Context.generateMoves(board, Owner.PLAYER_BLACK, buffer);
+        int pushes = 0;
+        for (int i = 0; i < count; i++) {
+            if (PackedMove.getPushed(buffer[i]) > 0) {
+                pushes++;
+                assertThat(PackedMove.getPushed(buffer[i])).isEqualTo(2);
+                assertThat(PackedMove.isEjecting(buffer[i])).isTrue();
+                assertThat(PackedMove.isInline(buffer[i])).isTrue();
+                assertThat(PackedMove.getCount(buffer[i])).isEqualTo(3);
+                assertThat(geometry.getPosition(PackedMove.getTail(buffer[i])))
+                        .isEqualTo(new Vector(0, 0));
+            }
+        }
+        assertThat(pushes).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Unmaking random games restores every position")
+    void makeUnmake() {
+        Random random = new Random(11);
+        for (int size = 7; size <= 11; size += 2) {
+            BitboardAbaloneBoard board = new BitboardAbaloneBoard(size);
+            board.setSideToMove(Owner.PLAYER_BLACK);
+            Map<Vector, Owner> start = new HashMap<>(board.getBoard());
+            long startHash = board.getHash();
+            UndoRecord[] undo = new UndoRecord[60];
+            int played = 0;
+            while (played < undo.length) {
+                Owner side = board.getSideToMove();
+                int count = Context.generateMoves(board, side, buffer);
+                if (count == 0) {
+                    break;
+                }
+                int move = buffer[random.nextInt(count)];
+                int pieces = board.countPieces(Owner.PLAYER_BLACK) + board.countPieces(Owner.PLAYER_WHITE);
+                undo[played] = new UndoRecord();
+                Context.makeMove(board, move, undo[played++]);
+                assertThat(board.countPieces(Owner.PLAYER_BLACK) + board.countPieces(Owner.PLAYER_WHITE))
+                        .isEqualTo(PackedMove.isEjecting(move) ? pieces - 1 : pieces);
+                assertThat(board.getSideToMove()).isNotEqualTo(side);
+                assertThat(board.getHash()).isEqualTo(board.computeHash());
+            }
+            while (played > 0) {
+                Context.unmakeMove(board, undo[--played]);
+            }
+            assertThat(new HashMap<>(board.getBoard())).isEqualTo(start);
+            assertThat(board.getHash()).isEqualTo(startHash);
+        }
+    }
+
+    @Test
+    @DisplayName("Packs selections like the generator")
+    void toPackedMove() {
+        AbaloneBoard board = new AbaloneBoard(9);
+        int count = Context.generateMoves(board, Owner.PLAYER_BLACK, buffer);
+        BoardGeometry geometry = board.getGeometry();
+        for (int i = 0; i < count; i++) {
+            List<Vector> selected = new ArrayList<>();
+            for (int m = PackedMove.getCount(buffer[i]) - 1; m >= 0; m--) {
+                selected.add(geometry.getPosition(PackedMove.getCell(buffer[i], m, geometry)));
+            }
+            Vector.Direction direction = Vector.Direction.values()[PackedMove.getDirection(buffer[i])];
+            assertThat(Context.toPackedMove(board, selected, direction, Owner.PLAYER_BLACK))
+                    .isEqualTo(buffer[i]);
+        }
+    }
+
+    private Set<String> generated(AbaloneBoard board, Owner active) {
+        BoardGeometry geometry = board.getGeometry();
+        Set<String> moves = new HashSet<>();
+        int count = Context.generateMoves(board, active, buffer);
+        for (int i = 0; i < count; i++) {
+            Set<Integer> selection = new TreeSet<>();
+            for (int m = 0; m < PackedMove.getCount(buffer[i]); m++) {
+                selection.add(PackedMove.getCell(buffer[i], m, geometry));
+            }
+            assertThat(moves.add(selection + " " + PackedMove.getDirection(buffer[i]))).isTrue();
+        }
+        return moves;
+    }
+
+    private Set<String> expected(AbaloneBoard board, Owner active) {
+        BoardGeometry geometry = board.getGeometry();
+        Set<String> moves = new HashSet<>();
+        for (int cell = 0; cell < geometry.getCellCount(); cell++) {
+            for (int line = 0; line < BoardGeometry.DIRECTIONS; line++) {
+                List<Vector> selection = new ArrayList<>();
+                Set<Integer> cells = new TreeSet<>();
+                int next = cell;
+                for (int m = 0; m < 3 && next >= 0; m++) {
+                    selection.add(geometry.getPosition(next));
+                    cells.add(next);
+                    for (Vector.Direction d : ReferenceRules.getValidMoves(board.getBoard(), selection, active)) {
+                        moves.add(cells + " " + d.ordinal());
+                    }
+                    next = geometry.getNeighbor(next, line);
+                }
+            }
+        }
+        return moves;
+    }
+}
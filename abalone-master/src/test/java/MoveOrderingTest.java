@@ -0,0 +1,83 @@
+import de.lmu.ifi.sep.abalone.engine.AlphaBetaSearch;
+import de.lmu.ifi.sep.abalone.engine.MoveOrdering;
+import de.lmu.ifi.sep.abalone.engine.TranspositionTable;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Move ordering")
+class MoveOrderingTest {
+
+    private static final int QUIET_A = PackedMove.encode(10, 1, 0, 0, 0, false);
+    private static final int QUIET_B = PackedMove.encode(11, 2, 2, 2, 0, false);
+    private static final int QUIET_C = PackedMove.encode(12, 1, 0, 3, 0, false);
+    private static final int KILLER_A = PackedMove.encode(13, 1, 0, 4, 0, false);
+    private static final int KILLER_B = PackedMove.encode(14, 1, 0, 5, 0, false);
+    private static final int PUSH_ONE = PackedMove.encode(20, 2, 1, 1, 1, false);
+    private static final int PUSH_TWO = PackedMove.encode(21, 3, 1, 1, 2, false);
+    private static final int EJECTING = PackedMove.encode(22, 2, 0, 0, 1, true);
+    private static final int TABLE_MOVE = PackedMove.encode(30, 1, 0, 1, 0, false);
+
+    @Test
+    @DisplayName("Tries the table move, ejecting pushes, pushes, killers, then history")
+    void order() {
+        MoveOrdering ordering = new MoveOrdering();
+        ordering.cutoff(KILLER_B, 3, 1, Owner.PLAYER_BLACK);
+        ordering.cutoff(KILLER_A, 3, 1, Owner.PLAYER_BLACK);
+        ordering.cutoff(QUIET_B, 5, 4, Owner.PLAYER_BLACK);
+        ordering.cutoff(QUIET_C, 5, 2, Owner.PLAYER_BLACK);
+
+        int[] moves = {0, QUIET_A, QUIET_C, KILLER_B, PUSH_ONE, TABLE_MOVE, QUIET_B,
+                EJECTING, KILLER_A, PUSH_TWO, 0};
+        ordering.score(moves, 1, 9, TABLE_MOVE, 3, Owner.PLAYER_BLACK);
+        int[] ordered = new int[9];
+        for (int i = 1; i < 10; i++) {
+            ordered[i - 1] = ordering.next(moves, i, 10);
+            assertThat(moves[i]).isEqualTo(ordered[i - 1]);
+        }
+
+        assertThat(ordered).containsExactly(TABLE_MOVE, EJECTING, PUSH_TWO, PUSH_ONE,
+                KILLER_A, KILLER_B, QUIET_B, QUIET_C, QUIET_A);
+        assertThat(moves[0]).isZero();
+        assertThat(moves[10]).isZero();
+    }
+
+    @Test
+    @DisplayName("Learns killers and history from quiet moves only")
+    void cutoff() {
+        MoveOrdering ordering = new MoveOrdering();
+        ordering.cutoff(PUSH_ONE, 2, 3, Owner.PLAYER_WHITE);
+        assertThat(ordering.getKillers(2)).containsExactly(PackedMove.NONE, PackedMove.NONE);
+
+        ordering.cutoff(QUIET_A, 2, 3, Owner.PLAYER_WHITE);
+        ordering.cutoff(QUIET_A, 2, 2, Owner.PLAYER_WHITE);
+        ordering.cutoff(QUIET_B, 2, 1, Owner.PLAYER_WHITE);
+        assertThat(ordering.getKillers(2)).containsExactly(QUIET_B, QUIET_A);
+        assertThat(ordering.getKillers(1)).containsExactly(PackedMove.NONE, PackedMove.NONE);
+        assertThat(ordering.getHistory(QUIET_A, Owner.PLAYER_WHITE)).isEqualTo(9 + 4);
+        assertThat(ordering.getHistory(QUIET_A, Owner.PLAYER_BLACK)).isZero();
+
+        ordering.newSearch();
+        assertThat(ordering.getKillers(2)).containsExactly(PackedMove.NONE, PackedMove.NONE);
+        assertThat(ordering.getHistory(QUIET_A, Owner.PLAYER_WHITE)).isEqualTo(6);
+    }
+
+    @Test
+    @DisplayName("Keeps the search result while learning")
+    void search() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        AlphaBetaSearch ordered = new AlphaBetaSearch(new TranspositionTable(1));
+        ordered.search(board, 4, 60_000);
+        int score = ordered.getScore();
+        ordered.getTable().clear();
+        ordered.search(board, 4, 60_000);
+
+        assertThat(ordered.getScore()).isEqualTo(score);
+        assertThat(ordered.getDepth()).isEqualTo(4);
+    }
+}
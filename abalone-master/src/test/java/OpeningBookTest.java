@@ -0,0 +1,141 @@
+import de.lmu.ifi.sep.abalone.engine.OpeningBook;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.Symmetry;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Opening book")
+class OpeningBookTest {
+
+    /**
+     * Plays random moves from the starting position.
+     */
+    private static int[] randomGame(final Random random, final int plies) {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        int[] buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * 14];
+        int[] game = new int[plies];
+        for (int ply = 0; ply < plies; ply++) {
+            int count = Context.generateMoves(board, board.getSideToMove(), buffer);
+            game[ply] = buffer[random.nextInt(count)];
+            Context.makeMove(board, game[ply], new UndoRecord());
+        }
+        return game;
+    }
+
+    private static Path tempFile() throws IOException {
+        Path path = Files.createTempFile("book", ".bin");
+        path.toFile().deleteOnExit();
+        return path;
+    }
+
+    @Test
+    @DisplayName("Finds the move with the most points")
+    void probe() throws IOException {
+        Random random = new Random(5);
+        int[] won = randomGame(random, 6);
+        int[] drawn = randomGame(random, 6);
+        Path path = tempFile();
+        new OpeningBook.Builder(9, 4)
+                .add(won, Owner.PLAYER_BLACK)
+                .add(drawn, Owner.EMPTY)
+                .add(drawn, Owner.EMPTY)
+                .add(drawn, Owner.EMPTY)
+                .write(path);
+
+        try (OpeningBook book = new OpeningBook(path)) {
+            BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+            board.setSideToMove(Owner.PLAYER_BLACK);
+            int[] moves = new int[4];
+            int[] weights = new int[4];
+
+            assertThat(book.getSize()).isEqualTo(9);
+            assertThat(book.getCount()).isEqualTo(2 + 4);
+            assertThat(book.probe(board)).isEqualTo(drawn[0]);
+            assertThat(book.getMoves(Symmetry.forSize(9).canonicalHash(board), moves, weights)).isEqualTo(2);
+            assertThat(weights).contains(2, 3);
+
+            Context.makeMove(board, won[0], new UndoRecord());
+            // white lost this game, so its reply is not in the book
+            assertThat(book.probe(board)).isEqualTo(PackedMove.NONE);
+            Context.makeMove(board, won[1], new UndoRecord());
+            assertThat(book.probe(board)).isEqualTo(won[2]);
+            Context.makeMove(board, won[2], new UndoRecord());
+            Context.makeMove(board, won[3], new UndoRecord());
+            // only the first four plies go into the book
+            assertThat(book.probe(board)).isEqualTo(PackedMove.NONE);
+            assertThat(book.probe(new BitboardAbaloneBoard(7))).isEqualTo(PackedMove.NONE);
+        }
+    }
+
+    @Test
+    @DisplayName("Finds the moves of symmetric positions")
+    void symmetric() throws IOException {
+        int[] game = randomGame(new Random(6), 3);
+        Path path = tempFile();
+        new OpeningBook.Builder(9, 3).add(game, Owner.EMPTY).write(path);
+
+        Symmetry symmetry = Symmetry.forSize(9);
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        Context.makeMove(board, game[0], new UndoRecord());
+        try (OpeningBook book = new OpeningBook(path)) {
+            for (int t = 0; t < Symmetry.COUNT; t++) {
+                BitboardAbaloneBoard image = new BitboardAbaloneBoard(9);
+                symmetry.apply(board, t, image);
+
+                assertThat(book.probe(image)).isEqualTo(symmetry.transformMove(t, game[1]));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Binary search finds every position of a larger book")
+    void manyPositions() throws IOException {
+        Random random = new Random(8);
+        OpeningBook.Builder builder = new OpeningBook.Builder(9, 12);
+        int[][] games = new int[200][];
+        for (int i = 0; i < games.length; i++) {
+            games[i] = randomGame(random, 12);
+            builder.add(games[i], Owner.EMPTY);
+        }
+        Path path = tempFile();
+        builder.write(path);
+
+        try (OpeningBook book = new OpeningBook(path)) {
+            assertThat(book.getCount()).isEqualTo(builder.getCount());
+            for (int[] game : games) {
+                BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+                board.setSideToMove(Owner.PLAYER_BLACK);
+                for (int move : game) {
+                    assertThat(book.probe(board)).isNotEqualTo(PackedMove.NONE);
+                    Context.makeMove(board, move, new UndoRecord());
+                }
+            }
+            assertThat(book.probe(0L)).isEqualTo(PackedMove.NONE);
+            assertThat(book.probe(Long.MIN_VALUE)).isEqualTo(PackedMove.NONE);
+            assertThat(book.probe(Long.MAX_VALUE)).isEqualTo(PackedMove.NONE);
+        }
+    }
+
+    @Test
+    @DisplayName("Refuses files that are no book")
+    void notABook() throws IOException {
+        Path path = tempFile();
+        Files.write(path, new byte[64]);
+
+        assertThatThrownBy(() -> new OpeningBook(path)).isInstanceOf(IOException.class);
+    }
+}
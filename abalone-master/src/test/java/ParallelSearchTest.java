@@ -0,0 +1,62 @@
+import de.lmu.ifi.sep.abalone.engine.ParallelSearch;
+import de.lmu.ifi.sep.abalone.engine.TranspositionTable;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Parallel search")
+class ParallelSearchTest {
+
+    @Test
+    @DisplayName("Finds a legal move with helpers")
+    void helpers() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        int[] moves = new int[PackedMove.MAX_MOVES_PER_PIECE * 61];
+        int count = Context.generateMoves(board, Owner.PLAYER_BLACK, moves);
+
+        try (ParallelSearch search = new ParallelSearch(4, new TranspositionTable(4))) {
+            int move = search.search(board, 3, 60_000);
+
+            assertThat(search.getThreads()).isEqualTo(4);
+            assertThat(search.getDepth()).isEqualTo(3);
+            assertThat(moves).contains(move);
+            assertThat(count).isPositive();
+            assertThat(search.getTable().probe(board.getHash())).isNotZero();
+            assertThat(board.getHash()).isEqualTo(board.computeHash());
+        }
+    }
+
+    @Test
+    @DisplayName("Stops the helpers with the main search")
+    void timeBudget() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_WHITE);
+        try (ParallelSearch search = new ParallelSearch(3, new TranspositionTable(4))) {
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                int move = search.search(board, 100);
+                long millis = (System.nanoTime() - start) / 1_000_000;
+
+                assertThat(move).isNotEqualTo(PackedMove.NONE);
+                assertThat(millis).isLessThan(2_000);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Runs on a single thread without helpers")
+    void singleThread() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(7);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        try (ParallelSearch search = new ParallelSearch(0, new TranspositionTable(1))) {
+            assertThat(search.getThreads()).isEqualTo(1);
+            assertThat(search.search(board, 2, 60_000)).isNotEqualTo(PackedMove.NONE);
+        }
+    }
+}
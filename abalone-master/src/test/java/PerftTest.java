@@ -0,0 +1,59 @@
+import de.lmu.ifi.sep.abalone.engine.Perft;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Perft")
+class PerftTest {
+
+    @Test
+    @DisplayName("Counts the opening tree of the standard board")
+    void opening() {
+        AbaloneBoard board = new BitboardAbaloneBoard(9);
+        assertThat(new Perft(Perft.FAST).run(board, 1).getNodes()).isEqualTo(44);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        assertThat(new Perft(Perft.FAST).run(board, 2).getNodes()).isEqualTo(44 * 44);
+        assertThat(Perft.count(board, 0, Perft.FAST)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Divide adds up to the total")
+    void divide() {
+        AbaloneBoard board = new BitboardAbaloneBoard(7);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        Perft.Result result = new Perft(Perft.FAST).run(board, 3);
+        long sum = 0;
+        for (int i = 0; i < result.getRootMoveCount(); i++) {
+            sum += result.getRootCount(i);
+        }
+        assertThat(sum).isEqualTo(result.getNodes());
+        assertThat(result.divide().split("\n")).hasSize(result.getRootMoveCount());
+        assertThat(Perft.count(board, 3, Perft.FAST)).isEqualTo(result.getNodes());
+    }
+
+    @Test
+    @DisplayName("Packed generator agrees with the rules of the user interface")
+    void generatorsAgree() {
+        Random random = new Random(5);
+        int[] buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * 61];
+        for (int game = 0; game < 4; game++) {
+            AbaloneBoard board = new BitboardAbaloneBoard(game % 2 == 0 ? 7 : 9);
+            board.setSideToMove(Owner.PLAYER_BLACK);
+            for (int ply = 0; ply < 12 + 6 * game; ply++) {
+                int count = Context.generateMoves(board, board.getSideToMove(), buffer);
+                Context.makeMove(board, buffer[random.nextInt(count)], new UndoRecord());
+            }
+            assertThat(new Perft(Perft.RULES).run(board, 2).getNodes())
+                    .isEqualTo(new Perft(Perft.FAST).run(board, 2).getNodes());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import de.lmu.ifi.sep.abalone.engine.MonteCarloSearch;
+import de.lmu.ifi.sep.abalone.engine.ParallelSearch;
+import de.lmu.ifi.sep.abalone.engine.TranspositionTable;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Pondering")
+class PonderingTest {
+
+    @Test
+    @DisplayName("Alpha-beta predicts a legal reply")
+    void predictsReply() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        try (ParallelSearch search = new ParallelSearch(1, new TranspositionTable(4))) {
+            int move = search.search(board, 3, 60_000);
+            Context.makeMove(board, move, new UndoRecord());
+            int[] replies = new int[PackedMove.MAX_MOVES_PER_PIECE * 61];
+            Context.generateMoves(board, Owner.PLAYER_WHITE, replies);
+
+            assertThat(replies).contains(search.getPonderMove());
+        }
+    }
+
+    @Test
+    @DisplayName("Searches of a pondered position reuse the transposition table")
+    void reusesTable() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_WHITE);
+        try (ParallelSearch search = new ParallelSearch(1, new TranspositionTable(16))) {
+            search.search(board, 4, 60_000);
+            long pondered = search.getNodes();
+            search.search(board, 4, 60_000);
+
+            assertThat(search.getDepth()).isEqualTo(4);
+            assertThat(search.getNodes()).isLessThan(pondered / 2);
+        }
+    }
+
+    @Test
+    @DisplayName("Stopping ends a search without a time limit")
+    void stop() throws Exception {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        try (ParallelSearch search = new ParallelSearch(2, new TranspositionTable(4))) {
+            CompletableFuture<Integer> pondering = CompletableFuture.supplyAsync(
+                    () -> search.search(board, TimeUnit.HOURS.toMillis(1)));
+            Thread.sleep(200);
+            search.stop();
+
+            assertThat(pondering.get(5, TimeUnit.SECONDS)).isNotEqualTo(PackedMove.NONE);
+        }
+    }
+
+    @Test
+    @DisplayName("Monte Carlo search goes on with the tree of the same position")
+    void reusesTree() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        try (MonteCarloSearch search = new MonteCarloSearch(1, 1 << 16)) {
+            int move = search.search(board, 300, 60_000);
+            int pondered = search.getTreeSize();
+            search.search(board, 1, 60_000);
+            assertThat(search.getTreeSize()).isGreaterThanOrEqualTo(pondered);
+
+            Context.makeMove(board, move, new UndoRecord());
+            search.search(board, 1, 60_000);
+            assertThat(search.getTreeSize()).isLessThan(pondered);
+        }
+    }
+}
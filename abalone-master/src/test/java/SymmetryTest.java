@@ -0,0 +1,118 @@
+import de.lmu.ifi.sep.abalone.components.BoardGeometry;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.Symmetry;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Board symmetries")
+class SymmetryTest {
+
+    /**
+     * Plays random moves from the starting position.
+     */
+    private static BitboardAbaloneBoard randomPosition(final Random random, final int size,
+                                                       final int plies) {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(size);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        int[] buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * 14];
+        for (int ply = 0; ply < plies; ply++) {
+            int count = Context.generateMoves(board, board.getSideToMove(), buffer);
+            Context.makeMove(board, buffer[random.nextInt(count)], new UndoRecord());
+        }
+        return board;
+    }
+
+    private static BitboardAbaloneBoard image(final BitboardAbaloneBoard board, final int t) {
+        BitboardAbaloneBoard image = new BitboardAbaloneBoard(board.getSize());
+        Symmetry.forSize(board.getSize()).apply(board, t, image);
+        return image;
+    }
+
+    @Test
+    @DisplayName("Every symmetry moves cells and directions alike and can be undone")
+    void permutations() {
+        for (int size : new int[]{5, 7, 9}) {
+            BoardGeometry geometry = BoardGeometry.forSize(size);
+            Symmetry symmetry = Symmetry.forSize(size);
+            Set<String> distinct = new HashSet<>();
+            for (int t = 0; t < Symmetry.COUNT; t++) {
+                int[] cells = new int[geometry.getCellCount()];
+                for (int cell = 0; cell < cells.length; cell++) {
+                    cells[cell] = symmetry.getCell(t, cell);
+                    assertThat(symmetry.getCell(Symmetry.inverse(t), cells[cell])).isEqualTo(cell);
+                    for (int d = 0; d < BoardGeometry.DIRECTIONS; d++) {
+                        int neighbor = geometry.getNeighbor(cell, d);
+                        int image = geometry.getNeighbor(cells[cell], Symmetry.getDirection(t, d));
+                        assertThat(image).isEqualTo(neighbor < 0 ? -1 : symmetry.getCell(t, neighbor));
+                    }
+                }
+                assertThat(Arrays.stream(cells).distinct().count()).isEqualTo(cells.length);
+                distinct.add(Arrays.toString(cells));
+            }
+            assertThat(distinct).hasSize(Symmetry.COUNT);
+            assertThat(symmetry.getCell(Symmetry.IDENTITY, 5)).isEqualTo(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Symmetric positions share the canonical hash")
+    void canonicalHash() {
+        Random random = new Random(12);
+        Symmetry symmetry = Symmetry.forSize(9);
+        for (int game = 0; game < 10; game++) {
+            BitboardAbaloneBoard board = randomPosition(random, 9, 20);
+            long canonical = symmetry.canonicalHash(board);
+            for (int t = 0; t < Symmetry.COUNT; t++) {
+                BitboardAbaloneBoard image = image(board, t);
+
+                assertThat(symmetry.hash(board, t)).isEqualTo(image.getHash());
+                assertThat(symmetry.canonicalHash(image)).isEqualTo(canonical);
+            }
+            int t = symmetry.canonicalize(board);
+            assertThat(image(board, t).getHash()).isEqualTo(canonical);
+            assertThat(canonical).isLessThanOrEqualTo(board.getHash());
+        }
+    }
+
+    @Test
+    @DisplayName("Moves are packed on the image as the move generation does")
+    void moves() {
+        Random random = new Random(4);
+        Symmetry symmetry = Symmetry.forSize(9);
+        int[] buffer = new int[PackedMove.MAX_MOVES_PER_PIECE * 14];
+        for (int game = 0; game < 10; game++) {
+            BitboardAbaloneBoard board = randomPosition(random, 9, 30);
+            Owner side = board.getSideToMove();
+            int count = Context.generateMoves(board, side, buffer);
+            for (int t = 0; t < Symmetry.COUNT; t++) {
+                Set<Integer> expected = new HashSet<>();
+                for (int i = 0; i < count; i++) {
+                    int move = symmetry.transformMove(t, buffer[i]);
+                    expected.add(move);
+                    assertThat(symmetry.transformMove(Symmetry.inverse(t), move)).isEqualTo(buffer[i]);
+                }
+                BitboardAbaloneBoard image = image(board, t);
+                int[] moves = new int[buffer.length];
+                int imageCount = Context.generateMoves(image, side, moves);
+                Set<Integer> actual = new HashSet<>();
+                for (int i = 0; i < imageCount; i++) {
+                    actual.add(moves[i]);
+                }
+
+                assertThat(actual).isEqualTo(expected);
+            }
+        }
+        assertThat(symmetry.transformMove(3, PackedMove.NONE)).isEqualTo(PackedMove.NONE);
+    }
+}
@@ -0,0 +1,170 @@
+import de.lmu.ifi.sep.abalone.engine.EvaluatedBoard;
+import de.lmu.ifi.sep.abalone.engine.Tablebase;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Endgame tablebase")
+class TablebaseTest {
+
+    private static Path path;
+
+    @BeforeAll
+    static void build() throws IOException {
+        path = Files.createTempFile("tablebase", ".bin");
+        path.toFile().deleteOnExit();
+        new Tablebase.Builder(5, 2, 2, 2).write(path);
+    }
+
+    /**
+     * Places the marbles of the tablebase on random cells.
+     */
+    private static BitboardAbaloneBoard randomPosition(final Random random) {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(5);
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            board.setOwner(cell, Owner.EMPTY);
+        }
+        for (Owner owner : new Owner[]{Owner.PLAYER_WHITE, Owner.PLAYER_BLACK}) {
+            for (int placed = 0; placed < 2; ) {
+                int cell = random.nextInt(board.getCellCount());
+                if (!board.isOccupied(cell)) {
+                    board.setOwner(cell, owner);
+                    placed++;
+                }
+            }
+        }
+        board.setSideToMove(random.nextBoolean() ? Owner.PLAYER_WHITE : Owner.PLAYER_BLACK);
+        return board;
+    }
+
+    @Test
+    @DisplayName("Every value follows from the values after each move")
+    void consistent() throws IOException {
+        Random random = new Random(20);
+        int[] moves = new int[PackedMove.MAX_MOVES_PER_PIECE * 2];
+        int decided = 0;
+        try (Tablebase tablebase = new Tablebase(path)) {
+            for (int sample = 0; sample < 3_000; sample++) {
+                BitboardAbaloneBoard board = randomPosition(random);
+                int value = tablebase.probe(board);
+                int count = Context.generateMoves(board, board.getSideToMove(), moves);
+                boolean ejects = false;
+                int quickestWin = Integer.MAX_VALUE;
+                int slowestLoss = 0;
+                boolean allLose = true;
+                for (int i = 0; i < count; i++) {
+                    if (PackedMove.isEjecting(moves[i])) {
+                        ejects = true;
+                        continue;
+                    }
+                    UndoRecord undo = new UndoRecord();
+                    Context.makeMove(board, moves[i], undo);
+                    int next = -tablebase.probe(board);
+                    Context.unmakeMove(board, undo);
+                    if (next > 0) {
+                        quickestWin = Math.min(quickestWin, next + 1);
+                    }
+                    if (next < 0) {
+                        slowestLoss = Math.max(slowestLoss, 1 - next);
+                    } else {
+                        allLose = false;
+                    }
+                }
+
+                if (ejects) {
+                    assertThat(value).isEqualTo(1);
+                } else if (quickestWin != Integer.MAX_VALUE) {
+                    assertThat(value).isEqualTo(quickestWin);
+                } else if (allLose && count > 0) {
+                    assertThat(value).isEqualTo(-slowestLoss);
+                } else {
+                    assertThat(value).isEqualTo(0);
+                }
+                decided += value != 0 ? 1 : 0;
+            }
+        }
+        assertThat(decided).isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("Threads compute the same tablebase")
+    void parallel() {
+        byte[] single = new Tablebase.Builder(5, 2, 1, 1).build();
+        byte[] parallel = new Tablebase.Builder(5, 2, 1, 3).build();
+
+        assertThat(parallel).isEqualTo(single);
+        assertThat(single.length).isEqualTo(2 * 171 * 17);
+        // a single black marble can never push, so black never wins
+        for (int i = 0; i < single.length / 2; i++) {
+            assertThat(single[i]).isGreaterThanOrEqualTo((byte) 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Best moves win as quickly as possible")
+    void bestMove() throws IOException {
+        Random random = new Random(21);
+        try (Tablebase tablebase = new Tablebase(path)) {
+            assertThat(tablebase.getPositions()).isEqualTo(2 * 171 * 136);
+            assertThat(tablebase.getPieces(Owner.PLAYER_WHITE)).isEqualTo(2);
+            for (int sample = 0; sample < 500; sample++) {
+                BitboardAbaloneBoard board = randomPosition(random);
+                int value = tablebase.probe(board);
+                int move = tablebase.bestMove(board);
+                if (value == 1) {
+                    assertThat(PackedMove.isEjecting(move)).isTrue();
+                } else if (value > 0) {
+                    Context.makeMove(board, move, new UndoRecord());
+                    assertThat(tablebase.probe(board)).isEqualTo(1 - value);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Covers games only in the endgame it was computed for")
+    void covers() throws IOException {
+        try (Tablebase tablebase = new Tablebase(path)) {
+            EvaluatedBoard board = new EvaluatedBoard(5);
+
+            assertThat(tablebase.covers(board)).isFalse();
+            assertThatThrownBy(() -> tablebase.probe(board))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThatThrownBy(() -> new Tablebase.Builder(5, 10, 10, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Tablebase.Builder(11, 1, 1, 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("64 cells");
+    }
+
+    @Test
+    @DisplayName("Knows the marbles of the endgames it covers")
+    void coveredPieces() {
+        EvaluatedBoard board = new EvaluatedBoard(5);
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            board.setOwner(cell, Owner.EMPTY);
+        }
+        int covered = Tablebase.coveredPieces(5);
+        for (int i = 0; i < 2 * covered; i++) {
+            board.setOwner(i, i % 2 == 0 ? Owner.PLAYER_WHITE : Owner.PLAYER_BLACK);
+        }
+
+        assertThat(covered).isEqualTo(5);
+        assertThat(board.getPiecesToWin(Owner.PLAYER_WHITE)).isEqualTo(1);
+        assertThat(board.getPiecesToWin(Owner.PLAYER_BLACK)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,118 @@
+import de.lmu.ifi.sep.abalone.engine.Engine;
+import de.lmu.ifi.sep.abalone.engine.EvaluatedBoard;
+import de.lmu.ifi.sep.abalone.engine.Tournament;
+import de.lmu.ifi.sep.abalone.engine.Tournament.Game;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.UndoRecord;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Self-play tournament")
+class TournamentTest {
+
+    private static final Tournament TOURNAMENT = new Tournament(7, 10, 20, 2);
+
+    @Test
+    @DisplayName("Plays legal games with alternating colors")
+    void playsGames() {
+        List<Game> finished = new ArrayList<>();
+        List<Game> games = TOURNAMENT.run(2, Engine.ALPHA_BETA, Engine.MONTE_CARLO, finished::add);
+
+        assertThat(finished).containsExactlyInAnyOrderElementsOf(games);
+        assertThat(games.get(0).getBlack()).isEqualTo(Engine.ALPHA_BETA);
+        assertThat(games.get(0).getWhite()).isEqualTo(Engine.MONTE_CARLO);
+        assertThat(games.get(1).getBlack()).isEqualTo(Engine.MONTE_CARLO);
+        assertThat(games.get(1).getWhite()).isEqualTo(Engine.ALPHA_BETA);
+        for (Game game : games) {
+            assertThat(game.getPlies()).isBetween(1, 20);
+            assertThat(game.getNodes()).isGreaterThan(0);
+            EvaluatedBoard board = new EvaluatedBoard(game.getSize());
+            board.setSideToMove(Owner.PLAYER_BLACK);
+            for (int move : game.getMoves()) {
+                assertThat(Context.toMove(board, move)).isNotNull();
+                Context.makeMove(board, move, new UndoRecord());
+            }
+            if (game.getWinner() == Owner.EMPTY) {
+                assertThat(game.getPlies()).isEqualTo(20);
+            } else {
+                assertThat(board.hasLost(board.getSideToMove())).isTrue();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Writes a line of CSV per game")
+    void csv() {
+        Game game = new Game(3, Engine.MONTE_CARLO, Engine.ALPHA_BETA, 9, Owner.PLAYER_WHITE,
+                new int[]{1, 2, 3, 4}, 8_000, 2_000_000_000L);
+
+        assertThat(Tournament.CSV_HEADER.split(",")).hasSize(game.toCsv().split(",").length);
+        assertThat(game.toCsv()).isEqualTo("3,mcts,alphabeta,white,4,2000,2.00,4000");
+        assertThat(game.getWinningEngine()).isEqualTo(Engine.ALPHA_BETA);
+    }
+
+    @Test
+    @DisplayName("Counts wins by color and game, also for engines of the same name")
+    void winner() {
+        Game first = new Game(0, Engine.ALPHA_BETA, Engine.ALPHA_BETA, 9, Owner.PLAYER_BLACK,
+                new int[0], 0, 0);
+        Game second = new Game(1, Engine.ALPHA_BETA, Engine.ALPHA_BETA, 9, Owner.PLAYER_BLACK,
+                new int[0], 0, 0);
+        Game draw = new Game(2, Engine.ALPHA_BETA, Engine.ALPHA_BETA, 9, Owner.EMPTY,
+                new int[0], 0, 0);
+
+        assertThat(Tournament.winner(first)).isEqualTo(0);
+        assertThat(Tournament.winner(second)).isEqualTo(1);
+        assertThat(Tournament.winner(draw)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Plays more games than workers with the engines of each worker")
+    void reusesEngines() {
+        List<Game> games = new Tournament(7, 5, 10, 2)
+                .run(5, Engine.MONTE_CARLO, Engine.MONTE_CARLO, game -> {
+                });
+
+        assertThat(games).hasSize(5).doesNotContainNull();
+        assertThat(Engine.exists(Engine.MONTE_CARLO)).isTrue();
+        assertThat(Engine.exists("random")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Reads back the binary game records")
+    void binary() throws IOException {
+        Game game = TOURNAMENT.play(0, Engine.ALPHA_BETA, Engine.ALPHA_BETA);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        game.write(new DataOutputStream(bytes));
+
+        Game read = Game.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(read.getIndex()).isEqualTo(game.getIndex());
+        assertThat(read.getBlack()).isEqualTo(game.getBlack());
+        assertThat(read.getWhite()).isEqualTo(game.getWhite());
+        assertThat(read.getSize()).isEqualTo(game.getSize());
+        assertThat(read.getWinner()).isEqualTo(game.getWinner());
+        assertThat(read.getMoves()).isEqualTo(game.getMoves());
+        assertThat(read.getNodes()).isEqualTo(game.getNodes());
+        assertThat(read.getNanos()).isEqualTo(game.getNanos());
+    }
+
+    @Test
+    @DisplayName("Rejects unknown engines before playing")
+    void unknownEngine() {
+        assertThatThrownBy(() -> TOURNAMENT.run(2, Engine.ALPHA_BETA, "random", game -> {
+        })).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,124 @@
+import de.lmu.ifi.sep.abalone.engine.AlphaBetaSearch;
+import de.lmu.ifi.sep.abalone.engine.TranspositionTable;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Transposition table")
+class TranspositionTableTest {
+
+    @Test
+    @DisplayName("Is sized in megabytes")
+    void size() {
+        assertThat(new TranspositionTable(1).getSlotCount()).isEqualTo(1 << 16);
+        assertThat(new TranspositionTable(3).getSlotCount()).isEqualTo(1 << 17);
+        assertThat(new TranspositionTable(0).getSlotCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Stores and finds entries")
+    void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        long hash = 0x123456789ABCDEFL;
+        int move = PackedMove.encode(60, 3, 5, 5, 2, true);
+        table.store(hash, move, -AlphaBetaSearch.WIN, 64, TranspositionTable.UPPER);
+
+        long entry = table.probe(hash);
+        assertThat(entry).isNotZero();
+        assertThat(TranspositionTable.getMove(entry)).isEqualTo(move);
+        assertThat(TranspositionTable.getScore(entry)).isEqualTo(-AlphaBetaSearch.WIN);
+        assertThat(TranspositionTable.getDepth(entry)).isEqualTo(64);
+        assertThat(TranspositionTable.getBound(entry)).isEqualTo(TranspositionTable.UPPER);
+
+        table.store(hash, PackedMove.NONE, 17, 3, TranspositionTable.EXACT);
+        entry = table.probe(hash);
+        assertThat(TranspositionTable.getMove(entry)).isEqualTo(move);
+        assertThat(TranspositionTable.getScore(entry)).isEqualTo(17);
+    }
+
+    @Test
+    @DisplayName("Misses positions sharing a slot")
+    void collisions() {
+        TranspositionTable table = new TranspositionTable(1);
+        long hash = 42;
+        long other = hash + table.getSlotCount();
+        assertThat(table.probe(hash)).isZero();
+        table.store(hash, 1, 1, 5, TranspositionTable.EXACT);
+        assertThat(table.probe(other)).isZero();
+
+        table.store(other, 2, 2, 4, TranspositionTable.EXACT);
+        assertThat(table.probe(other)).isZero();
+        table.newSearch();
+        table.store(other, 2, 2, 4, TranspositionTable.EXACT);
+        assertThat(table.probe(hash)).isZero();
+        assertThat(TranspositionTable.getMove(table.probe(other))).isEqualTo(2);
+
+        table.clear();
+        assertThat(table.probe(other)).isZero();
+    }
+
+    @Test
+    @DisplayName("Never returns torn entries to concurrent threads")
+    void concurrent() throws InterruptedException {
+        TranspositionTable table = new TranspositionTable(0);
+        AtomicLong hits = new AtomicLong();
+        AtomicLong wrong = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long seed = t;
+            threads.add(new Thread(() -> {
+                SplittableRandom random = new SplittableRandom(seed);
+                for (int i = 0; i < 200_000; i++) {
+                    long hash = random.nextLong();
+                    int value = (int) (hash >>> 45);
+                    table.store(hash, value, value, 1, TranspositionTable.EXACT);
+                    for (int j = 0; j < 8; j++) {
+                        long probe = table.probe(hash);
+                        if (probe == 0) {
+                            continue;
+                        }
+                        hits.incrementAndGet();
+                        if (TranspositionTable.getMove(probe) != value
+                                || TranspositionTable.getScore(probe) != value) {
+                            wrong.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(hits.get()).isPositive();
+        assertThat(wrong.get()).isZero();
+    }
+
+    @Test
+    @DisplayName("Lets a search repeat itself faster")
+    void searchReuse() {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        AlphaBetaSearch search = new AlphaBetaSearch(new TranspositionTable(4));
+
+        int first = search.search(board, 3, 60_000);
+        long nodes = search.getNodes();
+        int second = search.search(board, 3, 60_000);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(search.getNodes()).isLessThan(nodes);
+        long entry = search.getTable().probe(board.getHash());
+        assertThat(TranspositionTable.getMove(entry)).isEqualTo(first);
+    }
+}
@@ -1,4 +1,6 @@
 import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.components.VectorTable;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -185,4 +187,59 @@ class VectorTests {
 
     }
 
+    @Nested
+    @DisplayName("Canonical vectors of a VectorTable")
+    class VectorTableTests {
+
+        VectorTable table;
+
+        @BeforeEach
+        void setTable() {
+            table = VectorTable.forSize(9);
+        }
+
+        @Test
+        @DisplayName("go and invertGo return canonical instances")
+        void goCanonical() {
+            Vector center = table.get(0, 0);
+            for (Vector.Direction d : Vector.Direction.values()) {
+                Vector next = center.go(d);
+                assertThat(next).isSameAs(table.get(next.getX(), next.getY()));
+                assertThat(next.invertGo(d)).isSameAs(center);
+                assertThat(center.go(d)).isSameAs(next);
+            }
+            assertThat(center.getNeighbors()).isSameAs(center.getNeighbors());
+        }
+
+        @Test
+        @DisplayName("steps off the board return the sentinel")
+        void offBoard() {
+            Vector corner = table.get(4, -4);
+            assertThat(corner.go(Vector.Direction.E)).isSameAs(Vector.OFF_BOARD);
+            assertThat(corner.go(Vector.Direction.NW)).isSameAs(Vector.OFF_BOARD);
+            assertThat(Vector.OFF_BOARD.go(Vector.Direction.W)).isSameAs(Vector.OFF_BOARD);
+            assertThat(Vector.OFF_BOARD.invertGo(Vector.Direction.W)).isSameAs(Vector.OFF_BOARD);
+            assertThat(table.get(5, 0)).isNull();
+        }
+
+        @Test
+        @DisplayName("arithmetic keeps canonical instances on the board")
+        void arithmetic() {
+            Vector v = table.get(1, 1);
+            assertThat(v.addVector(new Vector(1, 0))).isSameAs(table.get(2, 1));
+            assertThat(v.addVector(new Vector(10, 0))).isEqualTo(new Vector(11, 1));
+            assertThat(table.canonical(new Vector(2, 2))).isSameAs(table.get(2, 2));
+            assertThat(v.getDirection(table.get(1, 2))).isEqualTo(Vector.Direction.SE);
+        }
+
+        @Test
+        @DisplayName("boards are built from canonical instances")
+        void boardKeys() {
+            AbaloneBoard board = new AbaloneBoard(9);
+            for (Vector key : board.getBoard().keySet()) {
+                assertThat(key).isSameAs(table.get(key.getX(), key.getY()));
+            }
+        }
+    }
+
 }
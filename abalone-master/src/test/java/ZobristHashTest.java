@@ -0,0 +1,79 @@
+import de.lmu.ifi.sep.abalone.components.ObservableMap;
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Zobrist hash")
+class ZobristHashTest {
+
+    @Test
+    @DisplayName("Same position gives the same hash on every board")
+    void deterministic() {
+        AbaloneBoard map = new AbaloneBoard(9);
+        BitboardAbaloneBoard bits = new BitboardAbaloneBoard(9);
+        assertThat(map.getHash()).isEqualTo(new AbaloneBoard(9).getHash());
+        assertThat(bits.getHash()).isEqualTo(map.getHash());
+        assertThat(new AbaloneBoard(11).getHash()).isNotEqualTo(map.getHash());
+    }
+
+    @Test
+    @DisplayName("Incremental updates match a full calculation")
+    void incremental() {
+        Random random = new Random(7);
+        AbaloneBoard map = new AbaloneBoard(9);
+        BitboardAbaloneBoard bits = new BitboardAbaloneBoard(9);
+        Owner[] owners = Owner.values();
+        for (int i = 0; i < 1000; i++) {
+            int cell = random.nextInt(map.getGeometry().getCellCount());
+            Owner owner = owners[random.nextInt(owners.length)];
+            map.setOwner(map.getGeometry().getPosition(cell), owner);
+            bits.setOwner(cell, owner);
+            if (i % 10 == 0) {
+                Owner side = i % 20 == 0 ? Owner.PLAYER_BLACK : Owner.PLAYER_WHITE;
+                map.setSideToMove(side);
+                bits.setSideToMove(side);
+            }
+            assertThat(map.getHash()).isEqualTo(map.computeHash());
+            assertThat(bits.getHash()).isEqualTo(map.getHash());
+        }
+    }
+
+    @Test
+    @DisplayName("Side to move and cells change the hash reversibly")
+    void reversible() {
+        AbaloneBoard board = new AbaloneBoard(9);
+        long start = board.getHash();
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        long black = board.getHash();
+        assertThat(black).isNotEqualTo(start);
+        board.setSideToMove(Owner.PLAYER_WHITE);
+        assertThat(board.getHash()).isNotEqualTo(black);
+        board.setSideToMove(Owner.PLAYER_BLACK);
+        assertThat(board.getHash()).isEqualTo(black);
+
+        Vector center = new Vector(0, 0);
+        board.setOwner(center, Owner.PLAYER_WHITE);
+        assertThat(board.getHash()).isNotEqualTo(black);
+        board.setOwner(center, Owner.EMPTY);
+        assertThat(board.getHash()).isEqualTo(black);
+    }
+
+    @Test
+    @DisplayName("Synchronized boards take over the hash")
+    void setBoard() {
+        AbaloneBoard source = new AbaloneBoard(9);
+        source.setOwner(new Vector(0, 0), Owner.PLAYER_BLACK);
+        source.setOwner(new Vector(-2, 4), Owner.EMPTY);
+        AbaloneBoard target = new AbaloneBoard(9);
+        target.setBoard(new ObservableMap<>(source.getBoard()));
+        assertThat(target.getHash()).isEqualTo(source.getHash());
+        assertThat(new BitboardAbaloneBoard(source).getHash()).isEqualTo(source.getHash());
+    }
+}
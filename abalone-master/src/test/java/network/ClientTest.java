@@ -6,6 +6,7 @@ import de.lmu.ifi.sep.abalone.network.NetworkUtilities;
 import de.lmu.ifi.sep.abalone.network.clients.GuestClient;
 import de.lmu.ifi.sep.abalone.network.clients.HostClient;
 import de.lmu.ifi.sep.abalone.network.message.Message;
+import de.lmu.ifi.sep.abalone.network.message.MessageCodec;
 import org.junit.jupiter.api.*;
 
 import java.io.IOException;
@@ -62,6 +63,10 @@ class ClientTest {
         Assertions.assertEquals(Message.MessageType.MOVE, host.getMessageQueue().takeFirst().getMessageType());
     }
 
-
+    @Test
+    @DisplayName("Clients agree on the binary wire format")
+    void codecTest() {
+        Assertions.assertEquals(MessageCodec.BINARY, host.getCodec().getFormat());
+        Assertions.assertEquals(MessageCodec.BINARY, guest.getCodec().getFormat());
+    }
 }
-
@@ -0,0 +1,219 @@
+package network;
+
+import de.lmu.ifi.sep.abalone.engine.EvaluatedBoard;
+import de.lmu.ifi.sep.abalone.logic.Context;
+import de.lmu.ifi.sep.abalone.logic.PackedMove;
+import de.lmu.ifi.sep.abalone.logic.communication.InitPackage;
+import de.lmu.ifi.sep.abalone.logic.communication.Move;
+import de.lmu.ifi.sep.abalone.logic.communication.SyncPackage;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.network.message.Message;
+import de.lmu.ifi.sep.abalone.network.message.MessageCodec;
+import de.lmu.ifi.sep.abalone.network.server.GameServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Game server")
+class GameServerTest {
+
+    private static final int SIZE = 9;
+
+    private GameServer server;
+
+    /**
+     * Guest speaking the protocol over a plain socket.
+     */
+    private final class Guest implements Closeable {
+
+        private final Socket socket;
+        private final MessageCodec codec;
+
+        Guest() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            socket.setSoTimeout(10_000);
+            codec = MessageCodec.negotiate(new BufferedInputStream(socket.getInputStream()),
+                    new BufferedOutputStream(socket.getOutputStream()), MessageCodec.BINARY);
+        }
+
+        void send(final Message.MessageType type, final java.io.Serializable payload) throws IOException {
+            codec.write(new Message(type, payload));
+        }
+
+        Message receive() throws Exception {
+            return (Message) codec.read();
+        }
+
+        /**
+         * Sends {@code RDY} to ask for the game.
+         */
+        void ready() throws IOException {
+            send(Message.MessageType.RDY, null);
+        }
+
+        InitPackage init() throws Exception {
+            Message init = receive();
+            assertThat(init.getMessageType()).isEqualTo(Message.MessageType.INIT);
+            return (InitPackage) init.getPayload();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * Asks both guests of a room for the game and reads their {@code INIT}.
+     * The server pairs guests in the order it reads their handshakes, which
+     * need not be the order they connected in.
+     *
+     * @return The guest playing black and the one playing white.
+     */
+    private static Guest[] start(final Guest first, final Guest second) throws Exception {
+        first.ready();
+        second.ready();
+        boolean firstIsBlack = first.init().getYourColor() == Owner.PLAYER_BLACK;
+        second.init();
+        return firstIsBlack ? new Guest[]{first, second} : new Guest[]{second, first};
+    }
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new GameServer(0, SIZE, 2);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+    }
+
+    private static Move firstMove(final EvaluatedBoard board, final Owner side) {
+        int[] moves = new int[PackedMove.MAX_MOVES_PER_PIECE * board.countPieces(side)];
+        Context.generateMoves(board, side, moves);
+        return Context.toMove(board, moves[0]);
+    }
+
+    @Test
+    @DisplayName("Pairs guests and passes valid moves on")
+    void game() throws Exception {
+        try (Guest first = new Guest(); Guest second = new Guest()) {
+            first.ready();
+            second.ready();
+            InitPackage firstInit = first.init();
+            InitPackage secondInit = second.init();
+            boolean firstIsBlack = firstInit.getYourColor() == Owner.PLAYER_BLACK;
+            Guest black = firstIsBlack ? first : second;
+            Guest white = firstIsBlack ? second : first;
+            InitPackage blackInit = firstIsBlack ? firstInit : secondInit;
+            InitPackage whiteInit = firstIsBlack ? secondInit : firstInit;
+
+            assertThat(blackInit.getGameSize()).isEqualTo(SIZE);
+            assertThat(blackInit.getYourColor()).isEqualTo(Owner.PLAYER_BLACK);
+            assertThat(blackInit.isYourTurn()).isTrue();
+            assertThat(whiteInit.getYourColor()).isEqualTo(Owner.PLAYER_WHITE);
+            assertThat(whiteInit.isYourTurn()).isFalse();
+
+            EvaluatedBoard board = new EvaluatedBoard(SIZE);
+            Move move = firstMove(board, Owner.PLAYER_BLACK);
+            black.send(Message.MessageType.MOVE, move);
+            Message passed = white.receive();
+
+            assertThat(passed.getMessageType()).isEqualTo(Message.MessageType.MOVE);
+            assertThat(((Move) passed.getPayload()).getSelected())
+                    .containsExactlyElementsOf(move.getSelected());
+            assertThat(((Move) passed.getPayload()).getTarget()).isEqualTo(move.getTarget());
+            assertThat(server.getRooms()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Answers moves out of turn with the board and turn of the room")
+    void outOfTurn() throws Exception {
+        try (Guest first = new Guest(); Guest second = new Guest()) {
+            Guest[] guests = start(first, second);
+            Guest black = guests[0];
+            Guest white = guests[1];
+
+            white.send(Message.MessageType.MOVE, firstMove(new EvaluatedBoard(SIZE), Owner.PLAYER_WHITE));
+            Message sync = white.receive();
+
+            assertThat(sync.getMessageType()).isEqualTo(Message.MessageType.SYNC);
+            assertThat(((SyncPackage) sync.getPayload()).getBoard())
+                    .isEqualTo(new EvaluatedBoard(SIZE).getBoard());
+            assertThat(((SyncPackage) sync.getPayload()).getTurn()).isEqualTo(Owner.PLAYER_BLACK);
+        }
+    }
+
+    @Test
+    @DisplayName("Hosts many rooms at once")
+    void manyRooms() throws Exception {
+        List<Guest> guests = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                guests.add(new Guest());
+            }
+            for (Guest guest : guests) {
+                guest.send(Message.MessageType.RDY, null);
+            }
+            int black = 0;
+            for (Guest guest : guests) {
+                Message init = guest.receive();
+                assertThat(init.getMessageType()).isEqualTo(Message.MessageType.INIT);
+                if (((InitPackage) init.getPayload()).isYourTurn()) {
+                    black++;
+                }
+            }
+
+            assertThat(black).isEqualTo(100);
+            assertThat(server.getRooms()).isEqualTo(100);
+            assertThat(server.getConnections()).isEqualTo(200);
+        } finally {
+            for (Guest guest : guests) {
+                guest.close();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Drops guests sending serialized payloads")
+    void serialized() throws Exception {
+        try (Guest first = new Guest(); Guest second = new Guest()) {
+            Guest[] guests = start(first, second);
+            Guest black = guests[0];
+            Guest white = guests[1];
+            // packed payloads are moves, anything else is serialized
+            black.send(Message.MessageType.MOVE, "not a move");
+
+            assertThatThrownBy(black::receive).isInstanceOf(IOException.class);
+            assertThatThrownBy(white::receive).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    @DisplayName("Closes the room when a guest leaves")
+    void leave() throws Exception {
+        try (Guest first = new Guest(); Guest second = new Guest()) {
+            Guest[] guests = start(first, second);
+            Guest black = guests[0];
+            Guest white = guests[1];
+            black.close();
+
+            assertThatThrownBy(white::receive).isInstanceOf(IOException.class);
+        }
+    }
+}
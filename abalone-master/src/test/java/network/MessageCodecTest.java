@@ -0,0 +1,358 @@
+package network;
+
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.logic.BoardVersions;
+import de.lmu.ifi.sep.abalone.logic.Player;
+import de.lmu.ifi.sep.abalone.logic.communication.InitPackage;
+import de.lmu.ifi.sep.abalone.logic.communication.Move;
+import de.lmu.ifi.sep.abalone.logic.communication.SyncPackage;
+import de.lmu.ifi.sep.abalone.models.AbaloneBoard.Owner;
+import de.lmu.ifi.sep.abalone.models.BitboardAbaloneBoard;
+import de.lmu.ifi.sep.abalone.network.message.BinaryCodec;
+import de.lmu.ifi.sep.abalone.network.message.Message;
+import de.lmu.ifi.sep.abalone.network.message.MessageCodec;
+import de.lmu.ifi.sep.abalone.network.message.SerializationCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Message codecs")
+class MessageCodecTest {
+
+    private static final Move MOVE = new Move(Arrays.asList(new Vector(0, -4), new Vector(1, -4)),
+            new Vector(0, -3));
+
+    /**
+     * Sends an object through a binary codec and back.
+     *
+     * @return bytes on the wire and the object read
+     */
+    private static Object[] roundTrip(final Serializable message) throws Exception {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        new BinaryCodec(new ByteArrayInputStream(new byte[0]), wire).write(message);
+        Object read = new BinaryCodec(new ByteArrayInputStream(wire.toByteArray()),
+                new ByteArrayOutputStream()).read();
+        return new Object[]{wire.size(), read};
+    }
+
+    private static int serializedSize(final Serializable message) throws IOException {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        // stream header of the peer
+        byte[] header = {(byte) 0xAC, (byte) 0xED, 0, 5};
+        new SerializationCodec(new ByteArrayInputStream(header), wire).write(message);
+        return wire.size();
+    }
+
+    @Test
+    @DisplayName("Moves take a handful of bytes")
+    void move() throws Exception {
+        Object[] result = roundTrip(new Message(Message.MessageType.MOVE, MOVE));
+        Message read = (Message) result[1];
+        Move move = (Move) read.getPayload();
+
+        assertThat(read.getMessageType()).isEqualTo(Message.MessageType.MOVE);
+        assertThat(move.getSelected()).containsExactlyElementsOf(MOVE.getSelected());
+        assertThat(move.getTarget()).isEqualTo(MOVE.getTarget());
+        assertThat((int) result[0]).isEqualTo(6);
+        assertThat(serializedSize(new Message(Message.MessageType.MOVE, MOVE))).isGreaterThan(200);
+    }
+
+    @Test
+    @DisplayName("Synchronizations pack two bits per cell")
+    void sync() throws Exception {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(9);
+        board.setOwner(0, Owner.EMPTY);
+        Player host = new Player(Owner.PLAYER_BLACK, true, 5, true);
+        Player peer = new Player(Owner.PLAYER_WHITE, false, 6, false);
+        SyncPackage sync = new SyncPackage(new LinkedHashMap<>(board.getBoard()), host, peer);
+
+        Object[] result = roundTrip(new Message(Message.MessageType.SYNC, sync));
+        SyncPackage read = (SyncPackage) ((Message) result[1]).getPayload();
+
+        assertThat(read.getBoard()).isEqualTo(sync.getBoard());
+        assertThat(read.getPlayerOne()).isEqualTo(host);
+        assertThat(read.getPlayerTwo()).isEqualTo(peer);
+        assertThat(read.isDelta()).isFalse();
+        assertThat(read.getVersion()).isEqualTo(BoardVersions.UNKNOWN);
+        assertThat(read.getHash()).isEqualTo(SyncPackage.NO_HASH);
+        assertThat(read.getTurn()).isNull();
+        assertThat((int) result[0]).isEqualTo(2 + 1 + 16 + 3 + 3 + 1 + 8 + 1);
+        assertThat(serializedSize(new Message(Message.MessageType.SYNC, sync))).isGreaterThan(1000);
+    }
+
+    @Test
+    @DisplayName("Synchronizations of changes pack their positions and versions")
+    void delta() throws Exception {
+        LinkedHashMap<Vector, Owner> cells = new LinkedHashMap<>();
+        cells.put(new Vector(0, -4), Owner.EMPTY);
+        cells.put(new Vector(0, -3), Owner.PLAYER_BLACK);
+        cells.put(new Vector(0, -2), Owner.PLAYER_WHITE);
+        Player host = new Player(Owner.PLAYER_BLACK, true, 5, true);
+        Player peer = new Player(Owner.PLAYER_WHITE, false, 6, false);
+        SyncPackage sync = new SyncPackage(cells, host, peer, 300, 299, 0x123456789ABCDEFL,
+                Owner.PLAYER_WHITE);
+
+        Object[] result = roundTrip(new Message(Message.MessageType.SYNC, sync));
+        SyncPackage read = (SyncPackage) ((Message) result[1]).getPayload();
+        Object[] request = roundTrip(new Message(Message.MessageType.SYNC_REQUEST, 299));
+
+        assertThat(read.isDelta()).isTrue();
+        assertThat(read.getBoard()).isEqualTo(cells);
+        assertThat(read.getBoard().keySet()).containsExactlyElementsOf(cells.keySet());
+        assertThat(read.getSince()).isEqualTo(299);
+        assertThat(read.getVersion()).isEqualTo(300);
+        assertThat(read.getPlayerOne()).isEqualTo(host);
+        assertThat(read.getPlayerTwo()).isEqualTo(peer);
+        assertThat(read.getHash()).isEqualTo(0x123456789ABCDEFL);
+        assertThat(read.getTurn()).isEqualTo(Owner.PLAYER_WHITE);
+        assertThat((int) result[0]).isEqualTo(2 + 1 + 2 + 1 + 3 + 1 + 3 + 3 + 2 + 8 + 1);
+        assertThat(((Message) request[1]).getPayload()).isEqualTo(299);
+        assertThat((int) request[0]).isEqualTo(2 + 2);
+        assertThat(((Message) roundTrip(new Message(Message.MessageType.SYNC_REQUEST,
+                BoardVersions.UNKNOWN))[1]).getPayload()).isEqualTo(BoardVersions.UNKNOWN);
+    }
+
+    @Test
+    @DisplayName("Init and empty messages fit into a few bytes")
+    void small() throws Exception {
+        Object[] init = roundTrip(new Message(Message.MessageType.INIT,
+                new InitPackage(7, Owner.PLAYER_WHITE)));
+        Object[] ready = roundTrip(new Message(Message.MessageType.RDY, null));
+        InitPackage read = (InitPackage) ((Message) init[1]).getPayload();
+
+        assertThat((int) init[0]).isEqualTo(4);
+        assertThat(read.getGameSize()).isEqualTo(7);
+        assertThat(read.getYourColor()).isEqualTo(Owner.PLAYER_WHITE);
+        assertThat(read.isYourTurn()).isFalse();
+        assertThat(((InitPackage) ((Message) roundTrip(new Message(Message.MessageType.INIT,
+                new InitPackage(9, Owner.PLAYER_BLACK, true)))[1]).getPayload()).isYourTurn()).isTrue();
+        assertThat((int) ready[0]).isEqualTo(2);
+        assertThat(((Message) ready[1]).getMessageType()).isEqualTo(Message.MessageType.RDY);
+        assertThat(((Message) ready[1]).getPayload()).isNull();
+    }
+
+    @Test
+    @DisplayName("Unknown payloads and objects fall back to serialization")
+    void fallback() throws Exception {
+        Message read = (Message) roundTrip(new Message(Message.MessageType.ERROR, "lost"))[1];
+        Object other = roundTrip(Integer.valueOf(42))[1];
+        Move offBoard = new Move(Arrays.asList(new Vector(0, 0)), Vector.OFF_BOARD);
+        Move readMove = (Move) ((Message) roundTrip(new Message(Message.MessageType.MOVE, offBoard))[1])
+                .getPayload();
+
+        assertThat(read.getMessageType()).isEqualTo(Message.MessageType.ERROR);
+        assertThat(read.getPayload()).isEqualTo("lost");
+        assertThat(other).isEqualTo(42);
+        assertThat(readMove.getTarget()).isSameAs(Vector.OFF_BOARD);
+    }
+
+    @Test
+    @DisplayName("Packages keep the serial version of older peers")
+    void serialVersions() {
+        assertThat(ObjectStreamClass.lookup(InitPackage.class).getSerialVersionUID())
+                .isEqualTo(5163122981595693560L);
+        assertThat(ObjectStreamClass.lookup(SyncPackage.class).getSerialVersionUID())
+                .isEqualTo(-4562857047098268412L);
+        assertThat(ObjectStreamClass.lookup(Vector.class).getSerialVersionUID())
+                .isEqualTo(6679825385497602202L);
+        assertThat(ObjectStreamClass.lookup(Player.class).getSerialVersionUID())
+                .isEqualTo(4740099108627177008L);
+    }
+
+    /**
+     * Shape of {@link SyncPackage} before versions were added.
+     */
+    private static final class LegacySync implements Serializable {
+        private static final long serialVersionUID = -4562857047098268412L;
+        private final LinkedHashMap<Vector, Owner> board;
+        private final Player playerOne;
+        private final Player playerTwo;
+
+        LegacySync(LinkedHashMap<Vector, Owner> board, Player playerOne, Player playerTwo) {
+            this.board = board;
+            this.playerOne = playerOne;
+            this.playerTwo = playerTwo;
+        }
+    }
+
+    private static byte[] utf(final String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(name);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Packages of older peers hold the whole board")
+    void legacySync() throws Exception {
+        BitboardAbaloneBoard board = new BitboardAbaloneBoard(5);
+        Player host = new Player(Owner.PLAYER_BLACK, true, 6, true);
+        Player peer = new Player(Owner.PLAYER_WHITE, false, 6, false);
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(wire)) {
+            out.writeObject(new Message(Message.MessageType.SYNC,
+                    new LegacySync(new LinkedHashMap<>(board.getBoard()), host, peer)));
+        }
+        // let the descriptor of the stand-in name the package
+        byte[] bytes = wire.toByteArray();
+        byte[] legacy = utf(LegacySync.class.getName());
+        byte[] current = utf(SyncPackage.class.getName());
+        int at = Collections.indexOfSubList(Arrays.asList(box(bytes)), Arrays.asList(box(legacy)));
+        ByteArrayOutputStream patched = new ByteArrayOutputStream();
+        patched.write(bytes, 0, at);
+        patched.write(current);
+        patched.write(bytes, at + legacy.length, bytes.length - at - legacy.length);
+
+        Message read = (Message) new SerializationCodec(new ByteArrayInputStream(patched.toByteArray()),
+                new ByteArrayOutputStream()).read();
+        SyncPackage sync = (SyncPackage) read.getPayload();
+
+        assertThat(at).isPositive();
+        assertThat(sync.getBoard()).isEqualTo(board.getBoard());
+        assertThat(sync.getPlayerOne()).isEqualTo(host);
+        assertThat(sync.getPlayerTwo()).isEqualTo(peer);
+        assertThat(sync.isDelta()).isFalse();
+        assertThat(sync.getSince()).isEqualTo(SyncPackage.FULL);
+        assertThat(sync.getVersion()).isEqualTo(BoardVersions.UNKNOWN);
+        assertThat(sync.getHash()).isEqualTo(SyncPackage.NO_HASH);
+        assertThat(sync.getTurn()).isNull();
+    }
+
+    private static Byte[] box(final byte[] bytes) {
+        Byte[] boxed = new Byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            boxed[i] = bytes[i];
+        }
+        return boxed;
+    }
+
+    @Test
+    @DisplayName("Serialized classes that are no part of messages are refused")
+    void foreignClass() {
+        assertThatThrownBy(() -> roundTrip(new Message(Message.MessageType.ERROR, new java.util.Date())))
+                .isInstanceOf(InvalidClassException.class);
+        assertThatThrownBy(() -> roundTrip(new java.util.TreeSet<>()))
+                .isInstanceOf(InvalidClassException.class);
+    }
+
+    @Test
+    @DisplayName("Several frames follow each other, truncated ones fail")
+    void frames() throws Exception {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        BinaryCodec writer = new BinaryCodec(new ByteArrayInputStream(new byte[0]), wire);
+        for (int i = 0; i < 300; i++) {
+            writer.write(new Message(Message.MessageType.MOVE, MOVE));
+        }
+        byte[] bytes = wire.toByteArray();
+        BinaryCodec reader = new BinaryCodec(new ByteArrayInputStream(bytes), new ByteArrayOutputStream());
+        for (int i = 0; i < 300; i++) {
+            assertThat(((Message) reader.read()).getPayload()).isInstanceOf(Move.class);
+        }
+        BinaryCodec truncated = new BinaryCodec(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, 4)), new ByteArrayOutputStream());
+
+        assertThatThrownBy(truncated::read).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    @DisplayName("Frames longer than the limit are refused before they arrive")
+    void tooLong() {
+        // length 2^27 in four bytes, and no frame behind it
+        byte[] header = {(byte) 0x80, (byte) 0x80, (byte) 0x80, 0x40};
+        BinaryCodec codec = new BinaryCodec(new ByteArrayInputStream(header), new ByteArrayOutputStream());
+
+        assertThatThrownBy(codec::read).isInstanceOf(IOException.class).hasMessageContaining("longer");
+        assertThatThrownBy(() -> BinaryCodec.readFrame(ByteBuffer.wrap(header)))
+                .isInstanceOf(IOException.class).hasMessageContaining("longer");
+        assertThatThrownBy(() -> roundTrip(new Message(Message.MessageType.ERROR,
+                new String(new char[BinaryCodec.MAX_FRAME_BYTES]))))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    @DisplayName("Both ends agree on the lower wire format")
+    void negotiate() throws Exception {
+        for (int preferred : new int[]{MessageCodec.BINARY, MessageCodec.SERIALIZATION}) {
+            try (ServerSocket server = new ServerSocket(0);
+                 Socket guest = new Socket("127.0.0.1", server.getLocalPort());
+                 Socket host = server.accept()) {
+                host.setSoTimeout(MessageCodec.HANDSHAKE_TIMEOUT_MILLIS);
+                CompletableFuture<MessageCodec> guestCodec = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return MessageCodec.negotiate(new BufferedInputStream(guest.getInputStream()),
+                                new BufferedOutputStream(guest.getOutputStream()), preferred);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                MessageCodec hostCodec = MessageCodec.negotiate(
+                        new BufferedInputStream(host.getInputStream()),
+                        new BufferedOutputStream(host.getOutputStream()), MessageCodec.BINARY);
+
+                assertThat(hostCodec.getFormat()).isEqualTo(preferred);
+                assertThat(guestCodec.get().getFormat()).isEqualTo(preferred);
+                guestCodec.get().write(new Message(Message.MessageType.MOVE, MOVE));
+                assertThat(((Message) hostCodec.read()).getPayload()).isInstanceOf(Move.class);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Peers that only speak object streams get serialization")
+    void olderPeer() throws Exception {
+        // the first peer sends right away, like a guest, the second one waits for a message
+        for (boolean sendsFirst : new boolean[]{true, false}) {
+            try (ServerSocket server = new ServerSocket(0);
+                 Socket older = new Socket("127.0.0.1", server.getLocalPort());
+                 Socket host = server.accept()) {
+                host.setSoTimeout(MessageCodec.HANDSHAKE_TIMEOUT_MILLIS);
+                CompletableFuture<Object> olderPeer = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        ObjectOutputStream out = new ObjectOutputStream(
+                                new BufferedOutputStream(older.getOutputStream()));
+                        out.flush();
+                        ObjectInputStream in = new ObjectInputStream(
+                                new BufferedInputStream(older.getInputStream()));
+                        if (sendsFirst) {
+                            out.writeObject(new Message(Message.MessageType.RDY, null));
+                            out.flush();
+                        }
+                        return in.readObject();
+                    } catch (IOException | ClassNotFoundException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                MessageCodec codec = MessageCodec.negotiate(new BufferedInputStream(host.getInputStream()),
+                        new BufferedOutputStream(host.getOutputStream()), MessageCodec.BINARY);
+                host.setSoTimeout(0);
+
+                assertThat(codec.getFormat()).isEqualTo(MessageCodec.SERIALIZATION);
+                if (sendsFirst) {
+                    assertThat(((Message) codec.read()).getMessageType()).isEqualTo(Message.MessageType.RDY);
+                }
+                codec.write(new Message(Message.MessageType.MOVE, MOVE));
+                assertThat(((Message) olderPeer.get()).getPayload()).isInstanceOf(Move.class);
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package network;
+
+import de.lmu.ifi.sep.abalone.components.Vector;
+import de.lmu.ifi.sep.abalone.logic.communication.Move;
+import de.lmu.ifi.sep.abalone.network.message.Message;
+import de.lmu.ifi.sep.abalone.network.message.SerializationCodec;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Serialization codec")
+class SerializationCodecTest {
+
+    /**
+     * Stream header of the peer.
+     */
+    private static final byte[] HEADER = {(byte) 0xAC, (byte) 0xED, 0, 5};
+
+    private static Message message(final int index) {
+        return new Message(Message.MessageType.MOVE, new Move(
+                Arrays.asList(new Vector(index % 5, -4), new Vector(index % 5 + 1, -4)),
+                new Vector(index % 5, -3)));
+    }
+
+    private static SerializationCodec codec(final OutputStream wire, final int resetMessages,
+                                            final long resetBytes) throws IOException {
+        return new SerializationCodec(new ByteArrayInputStream(HEADER), wire, resetMessages, resetBytes);
+    }
+
+    /**
+     * Writes a message and returns the bytes it took.
+     */
+    private static int size(final SerializationCodec codec, final ByteArrayOutputStream wire,
+                            final Message message) throws IOException {
+        int before = wire.size();
+        codec.write(message);
+        return wire.size() - before;
+    }
+
+    @Test
+    @DisplayName("Streams are reset after the configured messages")
+    void resetMessages() throws Exception {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        SerializationCodec codec = codec(wire, 2, 0);
+        Message message = message(0);
+
+        int first = size(codec, wire, message);
+        int reference = size(codec, wire, message);
+        int afterReset = size(codec, wire, message);
+
+        assertThat(reference).isLessThan(10);
+        assertThat(afterReset).isEqualTo(first);
+    }
+
+    @Test
+    @DisplayName("Streams are reset after the configured bytes")
+    void resetBytes() throws Exception {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        SerializationCodec codec = codec(wire, 0, 1);
+        Message message = message(0);
+
+        int first = size(codec, wire, message);
+
+        assertThat(first).isGreaterThan(10);
+        assertThat(size(codec, wire, message)).isEqualTo(first);
+    }
+
+    @Test
+    @DisplayName("Without limits messages are sent as back references")
+    void noReset() throws Exception {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        SerializationCodec codec = codec(wire, 0, 0);
+        Message message = message(0);
+        size(codec, wire, message);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(size(codec, wire, message)).isLessThan(10);
+        }
+    }
+
+    @Test
+    @DisplayName("By default the stream is reset after the default messages")
+    void defaultReset() throws Exception {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        SerializationCodec codec = new SerializationCodec(new ByteArrayInputStream(HEADER), wire);
+        Message message = message(0);
+
+        int first = size(codec, wire, message);
+        for (int i = 1; i < SerializationCodec.DEFAULT_RESET_MESSAGES; i++) {
+            assertThat(size(codec, wire, message)).isLessThan(10);
+        }
+
+        assertThat(size(codec, wire, message)).isEqualTo(first);
+    }
+
+    @Test
+    @DisplayName("The peer forgets messages with the reset")
+    void peer() throws Exception {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        SerializationCodec writer = codec(wire, 2, 0);
+        Message message = message(0);
+        for (int i = 0; i < 3; i++) {
+            writer.write(message);
+        }
+        SerializationCodec reader = new SerializationCodec(
+                new ByteArrayInputStream(wire.toByteArray()), new ByteArrayOutputStream());
+
+        Object first = reader.read();
+        Object reference = reader.read();
+        Object afterReset = reader.read();
+
+        assertThat(reference).isSameAs(first);
+        assertThat(afterReset).isNotSameAs(first);
+        assertThat(((Move) ((Message) afterReset).getPayload()).getTarget()).isEqualTo(new Vector(0, -3));
+    }
+}
@@ -0,0 +1,73 @@
+package network;
+
+import de.lmu.ifi.sep.abalone.logic.communication.EventBus;
+import de.lmu.ifi.sep.abalone.logic.communication.publishers.EventPublisher;
+import de.lmu.ifi.sep.abalone.network.NetworkUtilities;
+import de.lmu.ifi.sep.abalone.network.Transport;
+import de.lmu.ifi.sep.abalone.network.clients.GuestClient;
+import de.lmu.ifi.sep.abalone.network.clients.HostClient;
+import de.lmu.ifi.sep.abalone.network.message.Message;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Transports")
+class TransportTest {
+
+    @Test
+    @DisplayName("Platform transport starts the thread itself")
+    void platform() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        Thread thread = new Thread(ran::countDown, "platform-test");
+
+        assertThat(Transport.PLATFORM.start(thread)).isSameAs(thread);
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Virtual transport runs the task on a thread of the same name")
+    void virtual() throws InterruptedException {
+        AtomicReference<String> name = new AtomicReference<>();
+        CountDownLatch ran = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            name.set(Thread.currentThread().getName());
+            ran.countDown();
+        }, "virtual-test");
+
+        Thread started = Transport.VIRTUAL.start(thread);
+
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(name.get()).isEqualTo("virtual-test");
+        assertThat(started == thread).isEqualTo(!Transport.isVirtualSupported());
+    }
+
+    @Test
+    @DisplayName("Clients exchange messages on the virtual transport")
+    void clients() throws Exception {
+        int port = 12346;
+        EventBus eventBus = new EventBus();
+        HostClient host = new HostClient(port, new EventPublisher<>(eventBus));
+        GuestClient guest = new GuestClient(InetAddress.getLoopbackAddress(), port,
+                new EventPublisher<>(eventBus));
+        try {
+            CountDownLatch connected = new CountDownLatch(2);
+            host.start(connected::countDown, Transport.VIRTUAL);
+            guest.start(connected::countDown, Transport.VIRTUAL);
+            assertThat(connected.await(15, TimeUnit.SECONDS)).isTrue();
+
+            guest.send(new Message(Message.MessageType.RDY, null));
+
+            assertThat(host.getMessageQueue().pollFirst(5, TimeUnit.SECONDS).getMessageType())
+                    .isEqualTo(Message.MessageType.RDY);
+        } finally {
+            NetworkUtilities.close(guest);
+            NetworkUtilities.close(host);
+        }
+    }
+}
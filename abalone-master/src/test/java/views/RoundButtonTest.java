@@ -124,6 +124,22 @@ class RoundButtonTest {
         }
     }
 
+    @Test
+    @DisplayName("isHinted()")
+    void isHintedTest() {
+        differentButtons.addAll(equalButtons);
+        for (RoundButton button : differentButtons) {
+            Assertions.assertFalse(button.isHinted());
+
+            button.setHinted(true);
+            Assertions.assertTrue(button.isHinted());
+            Assertions.assertFalse(button.isSelected());
+
+            button.setHinted(false);
+            Assertions.assertFalse(button.isHinted());
+        }
+    }
+
     @Test
     @DisplayName("getPosition()")
     void getPositionTest() {